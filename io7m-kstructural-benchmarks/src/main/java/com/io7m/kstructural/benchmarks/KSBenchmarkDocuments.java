@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.benchmarks;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.kstructural.frontend.KSInputFormat;
+import com.io7m.kstructural.tests.generator.KSDocumentGenerator;
+import com.io7m.kstructural.tests.generator.KSDocumentGeneratorSettings;
+import com.io7m.kstructural.tests.generator.KSDocumentGeneratorType;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Functions to produce documents for benchmarks.
+ */
+
+public final class KSBenchmarkDocuments
+{
+  private KSBenchmarkDocuments()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new directory containing a document with {@code sections}
+   * sections in canonical ({@code main.sd}), imperative ({@code main.sdi})
+   * and XML ({@code main.xml}) form.
+   *
+   * @param sections The number of sections
+   *
+   * @return The directory containing the documents
+   *
+   * @throws Exception On errors
+   */
+
+  public static Path create(
+    final int sections)
+    throws Exception
+  {
+    final Path directory =
+      Files.createTempDirectory("kstructural-benchmarks-").toAbsolutePath();
+
+    final KSDocumentGeneratorSettings settings =
+      new KSDocumentGeneratorSettings(
+        0L, 0, sections, 4, 8, 32, 0.1, 0.1, 0, 0.0, 1);
+    final KSDocumentGeneratorType generator =
+      KSDocumentGenerator.Companion.create(settings);
+
+    for (final KSInputFormat format : KSInputFormat.values()) {
+      generator.generate(directory, format);
+    }
+
+    return directory;
+  }
+
+  /**
+   * Delete a directory created with {@link #create(int)}.
+   *
+   * @param directory The directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void delete(
+    final Path directory)
+    throws IOException
+  {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(
+        final Path file,
+        final BasicFileAttributes attrs)
+        throws IOException
+      {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(
+        final Path dir,
+        final IOException exc)
+        throws IOException
+      {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.benchmarks;
+
+import com.io7m.kstructural.core.KSElement.KSBlock;
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument;
+import com.io7m.kstructural.core.KSParse;
+import com.io7m.kstructural.core.KSParseContext;
+import com.io7m.kstructural.core.KSParseContextType;
+import com.io7m.kstructural.core.KSParseError;
+import com.io7m.kstructural.core.KSResult;
+import com.io7m.kstructural.core.evaluator.KSEvaluation;
+import com.io7m.kstructural.core.evaluator.KSEvaluationError;
+import com.io7m.kstructural.core.evaluator.KSEvaluator;
+import com.io7m.kstructural.frontend.KSParsers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluator benchmarks.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class KSEvaluatorBenchmark
+{
+  /**
+   * The number of sections in the evaluated document.
+   */
+
+  @Param({"1", "10", "100"})
+  public int sections;
+
+  private Path directory;
+  private Path file;
+  private KSBlockDocument<KSParse> document;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public KSEvaluatorBenchmark()
+  {
+
+  }
+
+  /**
+   * Create and parse the document.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public final void setup()
+    throws Exception
+  {
+    this.directory = KSBenchmarkDocuments.create(this.sections);
+    this.file = this.directory.resolve("main.sd");
+
+    final KSParseContextType c = KSParseContext.Companion.empty(this.directory);
+    final KSResult<KSBlock<KSParse>, KSParseError> r =
+      KSParsers.createCanonical(c).parseBlock(c, this.file);
+    this.document = (KSBlockDocument<KSParse>)
+      ((KSResult.KSSuccess<KSBlock<KSParse>, KSParseError>) r).getResult();
+  }
+
+  /**
+   * Delete the documents.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public final void tearDown()
+    throws IOException
+  {
+    KSBenchmarkDocuments.delete(this.directory);
+  }
+
+  /**
+   * @return The result of evaluating the document
+   */
+
+  @Benchmark
+  public final KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError> evaluate()
+  {
+    return KSEvaluator.INSTANCE.evaluate(this.document, this.file);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.benchmarks;
+
+import com.io7m.kstructural.core.KSElement.KSBlock;
+import com.io7m.kstructural.core.KSParse;
+import com.io7m.kstructural.core.KSParseContext;
+import com.io7m.kstructural.core.KSParseContextType;
+import com.io7m.kstructural.core.KSParseError;
+import com.io7m.kstructural.core.KSResult;
+import com.io7m.kstructural.frontend.KSParsers;
+import com.io7m.kstructural.parser.KSExpression;
+import com.io7m.kstructural.parser.KSExpressionParserType;
+import com.io7m.kstructural.parser.KSExpressionParsers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser benchmarks.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class KSParserBenchmark
+{
+  /**
+   * The number of sections in the parsed document.
+   */
+
+  @Param({"1", "10", "100"})
+  public int sections;
+
+  private Path directory;
+  private byte[] canonical;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public KSParserBenchmark()
+  {
+
+  }
+
+  /**
+   * Create the documents.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public final void setup()
+    throws Exception
+  {
+    this.directory = KSBenchmarkDocuments.create(this.sections);
+    this.canonical = Files.readAllBytes(this.directory.resolve("main.sd"));
+  }
+
+  /**
+   * Delete the documents.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public final void tearDown()
+    throws IOException
+  {
+    KSBenchmarkDocuments.delete(this.directory);
+  }
+
+  /**
+   * @return The result of parsing the canonical document
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final KSResult<KSBlock<KSParse>, KSParseError> parseCanonical()
+    throws IOException
+  {
+    final KSParseContextType c = KSParseContext.Companion.empty(this.directory);
+    return KSParsers.createCanonical(c).parseBlock(
+      c, this.directory.resolve("main.sd"));
+  }
+
+  /**
+   * @return The result of parsing the imperative document
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final KSResult<KSBlock<KSParse>, KSParseError> parseImperative()
+    throws IOException
+  {
+    final KSParseContextType c = KSParseContext.Companion.empty(this.directory);
+    return KSParsers.createImperative(c).parseBlock(
+      c, this.directory.resolve("main.sdi"));
+  }
+
+  /**
+   * @return The result of parsing the XML document
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final KSResult<KSBlock<KSParse>, KSParseError> parseXML()
+    throws IOException
+  {
+    final KSParseContextType c = KSParseContext.Companion.empty(this.directory);
+    return KSParsers.createXML(c).parseBlock(
+      c, this.directory.resolve("main.xml"));
+  }
+
+  private static List<KSExpression> expressions(
+    final KSExpressionParserType p)
+    throws IOException
+  {
+    final List<KSExpression> xs = new ArrayList<>(16);
+    try (final KSExpressionParserType pp = p) {
+      while (true) {
+        final Optional<KSExpression> e = pp.parse();
+        if (!e.isPresent()) {
+          break;
+        }
+        xs.add(e.get());
+      }
+    }
+    return xs;
+  }
+
+  /**
+   * @return The s-expressions of the canonical document, read with the JSX
+   * engine
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final List<KSExpression> expressionsJSX()
+    throws IOException
+  {
+    final Path file = this.directory.resolve("main.sd");
+    return KSParserBenchmark.expressions(
+      KSExpressionParsers.INSTANCE.createWithReader(
+        file,
+        new InputStreamReader(
+          new ByteArrayInputStream(this.canonical),
+          StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * @return The s-expressions of the canonical document, read with the
+   * native engine
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final List<KSExpression> expressionsNative()
+    throws IOException
+  {
+    final Path file = this.directory.resolve("main.sd");
+    return KSParserBenchmark.expressions(
+      KSExpressionParsers.INSTANCE.createWithBytes(file, this.canonical));
+  }
+}
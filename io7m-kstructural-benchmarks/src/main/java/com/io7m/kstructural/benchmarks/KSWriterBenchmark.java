@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.benchmarks;
+
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument;
+import com.io7m.kstructural.core.evaluator.KSEvaluation;
+import com.io7m.kstructural.frontend.KSBrandAppender;
+import com.io7m.kstructural.frontend.KSParseAndEvaluate;
+import com.io7m.kstructural.latex.KSLaTeXSettings;
+import com.io7m.kstructural.latex.KSLaTeXWriter;
+import com.io7m.kstructural.plain.KSPlainSettings;
+import com.io7m.kstructural.plain.KSPlainWriter;
+import com.io7m.kstructural.xom.KSXOMSettings;
+import com.io7m.kstructural.xom.KSXOMXHTMLMultiWriter;
+import com.io7m.kstructural.xom.KSXOMXHTMLSingleWriter;
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingMultiWriter;
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingSingleWriter;
+import nu.xom.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporter benchmarks.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class KSWriterBenchmark
+{
+  /**
+   * The number of sections in the exported document.
+   */
+
+  @Param({"1", "10", "100"})
+  public int sections;
+
+  private Path directory;
+  private KSBlockDocument<KSEvaluation> document;
+  private KSXOMSettings xhtml_settings;
+  private KSPlainSettings plain_settings;
+  private KSLaTeXSettings latex_settings;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public KSWriterBenchmark()
+  {
+
+  }
+
+  /**
+   * Create, parse and evaluate the document.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public final void setup()
+    throws Exception
+  {
+    this.directory = KSBenchmarkDocuments.create(this.sections);
+    this.document = KSParseAndEvaluate.parseAndEvaluate(
+      this.directory, this.directory.resolve("main.sd"));
+
+    final List<URI> styles = new ArrayList<>(2);
+    styles.add(KSXOMSettings.Companion.getCSSDefaultLayout());
+    styles.add(KSXOMSettings.Companion.getCSSDefaultColour());
+
+    final KSBrandAppender appender =
+      KSBrandAppender.newAppender(Optional.empty(), Optional.empty());
+
+    this.xhtml_settings = new KSXOMSettings(
+      true,
+      true,
+      true,
+      styles,
+      appender.getAppenderStart(),
+      appender.getAppenderEnd());
+    this.plain_settings = new KSPlainSettings(true, true, 80);
+    this.latex_settings = new KSLaTeXSettings(Collections.emptyMap());
+  }
+
+  /**
+   * Delete the documents.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public final void tearDown()
+    throws IOException
+  {
+    KSBenchmarkDocuments.delete(this.directory);
+  }
+
+  /**
+   * @return The single-page XHTML rendering of the document
+   */
+
+  @Benchmark
+  public final Map<String, Document> writeXHTMLSingle()
+  {
+    return KSXOMXHTMLSingleWriter.INSTANCE.write(
+      this.xhtml_settings, this.document);
+  }
+
+  /**
+   * @return The multi-page XHTML rendering of the document
+   */
+
+  @Benchmark
+  public final Map<String, Document> writeXHTMLMulti()
+  {
+    return KSXOMXHTMLMultiWriter.INSTANCE.write(
+      this.xhtml_settings, this.document);
+  }
+
+  /**
+   * Stream the single-page XHTML rendering of the document.
+   *
+   * @param bh A blackhole
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final void writeXHTMLSingleStreaming(
+    final Blackhole bh)
+    throws IOException
+  {
+    KSXOMXHTMLStreamingSingleWriter.INSTANCE.write(
+      this.xhtml_settings, this.document, name -> new BlackholeWriter(bh));
+  }
+
+  /**
+   * Stream the multi-page XHTML rendering of the document.
+   *
+   * @param bh A blackhole
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final void writeXHTMLMultiStreaming(
+    final Blackhole bh)
+    throws IOException
+  {
+    KSXOMXHTMLStreamingMultiWriter.INSTANCE.write(
+      this.xhtml_settings, this.document, name -> new BlackholeWriter(bh));
+  }
+
+  /**
+   * Render the document as plain text.
+   *
+   * @param bh A blackhole
+   */
+
+  @Benchmark
+  public final void writePlain(
+    final Blackhole bh)
+  {
+    final BlackholeWriter w = new BlackholeWriter(bh);
+    KSPlainWriter.INSTANCE.write(this.plain_settings, this.document, w);
+  }
+
+  /**
+   * Render the document as LaTeX.
+   *
+   * @param bh A blackhole
+   */
+
+  @Benchmark
+  public final void writeLaTeX(
+    final Blackhole bh)
+  {
+    final BlackholeWriter w = new BlackholeWriter(bh);
+    KSLaTeXWriter.INSTANCE.write(this.latex_settings, this.document, w);
+  }
+
+  private static final class BlackholeWriter extends Writer
+  {
+    private final Blackhole blackhole;
+
+    BlackholeWriter(
+      final Blackhole bh)
+    {
+      this.blackhole = bh;
+    }
+
+    @Override
+    public void write(
+      final char[] buffer,
+      final int offset,
+      final int length)
+    {
+      this.blackhole.consume(buffer);
+      this.blackhole.consume(length);
+    }
+
+    @Override
+    public void write(
+      final String text,
+      final int offset,
+      final int length)
+    {
+      this.blackhole.consume(text);
+      this.blackhole.consume(length);
+    }
+
+    @Override
+    public void flush()
+    {
+      // Nothing to flush
+    }
+
+    @Override
+    public void close()
+    {
+      // Nothing to close
+    }
+  }
+}
@@ -35,6 +35,7 @@ import com.io7m.kstructural.latex.KSLaTeXEmphasis;
 import com.io7m.kstructural.latex.KSLaTeXSettings;
 import com.io7m.kstructural.latex.KSLaTeXTypeMap;
 import com.io7m.kstructural.plain.KSPlainSettings;
+import com.io7m.kstructural.xom.KSJingValidation;
 import com.io7m.kstructural.xom.KSXOMSettings;
 import org.slf4j.LoggerFactory;
 
@@ -173,6 +174,7 @@ public final class KSCLMain implements Runnable
         (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(
           Logger.ROOT_LOGGER_NAME);
       root.setLevel(this.verbose.toLevel());
+      KSJingValidation.warmUp();
       return Unit.unit();
     }
   }
@@ -185,6 +187,11 @@ public final class KSCLMain implements Runnable
       description = "Input file",
       required = true)
     private String file;
+    @Parameter(
+      names = "-parse-cache",
+      description = "A directory in which parsed files will be cached",
+      required = false)
+    private String parse_cache;
 
     CommandCheck()
     {
@@ -199,7 +206,8 @@ public final class KSCLMain implements Runnable
 
       final FileSystem fs = FileSystems.getDefault();
       final Path p = fs.getPath(this.file);
-      final KSOpType op = KSOpCheck.create(p);
+      final KSOpType op = KSOpCheck.create(
+        p, Optional.ofNullable(this.parse_cache).map(fs::getPath));
       return op.call();
     }
   }
@@ -265,6 +273,21 @@ public final class KSCLMain implements Runnable
       description = "Append the contents of the given XML file to each XHTML page's body element",
       required = false)
     private String brand_bottom;
+    @Parameter(
+      names = "-threads",
+      description = "The number of threads used to parse files and write pages",
+      required = false)
+    private int threads = 1;
+    @Parameter(
+      names = "-parse-cache",
+      description = "A directory in which parsed files will be cached",
+      required = false)
+    private String parse_cache;
+    @Parameter(
+      names = "-incremental",
+      description = "Only write files whose content has changed since the last incremental build",
+      required = false)
+    private boolean incremental;
 
     CommandCompileXHTML()
     {
@@ -308,7 +331,10 @@ public final class KSCLMain implements Runnable
           output_path,
           s,
           this.pagination,
-          this.css_create_default);
+          this.css_create_default,
+          this.threads,
+          Optional.ofNullable(this.parse_cache).map(fs::getPath),
+          this.incremental);
       return op.call();
     }
   }
@@ -335,6 +361,12 @@ public final class KSCLMain implements Runnable
       required = false)
     private String type_map;
 
+    @Parameter(
+      names = "-parse-cache",
+      description = "A directory in which parsed files will be cached",
+      required = false)
+    private String parse_cache;
+
     CommandCompileLaTeX()
     {
 
@@ -362,7 +394,11 @@ public final class KSCLMain implements Runnable
 
       final KSLaTeXSettings settings = new KSLaTeXSettings(types);
       final KSOpType op =
-        KSOpCompileLaTeX.create(input_path, output_path, settings);
+        KSOpCompileLaTeX.create(
+          input_path,
+          output_path,
+          settings,
+          Optional.ofNullable(this.parse_cache).map(fs::getPath));
       return op.call();
     }
   }
@@ -383,6 +419,12 @@ public final class KSCLMain implements Runnable
       required = true)
     private String output;
 
+    @Parameter(
+      names = "-parse-cache",
+      description = "A directory in which parsed files will be cached",
+      required = false)
+    private String parse_cache;
+
     CommandCompilePlain()
     {
 
@@ -400,7 +442,10 @@ public final class KSCLMain implements Runnable
 
       final KSPlainSettings settings = new KSPlainSettings();
       final KSOpType op = KSOpCompilePlain.create(
-        input_path, output_path, settings);
+        input_path,
+        output_path,
+        settings,
+        Optional.ofNullable(this.parse_cache).map(fs::getPath));
       return op.call();
     }
   }
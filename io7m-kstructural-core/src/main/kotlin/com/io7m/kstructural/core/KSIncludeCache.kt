@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.core
+
+import org.valid4j.Assertive
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.LinkedHashMap
+import java.util.Optional
+
+/**
+ * The default implementation of the [KSIncludeCacheType] interface. The
+ * cache holds at most a given number of characters of file contents, and
+ * evicts the least recently used entries when that budget is exceeded.
+ * Contents larger than the entire budget are not cached.
+ */
+
+class KSIncludeCache private constructor(
+  private val max_chars : Long) : KSIncludeCacheType {
+
+  private class Entry(
+    val time : FileTime,
+    val size : Long,
+    val text : String)
+
+  private val entries : LinkedHashMap<Path, Entry> =
+    LinkedHashMap(16, 0.75f, true)
+
+  private var used : Long = 0L
+
+  companion object {
+
+    /**
+     * The default budget in characters: 16 million characters, or roughly
+     * 32MiB of string data.
+     */
+
+    const val DEFAULT_MAX_CHARS = 16L * 1024L * 1024L
+
+    fun create() : KSIncludeCacheType =
+      KSIncludeCache(DEFAULT_MAX_CHARS)
+
+    fun createWithMaximumCharacters(max_chars : Long) : KSIncludeCacheType {
+      Assertive.require(max_chars >= 0L)
+      return KSIncludeCache(max_chars)
+    }
+  }
+
+  @Synchronized override fun get(
+    file : Path,
+    time : FileTime,
+    size : Long) : Optional<String> {
+
+    val e = entries[file]
+    return if (e != null && e.size == size && e.time == time) {
+      Optional.of(e.text)
+    } else {
+      Optional.empty()
+    }
+  }
+
+  @Synchronized override fun put(
+    file : Path,
+    time : FileTime,
+    size : Long,
+    text : String) {
+
+    val length = text.length.toLong()
+    val existing = entries.remove(file)
+    if (existing != null) {
+      used -= existing.text.length.toLong()
+    }
+    if (length > max_chars) {
+      return
+    }
+
+    entries[file] = Entry(time, size, text)
+    used += length
+
+    val iter = entries.values.iterator()
+    while (used > max_chars && iter.hasNext()) {
+      val e = iter.next()
+      used -= e.text.length.toLong()
+      iter.remove()
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.core
+
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.Optional
+
+/**
+ * A cache of the contents of included files. Entries are keyed by the
+ * absolute path of a file, and are only returned if the modification time
+ * and size of the file are unchanged since the entry was stored.
+ *
+ * Implementations must be safe to use from multiple threads.
+ */
+
+interface KSIncludeCacheType {
+
+  /**
+   * @return The contents stored for `file`, iff they were stored for the
+   * given modification time and size
+   */
+
+  fun get(
+    file : Path,
+    time : FileTime,
+    size : Long) : Optional<String>
+
+  /**
+   * Store the contents `text` of `file`, read when the file had the given
+   * modification time and size.
+   */
+
+  fun put(
+    file : Path,
+    time : FileTime,
+    size : Long,
+    text : String) : Unit
+}
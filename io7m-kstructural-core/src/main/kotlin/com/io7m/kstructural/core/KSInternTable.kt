@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.core
+
+import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * The default implementation of the [KSInternTableType] interface. The
+ * table may be used from multiple threads at once. Strings longer than a
+ * fixed limit are rarely repeated and are returned unchanged, so that large
+ * blocks of text do not accumulate in the table.
+ */
+
+class KSInternTable private constructor(
+  private val max_length : Int) : KSInternTableType {
+
+  private val strings : ConcurrentHashMap<String, String> =
+    ConcurrentHashMap()
+
+  companion object {
+
+    /**
+     * The default maximum length of interned strings.
+     */
+
+    const val DEFAULT_MAX_LENGTH = 64
+
+    fun create() : KSInternTableType =
+      KSInternTable(DEFAULT_MAX_LENGTH)
+
+    fun createWithMaximumLength(max_length : Int) : KSInternTableType =
+      KSInternTable(max_length)
+
+    /**
+     * @return `s` interned in `table`, or `s` if no table is present
+     */
+
+    fun intern(
+      table : Optional<KSInternTableType>,
+      s : String) : String =
+      if (table.isPresent) table.get().intern(s) else s
+  }
+
+  override fun intern(s : String) : String {
+    if (s.length > max_length) {
+      return s
+    }
+    val existing = strings.putIfAbsent(s, s)
+    return existing ?: s
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.core
+
+import java.nio.file.Path
+import java.util.Optional
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * A table of the files referenced by the lexical positions produced by a
+ * single parse context. Each distinct file is stored exactly once, so
+ * positions need only carry a small index into the table rather than their
+ * own reference to a file.
+ */
+
+class KSLexicalFileTable private constructor() {
+
+  private val files = CopyOnWriteArrayList<Optional<Path>>()
+  private val indices = mutableMapOf<Path, Int>()
+
+  companion object {
+
+    /**
+     * The index denoting the absence of a file.
+     */
+
+    const val NO_FILE = -1
+
+    fun create() : KSLexicalFileTable =
+      KSLexicalFileTable()
+  }
+
+  /**
+   * @return The index of `file`, adding it to the table if necessary
+   */
+
+  @Synchronized fun index(file : Path) : Int {
+    val existing = indices[file]
+    if (existing != null) {
+      return existing
+    }
+    val index = files.size
+    files.add(Optional.of(file))
+    indices[file] = index
+    return index
+  }
+
+  /**
+   * @return The file at `index`, or nothing if `index` is [NO_FILE]
+   */
+
+  fun file(index : Int) : Optional<Path> =
+    if (index == NO_FILE) Optional.empty() else files[index]
+}
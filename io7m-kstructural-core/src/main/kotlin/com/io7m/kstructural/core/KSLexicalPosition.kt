@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.core
+
+import com.io7m.jlexing.core.ImmutableLexicalPosition
+import com.io7m.jlexing.core.LexicalPositionType
+import java.nio.file.Path
+import java.util.Optional
+
+/**
+ * A compact lexical position. The file index, line, and column are packed
+ * into a single `long`, and the file itself is held once in the
+ * [KSLexicalFileTable] of the parse context that produced the position.
+ * The file is only looked up when it is requested, typically when an
+ * error is shown.
+ *
+ * Positions are compared by value: two positions are equal iff they have
+ * the same line, column, and file, regardless of the tables that hold their
+ * files.
+ */
+
+class KSLexicalPosition private constructor(
+  private val files : KSLexicalFileTable,
+  private val packed : Long) : LexicalPositionType<Path> {
+
+  companion object {
+
+    private const val FILE_BITS = 20
+    private const val LINE_BITS = 24
+    private const val COLUMN_BITS = 20
+
+    private const val FILE_SHIFT = LINE_BITS + COLUMN_BITS
+    private const val LINE_SHIFT = COLUMN_BITS
+
+    private const val FILE_LIMIT = (1 shl FILE_BITS) - 1
+    private const val LINE_LIMIT = 1 shl LINE_BITS
+    private const val COLUMN_LIMIT = 1 shl COLUMN_BITS
+
+    /**
+     * Create a position for `line` and `column` in the file at `file_index`
+     * in `files`, or in no file if `file_index` is
+     * [KSLexicalFileTable.NO_FILE]. Positions that cannot be packed are
+     * returned as full positions.
+     */
+
+    fun create(
+      files : KSLexicalFileTable,
+      file_index : Int,
+      line : Int,
+      column : Int) : LexicalPositionType<Path> {
+
+      val file = file_index + 1
+      return if (file in 0 .. FILE_LIMIT
+        && line in 0 .. LINE_LIMIT - 1
+        && column in 0 .. COLUMN_LIMIT - 1) {
+        KSLexicalPosition(files, pack(file, line, column))
+      } else if (file_index == KSLexicalFileTable.NO_FILE) {
+        ImmutableLexicalPosition.newPosition(line, column)
+      } else {
+        ImmutableLexicalPosition.newPositionWithFile(
+          line, column, files.file(file_index).get())
+      }
+    }
+
+    private fun pack(file : Int, line : Int, column : Int) : Long =
+      (file.toLong() shl FILE_SHIFT) or
+        (line.toLong() shl LINE_SHIFT) or
+        column.toLong()
+  }
+
+  private val fileIndex : Int
+    get() = (packed ushr FILE_SHIFT).toInt() - 1
+
+  override fun getLine() : Int =
+    ((packed ushr LINE_SHIFT) and (LINE_LIMIT - 1).toLong()).toInt()
+
+  override fun getColumn() : Int =
+    (packed and (COLUMN_LIMIT - 1).toLong()).toInt()
+
+  override fun getFile() : Optional<Path> =
+    files.file(fileIndex)
+
+  override fun equals(other : Any?) : Boolean {
+    if (this === other) {
+      return true
+    }
+    if (other !is KSLexicalPosition) {
+      return false
+    }
+    if (files === other.files) {
+      return packed == other.packed
+    }
+    return line == other.line
+      && column == other.column
+      && file == other.file
+  }
+
+  override fun hashCode() : Int =
+    31 * line + column
+
+  override fun toString() : String {
+    val sb = StringBuilder(64)
+    val f = file
+    if (f.isPresent) {
+      sb.append(f.get())
+      sb.append(":")
+    }
+    sb.append(line)
+    sb.append(":")
+    sb.append(column)
+    return sb.toString()
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.core
+
+import org.slf4j.LoggerFactory
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.Arrays
+import java.util.Optional
+
+/**
+ * A parse cache that stores one file per cached entry in a directory.
+ * Entries are written atomically, so a cache directory may be shared by
+ * concurrent processes. Unreadable or stale entries are treated as absent,
+ * and failures to store entries are logged and otherwise ignored.
+ */
+
+class KSParseCache private constructor(
+  private val directory : Path,
+  private val version : String) : KSParseCacheType {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(KSParseCache::class.java)
+
+    private const val MAGIC = 0x4B535043
+
+    /**
+     * Create a cache in `directory` for the current tool version.
+     */
+
+    @Throws(IOException::class)
+    fun create(directory : Path) : KSParseCacheType =
+      create(directory, toolVersion())
+
+    @Throws(IOException::class)
+    fun create(
+      directory : Path,
+      version : String) : KSParseCacheType {
+      Files.createDirectories(directory)
+      return KSParseCache(directory.toAbsolutePath(), version)
+    }
+
+    /**
+     * @return A digest of `data` suitable for use as a cache key
+     */
+
+    fun digest(data : ByteArray) : ByteArray =
+      MessageDigest.getInstance("SHA-256").digest(data)
+
+    /**
+     * @return The digest of the remaining bytes of `data`. The position of
+     * `data` is not changed.
+     */
+
+    fun digest(data : ByteBuffer) : ByteArray {
+      val d = MessageDigest.getInstance("SHA-256")
+      d.update(data.duplicate())
+      return d.digest()
+    }
+
+    private fun toolVersion() : String =
+      KSParseCache::class.java.`package`?.implementationVersion ?: "development"
+
+    private fun hex(data : ByteArray) : String {
+      val sb = StringBuilder(data.size * 2)
+      data.forEach { b -> sb.append(String.format("%02x", b)) }
+      return sb.toString()
+    }
+  }
+
+  private fun entryFor(name : String) : Path {
+    val md = MessageDigest.getInstance("SHA-256")
+    md.update(version.toByteArray(StandardCharsets.UTF_8))
+    md.update(0)
+    md.update(name.toByteArray(StandardCharsets.UTF_8))
+    return directory.resolve(hex(md.digest()) + ".ksc")
+  }
+
+  override fun get(
+    file : Path,
+    digest : ByteArray) : Optional<ByteArray> {
+
+    val name = file.toAbsolutePath().toString()
+    val entry = entryFor(name)
+    return try {
+      DataInputStream(BufferedInputStream(Files.newInputStream(entry))).use { s ->
+        if (s.readInt() != MAGIC
+          || s.readUTF() != version
+          || s.readUTF() != name) {
+          Optional.empty<ByteArray>()
+        } else {
+          val stored = ByteArray(s.readInt())
+          s.readFully(stored)
+          if (!Arrays.equals(stored, digest)) {
+            LOG.trace("stale: {}", file)
+            Optional.empty<ByteArray>()
+          } else {
+            val data = ByteArray(s.readInt())
+            s.readFully(data)
+            LOG.trace("hit: {}", file)
+            Optional.of(data)
+          }
+        }
+      }
+    } catch (e : NoSuchFileException) {
+      Optional.empty<ByteArray>()
+    } catch (e : IOException) {
+      LOG.debug("unreadable cache entry {}: ", entry, e)
+      Optional.empty<ByteArray>()
+    }
+  }
+
+  override fun put(
+    file : Path,
+    digest : ByteArray,
+    data : ByteArray) : Unit {
+
+    val name = file.toAbsolutePath().toString()
+    val entry = entryFor(name)
+    try {
+      val temp = Files.createTempFile(directory, "entry", ".tmp")
+      try {
+        DataOutputStream(BufferedOutputStream(Files.newOutputStream(temp))).use { s ->
+          s.writeInt(MAGIC)
+          s.writeUTF(version)
+          s.writeUTF(name)
+          s.writeInt(digest.size)
+          s.write(digest)
+          s.writeInt(data.size)
+          s.write(data)
+        }
+        Files.move(
+          temp, entry,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE)
+        LOG.trace("stored: {}", file)
+      } finally {
+        Files.deleteIfExists(temp)
+      }
+    } catch (e : IOException) {
+      LOG.warn("could not store cache entry for {}: ", file, e)
+    }
+  }
+}
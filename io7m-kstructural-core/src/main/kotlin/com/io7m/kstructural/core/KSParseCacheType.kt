@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.core
+
+import java.nio.file.Path
+import java.util.Optional
+
+/**
+ * A persistent cache of data derived from parsing files. Entries are keyed
+ * by the absolute path of a file, a digest of the file's contents, and the
+ * version of the tool that produced them.
+ */
+
+interface KSParseCacheType {
+
+  /**
+   * @return The data stored for `file`, iff the data was produced from file
+   * contents with the given digest by the current tool version
+   */
+
+  fun get(
+    file : Path,
+    digest : ByteArray) : Optional<ByteArray>
+
+  /**
+   * Store `data` for `file`, produced from contents with the given digest.
+   */
+
+  fun put(
+    file : Path,
+    digest : ByteArray,
+    data : ByteArray) : Unit
+
+}
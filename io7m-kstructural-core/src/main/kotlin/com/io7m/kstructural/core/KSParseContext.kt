@@ -27,6 +27,11 @@ import org.valid4j.Assertive
 import java.nio.file.Path
 import java.util.HashMap
 import java.util.IdentityHashMap
+import java.util.Optional
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
 
 class KSParseContext private constructor(
   override val includes : MutableMap<Path, String>,
@@ -36,9 +41,48 @@ class KSParseContext private constructor(
   override val importPathsByElement : MutableMap<KSBlockImport<KSParse>, Path>,
   override val importsByElement : MutableMap<KSBlock<KSParse>, KSBlockImport<KSParse>>,
   override val importPathsEdgesByElement : MutableMap<KSBlockImport<KSParse>, KSImportPathEdge>,
-  override val baseDirectory : Path)
+  override val baseDirectory : Path,
+  private val pool : Optional<ForkJoinPool>,
+  override val parseCache : Optional<KSParseCacheType>,
+  override val internTable : Optional<KSInternTableType>,
+  override val fileTable : KSLexicalFileTable,
+  override val includeCache : KSIncludeCacheType)
 : KSParseContextType {
 
+  /**
+   * Prefetched files. A present value is a scheduled task, and an empty
+   * value indicates that the result of the task has already been taken.
+   */
+
+  private val prefetches : ConcurrentHashMap<Path, Optional<ForkJoinTask<Any>>> =
+    ConcurrentHashMap()
+
+  override val prefetchEnabled : Boolean
+    get() = pool.isPresent
+
+  override fun prefetch(
+    path : Path,
+    task : () -> Any) : Unit {
+
+    if (pool.isPresent) {
+      prefetches.computeIfAbsent(path) { p ->
+        LOG.trace("prefetch: {}", p)
+        Optional.of(pool.get().submit(Callable<Any> { task() }))
+      }
+    }
+  }
+
+  override fun prefetchTake(
+    path : Path) : Optional<Any> {
+
+    val t = prefetches.put(path, Optional.empty())
+    return if (t != null && t.isPresent) {
+      Optional.of(t.get().join())
+    } else {
+      Optional.empty()
+    }
+  }
+
   override fun checkImportCycle(
     importer : Path,
     import : KSBlockImport<KSParse>,
@@ -112,9 +156,62 @@ class KSParseContext private constructor(
   companion object {
     private val LOG = LoggerFactory.getLogger(KSParseContext::class.java)
 
-    fun empty(base : Path) : KSParseContextType {
+    fun empty(base : Path) : KSParseContextType =
+      create(base, Optional.empty(), Optional.empty())
+
+    /**
+     * Create an empty context that parses imported files in parallel
+     * using `pool`.
+     */
+
+    fun emptyWithPool(
+      base : Path,
+      pool : ForkJoinPool) : KSParseContextType =
+      create(base, Optional.of(pool), Optional.empty())
+
+    /**
+     * Create an empty context that parses imported files in parallel
+     * using `pool`, if present, and that avoids reparsing files that are
+     * unchanged in `cache`, if present.
+     */
+
+    fun create(
+      base : Path,
+      pool : Optional<ForkJoinPool>,
+      cache : Optional<KSParseCacheType>) : KSParseContextType =
+      create(base, pool, cache, Optional.empty())
+
+    /**
+     * Create an empty context as with [create], that additionally shares
+     * the storage of repeated symbols and text using `strings`, if present.
+     */
+
+    fun create(
+      base : Path,
+      pool : Optional<ForkJoinPool>,
+      cache : Optional<KSParseCacheType>,
+      strings : Optional<KSInternTableType>) : KSParseContextType =
+      create(base, pool, cache, strings, KSIncludeCache.create())
+
+    /**
+     * Create an empty context as with [create], that reads included files
+     * through `includes`. A cache may be shared between contexts in order
+     * to avoid rereading unchanged files across builds.
+     */
+
+    fun create(
+      base : Path,
+      pool : Optional<ForkJoinPool>,
+      cache : Optional<KSParseCacheType>,
+      strings : Optional<KSInternTableType>,
+      includes : KSIncludeCacheType) : KSParseContextType {
       return KSParseContext(
         baseDirectory = base,
+        pool = pool,
+        parseCache = cache,
+        internTable = strings,
+        fileTable = KSLexicalFileTable.create(),
+        includeCache = includes,
         includes = HashMap(),
         includePaths = IdentityHashMap(),
         includesByTexts = IdentityHashMap(),
@@ -21,6 +21,7 @@ import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockImport
 import com.io7m.kstructural.core.KSElement.KSInline.KSInlineInclude
 import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
 import java.nio.file.Path
+import java.util.Optional
 
 interface KSParseContextReadableType {
 
@@ -39,4 +40,36 @@ interface KSParseContextReadableType {
   val importPathsEdgesByElement : Map<KSBlockImport<KSParse>, KSImportPathEdge>
 
   val importsByElement : Map<KSBlock<KSParse>, KSBlockImport<KSParse>>
-}
\ No newline at end of file
+
+  /**
+   * `true` iff imported files may be prefetched in parallel.
+   */
+
+  val prefetchEnabled : Boolean
+
+  /**
+   * The cache used to avoid reparsing unchanged files, if any.
+   */
+
+  val parseCache : Optional<KSParseCacheType>
+
+  /**
+   * The table used to intern the symbols and text of parsed documents,
+   * if any.
+   */
+
+  val internTable : Optional<KSInternTableType>
+
+  /**
+   * The table of the files referenced by the lexical positions of parsed
+   * documents.
+   */
+
+  val fileTable : KSLexicalFileTable
+
+  /**
+   * The cache of the contents of included files.
+   */
+
+  val includeCache : KSIncludeCacheType
+}
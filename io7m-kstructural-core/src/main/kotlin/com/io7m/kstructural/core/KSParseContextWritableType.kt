@@ -21,6 +21,7 @@ import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockImport
 import com.io7m.kstructural.core.KSElement.KSInline.KSInlineInclude
 import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
 import java.nio.file.Path
+import java.util.Optional
 
 interface KSParseContextWritableType {
 
@@ -40,4 +41,25 @@ interface KSParseContextWritableType {
     import : KSBlockImport<KSParse>,
     imported_path : Path) : KSResult<KSImportPathEdge, KSParseError>
 
+  /**
+   * Schedule `task` to be evaluated in the background for the file at
+   * `path`. Nothing is scheduled if prefetching is disabled, or if a task
+   * has already been scheduled for `path`. The task must not throw
+   * exceptions, and must not modify the parse context other than by
+   * scheduling further tasks.
+   */
+
+  fun prefetch(
+    path : Path,
+    task : () -> Any) : Unit
+
+  /**
+   * Wait for and return the result of the task scheduled for the file at
+   * `path`, if any. The result of a given task is returned at most once,
+   * and no task will subsequently be scheduled for `path`.
+   */
+
+  fun prefetchTake(
+    path : Path) : Optional<Any>
+
 }
\ No newline at end of file
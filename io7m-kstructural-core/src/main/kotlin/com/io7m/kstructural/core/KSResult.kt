@@ -68,17 +68,35 @@ sealed class KSResult<out A : Any, E : Any> {
 
   companion object {
 
+    /*
+     * Successful results are immutable, so the results for values that
+     * are produced very frequently are shared. The error type of a success
+     * is never inhabited, so the shared results are held star-projected
+     * and handed out at whatever error type is requested.
+     */
+
+    private val SUCCESS_UNIT : KSResult<*, *> =
+      KSSuccess<Unit, Any>(Unit)
+
+    private val SUCCESS_EMPTY_LIST : KSResult<*, *> =
+      KSSuccess<List<Any>, Any>(emptyList())
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <B : Any, E : Any> emptyListSuccess() : KSResult<List<B>, E> =
+      SUCCESS_EMPTY_LIST as KSResult<List<B>, E>
+
+    @Suppress("UNCHECKED_CAST")
     fun <A : Any, E : Any> succeed(x : A) : KSResult<A, E> =
-      KSSuccess(x)
+      if (x === Unit) SUCCESS_UNIT as KSResult<A, E> else KSSuccess(x)
 
     fun <A : Any, E : Any> fail(e : E) : KSResult<A, E> {
-      val es = ArrayDeque<E>()
+      val es = ArrayDeque<E>(1)
       es.add(e)
       return KSFailure(Optional.empty(), es)
     }
 
     fun <A : Any, E : Any> failPartial(x : A, e : E) : KSResult<A, E> {
-      val es = ArrayDeque<E>()
+      val es = ArrayDeque<E>(1)
       es.add(e)
       return KSFailure(Optional.of(x), es)
     }
@@ -87,7 +105,9 @@ sealed class KSResult<out A : Any, E : Any> {
       x : KSResult<A, E>, f : (A) -> B) : KSResult<B, E> {
       return when (x) {
         is KSSuccess -> {
-          KSSuccess(f.invoke(x.result))
+          val y = f.invoke(x.result)
+          @Suppress("UNCHECKED_CAST")
+          if (y === x.result) x as KSResult<B, E> else KSSuccess(y)
         }
         is KSFailure ->
           if (x.partial.isPresent) {
@@ -126,9 +146,16 @@ sealed class KSResult<out A : Any, E : Any> {
     fun <A : Any, B : Any, E : Any> listMap(
       f : (A) -> KSResult<B, E>, xs : List<A>) : KSResult<List<B>, E> {
 
-      var fail = false
+      if (xs.isEmpty()) {
+        return emptyListSuccess()
+      }
+
+      /*
+       * The error queue is only allocated if an element actually fails.
+       */
+
+      var err : ArrayDeque<E>? = null
       val out = ArrayList<B>(xs.size)
-      val err = ArrayDeque<E>(xs.size)
       val max = xs.size - 1
       for (i in 0 .. max) {
         val r = f(xs[i])
@@ -137,16 +164,18 @@ sealed class KSResult<out A : Any, E : Any> {
             out.add(r.result)
           }
           is KSFailure -> {
-            fail = true
             if (r.partial.isPresent) {
               out.add(r.partial.get())
             }
+            if (err == null) {
+              err = ArrayDeque<E>(r.errors.size)
+            }
             err.addAll(r.errors)
           }
         }
       }
 
-      return if (fail) {
+      return if (err != null) {
         KSFailure(Optional.of(out as List<B>), err)
       } else {
         KSSuccess(out)
@@ -156,9 +185,16 @@ sealed class KSResult<out A : Any, E : Any> {
     fun <A : Any, B : Any, E : Any> listMapIndexed(
       f : (A, Int) -> KSResult<B, E>, xs : List<A>) : KSResult<List<B>, E> {
 
-      var fail = false
+      if (xs.isEmpty()) {
+        return emptyListSuccess()
+      }
+
+      /*
+       * The error queue is only allocated if an element actually fails.
+       */
+
+      var err : ArrayDeque<E>? = null
       val out = ArrayList<B>(xs.size)
-      val err = ArrayDeque<E>(xs.size)
       val max = xs.size - 1
       for (i in 0 .. max) {
         val r = f(xs[i], i)
@@ -167,16 +203,18 @@ sealed class KSResult<out A : Any, E : Any> {
             out.add(r.result)
           }
           is KSFailure -> {
-            fail = true
             if (r.partial.isPresent) {
               out.add(r.partial.get())
             }
+            if (err == null) {
+              err = ArrayDeque<E>(r.errors.size)
+            }
             err.addAll(r.errors)
           }
         }
       }
 
-      return if (fail) {
+      return if (err != null) {
         KSFailure(Optional.of(out as List<B>), err)
       } else {
         KSSuccess(out)
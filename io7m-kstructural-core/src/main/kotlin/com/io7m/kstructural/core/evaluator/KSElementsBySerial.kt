@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.core.evaluator
+
+import com.io7m.kstructural.core.KSElement
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import java.util.Arrays
+
+/**
+ * A table of evaluated elements indexed by serial number.
+ *
+ * Serial numbers are allocated sequentially from zero by the evaluator, so
+ * the elements are held in a dense array indexed directly by serial, and
+ * the serial of the parent of each element is held in a parallel array of
+ * primitive values. Lookups therefore neither hash nor box.
+ *
+ * Once all elements have been recorded, [indexSegments] computes the
+ * nearest enclosing segment of every element, so that it can be retrieved
+ * without walking the chain of parents.
+ */
+
+internal class KSElementsBySerial private constructor() {
+
+  private var elements : Array<KSElement<KSEvaluation>?> = arrayOfNulls(256)
+  private var parents : LongArray = LongArray(256)
+  private var segments : LongArray = LongArray(0)
+
+  companion object {
+
+    /**
+     * The value returned for the parent of an unknown serial.
+     */
+
+    const val NO_PARENT = -1L
+
+    /**
+     * The value returned for the segment of an element that is not
+     * contained in any segment.
+     */
+
+    const val NO_SEGMENT = -1L
+
+    private const val SEGMENT_UNKNOWN = -2L
+
+    private fun isSegment(e : KSElement<KSEvaluation>) : Boolean =
+      e is KSBlockDocument || e is KSBlockPart || e is KSBlockSection
+
+    fun create() : KSElementsBySerial =
+      KSElementsBySerial()
+  }
+
+  init {
+    Arrays.fill(parents, NO_PARENT)
+  }
+
+  /**
+   * Ensure that an element with serial `index` can be recorded without
+   * growing the table. Elements with distinct serials within the reserved
+   * range may then be recorded from separate threads.
+   */
+
+  fun reserve(index : Int) {
+    if (index >= elements.size) {
+      var size = elements.size
+      while (size <= index) {
+        size *= 2
+      }
+      elements = Arrays.copyOf(elements, size)
+      val old = parents.size
+      parents = Arrays.copyOf(parents, size)
+      Arrays.fill(parents, old, size, NO_PARENT)
+    }
+  }
+
+  fun put(e : KSElement<KSEvaluation>) {
+    val index = Math.toIntExact(e.data.serial.actual)
+    reserve(index)
+    elements[index] = e
+    parents[index] = e.data.parent.actual
+  }
+
+  /**
+   * @return The element with serial `serial`, or `null` if there is none
+   */
+
+  operator fun get(serial : Long) : KSElement<KSEvaluation>? =
+    if (serial >= 0L && serial < elements.size) elements[serial.toInt()] else null
+
+  /**
+   * @return The serial of the parent of the element with serial `serial`,
+   * or [NO_PARENT] if there is no such element
+   */
+
+  fun parent(serial : Long) : Long =
+    if (serial >= 0L && serial < parents.size) parents[serial.toInt()] else NO_PARENT
+
+  /**
+   * Compute the nearest enclosing segment of each recorded element.
+   */
+
+  fun indexSegments() {
+    segments = LongArray(elements.size)
+    Arrays.fill(segments, SEGMENT_UNKNOWN)
+    for (i in 0 .. elements.size - 1) {
+      if (elements[i] != null) {
+        resolveSegment(i)
+      }
+    }
+  }
+
+  private fun resolveSegment(index : Int) : Long {
+    val existing = segments[index]
+    if (existing != SEGMENT_UNKNOWN) {
+      return existing
+    }
+
+    val p = parents[index]
+    val pe = get(p)
+    val r = if (pe == null) {
+      NO_SEGMENT
+    } else if (isSegment(pe)) {
+      p
+    } else {
+      resolveSegment(p.toInt())
+    }
+    segments[index] = r
+    return r
+  }
+
+  /**
+   * @return The serial of the nearest segment (document, part, or section)
+   * strictly enclosing the element with serial `serial`, or [NO_SEGMENT]
+   * if there is no such segment or segments have not been indexed
+   */
+
+  fun segment(serial : Long) : Long =
+    if (serial >= 0L && serial < segments.size) segments[serial.toInt()] else NO_SEGMENT
+}
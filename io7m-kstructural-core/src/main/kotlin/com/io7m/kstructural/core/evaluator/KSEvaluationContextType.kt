@@ -49,6 +49,15 @@ interface KSEvaluationContextType {
   fun elementForSerial(
     s : KSSerial) : Optional<KSElement<KSEvaluation>>
 
+  /**
+   * @return The nearest document, part, or section strictly enclosing `e`,
+   * if any. The result is precomputed during evaluation and is retrieved
+   * in constant time.
+   */
+
+  fun elementSegmentContaining(
+    e : KSElement<KSEvaluation>) : Optional<KSBlock<KSEvaluation>>
+
   fun elementSegmentPrevious(
     b : KSBlock<KSEvaluation>) : Optional<KSBlock<KSEvaluation>>
 
@@ -0,0 +1,341 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.core.evaluator
+
+import com.io7m.kstructural.core.KSElement.KSBlock
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFootnote
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFormalItem
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockImport
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockParagraph
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection.KSBlockSectionWithContent
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection.KSBlockSectionWithSubsections
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
+import com.io7m.kstructural.core.KSElement.KSInline
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineFootnoteReference
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineImage
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineInclude
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineLink
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineListOrdered
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineListUnordered
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineTable
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineTerm
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineVerbatim
+import com.io7m.kstructural.core.KSElement.KSInline.KSListItem
+import com.io7m.kstructural.core.KSElement.KSInline.KSTableBody
+import com.io7m.kstructural.core.KSElement.KSInline.KSTableBodyCell
+import com.io7m.kstructural.core.KSElement.KSInline.KSTableBodyRow
+import com.io7m.kstructural.core.KSElement.KSInline.KSTableHead
+import com.io7m.kstructural.core.KSElement.KSInline.KSTableHeadColumnName
+import com.io7m.kstructural.core.KSElement.KSInline.KSTableSummary
+import com.io7m.kstructural.core.KSID
+import com.io7m.kstructural.core.KSLink.KSLinkExternal
+import com.io7m.kstructural.core.KSLink.KSLinkInternal
+import com.io7m.kstructural.core.KSLinkContent
+import com.io7m.kstructural.core.KSParse
+import com.io7m.kstructural.core.KSSubsectionContent
+import com.io7m.kstructural.core.KSType
+import java.util.HashMap
+import java.util.Optional
+
+/**
+ * The number of serial numbers and per-class element counts that the
+ * evaluator consumes when successfully evaluating a given part or section.
+ *
+ * The evaluator allocates serials and counts sequentially, so a subtree
+ * can only be evaluated independently of the subtrees that precede it if
+ * the numbers that those subtrees will consume are known in advance. The
+ * functions here mirror the allocations performed by [KSEvaluator] without
+ * constructing any evaluated elements.
+ */
+
+internal class KSEvaluationCost private constructor() {
+
+  /**
+   * The number of serial numbers consumed.
+   */
+
+  var serials : Long = 0L
+    private set
+
+  /**
+   * The number of elements counted, by class.
+   */
+
+  val counts : MutableMap<Class<*>, Long> = HashMap()
+
+  companion object {
+
+    fun ofPart(e : KSBlockPart<KSParse>) : KSEvaluationCost {
+      val c = KSEvaluationCost()
+      c.part(e)
+      return c
+    }
+
+    fun ofSection(e : KSBlockSection<KSParse>) : KSEvaluationCost {
+      val c = KSEvaluationCost()
+      c.section(e)
+      return c
+    }
+  }
+
+  private fun count(k : Class<*>) {
+    this.counts[k] = (this.counts[k] ?: 0L) + 1L
+  }
+
+  private fun serial() {
+    this.serials = this.serials + 1L
+  }
+
+  private fun block(b : KSBlock<KSParse>, k : Class<*>) {
+    count(k)
+    if (b.id.isPresent) {
+      serial()
+      count(KSID::class.java)
+    }
+    if (b.data.context.importsByElement.containsKey(b)) {
+      serial()
+      serial()
+      count(KSInlineText::class.java)
+      count(KSBlockImport::class.java)
+    }
+  }
+
+  private fun type(t : Optional<KSType<KSParse>>) {
+    if (t.isPresent) {
+      serial()
+      count(KSType::class.java)
+    }
+  }
+
+  private fun texts(ts : List<KSInlineText<KSParse>>) {
+    for (t in ts) {
+      text(t)
+    }
+  }
+
+  private fun inlines(es : List<KSInline<KSParse>>) {
+    for (e in es) {
+      inline(e)
+    }
+  }
+
+  private fun part(e : KSBlockPart<KSParse>) {
+    serial()
+    for (s in e.content) {
+      section(s)
+    }
+    texts(e.title)
+    type(e.type)
+    block(e, KSBlockPart::class.java)
+  }
+
+  private fun section(e : KSBlockSection<KSParse>) {
+    when (e) {
+      is KSBlockSectionWithSubsections -> {
+        serial()
+        for (ss in e.content) {
+          subsection(ss)
+        }
+        texts(e.title)
+        type(e.type)
+        block(e, KSBlockSectionWithSubsections::class.java)
+      }
+      is KSBlockSectionWithContent     -> {
+        serial()
+        for (cc in e.content) {
+          content(cc)
+        }
+        texts(e.title)
+        type(e.type)
+        block(e, KSBlockSectionWithContent::class.java)
+      }
+    }
+  }
+
+  private fun subsection(e : KSBlockSubsection<KSParse>) {
+    serial()
+    for (cc in e.content) {
+      content(cc)
+    }
+    texts(e.title)
+    type(e.type)
+    block(e, KSBlockSubsection::class.java)
+  }
+
+  private fun content(cc : KSSubsectionContent<KSParse>) {
+    when (cc) {
+      is KSSubsectionContent.KSSubsectionParagraph  -> {
+        val p = cc.paragraph
+        serial()
+        inlines(p.content)
+        type(p.type)
+        block(p, KSBlockParagraph::class.java)
+      }
+      is KSSubsectionContent.KSSubsectionFormalItem -> {
+        val f = cc.formal
+        serial()
+        inlines(f.content)
+        texts(f.title)
+        type(f.type)
+        block(f, KSBlockFormalItem::class.java)
+      }
+      is KSSubsectionContent.KSSubsectionFootnote   -> {
+        val f = cc.footnote
+        serial()
+        inlines(f.content)
+        type(f.type)
+        block(f, KSBlockFootnote::class.java)
+      }
+    }
+  }
+
+  private fun text(e : KSInlineText<KSParse>) {
+    serial()
+    val ii = e.data.context.includesByTexts[e]
+    if (ii != null) {
+      include(ii)
+    }
+    count(KSInlineText::class.java)
+  }
+
+  private fun include(e : KSInlineInclude<KSParse>) {
+    serial()
+    count(KSInlineInclude::class.java)
+    text(e.file)
+  }
+
+  private fun image(e : KSInlineImage<KSParse>) {
+    serial()
+    type(e.type)
+    texts(e.content)
+    count(KSInlineImage::class.java)
+  }
+
+  private fun inline(e : KSInline<KSParse>) {
+    when (e) {
+      is KSInlineLink              -> link(e)
+      is KSInlineText              -> text(e)
+      is KSInlineVerbatim          -> {
+        serial()
+        count(KSInlineVerbatim::class.java)
+        text(e.text)
+        type(e.type)
+      }
+      is KSInlineTerm              -> {
+        serial()
+        texts(e.content)
+        type(e.type)
+        count(KSInlineTerm::class.java)
+      }
+      is KSInlineImage             -> image(e)
+      is KSInlineListOrdered       -> {
+        serial()
+        items(e.content)
+        count(KSInlineListOrdered::class.java)
+      }
+      is KSInlineListUnordered     -> {
+        serial()
+        items(e.content)
+        count(KSInlineListUnordered::class.java)
+      }
+      is KSInlineTable             -> table(e)
+      is KSInlineFootnoteReference -> {
+        serial()
+        serial()
+        count(KSID::class.java)
+        count(KSInlineFootnoteReference::class.java)
+      }
+      is KSInlineInclude           -> include(e)
+    }
+  }
+
+  private fun items(es : List<KSListItem<KSParse>>) {
+    for (i in es) {
+      serial()
+      inlines(i.content)
+      count(KSListItem::class.java)
+    }
+  }
+
+  private fun link(e : KSInlineLink<KSParse>) {
+    serial()
+    val act = e.actual
+    when (act) {
+      is KSLinkExternal -> {
+        linkContents(act.content)
+      }
+      is KSLinkInternal -> {
+        linkContents(act.content)
+        count(KSID::class.java)
+      }
+    }
+    count(KSInlineLink::class.java)
+  }
+
+  private fun linkContents(es : List<KSLinkContent<KSParse>>) {
+    for (cc in es) {
+      serial()
+      when (cc) {
+        is KSLinkContent.KSLinkText  -> text(cc.actual)
+        is KSLinkContent.KSLinkImage -> image(cc.actual)
+      }
+      count(KSLinkContent::class.java)
+    }
+  }
+
+  private fun table(e : KSInlineTable<KSParse>) {
+    serial()
+
+    serial()
+    if (e.head.isPresent) {
+      val h = e.head.get()
+      for (n in h.column_names) {
+        serial()
+        texts(n.content)
+        type(n.type)
+        count(KSTableHeadColumnName::class.java)
+      }
+      type(h.type)
+      count(KSTableHead::class.java)
+    }
+
+    serial()
+    texts(e.summary.content)
+    count(KSTableSummary::class.java)
+
+    serial()
+    for (r in e.body.rows) {
+      serial()
+      for (cell in r.cells) {
+        serial()
+        inlines(cell.content)
+        type(cell.type)
+        count(KSTableBodyCell::class.java)
+      }
+      type(r.type)
+      count(KSTableBodyRow::class.java)
+    }
+    count(KSTableBody::class.java)
+
+    type(e.type)
+    count(KSInlineTable::class.java)
+  }
+}
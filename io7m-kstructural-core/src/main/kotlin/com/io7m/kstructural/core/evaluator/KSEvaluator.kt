@@ -77,11 +77,14 @@ import org.slf4j.LoggerFactory
 import org.valid4j.Assertive
 import java.nio.file.Path
 import java.util.ArrayDeque
+import java.util.ArrayList
 import java.util.Deque
 import java.util.HashMap
 import java.util.IdentityHashMap
 import java.util.Optional
 import java.util.OptionalLong
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
 
 object KSEvaluator : KSEvaluatorType {
 
@@ -89,7 +92,7 @@ object KSEvaluator : KSEvaluatorType {
 
   private data class Context private constructor(
     private var serial_pool : Long,
-    private val all_by_serial : MutableMap<KSSerial, KSElement<KSEvaluation>>,
+    private val all_by_serial : KSElementsBySerial,
     private val blocks_by_id : MutableMap<String, KSBlock<KSEvaluation>>,
     private val blocks_by_number : MutableMap<KSNumber, KSBlock<KSEvaluation>>,
     private val id_references : MutableList<KSID<KSEvaluation>>,
@@ -118,7 +121,7 @@ object KSEvaluator : KSEvaluatorType {
         : Context {
         val c = Context(
           serial_pool = 0L,
-          all_by_serial = HashMap(),
+          all_by_serial = KSElementsBySerial.create(),
           blocks_by_id = HashMap(),
           blocks_by_number = HashMap(),
           id_references = mutableListOf(),
@@ -136,8 +139,78 @@ object KSEvaluator : KSEvaluatorType {
         c.file_stack.push(f)
         return c
       }
+
+      /**
+       * Create a context for the independent evaluation of a subtree of
+       * the document being evaluated in `parent`. The subtree is expected
+       * to consume the serials in `(serial_base, serial_limit]`, and
+       * element counts start from `counts`.
+       */
+
+      fun fork(
+        parent : Context,
+        serial_base : Long,
+        serial_limit : Long,
+        counts : Map<Class<*>, Long>)
+        : Context {
+        val c = Context(
+          serial_pool = serial_base,
+          all_by_serial = parent.all_by_serial,
+          blocks_by_id = HashMap(),
+          blocks_by_number = HashMap(),
+          id_references = mutableListOf(),
+          file_stack = ArrayDeque(parent.file_stack),
+          includes_by_file = HashMap(),
+          includes_by_serial = HashMap(),
+          includesByText = IdentityHashMap(),
+          imports = IdentityHashMap(),
+          importsPaths = IdentityHashMap(),
+          importedBlocks = IdentityHashMap(),
+          count_by_class = HashMap(),
+          enclosing_table = false,
+          enclosing_table_pos = Optional.empty(),
+          footnotesAll = mutableMapOf())
+        c.root = parent.root
+        c.serial_limit = serial_limit
+        counts.forEach { e ->
+          if (e.value > 0L) {
+            c.count_by_class[e.key] = e.value - 1L
+          }
+        }
+        return c
+      }
     }
 
+    /**
+     * The context that evaluated elements refer to. This is the context
+     * itself unless the context was created with [fork].
+     */
+
+    var root : Context = this
+      private set
+
+    private var serial_limit : Long = Long.MAX_VALUE
+    private var serial_overflow : Boolean = false
+
+    val serialCurrent : Long
+      get() = this.serial_pool
+
+    /**
+     * @return `true` iff an element was recorded with a serial beyond the
+     * limit given to [fork]
+     */
+
+    val serialOverflowed : Boolean
+      get() = this.serial_overflow
+
+    /**
+     * @return The number of times that [nextCount] has been called for
+     * each class
+     */
+
+    fun counts() : Map<Class<*>, Long> =
+      this.count_by_class.mapValues { e -> e.value + 1L }
+
     fun nextCount(c : Class<*>) : Long {
       return if (count_by_class.containsKey(c)) {
         val next = count_by_class[c]!! + 1L
@@ -150,11 +223,7 @@ object KSEvaluator : KSEvaluatorType {
     }
 
     override fun elementForSerial(s : KSSerial) : Optional<KSElement<KSEvaluation>> {
-      return if (this.all_by_serial.containsKey(s)) {
-        Optional.of(this.all_by_serial.get(s)!!)
-      } else {
-        Optional.empty()
-      }
+      return Optional.ofNullable(this.all_by_serial[s.actual])
     }
 
     override fun footnoteReferencesForFootnote(
@@ -313,6 +382,12 @@ object KSEvaluator : KSEvaluatorType {
       }
     }
 
+    override fun elementSegmentContaining(
+      e : KSElement<KSEvaluation>) : Optional<KSBlock<KSEvaluation>> {
+      val s = this.all_by_serial.segment(e.data.serial.actual)
+      return Optional.ofNullable(this.all_by_serial[s] as KSBlock<KSEvaluation>?)
+    }
+
     override fun elementSegmentUp(
       b : KSBlock<KSEvaluation>) : Optional<KSBlock<KSEvaluation>> =
       when (b) {
@@ -501,7 +576,7 @@ object KSEvaluator : KSEvaluatorType {
 
         } else {
           val id_eval = KSEvaluation(
-            c, c.freshSerial(), parent, nextCount(KSID::class.java), Optional.empty())
+            c.root, c.freshSerial(), parent, nextCount(KSID::class.java), Optional.empty())
 
           return createID(id.position, id.value, id_eval).flatMap { id ->
             val r = f(b, Optional.of(id))
@@ -663,6 +738,10 @@ object KSEvaluator : KSEvaluatorType {
       this.document_actual = d
     }
 
+    fun indexSegments() {
+      this.all_by_serial.indexSegments()
+    }
+
     fun recordFootnote(b : KSBlockFootnote<KSEvaluation>) : Unit {
       val n : KSNumber.HasSectionType = if (this.part_number.isPresent) {
         KSNumberPartSection(this.part_number.asLong, this.section_number)
@@ -709,7 +788,65 @@ object KSEvaluator : KSEvaluatorType {
 
     fun addElement(e : KSElement<KSEvaluation>) {
       LOG.trace("record element {}", e.data.serial)
-      this.all_by_serial.put(e.data.serial, e)
+      if (e.data.serial.actual > this.serial_limit) {
+        this.serial_overflow = true
+      } else {
+        this.all_by_serial.put(e)
+      }
+    }
+
+    fun reserveSerials(limit : Long) {
+      this.all_by_serial.reserve(Math.toIntExact(limit))
+    }
+
+    /**
+     * Merge the results of the evaluation of a subtree in `f` into this
+     * context. Contexts must be merged in document order.
+     *
+     * @return `false` iff `f` declares an identifier that is already
+     * declared in this context
+     */
+
+    fun merge(f : Context) : Boolean {
+      for (id in f.blocks_by_id.keys) {
+        if (this.blocks_by_id.containsKey(id)) {
+          LOG.debug("duplicate id {} across subtrees", id)
+          return false
+        }
+      }
+
+      this.serial_pool = f.serial_pool
+      this.count_by_class.putAll(f.count_by_class)
+      this.blocks_by_id.putAll(f.blocks_by_id)
+      this.blocks_by_number.putAll(f.blocks_by_number)
+      this.id_references.addAll(f.id_references)
+      this.includes_by_file.putAll(f.includes_by_file)
+      this.includes_by_serial.putAll(f.includes_by_serial)
+      this.includesByText.putAll(f.includesByText)
+      this.imports.putAll(f.imports)
+      this.importsPaths.putAll(f.importsPaths)
+      this.importedBlocks.putAll(f.importedBlocks)
+      this.footnotesAll.putAll(f.footnotesAll)
+      this.section_footnotes.putAll(f.section_footnotes)
+
+      /*
+       * Footnote references are numbered in document order, so the
+       * references made in the subtree follow any already made here.
+       */
+
+      for (e in f.footnote_refs) {
+        val refs = this.footnote_refs[e.key]
+        if (refs == null) {
+          this.footnote_refs[e.key] = e.value
+        } else {
+          val base = refs.size.toLong()
+          for (r in e.value.values) {
+            val index = base + r.index
+            refs[index] = r.copy(index = index)
+          }
+        }
+      }
+      return true
     }
   }
 
@@ -719,6 +856,70 @@ object KSEvaluator : KSEvaluatorType {
     : KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError> {
     val c = Context.create(document_file)
     val act_doc = evaluateDocument(c, document, KSSerial(0L))
+    return checkDocument(c, act_doc)
+  }
+
+  /**
+   * Evaluate the given document, evaluating the parts (or the sections, if
+   * the document has no parts) of the document in parallel using `pool`.
+   *
+   * The serials, numbers, and element counts of the evaluated document are
+   * identical to those that would be assigned by [evaluate]. If evaluation
+   * of any part or section fails, or if identifiers are declared more than
+   * once across parts or sections, the document is evaluated again
+   * sequentially in order to produce exactly the errors that [evaluate]
+   * would produce.
+   */
+
+  fun evaluateParallel(
+    document : KSBlockDocument<KSParse>,
+    document_file : Path,
+    pool : ForkJoinPool)
+    : KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError> {
+    val act_doc = evaluateParallelWithoutFallback(document, document_file, pool)
+    return if (act_doc.isPresent) {
+      act_doc.get()
+    } else {
+      LOG.debug("parallel evaluation failed, evaluating sequentially")
+      evaluate(document, document_file)
+    }
+  }
+
+  /**
+   * Evaluate the given document in parallel as with [evaluateParallel],
+   * but without falling back to sequential evaluation.
+   *
+   * @return The evaluated document, or nothing if evaluation of any part or
+   * section failed, if identifiers are declared more than once across parts
+   * or sections, or if a part or section did not consume the serials and
+   * element counts predicted for it
+   */
+
+  fun evaluateParallelWithoutFallback(
+    document : KSBlockDocument<KSParse>,
+    document_file : Path,
+    pool : ForkJoinPool)
+    : Optional<KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError>> {
+    val c = Context.create(document_file)
+    val act_doc : Optional<out KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError>> =
+      when (document) {
+        is KSBlockDocument.KSBlockDocumentWithParts    ->
+          evaluateDocumentWithPartsParallel(c, document, KSSerial(0L), pool)
+        is KSBlockDocument.KSBlockDocumentWithSections ->
+          evaluateDocumentWithSectionsParallel(c, document, KSSerial(0L), pool)
+      }
+
+    return if (act_doc.isPresent) {
+      Optional.of(checkDocument(c, act_doc.get()))
+    } else {
+      Optional.empty()
+    }
+  }
+
+  private fun checkDocument(
+    c : Context,
+    act_doc : KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError>)
+    : KSResult<KSBlockDocument<KSEvaluation>, KSEvaluationError> {
     return act_doc.flatMap { d ->
       dumpCounts(c)
       checkIDs(c, d).flatMap { d ->
@@ -729,6 +930,77 @@ object KSEvaluator : KSEvaluatorType {
     }
   }
 
+  /**
+   * Evaluate each of `subtrees` in a separate context forked from `c`,
+   * in parallel, and merge the results into `c` in document order. The
+   * serials and element counts that each subtree will consume are computed
+   * ahead of time by `cost`, so that each subtree can start from the
+   * numbers that sequential evaluation would have reached.
+   *
+   * @return The evaluated subtrees, or nothing if any subtree failed to
+   * evaluate or the subtrees could not be merged
+   */
+
+  private fun <P : KSBlock<KSParse>, E : KSBlock<KSEvaluation>> evaluateSubtreesParallel(
+    c : Context,
+    pool : ForkJoinPool,
+    subtrees : List<P>,
+    cost : (P) -> KSEvaluationCost,
+    evaluate : (Context, P, Int) -> KSResult<E, KSEvaluationError>)
+    : Optional<List<E>> {
+
+    val count = subtrees.size
+    val forks = ArrayList<Context>(count)
+    val limits = LongArray(count)
+    val expected = ArrayList<Map<Class<*>, Long>>(count)
+
+    var serial = c.serialCurrent
+    val counts = HashMap(c.counts())
+    for (i in 0 .. count - 1) {
+      val k = cost.invoke(subtrees[i])
+      val f = Context.fork(c, serial, serial + k.serials, counts)
+      serial += k.serials
+      k.counts.forEach { e -> counts[e.key] = (counts[e.key] ?: 0L) + e.value }
+      forks.add(f)
+      limits[i] = serial
+      expected.add(HashMap(counts))
+    }
+
+    LOG.debug("evaluating {} subtrees in parallel ({} serials)", count, serial)
+    c.reserveSerials(serial)
+
+    val tasks = subtrees.mapIndexed { i, e ->
+      pool.submit(Callable { evaluate.invoke(forks[i], e, i) })
+    }
+
+    val results = ArrayList<E>(count)
+    for (i in 0 .. count - 1) {
+      val r = tasks[i].join()
+      val f = forks[i]
+      when (r) {
+        is KSResult.KSSuccess -> results.add(r.result)
+        is KSResult.KSFailure -> return Optional.empty()
+      }
+
+      if (f.serialOverflowed
+        || f.serialCurrent != limits[i]
+        || f.counts() != expected[i]) {
+        LOG.warn(
+          "subtree {} did not consume the predicted serials and counts "
+            + "(serial {}, expected {}); evaluating sequentially",
+          i, f.serialCurrent, limits[i])
+        return Optional.empty()
+      }
+    }
+
+    for (f in forks) {
+      if (!c.merge(f)) {
+        return Optional.empty()
+      }
+    }
+    return Optional.of(results)
+  }
+
   private fun dumpCounts(c : Context) {
     if (LOG.isTraceEnabled) {
       val cc = c.count_by_class
@@ -747,6 +1019,7 @@ object KSEvaluator : KSEvaluatorType {
 
     return c.checkIDs().flatMap { ignored ->
       c.setDocumentResult(d)
+      c.indexSegments()
       KSResult.succeed<KSBlockDocument<KSEvaluation>, KSEvaluationError>(d)
     }
   }
@@ -770,7 +1043,7 @@ object KSEvaluator : KSEvaluatorType {
     : KSResult<KSType<KSEvaluation>, KSEvaluationError> {
     val serial = c.freshSerial()
     val eval = KSEvaluation(
-      c, serial, parent, c.nextCount(KSType::class.java), Optional.empty())
+      c.root, serial, parent, c.nextCount(KSType::class.java), Optional.empty())
     return KSResult.succeed<KSType<KSEvaluation>, KSEvaluationError>(
       KSType.create(t.position, t.value, eval))
   }
@@ -807,6 +1080,59 @@ object KSEvaluator : KSEvaluatorType {
       evaluateSection(c, e, serial)
     }, d.content)
 
+    return evaluateDocumentWithSectionsRest(c, d, parent, serial, act_content)
+  }
+
+  private fun evaluateDocumentWithSectionsParallel(
+    c : Context,
+    d : KSBlockDocumentWithSections<KSParse>,
+    parent : KSSerial,
+    pool : ForkJoinPool)
+    : Optional<KSResult<KSBlockDocumentWithSections<KSEvaluation>, KSEvaluationError>> {
+
+    val serial = c.freshSerial()
+
+    /*
+     * The subsection number is not reset between sections, and so each
+     * section observes the number left by the last preceding section that
+     * had subsections.
+     */
+
+    val subsections = ArrayList<OptionalLong>(d.content.size)
+    var subsection = OptionalLong.empty()
+    for (e in d.content) {
+      subsections.add(subsection)
+      if (e is KSBlockSectionWithSubsections && e.content.size > 0) {
+        subsection = OptionalLong.of(e.content.size.toLong())
+      }
+    }
+
+    val act_content = evaluateSubtreesParallel(
+      c, pool, d.content, { e -> KSEvaluationCost.ofSection(e) }, { f, e, i ->
+      f.part_number = OptionalLong.empty()
+      f.section_number = i + 1L
+      f.subsection_number = subsections[i]
+      f.content_number = 0L
+      evaluateSection(f, e, serial)
+    })
+
+    return act_content.map { content ->
+      c.part_number = OptionalLong.empty()
+      c.section_number = content.size.toLong()
+      c.subsection_number = subsection
+      evaluateDocumentWithSectionsRest(
+        c, d, parent, serial, KSResult.succeed(content))
+    }
+  }
+
+  private fun evaluateDocumentWithSectionsRest(
+    c : Context,
+    d : KSBlockDocumentWithSections<KSParse>,
+    parent : KSSerial,
+    serial : KSSerial,
+    act_content : KSResult<List<KSBlockSection<KSEvaluation>>, KSEvaluationError>)
+    : KSResult<KSBlockDocumentWithSections<KSEvaluation>, KSEvaluationError> {
+
     val act_type = evaluateTypeOptional(c, d.type, serial)
 
     val act_title = KSResult.listMap(
@@ -816,7 +1142,7 @@ object KSEvaluator : KSEvaluatorType {
       act_title.flatMap { title ->
         act_type.flatMap { type ->
           val eval = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockDocumentWithSections::class.java), Optional.empty())
+            c.root, serial, parent, c.nextCount(KSBlockDocumentWithSections::class.java), Optional.empty())
           c.recordID(c, d, serial, { d, id ->
             val d_eval = KSBlockDocumentWithSections(
               d.position, d.square, eval, id, type, title, content)
@@ -835,9 +1161,9 @@ object KSEvaluator : KSEvaluatorType {
 
     val es = c.freshSerial()
     val ie = KSEvaluation(
-      c, es, parent, c.nextCount(KSInlineText::class.java), Optional.empty())
+      c.root, es, parent, c.nextCount(KSInlineText::class.java), Optional.empty())
     val te = KSEvaluation(
-      c, c.freshSerial(), es, c.nextCount(KSBlockImport::class.java), Optional.empty())
+      c.root, c.freshSerial(), es, c.nextCount(KSBlockImport::class.java), Optional.empty())
     val file = KSInlineText(i.file.position, false, te, true, i.file.text)
     return KSBlockImport(
       i.position, i.square, ie, Optional.empty(), Optional.empty(), file)
@@ -855,6 +1181,40 @@ object KSEvaluator : KSEvaluatorType {
       c.part_number = OptionalLong.of(i + 1L)
       evaluatePart(c, e, serial)
     }, d.content)
+
+    return evaluateDocumentWithPartsRest(c, d, parent, serial, act_content)
+  }
+
+  private fun evaluateDocumentWithPartsParallel(
+    c : Context,
+    d : KSBlockDocumentWithParts<KSParse>,
+    parent : KSSerial,
+    pool : ForkJoinPool)
+    : Optional<KSResult<KSBlockDocumentWithParts<KSEvaluation>, KSEvaluationError>> {
+
+    val serial = c.freshSerial()
+
+    val act_content = evaluateSubtreesParallel(
+      c, pool, d.content, { e -> KSEvaluationCost.ofPart(e) }, { f, e, i ->
+      f.part_number = OptionalLong.of(i + 1L)
+      evaluatePart(f, e, serial)
+    })
+
+    return act_content.map { content ->
+      c.part_number = OptionalLong.of(content.size.toLong())
+      evaluateDocumentWithPartsRest(
+        c, d, parent, serial, KSResult.succeed(content))
+    }
+  }
+
+  private fun evaluateDocumentWithPartsRest(
+    c : Context,
+    d : KSBlockDocumentWithParts<KSParse>,
+    parent : KSSerial,
+    serial : KSSerial,
+    act_content : KSResult<List<KSBlockPart<KSEvaluation>>, KSEvaluationError>)
+    : KSResult<KSBlockDocumentWithParts<KSEvaluation>, KSEvaluationError> {
+
     val act_title = KSResult.listMap(
       { e -> evaluateInlineText (c, e, serial) }, d.title)
     val act_type = evaluateTypeOptional(c, d.type, serial)
@@ -863,7 +1223,7 @@ object KSEvaluator : KSEvaluatorType {
       act_title.flatMap { title ->
         act_type.flatMap { type ->
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockDocumentWithParts::class.java), Optional.empty())
+            c.root, serial, parent, c.nextCount(KSBlockDocumentWithParts::class.java), Optional.empty())
           c.recordID(c, d, serial, { ss, id ->
             val d_eval = KSBlockDocumentWithParts(
               d.position, d.square, ev, id, type, title, content)
@@ -885,7 +1245,7 @@ object KSEvaluator : KSEvaluatorType {
       val ii = e.data.context.includesByTexts[e]!!
       evaluateInlineInclude(c, ii, parent).flatMap { inc ->
         val eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSInlineText::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSInlineText::class.java), Optional.empty())
         val re = KSInlineText(e.position, false, eval, e.quote, e.text)
         c.includesByText[re] = inc
         c.addElement(re)
@@ -893,7 +1253,7 @@ object KSEvaluator : KSEvaluatorType {
       }
     } else {
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSInlineText::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSInlineText::class.java), Optional.empty())
       val re = KSInlineText(e.position, false, eval, e.quote, e.text)
       c.addElement(re)
       KSResult.succeed<KSInlineText<KSEvaluation>, KSEvaluationError>(re)
@@ -915,7 +1275,7 @@ object KSEvaluator : KSEvaluatorType {
     return act_content.flatMap { content ->
       act_type.flatMap { type ->
         val eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSInlineImage::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSInlineImage::class.java), Optional.empty())
         val re = KSInlineImage(
           e.position, e.square, eval, type, e.target, e.size, content)
         c.addElement(re)
@@ -939,7 +1299,7 @@ object KSEvaluator : KSEvaluatorType {
     return act_content.flatMap { content ->
       act_type.flatMap { type ->
         val eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSInlineTerm::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSInlineTerm::class.java), Optional.empty())
         val re = KSInlineTerm(e.position, e.square, eval, type, content)
         c.addElement(re)
         KSResult.succeed<KSInlineTerm<KSEvaluation>, KSEvaluationError>(re)
@@ -955,7 +1315,7 @@ object KSEvaluator : KSEvaluatorType {
 
     val serial = c.freshSerial()
     val eval = KSEvaluation(
-      c, serial, parent, c.nextCount(KSInlineVerbatim::class.java), Optional.empty())
+      c.root, serial, parent, c.nextCount(KSInlineVerbatim::class.java), Optional.empty())
     val act_content = evaluateInlineText(c, e.text, serial)
     val act_type = evaluateTypeOptional(c, e.type, serial)
 
@@ -999,7 +1359,7 @@ object KSEvaluator : KSEvaluatorType {
 
     val serial = c.freshSerial()
     val eval = KSEvaluation(
-      c, serial, parent, c.nextCount(KSInlineInclude::class.java), Optional.empty())
+      c.root, serial, parent, c.nextCount(KSInlineInclude::class.java), Optional.empty())
     return evaluateInlineText(c, e.file, serial).flatMap { file ->
       val re = KSInlineInclude(e.position, e.square, eval, file)
       c.includes_by_file[p] = t
@@ -1016,12 +1376,12 @@ object KSEvaluator : KSEvaluatorType {
 
     val serial = c.freshSerial()
     val id_eval = KSEvaluation(
-      c, c.freshSerial(), serial, c.nextCount(KSID::class.java), Optional.empty())
+      c.root, c.freshSerial(), serial, c.nextCount(KSID::class.java), Optional.empty())
     val act_id = c.createID(e.target.position, e.target.value, id_eval)
 
     return act_id.flatMap { id ->
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSInlineFootnoteReference::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSInlineFootnoteReference::class.java), Optional.empty())
       val re = KSInlineFootnoteReference(e.position, e.square, eval, id)
       c.addElement(re)
       c.referenceFootnote(re, id).flatMap { ref ->
@@ -1067,7 +1427,7 @@ object KSEvaluator : KSEvaluatorType {
           act_head.flatMap { head ->
             act_type.flatMap { type ->
               val eval = KSEvaluation(
-                c, serial, parent, c.nextCount(KSInlineTable::class.java), Optional.empty())
+                c.root, serial, parent, c.nextCount(KSInlineTable::class.java), Optional.empty())
               val table = KSInlineTable(
                 e.position, e.square, eval, type, summary, head, body)
               c.addElement(table)
@@ -1105,7 +1465,7 @@ object KSEvaluator : KSEvaluatorType {
         act_names.flatMap { names ->
           act_type.flatMap { t ->
             val eval = KSEvaluation(
-              c, serial, parent, c.nextCount(KSTableHead::class.java), Optional.empty())
+              c.root, serial, parent, c.nextCount(KSTableHead::class.java), Optional.empty())
             val head = KSTableHead(eh.position, e.square, eval, names, t)
             c.addElement(head)
             KSResult.succeed<Optional<KSTableHead<KSEvaluation>>, KSEvaluationError>(
@@ -1134,7 +1494,7 @@ object KSEvaluator : KSEvaluatorType {
     return act_content.flatMap { content ->
       act_type.flatMap { type ->
         val eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSTableHeadColumnName::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSTableHeadColumnName::class.java), Optional.empty())
         val re = KSTableHeadColumnName(name.position, name.square, eval, content, type)
         c.addElement(re)
         KSResult.succeed<KSTableHeadColumnName<KSEvaluation>, KSEvaluationError>(re)
@@ -1154,7 +1514,7 @@ object KSEvaluator : KSEvaluatorType {
 
     return act_rows.flatMap { rows ->
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSTableBody::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSTableBody::class.java), Optional.empty())
       val re = KSTableBody(b.position, b.square, eval, rows)
       c.addElement(re)
       KSResult.succeed<KSTableBody<KSEvaluation>, KSEvaluationError>(re)
@@ -1178,7 +1538,7 @@ object KSEvaluator : KSEvaluatorType {
     return act_cells.flatMap { cells ->
       act_type.flatMap { type ->
         val eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSTableBodyRow::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSTableBodyRow::class.java), Optional.empty())
         val re = KSTableBodyRow(row.position, row.square, eval, cells, type)
         c.addElement(re)
         KSResult.succeed<KSTableBodyRow<KSEvaluation>, KSEvaluationError>(re)
@@ -1201,7 +1561,7 @@ object KSEvaluator : KSEvaluatorType {
     return act_content.flatMap { content ->
       act_type.flatMap { type ->
         val eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSTableBodyCell::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSTableBodyCell::class.java), Optional.empty())
         val re = KSTableBodyCell(cell.position, cell.square, eval, content, type)
         c.addElement(re)
         KSResult.succeed<KSTableBodyCell<KSEvaluation>, KSEvaluationError>(re)
@@ -1219,7 +1579,7 @@ object KSEvaluator : KSEvaluatorType {
       KSResult.listMap({ cc -> evaluateInlineText(c, cc, serial) }, s.content)
     return act_content.flatMap { content ->
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSTableSummary::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSTableSummary::class.java), Optional.empty())
       val re = KSTableSummary(s.position, s.square, eval, content)
       c.addElement(re)
       KSResult.succeed<KSTableSummary<KSEvaluation>, KSEvaluationError>(re)
@@ -1271,7 +1631,7 @@ object KSEvaluator : KSEvaluatorType {
 
     return act_items.flatMap { items ->
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSInlineListUnordered::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSInlineListUnordered::class.java), Optional.empty())
       val re = KSInlineListUnordered(e.position, e.square, eval, items)
       c.addElement(re)
       KSResult.succeed<KSInlineListUnordered<KSEvaluation>, KSEvaluationError>(re)
@@ -1290,7 +1650,7 @@ object KSEvaluator : KSEvaluatorType {
 
     return act_items.flatMap { items ->
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSInlineListOrdered::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSInlineListOrdered::class.java), Optional.empty())
       val re = KSInlineListOrdered(e.position, e.square, eval, items)
       c.addElement(re)
       KSResult.succeed<KSInlineListOrdered<KSEvaluation>, KSEvaluationError>(re)
@@ -1309,7 +1669,7 @@ object KSEvaluator : KSEvaluatorType {
 
     return act_item_content.flatMap { content ->
       val eval = KSEvaluation(
-        c, serial, parent, c.nextCount(KSListItem::class.java), Optional.empty())
+        c.root, serial, parent, c.nextCount(KSListItem::class.java), Optional.empty())
       val re = KSListItem(item.position, item.square, eval, content)
       c.addElement(re)
       KSResult.succeed<KSListItem<KSEvaluation>, KSEvaluationError>(re)
@@ -1332,7 +1692,7 @@ object KSEvaluator : KSEvaluatorType {
         act_content.flatMap { content ->
           val link = KSLinkExternal(act.position, act.target, content)
           val eval = KSEvaluation(
-            c, serial, parent, c.nextCount(KSInlineLink::class.java), Optional.empty())
+            c.root, serial, parent, c.nextCount(KSInlineLink::class.java), Optional.empty())
           val re = KSInlineLink(e.position, e.square, eval, link)
           c.addElement(re)
           KSResult.succeed<KSInlineLink<KSEvaluation>, KSEvaluationError>(re)
@@ -1344,7 +1704,7 @@ object KSEvaluator : KSEvaluatorType {
           { cc -> evaluateLinkContent(c, cc, serial) }, act.content)
 
         val id_eval = KSEvaluation(
-          c, serial, parent, c.nextCount(KSID::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSID::class.java), Optional.empty())
         val act_id = c.createID(act.target.position, act.target.value, id_eval)
 
         return act_id.flatMap { id ->
@@ -1352,7 +1712,7 @@ object KSEvaluator : KSEvaluatorType {
           act_content.flatMap { content ->
             val link = KSLinkInternal(act.position, id, content)
             val eval = KSEvaluation(
-              c, serial, parent, c.nextCount(KSInlineLink::class.java), Optional.empty())
+              c.root, serial, parent, c.nextCount(KSInlineLink::class.java), Optional.empty())
             val re = KSInlineLink(e.position, e.square, eval, link)
             c.addElement(re)
             KSResult.succeed<KSInlineLink<KSEvaluation>, KSEvaluationError>(re)
@@ -1373,14 +1733,14 @@ object KSEvaluator : KSEvaluatorType {
       is KSLinkContent.KSLinkText  ->
         evaluateInlineText(c, cc.actual, serial).flatMap { t ->
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSLinkContent::class.java), Optional.empty())
+            c.root, serial, parent, c.nextCount(KSLinkContent::class.java), Optional.empty())
           KSResult.succeed<KSLinkContent<KSEvaluation>, KSEvaluationError>(
             KSLinkText(cc.position, ev, t))
         }
       is KSLinkContent.KSLinkImage -> {
         evaluateInlineImage(c, cc.actual, serial).flatMap { t ->
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSLinkContent::class.java), Optional.empty())
+            c.root, serial, parent, c.nextCount(KSLinkContent::class.java), Optional.empty())
           KSResult.succeed<KSLinkContent<KSEvaluation>, KSEvaluationError>(
             KSLinkImage(cc.position, ev, t))
         }
@@ -1429,7 +1789,7 @@ object KSEvaluator : KSEvaluatorType {
           }
 
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockSectionWithContent::class.java), Optional.of(num))
+            c.root, serial, parent, c.nextCount(KSBlockSectionWithContent::class.java), Optional.of(num))
           c.recordID(c, e, serial, { e, id ->
             val e_eval = KSBlockSectionWithContent(
               e.position, e.square, ev, type, id, title, content)
@@ -1479,7 +1839,7 @@ object KSEvaluator : KSEvaluatorType {
     return act_content.flatMap { content ->
       act_type.flatMap { type ->
         val ev = KSEvaluation(
-          c, serial, parent, c.nextCount(KSBlockFootnote::class.java), Optional.empty())
+          c.root, serial, parent, c.nextCount(KSBlockFootnote::class.java), Optional.empty())
         c.recordID(c, f, serial, { f, id ->
           val f_eval = KSBlockFootnote(
             f.position,
@@ -1541,7 +1901,7 @@ object KSEvaluator : KSEvaluatorType {
           }
 
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockFormalItem::class.java), Optional.of(num))
+            c.root, serial, parent, c.nextCount(KSBlockFormalItem::class.java), Optional.of(num))
           c.recordID(c, f, serial, { f, id ->
             val f_eval = KSBlockFormalItem(
               f.position, f.square, ev, type, id, title, content)
@@ -1595,7 +1955,7 @@ object KSEvaluator : KSEvaluatorType {
         }
 
         val ev = KSEvaluation(
-          c, serial, parent, c.nextCount(KSBlockParagraph::class.java), Optional.of(num))
+          c.root, serial, parent, c.nextCount(KSBlockParagraph::class.java), Optional.of(num))
         c.recordID(c, p, serial, { p, id ->
           val p_eval = KSBlockParagraph(
             p.position, p.square, ev, type, id, content)
@@ -1633,7 +1993,7 @@ object KSEvaluator : KSEvaluatorType {
           }
 
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockSectionWithSubsections::class.java), Optional.of(num))
+            c.root, serial, parent, c.nextCount(KSBlockSectionWithSubsections::class.java), Optional.of(num))
           c.recordID(c, e, serial, { e, id ->
             val e_eval = KSBlockSectionWithSubsections(
               e.position, e.square, ev, type, id, title, content)
@@ -1681,7 +2041,7 @@ object KSEvaluator : KSEvaluatorType {
           }
 
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockSubsection::class.java), Optional.of(num))
+            c.root, serial, parent, c.nextCount(KSBlockSubsection::class.java), Optional.of(num))
           c.recordID(c, ss, serial, { ss, id ->
             val ss_eval = KSBlockSubsection(
               ss.position, ss.square, ev, type, id, title, content)
@@ -1717,7 +2077,7 @@ object KSEvaluator : KSEvaluatorType {
       act_title.flatMap { title ->
         act_type.flatMap { type ->
           val ev = KSEvaluation(
-            c, serial, parent, c.nextCount(KSBlockPart::class.java), Optional.of(KSNumberPart(c.part_number.asLong)))
+            c.root, serial, parent, c.nextCount(KSBlockPart::class.java), Optional.of(KSNumberPart(c.part_number.asLong)))
           c.recordID(c, e, serial, { e, id ->
             val e_eval = KSBlockPart(
               e.position, e.square, ev, type, id, title, content)
@@ -42,7 +42,7 @@ import org.xml.sax.SAXException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
@@ -252,15 +252,10 @@ public final class KSExporter implements KSExporterType
     final Path out_tmp)
     throws IOException
   {
-    final OutputStream os = Files.newOutputStream(
-      out_tmp,
-      StandardOpenOption.TRUNCATE_EXISTING,
-      StandardOpenOption.CREATE);
-
     switch (this.format) {
       case KS_INPUT_CANONICAL: {
-        final OutputStreamWriter w = new OutputStreamWriter(os);
-        try (final KSPrettyPrinterType<KSEvaluation> p =
+        try (final Writer w = KSOutputWriter.open(out_tmp);
+             final KSPrettyPrinterType<KSEvaluation> p =
                KSCanonPrettyPrinter.Companion.create(
                  w, this.width, this.indent, imports, includes)) {
           p.pretty(b);
@@ -268,8 +263,8 @@ public final class KSExporter implements KSExporterType
         break;
       }
       case KS_INPUT_IMPERATIVE: {
-        final OutputStreamWriter w = new OutputStreamWriter(os);
-        try (final KSPrettyPrinterType<KSEvaluation> p =
+        try (final Writer w = KSOutputWriter.open(out_tmp);
+             final KSPrettyPrinterType<KSEvaluation> p =
                KSImperativePrettyPrinter.Companion.create(
                  w, this.width, imports, includes)) {
           p.pretty(b);
@@ -279,9 +274,14 @@ public final class KSExporter implements KSExporterType
       case KS_INPUT_XML: {
         final KSXOMSerializerType<KSEvaluation> xs =
           KSXOMSerializer.Companion.create(imports, includes);
-        final Serializer s = new Serializer(os, "UTF-8");
-        s.write(new Document((Element) xs.serialize(b)));
-        s.flush();
+        try (final OutputStream os = Files.newOutputStream(
+          out_tmp,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.CREATE)) {
+          final Serializer s = new Serializer(os, "UTF-8");
+          s.write(new Document((Element) xs.serialize(b)));
+          s.flush();
+        }
 
         KSExporter.LOG.debug("validating output file");
         try (final InputStream is =
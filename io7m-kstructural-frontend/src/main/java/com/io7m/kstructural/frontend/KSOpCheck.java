@@ -23,7 +23,6 @@ import com.io7m.kstructural.core.KSBlockMatch;
 import com.io7m.kstructural.core.KSElement.KSBlock;
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument;
 import com.io7m.kstructural.core.KSParse;
-import com.io7m.kstructural.core.KSParseContext;
 import com.io7m.kstructural.core.KSParseContextType;
 import com.io7m.kstructural.core.KSParseError;
 import com.io7m.kstructural.core.KSParserDriverType;
@@ -39,6 +38,7 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Deque;
+import java.util.Optional;
 
 /**
  * The document checking operation.
@@ -53,10 +53,14 @@ public final class KSOpCheck implements KSOpType
   }
 
   private final Path path;
+  private final Optional<Path> parse_cache;
 
-  private KSOpCheck(final Path p)
+  private KSOpCheck(
+    final Path p,
+    final Optional<Path> in_parse_cache)
   {
     this.path = NullCheck.notNull(p).toAbsolutePath();
+    this.parse_cache = NullCheck.notNull(in_parse_cache);
   }
 
   /**
@@ -67,7 +71,21 @@ public final class KSOpCheck implements KSOpType
 
   public static KSOpType create(final Path p)
   {
-    return new KSOpCheck(p);
+    return KSOpCheck.create(p, Optional.empty());
+  }
+
+  /**
+   * @param p              The path to the document
+   * @param in_parse_cache The parse cache directory, if any
+   *
+   * @return A new operation that will check the document at {@code p}
+   */
+
+  public static KSOpType create(
+    final Path p,
+    final Optional<Path> in_parse_cache)
+  {
+    return new KSOpCheck(p, in_parse_cache);
   }
 
   @Override
@@ -77,7 +95,11 @@ public final class KSOpCheck implements KSOpType
     KSOpCheck.LOG.debug("checking {}", this.path);
 
     final KSParseContextType context =
-      KSParseContext.Companion.empty(this.path.getParent());
+      KSParseAndEvaluate.createContext(
+        this.path.getParent(),
+        Optional.empty(),
+        KSParseAndEvaluate.openParseCache(this.parse_cache),
+        KSParseAndEvaluate.newInternTable());
     final KSParsers parsers = KSParsers.getInstance();
     final KSParserDriverType p = parsers.create(context, this.path);
 
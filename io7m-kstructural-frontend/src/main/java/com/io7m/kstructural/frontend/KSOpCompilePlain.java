@@ -24,12 +24,10 @@ import com.io7m.kstructural.plain.KSPlainSettings;
 import com.io7m.kstructural.plain.KSPlainWriter;
 import org.slf4j.LoggerFactory;
 
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * An operation that compiles a document to plain text.
@@ -46,15 +44,18 @@ public final class KSOpCompilePlain implements KSOpType
   private final KSPlainSettings settings;
   private final Path path;
   private final Path output_path;
+  private final Optional<Path> parse_cache;
 
   private KSOpCompilePlain(
     final Path in_path,
     final Path in_output_path,
-    final KSPlainSettings in_settings)
+    final KSPlainSettings in_settings,
+    final Optional<Path> in_parse_cache)
   {
     this.path = NullCheck.notNull(in_path).toAbsolutePath();
     this.output_path = NullCheck.notNull(in_output_path);
     this.settings = NullCheck.notNull(in_settings);
+    this.parse_cache = NullCheck.notNull(in_parse_cache);
   }
 
   /**
@@ -71,11 +72,37 @@ public final class KSOpCompilePlain implements KSOpType
     final Path in_path,
     final Path in_output_path,
     final KSPlainSettings in_settings)
+  {
+    return KSOpCompilePlain.create(
+      in_path,
+      in_output_path,
+      in_settings,
+      Optional.empty());
+  }
+
+  /**
+   * Construct a new operation. If {@code in_parse_cache} is present, parsed
+   * files are stored in, and loaded from, the given cache directory.
+   *
+   * @param in_path        The input file
+   * @param in_output_path The output directory
+   * @param in_settings    The export settings
+   * @param in_parse_cache The parse cache directory, if any
+   *
+   * @return A new operation
+   */
+
+  public static KSOpType create(
+    final Path in_path,
+    final Path in_output_path,
+    final KSPlainSettings in_settings,
+    final Optional<Path> in_parse_cache)
   {
     return new KSOpCompilePlain(
       in_path,
       in_output_path,
-      in_settings);
+      in_settings,
+      in_parse_cache);
   }
 
   @Override
@@ -83,16 +110,18 @@ public final class KSOpCompilePlain implements KSOpType
     throws Exception
   {
     final KSBlockDocument<KSEvaluation> document =
-      KSParseAndEvaluate.parseAndEvaluate(this.path.getParent(), this.path);
+      KSParseAndEvaluate.parseAndEvaluate(
+        this.path.getParent(),
+        this.path,
+        Optional.empty(),
+        KSParseAndEvaluate.openParseCache(this.parse_cache),
+        KSParseAndEvaluate.newInternTable());
 
     Files.createDirectories(this.output_path);
 
-    try (final OutputStream os = Files.newOutputStream(
-      this.output_path.resolve("main.txt"))) {
-      try (final Writer out =
-             new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
-        KSPlainWriter.INSTANCE.write(this.settings, document, out);
-      }
+    try (final Writer out =
+           KSOutputWriter.open(this.output_path.resolve("main.txt"))) {
+      KSPlainWriter.INSTANCE.write(this.settings, document, out);
     }
 
     return Unit.unit();
@@ -16,25 +16,26 @@
 
 package com.io7m.kstructural.frontend;
 
+import com.io7m.jfunctional.PartialFunctionType;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument;
 import com.io7m.kstructural.core.evaluator.KSEvaluation;
 import com.io7m.kstructural.xom.KSXOMSettings;
-import com.io7m.kstructural.xom.KSXOMXHTMLMultiWriter;
-import com.io7m.kstructural.xom.KSXOMXHTMLSingleWriter;
-import com.io7m.kstructural.xom.KSXOMXHTMLWriterType;
-import nu.xom.Document;
-import nu.xom.Serializer;
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingMultiWriter;
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingSingleWriter;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
 /**
@@ -54,19 +55,33 @@ public final class KSOpCompileXHTML implements KSOpType
   private final Path path;
   private final Path output_path;
   private final boolean css_create_default;
+  private final int threads;
+  private final Optional<Path> parse_cache;
+  private final boolean incremental;
 
   private KSOpCompileXHTML(
     final Path in_path,
     final Path in_output_path,
     final KSXOMSettings in_settings,
     final XHTMLPagination in_pagination,
-    final boolean in_css_create_default)
+    final boolean in_css_create_default,
+    final int in_threads,
+    final Optional<Path> in_parse_cache,
+    final boolean in_incremental)
   {
     this.path = NullCheck.notNull(in_path).toAbsolutePath();
     this.output_path = NullCheck.notNull(in_output_path);
     this.settings = NullCheck.notNull(in_settings);
     this.pagination = NullCheck.notNull(in_pagination);
     this.css_create_default = in_css_create_default;
+    this.threads = in_threads;
+    this.parse_cache = NullCheck.notNull(in_parse_cache);
+    this.incremental = in_incremental;
+
+    if (in_threads < 1) {
+      throw new IllegalArgumentException(
+        "Thread count must be positive (received " + in_threads + ")");
+    }
   }
 
   /**
@@ -90,21 +105,150 @@ public final class KSOpCompileXHTML implements KSOpType
     final KSXOMSettings in_settings,
     final XHTMLPagination in_pagination,
     final boolean in_css_create_default)
+  {
+    return KSOpCompileXHTML.create(
+      in_path,
+      in_output_path,
+      in_settings,
+      in_pagination,
+      in_css_create_default,
+      1);
+  }
+
+  /**
+   * Construct a new operation. If {@code in_threads} is greater than {@code
+   * 1}, imported files are parsed in parallel and, for multi-page output,
+   * pages are generated and written concurrently. The output is identical
+   * regardless of the number of threads.
+   *
+   * @param in_path               The input file
+   * @param in_output_path        The output directory
+   * @param in_settings           The export settings
+   * @param in_pagination         The pagination type (single or multi-page,
+   *                              etc)
+   * @param in_css_create_default {@code true} iff the default provided CSS
+   *                              files should be written to the output
+   *                              directory
+   * @param in_threads            The number of threads that will be used
+   *
+   * @return A new operation
+   */
+
+  public static KSOpType create(
+    final Path in_path,
+    final Path in_output_path,
+    final KSXOMSettings in_settings,
+    final XHTMLPagination in_pagination,
+    final boolean in_css_create_default,
+    final int in_threads)
+  {
+    return KSOpCompileXHTML.create(
+      in_path,
+      in_output_path,
+      in_settings,
+      in_pagination,
+      in_css_create_default,
+      in_threads,
+      Optional.empty());
+  }
+
+  /**
+   * Construct a new operation. If {@code in_parse_cache} is present, parsed
+   * files are stored in, and loaded from, the given cache directory.
+   *
+   * @param in_path               The input file
+   * @param in_output_path        The output directory
+   * @param in_settings           The export settings
+   * @param in_pagination         The pagination type (single or multi-page,
+   *                              etc)
+   * @param in_css_create_default {@code true} iff the default provided CSS
+   *                              files should be written to the output
+   *                              directory
+   * @param in_threads            The number of threads that will be used
+   * @param in_parse_cache        The parse cache directory, if any
+   *
+   * @return A new operation
+   */
+
+  public static KSOpType create(
+    final Path in_path,
+    final Path in_output_path,
+    final KSXOMSettings in_settings,
+    final XHTMLPagination in_pagination,
+    final boolean in_css_create_default,
+    final int in_threads,
+    final Optional<Path> in_parse_cache)
+  {
+    return KSOpCompileXHTML.create(
+      in_path,
+      in_output_path,
+      in_settings,
+      in_pagination,
+      in_css_create_default,
+      in_threads,
+      in_parse_cache,
+      false);
+  }
+
+  /**
+   * Construct a new operation. If {@code in_incremental} is {@code true}, the
+   * digest of each generated file is recorded in the output directory, and
+   * files whose content is unchanged since the previous incremental run are
+   * not written again. Otherwise, any recorded digests are discarded.
+   *
+   * @param in_path               The input file
+   * @param in_output_path        The output directory
+   * @param in_settings           The export settings
+   * @param in_pagination         The pagination type (single or multi-page,
+   *                              etc)
+   * @param in_css_create_default {@code true} iff the default provided CSS
+   *                              files should be written to the output
+   *                              directory
+   * @param in_threads            The number of threads that will be used
+   * @param in_parse_cache        The parse cache directory, if any
+   * @param in_incremental        {@code true} iff unchanged files should not
+   *                              be rewritten
+   *
+   * @return A new operation
+   */
+
+  public static KSOpType create(
+    final Path in_path,
+    final Path in_output_path,
+    final KSXOMSettings in_settings,
+    final XHTMLPagination in_pagination,
+    final boolean in_css_create_default,
+    final int in_threads,
+    final Optional<Path> in_parse_cache,
+    final boolean in_incremental)
   {
     return new KSOpCompileXHTML(
       in_path,
       in_output_path,
       in_settings,
       in_pagination,
-      in_css_create_default);
+      in_css_create_default,
+      in_threads,
+      in_parse_cache,
+      in_incremental);
   }
 
   private static void writeCSS(
     final Supplier<Path> get_path,
-    final Supplier<InputStream> get_stream)
+    final Supplier<InputStream> get_stream,
+    final Optional<KSPageDigests> digests)
     throws IOException
   {
     final Path file = get_path.get();
+    if (digests.isPresent()) {
+      final ByteArrayOutputStream os = new ByteArrayOutputStream(4096);
+      try (final InputStream is = get_stream.get()) {
+        KSOpCompileXHTML.copyStream(os, is);
+      }
+      digests.get().save(file.getFileName().toString(), os.toByteArray());
+      return;
+    }
+
     KSOpCompileXHTML.LOG.debug("write css: {}", file);
     try (final OutputStream os = Files.newOutputStream(
       file,
@@ -131,50 +275,86 @@ public final class KSOpCompileXHTML implements KSOpType
     }
   }
 
-  @Override
-  public Unit call()
+  private void compile(
+    final Optional<ForkJoinPool> pool,
+    final Optional<KSPageDigests> digests)
     throws Exception
   {
     final KSBlockDocument<KSEvaluation> document =
-      KSParseAndEvaluate.parseAndEvaluate(this.path.getParent(), this.path);
+      KSParseAndEvaluate.parseAndEvaluate(
+        this.path.getParent(),
+        this.path,
+        pool,
+        KSParseAndEvaluate.openParseCache(this.parse_cache),
+        KSParseAndEvaluate.newInternTable());
+
+    final PartialFunctionType<String, Writer, IOException> pages = name -> {
+      if (digests.isPresent()) {
+        return digests.get().page(name);
+      }
+
+      final Path file = this.output_path.resolve(name);
+      KSOpCompileXHTML.LOG.debug("write {}", file);
+      return KSOutputWriter.open(file);
+    };
 
-    KSXOMXHTMLWriterType w = null;
     switch (this.pagination) {
       case XHTML_SINGLE_PAGE: {
-        w = KSXOMXHTMLSingleWriter.INSTANCE;
+        KSXOMXHTMLStreamingSingleWriter.INSTANCE.write(
+          this.settings, document, pages);
         break;
       }
       case XHTML_MULTI_PAGE: {
-        w = KSXOMXHTMLMultiWriter.INSTANCE;
+        if (pool.isPresent()) {
+          KSXOMXHTMLStreamingMultiWriter.INSTANCE.write(
+            this.settings, document, pages, pool.get());
+        } else {
+          KSXOMXHTMLStreamingMultiWriter.INSTANCE.write(
+            this.settings, document, pages);
+        }
         break;
       }
     }
+  }
 
+  @Override
+  public Unit call()
+    throws Exception
+  {
     Files.createDirectories(this.output_path);
 
-    final Map<String, Document> pages = w.write(this.settings, document);
-    for (final String name : pages.keySet()) {
-      final Document doc = pages.get(name);
-      final Path file = this.output_path.resolve(name);
+    final Optional<KSPageDigests> digests;
+    if (this.incremental) {
+      digests = Optional.of(KSPageDigests.open(this.output_path));
+    } else {
+      KSPageDigests.discard(this.output_path);
+      digests = Optional.empty();
+    }
 
-      KSOpCompileXHTML.LOG.debug("write {}", file);
-      try (final OutputStream os = Files.newOutputStream(
-        file,
-        StandardOpenOption.CREATE,
-        StandardOpenOption.TRUNCATE_EXISTING)) {
-        final Serializer s = new Serializer(os, "UTF-8");
-        s.write(doc);
-        s.flush();
+    if (this.threads > 1) {
+      final ForkJoinPool pool = new ForkJoinPool(this.threads);
+      try {
+        this.compile(Optional.of(pool), digests);
+      } finally {
+        pool.shutdown();
       }
+    } else {
+      this.compile(Optional.empty(), digests);
     }
 
     if (this.css_create_default) {
       KSOpCompileXHTML.writeCSS(
         () -> this.output_path.resolve(KSXOMSettings.Companion.getCSSDefaultLayout().getPath()),
-        KSXOMSettings.Companion::getCSSDefaultLayoutStream);
+        KSXOMSettings.Companion::getCSSDefaultLayoutStream,
+        digests);
       KSOpCompileXHTML.writeCSS(
         () -> this.output_path.resolve(KSXOMSettings.Companion.getCSSDefaultColour().getPath()),
-        KSXOMSettings.Companion::getCSSDefaultColourStream);
+        KSXOMSettings.Companion::getCSSDefaultColourStream,
+        digests);
+    }
+
+    if (digests.isPresent()) {
+      digests.get().finish();
     }
 
     return Unit.unit();
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.frontend;
+
+import com.io7m.jnull.NullCheck;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A writer that encodes text as UTF-8 into a heap buffer, and writes the
+ * buffer to a file channel only when it is full. The many small writes
+ * issued by the document writers therefore reach the file in large blocks.
+ * The number of channel writes and bytes written are logged when the writer
+ * is closed.
+ *
+ * Writers are not thread-safe.
+ */
+
+final class KSOutputWriter extends Writer
+{
+  private static final int BUFFER_SIZE = 65536;
+
+  private static final org.slf4j.Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(KSOutputWriter.class);
+  }
+
+  private final Path path;
+  private final FileChannel channel;
+  private final CharsetEncoder encoder;
+  private final CharBuffer chars;
+  private final ByteBuffer bytes;
+  private long writes;
+  private long written;
+  private boolean closed;
+
+  private KSOutputWriter(
+    final Path in_path,
+    final FileChannel in_channel)
+  {
+    this.path = NullCheck.notNull(in_path);
+    this.channel = NullCheck.notNull(in_channel);
+    this.encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.chars = CharBuffer.allocate(KSOutputWriter.BUFFER_SIZE);
+    this.bytes = ByteBuffer.allocate(KSOutputWriter.BUFFER_SIZE);
+  }
+
+  /**
+   * Create or truncate the given file, and open it for writing.
+   *
+   * @param path The file
+   *
+   * @return A new writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static KSOutputWriter open(final Path path)
+    throws IOException
+  {
+    return new KSOutputWriter(path, FileChannel.open(
+      path,
+      StandardOpenOption.WRITE,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  @Override
+  public void write(final int c)
+    throws IOException
+  {
+    this.checkOpen();
+    if (!this.chars.hasRemaining()) {
+      this.encode(false);
+    }
+    this.chars.put((char) c);
+  }
+
+  @Override
+  public void write(
+    final char[] buffer,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    this.checkOpen();
+    int index = offset;
+    final int end = offset + length;
+    while (index < end) {
+      if (!this.chars.hasRemaining()) {
+        this.encode(false);
+      }
+      final int count = Math.min(end - index, this.chars.remaining());
+      this.chars.put(buffer, index, count);
+      index += count;
+    }
+  }
+
+  @Override
+  public void write(
+    final String text,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    this.checkOpen();
+    int index = offset;
+    final int end = offset + length;
+    while (index < end) {
+      if (!this.chars.hasRemaining()) {
+        this.encode(false);
+      }
+      final int count = Math.min(end - index, this.chars.remaining());
+      this.chars.put(text, index, index + count);
+      index += count;
+    }
+  }
+
+  @Override
+  public void flush()
+    throws IOException
+  {
+    this.checkOpen();
+    this.encode(false);
+    this.drain();
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    try {
+      this.encode(true);
+      while (this.encoder.flush(this.bytes) == CoderResult.OVERFLOW) {
+        this.drain();
+      }
+      this.drain();
+    } finally {
+      this.channel.close();
+    }
+
+    KSOutputWriter.LOG.debug(
+      "wrote {}: {} bytes in {} writes",
+      this.path,
+      Long.valueOf(this.written),
+      Long.valueOf(this.writes));
+  }
+
+  private void checkOpen()
+    throws IOException
+  {
+    if (this.closed) {
+      throw new IOException("Writer is closed");
+    }
+  }
+
+  /**
+   * Encode all buffered characters, writing the byte buffer to the channel
+   * each time it fills. A trailing high surrogate is kept in the character
+   * buffer unless {@code end} is {@code true}.
+   */
+
+  private void encode(final boolean end)
+    throws IOException
+  {
+    this.chars.flip();
+    while (true) {
+      final CoderResult r = this.encoder.encode(this.chars, this.bytes, end);
+      if (r.isOverflow()) {
+        this.drain();
+        continue;
+      }
+      break;
+    }
+    this.chars.compact();
+  }
+
+  private void drain()
+    throws IOException
+  {
+    this.bytes.flip();
+    while (this.bytes.hasRemaining()) {
+      this.written += (long) this.channel.write(this.bytes);
+      ++this.writes;
+    }
+    this.bytes.clear();
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.frontend;
+
+import com.io7m.jnull.NullCheck;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A record of the SHA-256 digests of the pages written to an output
+ * directory. Pages are buffered in memory and are only written to disk if
+ * their digest differs from the digest recorded by the previous run, or if
+ * the existing file has gone missing or no longer has the size and
+ * modification time recorded when it was written. Unchanged files therefore
+ * keep their modification times.
+ *
+ * Pages may be written concurrently from multiple threads.
+ */
+
+final class KSPageDigests
+{
+  static final String MANIFEST_NAME = ".kstructural-pages";
+
+  private static final org.slf4j.Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(KSPageDigests.class);
+  }
+
+  private final Path directory;
+  private final Map<String, Entry> previous;
+  private final Map<String, Entry> current;
+  private final AtomicInteger written;
+  private final AtomicInteger skipped;
+
+  private KSPageDigests(
+    final Path in_directory,
+    final Map<String, Entry> in_previous)
+  {
+    this.directory = NullCheck.notNull(in_directory);
+    this.previous = NullCheck.notNull(in_previous);
+    this.current = new ConcurrentHashMap<>(in_previous.size());
+    this.written = new AtomicInteger(0);
+    this.skipped = new AtomicInteger(0);
+  }
+
+  /**
+   * Load the digests recorded in {@code directory}, if any. A missing or
+   * malformed manifest is treated as empty, which causes all pages to be
+   * written.
+   *
+   * @param directory The output directory
+   *
+   * @return A set of page digests
+   */
+
+  static KSPageDigests open(final Path directory)
+  {
+    final Map<String, Entry> previous = new ConcurrentHashMap<>(64);
+    final Path manifest = directory.resolve(KSPageDigests.MANIFEST_NAME);
+    if (Files.isRegularFile(manifest)) {
+      try {
+        for (final String line : Files.readAllLines(
+          manifest, StandardCharsets.UTF_8)) {
+          final String[] fields = line.split(" ", 4);
+          if (fields.length != 4 || fields[0].isEmpty()) {
+            KSPageDigests.LOG.warn(
+              "ignoring malformed page manifest: {}", manifest);
+            previous.clear();
+            break;
+          }
+          previous.put(fields[3], new Entry(
+            fields[0],
+            Long.parseLong(fields[1]),
+            Long.parseLong(fields[2])));
+        }
+      } catch (final NumberFormatException e) {
+        KSPageDigests.LOG.warn(
+          "ignoring malformed page manifest: {}", manifest);
+        previous.clear();
+      } catch (final IOException e) {
+        KSPageDigests.LOG.warn(
+          "could not read page manifest: {}: ", manifest, e);
+        previous.clear();
+      }
+    }
+    return new KSPageDigests(directory, previous);
+  }
+
+  /**
+   * Delete the manifest in {@code directory}, if any. This must be called
+   * whenever pages are written without digests, as the manifest would
+   * otherwise describe files that have since been replaced.
+   *
+   * @param directory The output directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static void discard(final Path directory)
+    throws IOException
+  {
+    Files.deleteIfExists(directory.resolve(KSPageDigests.MANIFEST_NAME));
+  }
+
+  private static String digest(final byte[] data)
+  {
+    try {
+      final MessageDigest d = MessageDigest.getInstance("SHA-256");
+      final byte[] r = d.digest(data);
+      final StringBuilder sb = new StringBuilder(r.length * 2);
+      for (final byte b : r) {
+        sb.append(String.format("%02x", Integer.valueOf(b & 0xff)));
+      }
+      return sb.toString();
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Open a page for writing. The page is written to disk when the returned
+   * writer is closed.
+   *
+   * @param name The page name, relative to the output directory
+   *
+   * @return A writer
+   */
+
+  Writer page(final String name)
+  {
+    NullCheck.notNull(name);
+
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16384);
+    return new OutputStreamWriter(buffer, StandardCharsets.UTF_8)
+    {
+      private boolean closed;
+
+      @Override
+      public void close()
+        throws IOException
+      {
+        if (!this.closed) {
+          this.closed = true;
+          super.close();
+          KSPageDigests.this.save(name, buffer.toByteArray());
+        }
+      }
+    };
+  }
+
+  /**
+   * Write the given data to the named file unless it is unchanged.
+   *
+   * @param name The file name, relative to the output directory
+   * @param data The file content
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void save(
+    final String name,
+    final byte[] data)
+    throws IOException
+  {
+    final String hash = KSPageDigests.digest(data);
+    final Path file = this.directory.resolve(name);
+
+    final Entry previous_entry = this.previous.get(name);
+    if (previous_entry != null
+      && previous_entry.hash.equals(hash)
+      && previous_entry.matches(file)) {
+      KSPageDigests.LOG.debug("unchanged {}", file);
+      this.current.put(name, previous_entry);
+      this.skipped.incrementAndGet();
+      return;
+    }
+
+    KSPageDigests.LOG.debug("write {}", file);
+    Files.write(file, data);
+    this.current.put(name, new Entry(
+      hash,
+      (long) data.length,
+      Files.getLastModifiedTime(file).toMillis()));
+    this.written.incrementAndGet();
+  }
+
+  /**
+   * Record the digests of all pages saved since this set of digests was
+   * opened. Pages that were not saved are forgotten. The manifest itself is
+   * only rewritten if it has changed.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void finish()
+    throws IOException
+  {
+    KSPageDigests.LOG.debug(
+      "{} files written, {} unchanged",
+      Integer.valueOf(this.written.get()),
+      Integer.valueOf(this.skipped.get()));
+
+    final Path manifest = this.directory.resolve(KSPageDigests.MANIFEST_NAME);
+    if (this.current.equals(this.previous) && Files.isRegularFile(manifest)) {
+      return;
+    }
+
+    final List<String> names = new ArrayList<>(this.current.keySet());
+    Collections.sort(names);
+
+    final List<String> lines = new ArrayList<>(names.size());
+    for (final String name : names) {
+      final Entry e = this.current.get(name);
+      lines.add(e.hash + " " + e.size + " " + e.time + " " + name);
+    }
+
+    final Path temporary =
+      this.directory.resolve(KSPageDigests.MANIFEST_NAME + ".tmp");
+    Files.write(temporary, lines, StandardCharsets.UTF_8);
+    Files.move(
+      temporary,
+      manifest,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * The digest, size, and modification time of a written file.
+   */
+
+  private static final class Entry
+  {
+    private final String hash;
+    private final long size;
+    private final long time;
+
+    Entry(
+      final String in_hash,
+      final long in_size,
+      final long in_time)
+    {
+      this.hash = NullCheck.notNull(in_hash);
+      this.size = in_size;
+      this.time = in_time;
+    }
+
+    boolean matches(final Path file)
+    {
+      try {
+        return Files.isRegularFile(file)
+          && Files.size(file) == this.size
+          && Files.getLastModifiedTime(file).toMillis() == this.time;
+      } catch (final IOException e) {
+        return false;
+      }
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || this.getClass() != o.getClass()) {
+        return false;
+      }
+      final Entry other = (Entry) o;
+      return this.size == other.size
+        && this.time == other.time
+        && this.hash.equals(other.hash);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      int result = this.hash.hashCode();
+      result = 31 * result + Long.hashCode(this.size);
+      result = 31 * result + Long.hashCode(this.time);
+      return result;
+    }
+  }
+}
@@ -20,7 +20,11 @@ import com.io7m.junreachable.UnreachableCodeException;
 import com.io7m.kstructural.core.KSBlockMatch;
 import com.io7m.kstructural.core.KSElement;
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument;
+import com.io7m.kstructural.core.KSInternTable;
+import com.io7m.kstructural.core.KSInternTableType;
 import com.io7m.kstructural.core.KSParse;
+import com.io7m.kstructural.core.KSParseCache;
+import com.io7m.kstructural.core.KSParseCacheType;
 import com.io7m.kstructural.core.KSParseContext;
 import com.io7m.kstructural.core.KSParseContextType;
 import com.io7m.kstructural.core.KSParseError;
@@ -36,6 +40,8 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Convenient functions to parse and evaluate documents.
@@ -74,7 +80,141 @@ public final class KSParseAndEvaluate
     KSParseAndEvaluate.LOG.debug("base directory: {}", base);
     KSParseAndEvaluate.LOG.debug("checking:       {}", file);
 
-    final KSParseContextType context = KSParseContext.Companion.empty(base);
+    return KSParseAndEvaluate.parseAndEvaluateWithContext(
+      KSParseContext.Companion.empty(base), file, Optional.empty());
+  }
+
+  /**
+   * Parse and evaluate the given file. Imported files are parsed, and the
+   * parts or sections of the document are evaluated, in parallel using the
+   * given pool.
+   *
+   * @param base The base directory
+   * @param file The file
+   * @param pool The pool used to parse and evaluate the document
+   *
+   * @return An evaluated document
+   *
+   * @throws IOException On I/O errors
+   * @throws KSOpFailed  On other errors
+   */
+
+  public static KSBlockDocument<KSEvaluation> parseAndEvaluate(
+    final Path base,
+    final Path file,
+    final ForkJoinPool pool)
+    throws IOException, KSOpFailed
+  {
+    KSParseAndEvaluate.LOG.debug("base directory: {}", base);
+    KSParseAndEvaluate.LOG.debug("checking:       {}", file);
+    KSParseAndEvaluate.LOG.debug("parallelism:    {}", pool.getParallelism());
+
+    return KSParseAndEvaluate.parseAndEvaluateWithContext(
+      KSParseContext.Companion.emptyWithPool(base, pool), file, Optional.of(pool));
+  }
+
+  /**
+   * Parse and evaluate the given file. Imported files are parsed, and the
+   * parts or sections of the document are evaluated, in parallel using the
+   * given pool, if one is provided. Files that are unchanged since
+   * they were stored in the given parse cache, if one is provided, are not
+   * parsed again. Repeated symbols and text in the document share storage
+   * by way of the given intern table, if one is provided.
+   *
+   * @param base    The base directory
+   * @param file    The file
+   * @param pool    The pool used to parse and evaluate the document
+   * @param cache   The parse cache
+   * @param strings The intern table
+   *
+   * @return An evaluated document
+   *
+   * @throws IOException On I/O errors
+   * @throws KSOpFailed  On other errors
+   */
+
+  public static KSBlockDocument<KSEvaluation> parseAndEvaluate(
+    final Path base,
+    final Path file,
+    final Optional<ForkJoinPool> pool,
+    final Optional<KSParseCacheType> cache,
+    final Optional<KSInternTableType> strings)
+    throws IOException, KSOpFailed
+  {
+    KSParseAndEvaluate.LOG.debug("base directory: {}", base);
+    KSParseAndEvaluate.LOG.debug("checking:       {}", file);
+    pool.ifPresent(p -> KSParseAndEvaluate.LOG.debug(
+      "parallelism:    {}", p.getParallelism()));
+
+    return KSParseAndEvaluate.parseAndEvaluateWithContext(
+      KSParseAndEvaluate.createContext(base, pool, cache, strings),
+      file,
+      pool);
+  }
+
+  /**
+   * Create a parse context as used by
+   * {@link #parseAndEvaluate(Path, Path, Optional, Optional, Optional)}.
+   * Operations that only parse documents use this in order to parse them
+   * exactly as the operations that also evaluate them.
+   *
+   * @param base    The base directory
+   * @param pool    The pool used to parse the document
+   * @param cache   The parse cache
+   * @param strings The intern table
+   *
+   * @return A new parse context
+   */
+
+  public static KSParseContextType createContext(
+    final Path base,
+    final Optional<ForkJoinPool> pool,
+    final Optional<KSParseCacheType> cache,
+    final Optional<KSInternTableType> strings)
+  {
+    strings.ifPresent(s -> KSParseAndEvaluate.LOG.debug(
+      "interning:      enabled"));
+    return KSParseContext.Companion.create(base, pool, cache, strings);
+  }
+
+  /**
+   * @return A new intern table for a single document, as used by the
+   * command-line operations
+   */
+
+  public static Optional<KSInternTableType> newInternTable()
+  {
+    return Optional.of(KSInternTable.Companion.create());
+  }
+
+  /**
+   * Open the parse cache in the given directory, if a directory is provided.
+   *
+   * @param directory The cache directory
+   *
+   * @return A parse cache
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static Optional<KSParseCacheType> openParseCache(
+    final Optional<Path> directory)
+    throws IOException
+  {
+    if (directory.isPresent()) {
+      final Path path = directory.get();
+      KSParseAndEvaluate.LOG.debug("parse cache:    {}", path);
+      return Optional.of(KSParseCache.Companion.create(path));
+    }
+    return Optional.empty();
+  }
+
+  private static KSBlockDocument<KSEvaluation> parseAndEvaluateWithContext(
+    final KSParseContextType context,
+    final Path file,
+    final Optional<ForkJoinPool> pool)
+    throws IOException, KSOpFailed
+  {
     final KSParsers parsers = KSParsers.getInstance();
     final KSParserDriverType p = parsers.create(context, file);
 
@@ -115,8 +255,12 @@ public final class KSParseAndEvaluate
         (c, doc) -> {
           KSParseAndEvaluate.LOG.debug("evaluating document");
 
-          final KSResult<KSElement.KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError> eval_r =
-            KSEvaluator.INSTANCE.evaluate(doc, c);
+          final KSResult<KSElement.KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError> eval_r;
+          if (pool.isPresent()) {
+            eval_r = KSEvaluator.INSTANCE.evaluateParallel(doc, c, pool.get());
+          } else {
+            eval_r = KSEvaluator.INSTANCE.evaluate(doc, c);
+          }
 
           if (eval_r instanceof KSResult.KSFailure) {
             final KSResult.KSFailure<KSElement.KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError> f =
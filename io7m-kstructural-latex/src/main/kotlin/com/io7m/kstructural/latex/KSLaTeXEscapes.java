@@ -18,12 +18,50 @@ package com.io7m.kstructural.latex;
 
 import com.io7m.junreachable.UnreachableCodeException;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * Functions to escape characters that should not appear in LaTeX documents.
+ *
+ * All of the characters that require escaping lie in the ASCII range, and
+ * the replacement for each is held in a table indexed by character. Neither
+ * half of a surrogate pair can be confused with an ASCII character, so text
+ * is scanned a {@code char} at a time, and text that requires no escaping
+ * is returned (or written) unmodified without being copied.
  */
 
 public final class KSLaTeXEscapes
 {
+  private static final String END_VERBATIM = "\\end{verbatim}";
+  private static final String[] ESCAPES_ALL;
+  private static final String[] ESCAPES_VERBATIM;
+
+  static {
+    ESCAPES_VERBATIM = new String[128];
+    for (int c = 0x0000; c <= 0x0008; ++c) {
+      ESCAPES_VERBATIM[c] = "\uFFFD";
+    }
+    for (int c = 0x000B; c <= 0x001F; ++c) {
+      ESCAPES_VERBATIM[c] = "\uFFFD";
+    }
+    ESCAPES_VERBATIM[0x007F] = "\uFFFD";
+
+    ESCAPES_ALL = ESCAPES_VERBATIM.clone();
+    ESCAPES_ALL['#'] = "\\#";
+    ESCAPES_ALL['$'] = "\\$";
+    ESCAPES_ALL['%'] = "\\%";
+    ESCAPES_ALL['&'] = "\\&";
+    ESCAPES_ALL['\\'] = "\\textbackslash{}";
+    ESCAPES_ALL['^'] = "\\textasciicircum{}";
+    ESCAPES_ALL['_'] = "\\_";
+    ESCAPES_ALL['{'] = "\\{";
+    ESCAPES_ALL['}'] = "\\}";
+    ESCAPES_ALL['<'] = "\\textless";
+    ESCAPES_ALL['>'] = "\\textgreater";
+    ESCAPES_ALL['~'] = "\\textasciitilde{}";
+  }
+
   private KSLaTeXEscapes()
   {
     throw new UnreachableCodeException();
@@ -40,88 +78,25 @@ public final class KSLaTeXEscapes
 
   public static String escapeAll(final String s)
   {
-    final StringBuilder b = new StringBuilder(s.length());
-    for (int i = 0; i < s.length(); i = s.offsetByCodePoints(i, 1)) {
-      final int cp = s.codePointAt(i);
-
-      if (cp >= 0x0000 && cp <= 0x0008) {
-        b.appendCodePoint(0xFFFD);
-        continue;
-      }
-
-      if (cp >= 0x000B && cp <= 0x001F) {
-        b.appendCodePoint(0xFFFD);
-        continue;
-      }
-
-      if (cp == 0x007F) {
-        b.appendCodePoint(0xFFFD);
-        continue;
-      }
-
-      if (cp == '#') {
-        b.append("\\#");
-        continue;
-      }
-
-      if (cp == '$') {
-        b.append("\\$");
-        continue;
-      }
-
-      if (cp == '%') {
-        b.append("\\%");
-        continue;
-      }
-
-      if (cp == '&') {
-        b.append("\\&");
-        continue;
-      }
-
-      if (cp == '\\') {
-        b.append("\\textbackslash{}");
-        continue;
-      }
-
-      if (cp == '^') {
-        b.append("\\textasciicircum{}");
-        continue;
-      }
-
-      if (cp == '_') {
-        b.append("\\_");
-        continue;
-      }
-
-      if (cp == '{') {
-        b.append("\\{");
-        continue;
-      }
-
-      if (cp == '}') {
-        b.append("\\}");
-        continue;
-      }
-
-      if (cp == '<') {
-        b.append("\\textless");
-        continue;
-      }
-
-      if (cp == '>') {
-        b.append("\\textgreater");
-        continue;
-      }
+    return KSLaTeXEscapes.escape(s, KSLaTeXEscapes.ESCAPES_ALL, false);
+  }
 
-      if (cp == '~') {
-        b.append("\\textasciitilde{}");
-        continue;
-      }
+  /**
+   * Escape all characters that cannot appear as arbitrary text in a LaTeX
+   * document, writing the result to {@code out}.
+   *
+   * @param s   The input text
+   * @param out The output
+   *
+   * @throws IOException On I/O errors
+   */
 
-      b.appendCodePoint(cp);
-    }
-    return b.toString();
+  public static void escapeAll(
+    final String s,
+    final Writer out)
+    throws IOException
+  {
+    KSLaTeXEscapes.escapeFrom(s, 0, KSLaTeXEscapes.ESCAPES_ALL, false, out);
   }
 
   /**
@@ -135,37 +110,116 @@ public final class KSLaTeXEscapes
 
   public static String escapeForVerbatim(final String s)
   {
-    final StringBuilder b = new StringBuilder(s.length());
+    return KSLaTeXEscapes.escape(s, KSLaTeXEscapes.ESCAPES_VERBATIM, true);
+  }
+
+  /**
+   * Escape all characters that cannot appear as arbitrary text in LaTeX
+   * verbatim elements, writing the result to {@code out}.
+   *
+   * @param s   The input text
+   * @param out The output
+   *
+   * @throws IOException On I/O errors
+   */
 
-    for (int i = 0; i < s.length(); i = s.offsetByCodePoints(i, 1)) {
-      final int cp = s.codePointAt(i);
+  public static void escapeForVerbatim(
+    final String s,
+    final Writer out)
+    throws IOException
+  {
+    KSLaTeXEscapes.escapeFrom(
+      s, 0, KSLaTeXEscapes.ESCAPES_VERBATIM, true, out);
+  }
 
-      if (cp >= 0x0000 && cp <= 0x0008) {
-        b.appendCodePoint(0xFFFD);
-        continue;
-      }
+  private static String escape(
+    final String s,
+    final String[] table,
+    final boolean verbatim)
+  {
+    final int first = KSLaTeXEscapes.firstEscape(s, table, verbatim);
+    if (first < 0) {
+      return s;
+    }
+
+    final StringBuilder b = new StringBuilder(s.length() + 16);
+    b.append(s, 0, first);
+    try {
+      KSLaTeXEscapes.escapeFrom(s, first, table, verbatim, b);
+    } catch (final IOException e) {
+      throw new UnreachableCodeException(e);
+    }
+    return b.toString();
+  }
 
-      if (cp >= 0x000B && cp <= 0x001F) {
-        b.appendCodePoint(0xFFFD);
-        continue;
+  private static int firstEscape(
+    final String s,
+    final String[] table,
+    final boolean verbatim)
+  {
+    final int length = s.length();
+    for (int index = 0; index < length; ++index) {
+      if (KSLaTeXEscapes.replacement(s, index, table, verbatim) != null) {
+        return index;
       }
+    }
+    return -1;
+  }
 
-      if (cp == 0x007F) {
-        b.appendCodePoint(0xFFFD);
-        continue;
+  private static String replacement(
+    final String s,
+    final int index,
+    final String[] table,
+    final boolean verbatim)
+  {
+    final char c = s.charAt(index);
+    if (c >= table.length) {
+      return null;
+    }
+    if (verbatim && c == '\\') {
+      if (s.startsWith(KSLaTeXEscapes.END_VERBATIM, index)) {
+        return "\\\u200b";
       }
+      return null;
+    }
+    return table[c];
+  }
 
-      if (cp == '\\') {
-        final String end_command = "\\end{verbatim}";
-        if (s.substring(i).startsWith(end_command)) {
-          b.append("\\");
-          b.append("\u200b");
-          continue;
-        }
+  private static void escapeFrom(
+    final String s,
+    final int from,
+    final String[] table,
+    final boolean verbatim,
+    final Appendable out)
+    throws IOException
+  {
+    final int length = s.length();
+    int start = from;
+    for (int index = from; index < length; ++index) {
+      final String r =
+        KSLaTeXEscapes.replacement(s, index, table, verbatim);
+      if (r != null) {
+        KSLaTeXEscapes.appendRange(out, s, start, index);
+        out.append(r);
+        start = index + 1;
       }
+    }
+    KSLaTeXEscapes.appendRange(out, s, start, length);
+  }
 
-      b.appendCodePoint(cp);
+  private static void appendRange(
+    final Appendable out,
+    final String s,
+    final int start,
+    final int end)
+    throws IOException
+  {
+    if (start < end) {
+      if (out instanceof Writer) {
+        ((Writer) out).write(s, start, end - start);
+      } else {
+        out.append(s, start, end);
+      }
     }
-    return b.toString();
   }
 }
@@ -317,13 +317,13 @@ object KSLaTeXWriter : KSLaTeXWriterType {
 
         is KSInlineVerbatim          -> {
           output.write("\\begin{verbatim}\n")
-          output.write(KSLaTeXEscapes.escapeForVerbatim(e_curr.text.text))
+          KSLaTeXEscapes.escapeForVerbatim(e_curr.text.text, output)
           output.write("\n")
           output.write("\\end{verbatim}\n")
         }
 
         is KSInlineText              -> {
-          output.write(KSLaTeXEscapes.escapeAll(e_curr.text))
+          KSLaTeXEscapes.escapeAll(e_curr.text, output)
         }
 
         is KSInlineLink              -> {
@@ -340,7 +340,7 @@ object KSLaTeXWriter : KSLaTeXWriterType {
 
                   }
                   is KSLinkContent.KSLinkText  -> {
-                    output.write(KSLaTeXEscapes.escapeAll(lc.actual.text))
+                    KSLaTeXEscapes.escapeAll(lc.actual.text, output)
                   }
                 }
                 if (i < max) {
@@ -361,7 +361,7 @@ object KSLaTeXWriter : KSLaTeXWriterType {
 
                   }
                   is KSLinkContent.KSLinkText  -> {
-                    output.write(KSLaTeXEscapes.escapeAll(lc.actual.text))
+                    KSLaTeXEscapes.escapeAll(lc.actual.text, output)
                   }
                 }
                 if (i < max) {
@@ -21,6 +21,7 @@ import com.io7m.kstructural.frontend.KSOpType;
 import com.io7m.kstructural.latex.KSLaTeXEmphasis;
 import com.io7m.kstructural.latex.KSLaTeXSettings;
 import com.io7m.kstructural.latex.KSLaTeXTypeMap;
+import com.io7m.kstructural.xom.KSJingValidation;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -36,6 +37,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Mojo(name = "compileLaTeX", defaultPhase = LifecyclePhase.PREPARE_PACKAGE)
 public final class KSCompileLaTeXMojo extends AbstractMojo
@@ -62,6 +64,13 @@ public final class KSCompileLaTeXMojo extends AbstractMojo
   @Parameter(name = "typeMap", required = false)
   private String typeMap;
 
+  /**
+   * The directory in which parsed files will be cached, if any.
+   */
+
+  @Parameter(name = "parseCacheDirectory", required = false)
+  private String parseCacheDirectory;
+
   /**
    * Parameter to allow skipping of the generation.
    */
@@ -94,6 +103,7 @@ public final class KSCompileLaTeXMojo extends AbstractMojo
       log.info("documentFile               : " + this.documentFile);
       log.info("outputDirectory            : " + this.outputDirectory);
       log.info("typeMap                    : " + this.typeMap);
+      log.info("parseCacheDirectory        : " + this.parseCacheDirectory);
 
       final FileSystem fs = FileSystems.getDefault();
       final Path input_path =
@@ -104,6 +114,10 @@ public final class KSCompileLaTeXMojo extends AbstractMojo
       log.info("documentFile (resolved)    : " + input_path);
       log.info("outputDirectory (resolved) : " + output_path);
 
+      final Optional<Path> parse_cache =
+        Optional.ofNullable(this.parseCacheDirectory).map(
+          name -> fs.getPath(name).toAbsolutePath());
+
       final Map<String, KSLaTeXEmphasis> emphasis = new HashMap<>();
       if (this.typeMap != null) {
         final Path type_map_path = fs.getPath(this.typeMap).toAbsolutePath();
@@ -118,11 +132,14 @@ public final class KSCompileLaTeXMojo extends AbstractMojo
       final KSLaTeXSettings s =
         new KSLaTeXSettings(emphasis);
 
+      KSJingValidation.warmUp();
+
       final KSOpType op =
         KSOpCompileLaTeX.create(
           input_path,
           output_path,
-          s);
+          s,
+          parse_cache);
       op.call();
 
     } catch (final Throwable e) {
@@ -19,6 +19,7 @@ package com.io7m.kstructural.maven_plugin;
 import com.io7m.kstructural.frontend.KSOpCompilePlain;
 import com.io7m.kstructural.frontend.KSOpType;
 import com.io7m.kstructural.plain.KSPlainSettings;
+import com.io7m.kstructural.xom.KSJingValidation;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -30,6 +31,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.util.Optional;
 
 @Mojo(name = "compilePlain", defaultPhase = LifecyclePhase.PREPARE_PACKAGE)
 public final class KSCompilePlainMojo extends AbstractMojo
@@ -49,6 +51,13 @@ public final class KSCompilePlainMojo extends AbstractMojo
   @Parameter(name = "outputDirectory", required = true)
   private String outputDirectory;
 
+  /**
+   * The directory in which parsed files will be cached, if any.
+   */
+
+  @Parameter(name = "parseCacheDirectory", required = false)
+  private String parseCacheDirectory;
+
   /**
    * Parameter to allow skipping of the generation.
    */
@@ -80,6 +89,7 @@ public final class KSCompilePlainMojo extends AbstractMojo
       final Log log = this.getLog();
       log.info("documentFile               : " + this.documentFile);
       log.info("outputDirectory            : " + this.outputDirectory);
+      log.info("parseCacheDirectory        : " + this.parseCacheDirectory);
 
       final FileSystem fs = FileSystems.getDefault();
       final Path input_path =
@@ -90,13 +100,20 @@ public final class KSCompilePlainMojo extends AbstractMojo
       log.info("documentFile (resolved)    : " + input_path);
       log.info("outputDirectory (resolved) : " + output_path);
 
+      final Optional<Path> parse_cache =
+        Optional.ofNullable(this.parseCacheDirectory).map(
+          name -> fs.getPath(name).toAbsolutePath());
+
       final KSPlainSettings s = new KSPlainSettings();
 
+      KSJingValidation.warmUp();
+
       final KSOpType op =
         KSOpCompilePlain.create(
           input_path,
           output_path,
-          s);
+          s,
+          parse_cache);
       op.call();
 
     } catch (final Throwable e) {
@@ -19,6 +19,7 @@ package com.io7m.kstructural.maven_plugin;
 import com.io7m.kstructural.frontend.KSBrandAppender;
 import com.io7m.kstructural.frontend.KSOpCompileXHTML;
 import com.io7m.kstructural.frontend.KSOpType;
+import com.io7m.kstructural.xom.KSJingValidation;
 import com.io7m.kstructural.xom.KSXOMSettings;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -117,6 +118,28 @@ public final class KSCompileXHTMLMojo extends AbstractMojo
   @Parameter(name = "cssCreateDefault", required = false)
   private boolean cssCreateDefault = true;
 
+  /**
+   * The number of threads used to parse files and write pages.
+   */
+
+  @Parameter(name = "threads", required = false)
+  private int threads = 1;
+
+  /**
+   * The directory in which parsed files will be cached, if any.
+   */
+
+  @Parameter(name = "parseCacheDirectory", required = false)
+  private String parseCacheDirectory;
+
+  /**
+   * Only write files whose content has changed since the last incremental
+   * build.
+   */
+
+  @Parameter(name = "incremental", required = false)
+  private boolean incremental = false;
+
   /**
    * Parameter to allow skipping of the generation.
    */
@@ -160,6 +183,9 @@ public final class KSCompileXHTMLMojo extends AbstractMojo
       log.info("cssExtraStyles             : " + this.cssExtraStyles);
       log.info("cssIncludeDefault          : " + this.cssIncludeDefault);
       log.info("cssCreateDefault           : " + this.cssCreateDefault);
+      log.info("threads                    : " + this.threads);
+      log.info("parseCacheDirectory        : " + this.parseCacheDirectory);
+      log.info("incremental                : " + this.incremental);
 
       final List<URI> styles = new ArrayList<>(8);
       if (this.cssIncludeDefault) {
@@ -183,6 +209,10 @@ public final class KSCompileXHTMLMojo extends AbstractMojo
         Optional.ofNullable(this.brandBottomFile).flatMap(
           name -> Optional.of(fs.getPath(name).toAbsolutePath())));
 
+      final Optional<Path> parse_cache =
+        Optional.ofNullable(this.parseCacheDirectory).map(
+          name -> fs.getPath(name).toAbsolutePath());
+
       final KSXOMSettings s = new KSXOMSettings(
         this.renderTOCDocument,
         this.renderTOCPart,
@@ -191,13 +221,18 @@ public final class KSCompileXHTMLMojo extends AbstractMojo
         appender.getAppenderStart(),
         appender.getAppenderEnd());
 
+      KSJingValidation.warmUp();
+
       final KSOpType op =
         KSOpCompileXHTML.create(
           input_path,
           output_path,
           s,
           this.pagination,
-          this.cssCreateDefault);
+          this.cssCreateDefault,
+          this.threads,
+          parse_cache,
+          this.incremental);
       op.call();
 
     } catch (final Throwable e) {
@@ -104,6 +104,9 @@ sealed class KSExpressionMatch {
     fun prefixOfList(xs : List<KSExpressionMatch>) =
       MatchList(CheckPrefix.Prefix, xs)
 
+    fun compile(xs : List<KSExpressionMatch>) =
+      KSExpressionMatcher.create(xs)
+
     fun matches(e : KSExpression, m : KSExpressionMatch) : Boolean {
       when (e) {
         is KSExpression.KSExpressionSymbol ->
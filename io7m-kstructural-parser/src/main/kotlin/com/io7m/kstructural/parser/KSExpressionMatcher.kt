@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.parser
+
+import com.io7m.kstructural.parser.KSExpression.KSExpressionList
+import com.io7m.kstructural.parser.KSExpressionMatch.CheckPrefix
+import com.io7m.kstructural.parser.KSExpressionMatch.MatchList
+import org.valid4j.Assertive
+import java.util.ArrayList
+import java.util.IdentityHashMap
+
+/**
+ * A set of patterns compiled into a single matcher that determines which
+ * of the patterns (if any) an expression matches, in one pass over the
+ * elements of the expression.
+ *
+ * The list patterns are merged into one column per element position. Each
+ * column holds the distinct element patterns used at that position by any
+ * of the cases, along with the set of cases that use each one. An element
+ * is therefore checked against each distinct pattern at most once, and only
+ * while at least one case using that pattern could still match.
+ *
+ * The matcher returns the case that matched, rather than its position, so
+ * that callers select a branch by naming the case and are unaffected by the
+ * order in which the cases were compiled.
+ */
+
+class KSExpressionMatcher private constructor(
+  private val cases : List<KSExpressionMatch>) {
+
+  private val case_lists : Array<MatchList?>
+  private val column_tests : Array<Array<KSExpressionMatch>>
+  private val column_masks : Array<LongArray>
+
+  init {
+    Assertive.require(cases.size <= 64, "At most 64 cases may be compiled")
+
+    this.case_lists = Array(cases.size) { i ->
+      val m = cases[i]
+      if (m is MatchList) m else null
+    }
+
+    var max = 0
+    for (m in case_lists) {
+      if (m != null) {
+        max = Math.max(max, m.elements.size)
+      }
+    }
+
+    this.column_tests = Array(max) { emptyArray<KSExpressionMatch>() }
+    this.column_masks = Array(max) { LongArray(0) }
+
+    for (p in 0 .. max - 1) {
+      val masks = IdentityHashMap<KSExpressionMatch, Long>()
+      val tests = ArrayList<KSExpressionMatch>()
+      for (i in 0 .. case_lists.size - 1) {
+        val m = case_lists[i]
+        if (m != null && p < m.elements.size) {
+          val t = m.elements[p]
+          val existing = masks[t]
+          if (existing == null) {
+            tests.add(t)
+            masks[t] = 1L shl i
+          } else {
+            masks[t] = existing or (1L shl i)
+          }
+        }
+      }
+      this.column_tests[p] = tests.toTypedArray()
+      this.column_masks[p] = LongArray(tests.size) { k -> masks[tests[k]]!! }
+    }
+  }
+
+  companion object {
+
+    /**
+     * Compile the given cases, in order of preference.
+     */
+
+    fun create(cases : List<KSExpressionMatch>) : KSExpressionMatcher =
+      KSExpressionMatcher(cases)
+  }
+
+  /**
+   * @return The first case that matches `e`, or `null` if no case matches
+   */
+
+  fun match(e : KSExpression) : KSExpressionMatch? =
+    index(e).let { i -> if (i == -1) null else cases[i] }
+
+  /**
+   * @return The index of the first case that matches `e`, or `-1` if no
+   * case matches
+   */
+
+  private fun index(e : KSExpression) : Int {
+    var alive = 0L
+
+    for (i in 0 .. cases.size - 1) {
+      val m = case_lists[i]
+      if (m != null) {
+        if (e is KSExpressionList) {
+          val check = when (m.prefix) {
+            is CheckPrefix.Prefix -> e.elements.size >= m.elements.size
+            is CheckPrefix.All    -> e.elements.size == m.elements.size
+          }
+          if (check) {
+            alive = alive or (1L shl i)
+          }
+        }
+      } else if (KSExpressionMatch.matches(e, cases[i])) {
+        alive = alive or (1L shl i)
+      }
+    }
+
+    if (e is KSExpressionList) {
+      val max = Math.min(e.elements.size, column_tests.size)
+      var p = 0
+      while (p < max && alive != 0L) {
+        val element = e.elements[p]
+        val tests = column_tests[p]
+        val masks = column_masks[p]
+        for (k in 0 .. tests.size - 1) {
+          val mask = masks[k]
+          if (alive and mask != 0L) {
+            if (!KSExpressionMatch.matches(element, tests[k])) {
+              alive = alive and mask.inv()
+            }
+          }
+        }
+        ++p
+      }
+    }
+
+    return if (alive == 0L) -1 else java.lang.Long.numberOfTrailingZeros(alive)
+  }
+}
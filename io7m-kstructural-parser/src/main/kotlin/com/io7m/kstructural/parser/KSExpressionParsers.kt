@@ -21,23 +21,164 @@ import com.io7m.jsx.api.lexer.JSXLexerConfiguration
 import com.io7m.jsx.api.parser.JSXParserConfiguration
 import com.io7m.jsx.lexer.JSXLexer
 import com.io7m.jsx.parser.JSXParser
+import com.io7m.kstructural.core.KSInternTableType
+import com.io7m.kstructural.core.KSLexicalFileTable
 import java.io.BufferedReader
 import java.io.InputStreamReader
 import java.io.Reader
+import java.nio.ByteBuffer
 import java.nio.charset.StandardCharsets
 import java.nio.file.Files
 import java.nio.file.LinkOption
 import java.nio.file.Path
 import java.util.Optional
 
+/**
+ * Functions to create s-expression parsers.
+ *
+ * Two engines are available. The native engine ([createWithBytes],
+ * [createWithChars]) reads a complete file held in memory and constructs
+ * [KSExpression] values in a single pass. The JSX engine ([createWithReader],
+ * [createJSX]) reads from an arbitrary [Reader] by way of the JSX lexer and
+ * parser. Both engines accept the same language and produce the same
+ * expressions, positions, and errors.
+ */
+
 object KSExpressionParsers {
 
-  fun create(file : Path) : KSExpressionParserType {
+  /**
+   * Create a parser for `file` using the native engine. Large files are
+   * memory-mapped and decoded directly from the mapping.
+   */
+
+  fun create(file : Path) : KSExpressionParserType =
+    create(file, Optional.empty())
+
+  /**
+   * Create a parser for `file` using the native engine, interning symbols
+   * and strings in `strings`, if present.
+   */
+
+  fun create(
+    file : Path,
+    strings : Optional<KSInternTableType>) : KSExpressionParserType =
+    create(file, strings, KSLexicalFileTable.create())
+
+  /**
+   * Create a parser for `file` using the native engine, interning symbols
+   * and strings in `strings`, if present, and recording the files of
+   * lexical positions in `files`.
+   */
+
+  fun create(
+    file : Path,
+    strings : Optional<KSInternTableType>,
+    files : KSLexicalFileTable) : KSExpressionParserType =
+    createWithChars(
+      file, KSFileInput.readUTF8(file, LinkOption.NOFOLLOW_LINKS), strings, files)
+
+  /**
+   * Create a parser for `file` using the JSX engine.
+   */
+
+  fun createJSX(file : Path) : KSExpressionParserType {
     val s = Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)
     return createWithReader(
       file, BufferedReader(InputStreamReader(s, StandardCharsets.UTF_8)))
   }
 
+  /**
+   * Create a parser using the native engine for the UTF-8 encoded content
+   * `data` of `file`.
+   */
+
+  fun createWithBytes(
+    file : Path,
+    data : ByteArray) : KSExpressionParserType =
+    createWithBytes(file, data, Optional.empty())
+
+  /**
+   * Create a parser using the native engine for the UTF-8 encoded content
+   * `data` of `file`, interning symbols and strings in `strings`, if present.
+   */
+
+  fun createWithBytes(
+    file : Path,
+    data : ByteArray,
+    strings : Optional<KSInternTableType>) : KSExpressionParserType =
+    createWithBuffer(file, ByteBuffer.wrap(data), strings)
+
+  /**
+   * Create a parser using the native engine for the UTF-8 encoded content
+   * `data` of `file`, interning symbols and strings in `strings`, if present.
+   * The buffer may be a memory mapping of the file.
+   */
+
+  fun createWithBuffer(
+    file : Path,
+    data : ByteBuffer,
+    strings : Optional<KSInternTableType>) : KSExpressionParserType =
+    createWithBuffer(file, data, strings, KSLexicalFileTable.create())
+
+  /**
+   * Create a parser as with [createWithBuffer], recording the files of
+   * lexical positions in `files`.
+   */
+
+  fun createWithBuffer(
+    file : Path,
+    data : ByteBuffer,
+    strings : Optional<KSInternTableType>,
+    files : KSLexicalFileTable) : KSExpressionParserType =
+    createWithChars(file, StandardCharsets.UTF_8.decode(data), strings, files)
+
+  /**
+   * Create a parser using the native engine for the content `chars` of
+   * `file`.
+   */
+
+  fun createWithChars(
+    file : Path,
+    chars : CharSequence) : KSExpressionParserType =
+    createWithChars(file, chars, Optional.empty())
+
+  /**
+   * Create a parser using the native engine for the content `chars` of
+   * `file`, interning symbols and strings in `strings`, if present.
+   */
+
+  fun createWithChars(
+    file : Path,
+    chars : CharSequence,
+    strings : Optional<KSInternTableType>) : KSExpressionParserType =
+    createWithChars(file, chars, strings, KSLexicalFileTable.create())
+
+  /**
+   * Create a parser as with [createWithChars], recording the files of
+   * lexical positions in `files`.
+   */
+
+  fun createWithChars(
+    file : Path,
+    chars : CharSequence,
+    strings : Optional<KSInternTableType>,
+    files : KSLexicalFileTable) : KSExpressionParserType {
+
+    val r = KSExpressionReader.create(file, chars, strings, files)
+    return object : KSExpressionParserType {
+      override fun close() {
+
+      }
+
+      override fun parse() : Optional<KSExpression> =
+        r.parseExpressionOrEOF()
+    }
+  }
+
+  /**
+   * Create a parser for `file` using the JSX engine, reading from `reader`.
+   */
+
   fun createWithReader(
     file : Path,
     reader : Reader) : KSExpressionParserType {
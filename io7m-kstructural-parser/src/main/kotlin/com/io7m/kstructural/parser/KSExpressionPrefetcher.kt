@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.parser
+
+import com.io7m.kstructural.core.KSInternTableType
+import com.io7m.kstructural.core.KSLexicalFileTable
+import com.io7m.kstructural.core.KSParseCache
+import com.io7m.kstructural.core.KSParseCacheType
+import com.io7m.kstructural.core.KSParseContextType
+import com.io7m.kstructural.parser.KSExpression.KSExpressionList
+import com.io7m.kstructural.parser.KSExpression.KSExpressionQuoted
+import org.slf4j.LoggerFactory
+import java.nio.file.LinkOption
+import java.nio.file.Path
+import java.util.ArrayList
+import java.util.Optional
+
+/**
+ * Functions to parse the s-expressions of imported files ahead of time,
+ * and to load the s-expressions of unchanged files from a parse cache.
+ *
+ * If prefetching is enabled in a parse context, the s-expressions of each
+ * file are read in full, and every file named by an `import` expression is
+ * scheduled to be read in the background. Block parsing, and therefore
+ * every modification of the parse context, still happens on the calling
+ * thread in document order, so import cycle detection and the order of
+ * reported errors are unaffected.
+ *
+ * If a parse cache is present in a parse context, the contents of each file
+ * are read in full and the s-expressions are loaded from the cache if the
+ * file is unchanged. Otherwise, the expressions are parsed from the contents
+ * that were read and, if parsing succeeded, are stored in the cache.
+ */
+
+object KSExpressionPrefetcher {
+
+  private val LOG = LoggerFactory.getLogger(KSExpressionPrefetcher::class.java)
+
+  private val import =
+    KSExpressionMatch.allOfList(listOf(
+      KSExpressionMatch.exactSymbol("import"),
+      KSExpressionMatch.anyString()))
+
+  /**
+   * The expressions of a file, and the error that stopped parsing, if any.
+   */
+
+  private class Parsed(
+    val expressions : List<KSExpression>,
+    val error : Optional<Throwable>)
+
+  /**
+   * Create an s-expression parser for `file`. If prefetching is disabled
+   * and no parse cache is present in `context`, this is equivalent to
+   * [KSExpressionParsers.create].
+   */
+
+  fun create(
+    context : KSParseContextType,
+    file : Path) : KSExpressionParserType {
+
+    if (!context.prefetchEnabled && !context.parseCache.isPresent) {
+      return KSExpressionParsers.create(
+        file, context.internTable, context.fileTable)
+    }
+
+    val file_abs = file.toAbsolutePath()
+    val taken = context.prefetchTake(file_abs)
+    val parsed = if (taken.isPresent) {
+      LOG.trace("prefetched: {}", file_abs)
+      taken.get() as Parsed
+    } else {
+      parseAndSchedule(context, file_abs)
+    }
+    return replay(parsed)
+  }
+
+  private fun parseAndSchedule(
+    context : KSParseContextType,
+    file : Path) : Parsed {
+    val cache = context.parseCache
+    val parsed = if (cache.isPresent) {
+      parseCached(cache.get(), context.internTable, context.fileTable, file)
+    } else {
+      parse({
+        KSExpressionParsers.create(file, context.internTable, context.fileTable)
+      })
+    }
+    parsed.expressions.forEach { e -> schedule(context, file, e) }
+    return parsed
+  }
+
+  private fun parseCached(
+    cache : KSParseCacheType,
+    strings : Optional<KSInternTableType>,
+    files : KSLexicalFileTable,
+    file : Path) : Parsed {
+
+    val content = try {
+      KSFileInput.read(file, LinkOption.NOFOLLOW_LINKS)
+    } catch (x : Throwable) {
+      return Parsed(emptyList(), Optional.of(x))
+    }
+
+    val digest = KSParseCache.digest(content)
+    val cached = cache.get(file, digest).flatMap { data ->
+      KSExpressionSerialization.deserialize(file, data, strings, files)
+    }
+    if (cached.isPresent) {
+      LOG.trace("cached: {}", file)
+      return Parsed(cached.get(), Optional.empty())
+    }
+
+    val parsed = parse({
+      KSExpressionParsers.createWithBuffer(
+        file, content.duplicate(), strings, files)
+    })
+    if (!parsed.error.isPresent) {
+      KSExpressionSerialization.serialize(file, parsed.expressions).ifPresent { data ->
+        cache.put(file, digest, data)
+      }
+    }
+    return parsed
+  }
+
+  private fun parse(open : () -> KSExpressionParserType) : Parsed {
+    val expressions = ArrayList<KSExpression>()
+    return try {
+      open().use { p ->
+        while (true) {
+          val e = p.parse()
+          if (!e.isPresent) {
+            break
+          }
+          expressions.add(e.get())
+        }
+      }
+      Parsed(expressions, Optional.empty())
+    } catch (x : Throwable) {
+      Parsed(expressions, Optional.of(x))
+    }
+  }
+
+  /**
+   * Schedule the files imported by `e` for prefetching. Files outside of
+   * the base directory are left to the parser to reject, and XML files
+   * are left to the XML parser.
+   */
+
+  private fun schedule(
+    context : KSParseContextType,
+    file : Path,
+    e : KSExpression) {
+
+    when (e) {
+      is KSExpressionList -> {
+        if (KSExpressionMatch.matches(e, import)) {
+          val name = (e.elements[1] as KSExpressionQuoted).value
+          val real = file.resolveSibling(name)
+          if (real.startsWith(context.baseDirectory.toAbsolutePath())
+            && !name.endsWith(".xml")) {
+            context.prefetch(real) { parseAndSchedule(context, real) }
+          }
+        } else {
+          e.elements.forEach { k -> schedule(context, file, k) }
+        }
+      }
+      is KSExpression.KSExpressionSymbol,
+      is KSExpressionQuoted -> Unit
+    }
+  }
+
+  private fun replay(parsed : Parsed) : KSExpressionParserType {
+    val iter = parsed.expressions.iterator()
+    return object : KSExpressionParserType {
+      override fun close() {
+
+      }
+
+      override fun parse() : Optional<KSExpression> {
+        if (iter.hasNext()) {
+          return Optional.of(iter.next())
+        }
+        if (parsed.error.isPresent) {
+          throw parsed.error.get()
+        }
+        return Optional.empty()
+      }
+    }
+  }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.parser
+
+import com.io7m.jeucreader.InvalidSurrogatePair
+import com.io7m.jeucreader.MissingLowSurrogate
+import com.io7m.jeucreader.OrphanLowSurrogate
+import com.io7m.jlexing.core.ImmutableLexicalPosition
+import com.io7m.jlexing.core.ImmutableLexicalPositionType
+import com.io7m.jlexing.core.LexicalPositionType
+import com.io7m.jsx.api.lexer.JSXLexerBareCarriageReturnException
+import com.io7m.jsx.api.lexer.JSXLexerException
+import com.io7m.jsx.api.lexer.JSXLexerInvalidCodePointException
+import com.io7m.jsx.api.lexer.JSXLexerNotHexCharException
+import com.io7m.jsx.api.lexer.JSXLexerUnexpectedEOFException
+import com.io7m.jsx.api.lexer.JSXLexerUnknownEscapeCodeException
+import com.io7m.jsx.api.parser.JSXParserGrammarException
+import com.io7m.jsx.api.parser.JSXParserLexicalException
+import com.io7m.kstructural.core.KSInternTableType
+import com.io7m.kstructural.core.KSLexicalFileTable
+import com.io7m.kstructural.core.KSLexicalPosition
+import com.io7m.kstructural.parser.KSExpression.KSExpressionList
+import com.io7m.kstructural.parser.KSExpression.KSExpressionQuoted
+import com.io7m.kstructural.parser.KSExpression.KSExpressionSymbol
+import java.nio.file.Path
+import java.util.ArrayList
+import java.util.Optional
+
+/**
+ * A single-pass s-expression reader that produces [KSExpression] values
+ * directly from a character sequence, without going through an intermediate
+ * token or JSX expression tree.
+ *
+ * The reader accepts exactly the language accepted by the JSX lexer and
+ * parser as configured by [KSExpressionParsers.createWithReader] (square
+ * brackets and newlines in quoted strings enabled), and produces identical
+ * lexical positions and identical exceptions.
+ */
+
+internal class KSExpressionReader private constructor(
+  private val file : Path,
+  private val text : CharSequence,
+  private val strings : Optional<KSInternTableType>,
+  private val files : KSLexicalFileTable) {
+
+  private enum class State {
+    STATE_INITIAL,
+    STATE_IN_CRLF,
+    STATE_IN_STRING_QUOTED,
+    STATE_IN_SYMBOL
+  }
+
+  private enum class Token {
+    TOKEN_EOF,
+    TOKEN_LEFT_PAREN,
+    TOKEN_RIGHT_PAREN,
+    TOKEN_LEFT_SQUARE,
+    TOKEN_RIGHT_SQUARE,
+    TOKEN_QUOTED,
+    TOKEN_SYMBOL
+  }
+
+  companion object {
+    fun create(
+      file : Path,
+      text : CharSequence,
+      strings : Optional<KSInternTableType>,
+      files : KSLexicalFileTable) : KSExpressionReader =
+      KSExpressionReader(file, text, strings, files)
+  }
+
+  private val buffer = StringBuilder(256)
+  private var index = 0
+  private var pushed = -1
+  private var state = State.STATE_INITIAL
+
+  /*
+   * The current position. As with the JSX lexer, the column is advanced for
+   * every code point read, including code points that are read again after
+   * having been pushed back.
+   */
+
+  private var line = 0
+  private var column = 0
+
+  /*
+   * The position, kind, and text of the most recently read token.
+   */
+
+  private var token_line = 0
+  private var token_column = 0
+  private var token_text = ""
+
+  private fun snapshot() : ImmutableLexicalPositionType<Path> =
+    ImmutableLexicalPosition.newPositionWithFile(line, column, file)
+
+  private fun tokenPosition() : ImmutableLexicalPositionType<Path> =
+    ImmutableLexicalPosition.newPositionWithFile(token_line, token_column, file)
+
+  /*
+   * The positions attached to expressions are compact positions that refer
+   * to the file through the file table of the parse context. Full positions
+   * are only constructed for exceptions.
+   */
+
+  private val file_index = files.index(file)
+
+  private fun tokenLexical() : Optional<LexicalPositionType<Path>> =
+    Optional.of(KSLexicalPosition.create(
+      files, file_index, token_line, token_column))
+
+  private fun tokenText() : String =
+    if (strings.isPresent) strings.get().intern(token_text) else token_text
+
+  private fun readChar() : Int {
+    val c : Int
+    if (pushed != -1) {
+      c = pushed
+      pushed = -1
+    } else {
+      if (index >= text.length) {
+        return -1
+      }
+      val hi = text[index++]
+      if (Character.isLowSurrogate(hi)) {
+        throw OrphanLowSurrogate("Low surrogate received without high surrogate")
+      }
+      if (Character.isHighSurrogate(hi)) {
+        if (index >= text.length) {
+          throw MissingLowSurrogate("EOF reached before low surrogate")
+        }
+        val lo = text[index++]
+        if (!Character.isLowSurrogate(lo)) {
+          throw InvalidSurrogatePair("Invalid character received after high surrogate")
+        }
+        c = Character.toCodePoint(hi, lo)
+      } else {
+        c = hi.toInt()
+      }
+    }
+    column += 1
+    return c
+  }
+
+  private fun readCharNotEOF() : Int {
+    val c = readChar()
+    if (c == -1) {
+      throw JSXLexerUnexpectedEOFException(snapshot(), "Unexpected EOF")
+    }
+    return c
+  }
+
+  private fun readHexCharNotEOF() : Int {
+    val c = readCharNotEOF()
+    if ((c >= '0'.toInt() && c <= '9'.toInt())
+      || (c >= 'a'.toInt() && c <= 'f'.toInt())
+      || (c >= 'A'.toInt() && c <= 'F'.toInt())) {
+      return c
+    }
+    val sb = StringBuilder(16)
+    sb.append("Expected a character [0123456789aAbBcCdDeEfF] (got ")
+    sb.appendCodePoint(c)
+    sb.append(")")
+    throw JSXLexerNotHexCharException(snapshot(), sb.toString())
+  }
+
+  private fun readHex(count : Int) : String {
+    val sb = StringBuilder(16)
+    for (i in 1 .. count) {
+      sb.appendCodePoint(readHexCharNotEOF())
+    }
+    return sb.toString()
+  }
+
+  private fun completeNewline() {
+    state = State.STATE_INITIAL
+    line += 1
+    column = 0
+  }
+
+  private fun startToken() {
+    token_line = line
+    token_column = column
+    buffer.setLength(0)
+  }
+
+  private fun complete(t : Token) : Token {
+    state = State.STATE_INITIAL
+    token_text = buffer.toString()
+    buffer.setLength(0)
+    return t
+  }
+
+  private fun simple(t : Token) : Token {
+    token_line = line
+    token_column = column
+    return t
+  }
+
+  private fun parseEscape() {
+    val c = readCharNotEOF()
+    when (c) {
+      '"'.toInt()  -> buffer.append('"')
+      '\\'.toInt() -> buffer.append('\\')
+      'r'.toInt()  -> buffer.append('\r')
+      'n'.toInt()  -> buffer.append('\n')
+      't'.toInt()  -> buffer.append('\t')
+      'u'.toInt()  -> buffer.appendCodePoint(Integer.parseInt(readHex(4), 16))
+      'U'.toInt()  -> {
+        val x = java.lang.Long.parseUnsignedLong(readHex(8), 16)
+        val cp = x.toInt()
+        if (!Character.isValidCodePoint(cp)) {
+          val sb = StringBuilder(32)
+          sb.append("Invalid code point given in escape (U+")
+          sb.append(java.lang.Long.toUnsignedString(x, 16))
+          sb.append(")")
+          throw JSXLexerInvalidCodePointException(snapshot(), sb.toString())
+        }
+        buffer.appendCodePoint(cp)
+      }
+      else         -> {
+        val sb = StringBuilder(64)
+        sb.append("Unknown escape code (")
+        sb.appendCodePoint(c)
+        sb.append(")")
+        throw JSXLexerUnknownEscapeCodeException(snapshot(), sb.toString())
+      }
+    }
+  }
+
+  private fun token() : Token {
+    while (true) {
+      when (state) {
+        State.STATE_INITIAL          -> {
+          val c = readChar()
+          when (c) {
+            -1           -> return simple(Token.TOKEN_EOF)
+            '\n'.toInt() -> completeNewline()
+            '\r'.toInt() -> state = State.STATE_IN_CRLF
+            '"'.toInt()  -> {
+              state = State.STATE_IN_STRING_QUOTED
+              startToken()
+            }
+            '('.toInt()  -> return simple(Token.TOKEN_LEFT_PAREN)
+            ')'.toInt()  -> return simple(Token.TOKEN_RIGHT_PAREN)
+            '['.toInt()  -> return simple(Token.TOKEN_LEFT_SQUARE)
+            ']'.toInt()  -> return simple(Token.TOKEN_RIGHT_SQUARE)
+            else         -> {
+              if (!Character.isSpaceChar(c)) {
+                state = State.STATE_IN_SYMBOL
+                startToken()
+                buffer.appendCodePoint(c)
+              }
+            }
+          }
+        }
+
+        State.STATE_IN_CRLF          -> {
+          val c = readCharNotEOF()
+          if (c != '\n'.toInt()) {
+            throw JSXLexerBareCarriageReturnException(
+              snapshot(), "Bare carriage return (U+000D) in source")
+          }
+          completeNewline()
+        }
+
+        State.STATE_IN_STRING_QUOTED -> {
+          val c = readCharNotEOF()
+          when (c) {
+            '\\'.toInt() -> parseEscape()
+            '"'.toInt()  -> return complete(Token.TOKEN_QUOTED)
+            else         -> buffer.appendCodePoint(c)
+          }
+        }
+
+        State.STATE_IN_SYMBOL        -> {
+          val c = readChar()
+          when (c) {
+            -1           -> return complete(Token.TOKEN_SYMBOL)
+            '\n'.toInt() -> {
+              completeNewline()
+              return complete(Token.TOKEN_SYMBOL)
+            }
+            '\r'.toInt() -> {
+              /*
+               * The JSX lexer enters the CRLF state here, but then
+               * immediately leaves it again when completing the symbol.
+               */
+              return complete(Token.TOKEN_SYMBOL)
+            }
+            '"'.toInt(),
+            '('.toInt(),
+            ')'.toInt(),
+            '['.toInt(),
+            ']'.toInt()  -> {
+              pushed = c
+              return complete(Token.TOKEN_SYMBOL)
+            }
+            else         -> {
+              if (Character.isSpaceChar(c)) {
+                return complete(Token.TOKEN_SYMBOL)
+              }
+              buffer.appendCodePoint(c)
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private fun parseList(
+    position : Optional<LexicalPositionType<Path>>,
+    square : Boolean) : KSExpression {
+
+    val xs = ArrayList<KSExpression>(16)
+    while (true) {
+      val t = token()
+      when (t) {
+        Token.TOKEN_EOF          ->
+          throw JSXParserGrammarException(
+            tokenPosition(), "Unexpected EOF during list parsing")
+        Token.TOKEN_RIGHT_PAREN  ->
+          if (square) {
+            throw JSXParserGrammarException(
+              tokenPosition(),
+              "Attempted to end a list started with '[' with ')' - unbalanced round/square brackets")
+          } else {
+            return KSExpressionList(position, false, xs)
+          }
+        Token.TOKEN_RIGHT_SQUARE ->
+          if (square) {
+            return KSExpressionList(position, true, xs)
+          } else {
+            throw JSXParserGrammarException(
+              tokenPosition(),
+              "Attempted to end a list started with '(' with ']' - unbalanced round/square brackets")
+          }
+        else                     ->
+          xs.add(parsePeeked(t))
+      }
+    }
+  }
+
+  private fun parsePeeked(t : Token) : KSExpression =
+    when (t) {
+      Token.TOKEN_LEFT_PAREN   -> parseList(tokenLexical(), false)
+      Token.TOKEN_LEFT_SQUARE  -> parseList(tokenLexical(), true)
+      Token.TOKEN_RIGHT_SQUARE ->
+        throw JSXParserGrammarException(
+          tokenPosition(), "Unbalanced parentheses (unexpected ']')")
+      Token.TOKEN_RIGHT_PAREN  ->
+        throw JSXParserGrammarException(
+          tokenPosition(), "Unbalanced parentheses (unexpected ')')")
+      Token.TOKEN_QUOTED       -> KSExpressionQuoted(tokenLexical(), tokenText())
+      Token.TOKEN_SYMBOL       -> KSExpressionSymbol(tokenLexical(), tokenText())
+      Token.TOKEN_EOF          ->
+        throw JSXParserGrammarException(
+          tokenPosition(), "Unexpected EOF during list parsing")
+    }
+
+  /**
+   * @return The next expression, or nothing on EOF
+   */
+
+  fun parseExpressionOrEOF() : Optional<KSExpression> {
+    try {
+      val t = token()
+      if (t == Token.TOKEN_EOF) {
+        return Optional.empty()
+      }
+      return Optional.of(parsePeeked(t))
+    } catch (x : JSXLexerException) {
+      throw JSXParserLexicalException(x)
+    }
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.parser
+
+import com.io7m.jlexing.core.LexicalPositionType
+import com.io7m.kstructural.core.KSInternTableType
+import com.io7m.kstructural.core.KSLexicalFileTable
+import com.io7m.kstructural.core.KSLexicalPosition
+import com.io7m.kstructural.parser.KSExpression.KSExpressionList
+import com.io7m.kstructural.parser.KSExpression.KSExpressionQuoted
+import com.io7m.kstructural.parser.KSExpression.KSExpressionSymbol
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.charset.StandardCharsets
+import java.nio.file.Path
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.Optional
+
+/**
+ * A compact binary encoding of the s-expressions of a single file.
+ *
+ * Strings are written once and subsequently referred to by index, and
+ * lexical positions are written without their file name, which is required
+ * to be the file being encoded.
+ */
+
+object KSExpressionSerialization {
+
+  private const val FORMAT = 1
+
+  private const val TAG_SYMBOL = 0
+  private const val TAG_QUOTED = 1
+  private const val TAG_LIST_ROUND = 2
+  private const val TAG_LIST_SQUARE = 3
+
+  private const val POSITION_NONE = 0
+  private const val POSITION_NO_FILE = 1
+  private const val POSITION_FILE = 2
+
+  private class Unencodable : Exception()
+
+  private class Writer(
+    val file : Path,
+    val out : DataOutputStream) {
+
+    val strings : MutableMap<String, Int> = HashMap()
+
+    fun writeInt(x : Int) {
+      var v = x
+      while (v and 0x7f.inv() != 0) {
+        out.writeByte((v and 0x7f) or 0x80)
+        v = v ushr 7
+      }
+      out.writeByte(v)
+    }
+
+    fun writeString(s : String) {
+      val index = strings[s]
+      if (index != null) {
+        writeInt(index)
+      } else {
+        writeInt(strings.size)
+        strings.put(s, strings.size)
+        val bytes = s.toByteArray(StandardCharsets.UTF_8)
+        writeInt(bytes.size)
+        out.write(bytes)
+      }
+    }
+
+    fun writePosition(p : Optional<LexicalPositionType<Path>>) {
+      if (p.isPresent) {
+        val pp = p.get()
+        if (pp.file.isPresent) {
+          if (pp.file.get() != file) {
+            throw Unencodable()
+          }
+          out.writeByte(POSITION_FILE)
+        } else {
+          out.writeByte(POSITION_NO_FILE)
+        }
+        writeInt(pp.line)
+        writeInt(pp.column)
+      } else {
+        out.writeByte(POSITION_NONE)
+      }
+    }
+
+    fun writeExpression(e : KSExpression) {
+      when (e) {
+        is KSExpressionSymbol -> {
+          out.writeByte(TAG_SYMBOL)
+          writePosition(e.position)
+          writeString(e.value)
+        }
+        is KSExpressionQuoted -> {
+          out.writeByte(TAG_QUOTED)
+          writePosition(e.position)
+          writeString(e.value)
+        }
+        is KSExpressionList   -> {
+          out.writeByte(if (e.square) TAG_LIST_SQUARE else TAG_LIST_ROUND)
+          writePosition(e.position)
+          writeInt(e.elements.size)
+          e.elements.forEach { k -> writeExpression(k) }
+        }
+      }
+    }
+  }
+
+  private class Reader(
+    val file : Path,
+    val input : DataInputStream,
+    val interned : Optional<KSInternTableType>,
+    val files : KSLexicalFileTable) {
+
+    val strings : MutableList<String> = ArrayList()
+    val file_index = files.index(file)
+
+    fun readInt() : Int {
+      var shift = 0
+      var result = 0
+      while (true) {
+        val b = input.readUnsignedByte()
+        result = result or ((b and 0x7f) shl shift)
+        if (b and 0x80 == 0) {
+          return result
+        }
+        shift += 7
+        if (shift > 28) {
+          throw IOException("Malformed integer")
+        }
+      }
+    }
+
+    fun readCount() : Int {
+      val count = readInt()
+      if (count < 0 || count > input.available()) {
+        throw IOException("Malformed count")
+      }
+      return count
+    }
+
+    fun readString() : String {
+      val index = readInt()
+      if (index < strings.size) {
+        return strings[index]
+      }
+      if (index != strings.size) {
+        throw IOException("Malformed string reference")
+      }
+      val bytes = ByteArray(readInt())
+      input.readFully(bytes)
+      val r = String(bytes, StandardCharsets.UTF_8)
+      val s = if (interned.isPresent) interned.get().intern(r) else r
+      strings.add(s)
+      return s
+    }
+
+    fun readPosition() : Optional<LexicalPositionType<Path>> {
+      val kind = input.readUnsignedByte()
+      return when (kind) {
+        POSITION_NONE    ->
+          Optional.empty()
+        POSITION_NO_FILE ->
+          Optional.of(KSLexicalPosition.create(
+            files, KSLexicalFileTable.NO_FILE, readInt(), readInt()))
+        POSITION_FILE    ->
+          Optional.of(KSLexicalPosition.create(
+            files, file_index, readInt(), readInt()))
+        else             ->
+          throw IOException("Malformed position")
+      }
+    }
+
+    fun readExpression() : KSExpression {
+      val tag = input.readUnsignedByte()
+      return when (tag) {
+        TAG_SYMBOL      -> {
+          val p = readPosition()
+          KSExpressionSymbol(p, readString())
+        }
+        TAG_QUOTED      -> {
+          val p = readPosition()
+          KSExpressionQuoted(p, readString())
+        }
+        TAG_LIST_ROUND,
+        TAG_LIST_SQUARE -> {
+          val p = readPosition()
+          val count = readCount()
+          val xs = ArrayList<KSExpression>(count)
+          for (i in 0 .. count - 1) {
+            xs.add(readExpression())
+          }
+          KSExpressionList(p, tag == TAG_LIST_SQUARE, xs)
+        }
+        else            ->
+          throw IOException("Malformed expression")
+      }
+    }
+  }
+
+  /**
+   * Encode the expressions `es` of `file`.
+   *
+   * @return The encoded expressions, or nothing if the expressions refer to
+   * positions in files other than `file`
+   */
+
+  fun serialize(
+    file : Path,
+    es : List<KSExpression>) : Optional<ByteArray> {
+
+    val bao = ByteArrayOutputStream()
+    val w = Writer(file, DataOutputStream(bao))
+    return try {
+      w.writeInt(FORMAT)
+      w.writeInt(es.size)
+      es.forEach { e -> w.writeExpression(e) }
+      w.out.flush()
+      Optional.of(bao.toByteArray())
+    } catch (x : Unencodable) {
+      Optional.empty()
+    }
+  }
+
+  /**
+   * Decode expressions of `file` previously encoded with [serialize].
+   *
+   * @return The decoded expressions, or nothing if `data` is malformed or
+   * was produced by an incompatible version of the encoding
+   */
+
+  fun deserialize(
+    file : Path,
+    data : ByteArray) : Optional<List<KSExpression>> =
+    deserialize(file, data, Optional.empty())
+
+  /**
+   * Decode expressions of `file` as with [deserialize], interning the
+   * decoded symbols and strings in `strings`, if present.
+   */
+
+  fun deserialize(
+    file : Path,
+    data : ByteArray,
+    strings : Optional<KSInternTableType>) : Optional<List<KSExpression>> =
+    deserialize(file, data, strings, KSLexicalFileTable.create())
+
+  /**
+   * Decode expressions of `file` as with [deserialize], recording the files
+   * of lexical positions in `files`.
+   */
+
+  fun deserialize(
+    file : Path,
+    data : ByteArray,
+    strings : Optional<KSInternTableType>,
+    files : KSLexicalFileTable) : Optional<List<KSExpression>> {
+
+    val r = Reader(
+      file, DataInputStream(ByteArrayInputStream(data)), strings, files)
+    return try {
+      if (r.readInt() != FORMAT) {
+        Optional.empty()
+      } else {
+        val count = r.readCount()
+        val xs = ArrayList<KSExpression>(count)
+        for (i in 0 .. count - 1) {
+          xs.add(r.readExpression())
+        }
+        if (r.input.read() != -1) {
+          Optional.empty<List<KSExpression>>()
+        } else {
+          Optional.of<List<KSExpression>>(xs)
+        }
+      }
+    } catch (x : IOException) {
+      Optional.empty()
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.parser
+
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.OpenOption
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+/**
+ * Functions to read the complete contents of source files.
+ *
+ * Files at least [MAP_THRESHOLD] bytes in size are memory-mapped and
+ * decoded directly from the mapping, so that their contents are never
+ * copied into an intermediate array on the heap. Smaller files are read
+ * into a heap buffer, which is cheaper than establishing a mapping, as are
+ * files on file systems that do not support mapping.
+ */
+
+object KSFileInput {
+
+  /**
+   * The size in bytes at or above which files are memory-mapped.
+   */
+
+  const val MAP_THRESHOLD = 64L * 1024L
+
+  /**
+   * @return The contents of `file`
+   */
+
+  fun read(
+    file : Path,
+    vararg options : OpenOption) : ByteBuffer {
+
+    val opts = mutableSetOf<OpenOption>(StandardOpenOption.READ)
+    opts.addAll(options)
+
+    return FileChannel.open(file, opts).use { ch ->
+      val size = ch.size()
+      if (size >= MAP_THRESHOLD) {
+        try {
+          ch.map(FileChannel.MapMode.READ_ONLY, 0L, size)
+        } catch (e : UnsupportedOperationException) {
+          readFully(ch, size)
+        }
+      } else {
+        readFully(ch, size)
+      }
+    }
+  }
+
+  private fun readFully(
+    ch : FileChannel,
+    size : Long) : ByteBuffer {
+    val b = ByteBuffer.allocate(Math.toIntExact(size))
+    while (b.hasRemaining()) {
+      if (ch.read(b) < 0) {
+        break
+      }
+    }
+    b.flip()
+    return b
+  }
+
+  /**
+   * @return The contents of `file`, decoded as UTF-8
+   */
+
+  fun readUTF8(
+    file : Path,
+    vararg options : OpenOption) : CharBuffer =
+    StandardCharsets.UTF_8.decode(read(file, *options))
+}
@@ -16,17 +16,20 @@
 
 package com.io7m.kstructural.parser
 
+import com.io7m.kstructural.core.KSIncludeCacheType
 import com.io7m.kstructural.core.KSResult
 import com.io7m.kstructural.core.KSResults
 import org.slf4j.LoggerFactory
 import org.valid4j.Assertive
 import java.io.IOException
-import java.nio.charset.StandardCharsets
 import java.nio.file.Files
 import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.Optional
 
 class KSIncluder private constructor(
-  private val baseDirectory : Path) : KSIncluderType {
+  private val baseDirectory : Path,
+  private val cache : Optional<KSIncludeCacheType>) : KSIncluderType {
 
   init {
     Assertive.require(baseDirectory.isAbsolute)
@@ -42,9 +45,7 @@ class KSIncluder private constructor(
       }
 
       if (path_abs.startsWith(baseDirectory)) {
-        val ba = Files.readAllBytes(path)
-        val s = String(ba, StandardCharsets.UTF_8)
-        return KSResult.KSSuccess<String, Throwable>(s)
+        return KSResult.KSSuccess<String, Throwable>(read(path_abs))
       } else {
         val sb = StringBuilder(128)
         sb.append("Refusing to include a file outside of the base directory.")
@@ -62,12 +63,40 @@ class KSIncluder private constructor(
     }
   }
 
+  private fun read(path : Path) : String {
+    if (!cache.isPresent) {
+      return KSFileInput.readUTF8(path).toString()
+    }
+
+    val c = cache.get()
+    val attrs = Files.readAttributes(path, BasicFileAttributes::class.java)
+    val cached = c.get(path, attrs.lastModifiedTime(), attrs.size())
+    if (cached.isPresent) {
+      LOG.trace("cached: {}", path)
+      return cached.get()
+    }
+
+    val s = KSFileInput.readUTF8(path).toString()
+    c.put(path, attrs.lastModifiedTime(), attrs.size(), s)
+    return s
+  }
+
   companion object {
 
     private val LOG = LoggerFactory.getLogger(KSIncluder::class.java)
 
     fun create(base : Path) : KSIncluderType {
-      return KSIncluder(base.toAbsolutePath())
+      return KSIncluder(base.toAbsolutePath(), Optional.empty())
+    }
+
+    /**
+     * Create an includer that reads unchanged files from `cache`.
+     */
+
+    fun create(
+      base : Path,
+      cache : KSIncludeCacheType) : KSIncluderType {
+      return KSIncluder(base.toAbsolutePath(), Optional.of(cache))
     }
   }
 }
\ No newline at end of file
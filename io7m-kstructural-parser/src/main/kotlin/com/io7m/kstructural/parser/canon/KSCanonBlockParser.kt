@@ -275,6 +275,59 @@ class KSCanonBlockParser private constructor(
       KSExpressionMatch.prefixOfList(listOf(document_name, title, type, id))
     val document_with_type =
       KSExpressionMatch.prefixOfList(listOf(document_name, title, type))
+
+    val footnote_cases =
+      KSExpressionMatch.compile(listOf(
+        footnote_type,
+        footnote))
+
+    val formal_item_cases =
+      KSExpressionMatch.compile(listOf(
+        formal_item_with_type_id,
+        formal_item_with_id_type,
+        formal_item_with_type,
+        formal_item_with_id,
+        formal_item_none))
+
+    val para_cases =
+      KSExpressionMatch.compile(listOf(
+        para_with_id_type,
+        para_with_type_id,
+        para_with_id,
+        para_with_type,
+        para_any))
+
+    val subsection_cases =
+      KSExpressionMatch.compile(listOf(
+        subsection_with_type_id,
+        subsection_with_id_type,
+        subsection_with_type,
+        subsection_with_id,
+        subsection_none))
+
+    val section_cases =
+      KSExpressionMatch.compile(listOf(
+        section_with_type_id,
+        section_with_id_type,
+        section_with_type,
+        section_with_id,
+        section_none))
+
+    val part_cases =
+      KSExpressionMatch.compile(listOf(
+        part_with_type_id,
+        part_with_id_type,
+        part_with_type,
+        part_with_id,
+        part_none))
+
+    val document_cases =
+      KSExpressionMatch.compile(listOf(
+        document_with_type_id,
+        document_with_id_type,
+        document_with_type,
+        document_with_id,
+        document_none))
   }
 
   private fun parseAttributeTitle(
@@ -295,8 +348,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.footnote_type) -> {
+    when (CommandMatchers.footnote_cases.match(e)) {
+      CommandMatchers.footnote_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_id = parseAttributeID(e.elements[1] as KSExpressionList, c)
         val act_type = parseAttributeType(e.elements[2] as KSExpressionList, c)
@@ -319,7 +372,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.footnote)      -> {
+      CommandMatchers.footnote -> {
         Assertive.require(e.elements.size >= 2)
         val act_id = parseAttributeID(e.elements[1] as KSExpressionList, c)
         val rest = e.elements.subList(2, e.elements.size)
@@ -353,8 +406,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_type_id) -> {
+    when (CommandMatchers.formal_item_cases.match(e)) {
+      CommandMatchers.formal_item_with_type_id -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(e.elements[1] as KSExpressionList, c)
         val act_type = parseAttributeType(e.elements[2] as KSExpressionList, c)
@@ -381,7 +434,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_id_type) -> {
+      CommandMatchers.formal_item_with_id_type -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(e.elements[1] as KSExpressionList, c)
         val act_id = parseAttributeID(e.elements[2] as KSExpressionList, c)
@@ -408,7 +461,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_type)    -> {
+      CommandMatchers.formal_item_with_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(e.elements[1] as KSExpressionList, c)
         val act_type = parseAttributeType(e.elements[2] as KSExpressionList, c)
@@ -432,7 +485,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_id)      -> {
+      CommandMatchers.formal_item_with_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(e.elements[1] as KSExpressionList, c)
         val act_id = parseAttributeID(e.elements[2] as KSExpressionList, c)
@@ -456,7 +509,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_none)         -> {
+      CommandMatchers.formal_item_none -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(e.elements[1] as KSExpressionList, c)
         val rest = e.elements.subList(2, e.elements.size)
@@ -559,8 +612,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_id_type) -> {
+    when (CommandMatchers.para_cases.match(e)) {
+      CommandMatchers.para_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_id = parseAttributeID(
           e.elements[1] as KSExpressionList, c)
@@ -579,7 +632,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_type_id) -> {
+      CommandMatchers.para_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_type = parseAttributeType(
           e.elements[1] as KSExpressionList, c)
@@ -598,7 +651,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_id)      -> {
+      CommandMatchers.para_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_id = parseAttributeID(e.elements[1] as KSExpressionList, c)
         val rest = e.elements.subList(2, e.elements.size)
@@ -612,7 +665,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_type)    -> {
+      CommandMatchers.para_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_type = parseAttributeType(e.elements[1] as KSExpressionList, c)
         val rest = e.elements.subList(2, e.elements.size)
@@ -626,7 +679,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_any)          -> {
+      CommandMatchers.para_any -> {
         Assertive.require(e.elements.size >= 1)
         val rest = e.elements.subList(1, e.elements.size)
         val act_content = parseInlines(rest, c)
@@ -664,8 +717,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_type_id) -> {
+    when (CommandMatchers.subsection_cases.match(e)) {
+      CommandMatchers.subsection_with_type_id -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -695,7 +748,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_id_type) -> {
+      CommandMatchers.subsection_with_id_type -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -725,7 +778,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_type)    -> {
+      CommandMatchers.subsection_with_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -751,7 +804,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_id)      -> {
+      CommandMatchers.subsection_with_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -777,7 +830,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_none)         -> {
+      CommandMatchers.subsection_none -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -856,8 +909,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_type_id) -> {
+    when (CommandMatchers.section_cases.match(e)) {
+      CommandMatchers.section_with_type_id -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -880,7 +933,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_id_type) -> {
+      CommandMatchers.section_with_id_type -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -903,7 +956,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_type)    -> {
+      CommandMatchers.section_with_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -922,7 +975,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_id)      -> {
+      CommandMatchers.section_with_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -941,7 +994,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_none)         -> {
+      CommandMatchers.section_none -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1025,8 +1078,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_type_id) -> {
+    when (CommandMatchers.part_cases.match(e)) {
+      CommandMatchers.part_with_type_id -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1056,7 +1109,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_id_type) -> {
+      CommandMatchers.part_with_id_type -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1086,7 +1139,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_type)    -> {
+      CommandMatchers.part_with_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1112,7 +1165,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_id)      -> {
+      CommandMatchers.part_with_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1138,7 +1191,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_none)         -> {
+      CommandMatchers.part_none -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1408,8 +1461,8 @@ class KSCanonBlockParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_type_id) -> {
+    when (CommandMatchers.document_cases.match(e)) {
+      CommandMatchers.document_with_type_id -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1432,7 +1485,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_id_type) -> {
+      CommandMatchers.document_with_id_type -> {
         Assertive.require(e.elements.size >= 4)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1455,7 +1508,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_type)    -> {
+      CommandMatchers.document_with_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1474,7 +1527,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_id)      -> {
+      CommandMatchers.document_with_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1493,7 +1546,7 @@ class KSCanonBlockParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_none)         -> {
+      CommandMatchers.document_none -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
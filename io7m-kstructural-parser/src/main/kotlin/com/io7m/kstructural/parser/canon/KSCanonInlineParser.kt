@@ -215,6 +215,52 @@ class KSCanonInlineParser private constructor(
       KSExpressionMatch.prefixOfList(listOf(table_name, summary, head, body))
     val table_head_type =
       KSExpressionMatch.prefixOfList(listOf(table_name, summary, type, head, body))
+
+    val image_cases =
+      KSExpressionMatch.compile(listOf(
+        image_with_type_size,
+        image_with_type,
+        image_with_size,
+        image))
+
+    val verbatim_cases =
+      KSExpressionMatch.compile(listOf(
+        verbatim_include,
+        verbatim_type_include,
+        verbatim_type,
+        verbatim))
+
+    val term_cases =
+      KSExpressionMatch.compile(listOf(
+        term_type,
+        term))
+
+    val table_cases =
+      KSExpressionMatch.compile(listOf(
+        table_head_type,
+        table_head,
+        table_type,
+        table))
+
+    val row_cases =
+      KSExpressionMatch.compile(listOf(
+        row_type,
+        row))
+
+    val cell_cases =
+      KSExpressionMatch.compile(listOf(
+        cell_type,
+        cell))
+
+    val head_cases =
+      KSExpressionMatch.compile(listOf(
+        head_type,
+        head))
+
+    val name_cases =
+      KSExpressionMatch.compile(listOf(
+        name_type,
+        name))
   }
 
   private data class Context(
@@ -341,8 +387,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpressionList,
     c : Context)
     : KSResult<KSInlineImage<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.image_with_type_size) -> {
+    when (CommandMatchers.image_cases.match(e)) {
+      CommandMatchers.image_with_type_size -> {
         Assertive.require(e.elements.size >= 5)
 
         val act_target = parseAttributeTargetAsURI(
@@ -375,7 +421,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.image_with_type)      -> {
+      CommandMatchers.image_with_type -> {
         Assertive.require(e.elements.size >= 4)
 
         val act_target = parseAttributeTargetAsURI(
@@ -406,7 +452,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.image_with_size)      -> {
+      CommandMatchers.image_with_size -> {
         Assertive.require(e.elements.size >= 4)
 
         val act_target =
@@ -435,7 +481,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.image)                -> {
+      CommandMatchers.image -> {
         Assertive.require(e.elements.size >= 3)
         val act_target =
           parseAttributeTargetAsURI(e.elements[1] as KSExpressionList)
@@ -576,8 +622,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpressionList,
     c : Context)
     : KSResult<KSInlineVerbatim<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.verbatim_include)      -> {
+    when (CommandMatchers.verbatim_cases.match(e)) {
+      CommandMatchers.verbatim_include -> {
         Assertive.require(e.elements.size == 2)
         val act_content =
           parseInlineInclude(e.elements[1] as KSExpressionList, c)
@@ -592,7 +638,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.verbatim_type_include) -> {
+      CommandMatchers.verbatim_type_include -> {
         Assertive.require(e.elements.size == 3)
         val act_type =
           parseAttributeType(e.elements[1] as KSExpressionList, c)
@@ -611,7 +657,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.verbatim_type)         -> {
+      CommandMatchers.verbatim_type -> {
         Assertive.require(e.elements.size == 3)
         val act_type =
           parseAttributeType(e.elements[1] as KSExpressionList, c)
@@ -630,7 +676,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.verbatim)              -> {
+      CommandMatchers.verbatim -> {
         Assertive.require(e.elements.size == 2)
         val act_content =
           parseInlineTextOrInclude(e.elements[1], c)
@@ -822,8 +868,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpressionList,
     c : Context)
     : KSResult<KSInlineTerm<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.term_type) -> {
+    when (CommandMatchers.term_cases.match(e)) {
+      CommandMatchers.term_type -> {
         Assertive.require(e.elements.size >= 2)
         val texts =
           e.elements.subList(2, e.elements.size)
@@ -841,7 +887,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.term)      -> {
+      CommandMatchers.term -> {
         Assertive.require(e.elements.size >= 2)
         val texts =
           e.elements.subList(1, e.elements.size)
@@ -927,8 +973,8 @@ class KSCanonInlineParser private constructor(
     c : Context)
     : KSResult<KSInlineTable<KSParse>, KSParseError> {
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.table_head_type) -> {
+    when (CommandMatchers.table_cases.match(e)) {
+      CommandMatchers.table_head_type -> {
         Assertive.require(e.elements.size == 5)
 
         val act_summary = parseTableSummary(e.elements[1], c)
@@ -957,7 +1003,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.table_head)      -> {
+      CommandMatchers.table_head -> {
         Assertive.require(e.elements.size == 4)
 
         val act_summary = parseTableSummary(e.elements[1], c)
@@ -983,7 +1029,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.table_type)      -> {
+      CommandMatchers.table_type -> {
         Assertive.require(e.elements.size == 4)
 
         val act_summary = parseTableSummary(e.elements[1], c)
@@ -1009,7 +1055,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.table)           -> {
+      CommandMatchers.table -> {
         Assertive.require(e.elements.size == 3)
 
         val act_summary = parseTableSummary(e.elements[1], c)
@@ -1064,8 +1110,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpression,
     c : Context)
     : KSResult<KSTableBodyRow<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.row_type) -> {
+    when (CommandMatchers.row_cases.match(e)) {
+      CommandMatchers.row_type -> {
         e as KSExpressionList
         Assertive.require(e.elements.size >= 2)
         val contents = e.elements.subList(2, e.elements.size)
@@ -1081,7 +1127,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.row)      -> {
+      CommandMatchers.row -> {
         e as KSExpressionList
         Assertive.require(e.elements.size >= 1)
         val contents = e.elements.subList(1, e.elements.size)
@@ -1101,8 +1147,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpression,
     c : Context)
     : KSResult<KSTableBodyCell<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.cell_type) -> {
+    when (CommandMatchers.cell_cases.match(e)) {
+      CommandMatchers.cell_type -> {
         e as KSExpressionList
         Assertive.require(e.elements.size >= 2)
         val contents = e.elements.subList(2, e.elements.size)
@@ -1118,7 +1164,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.cell)      -> {
+      CommandMatchers.cell -> {
         e as KSExpressionList
         Assertive.require(e.elements.size >= 1)
         val contents = e.elements.subList(1, e.elements.size)
@@ -1138,8 +1184,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpressionList,
     c : Context)
     : KSResult<KSTableHead<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.head_type) -> {
+    when (CommandMatchers.head_cases.match(e)) {
+      CommandMatchers.head_type -> {
         Assertive.require(e.elements.size >= 2)
         val contents = e.elements.subList(2, e.elements.size)
         val act_type =
@@ -1155,7 +1201,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.head)      -> {
+      CommandMatchers.head -> {
         Assertive.require(e.elements.size >= 1)
         val contents = e.elements.subList(1, e.elements.size)
         val act_content =
@@ -1174,8 +1220,8 @@ class KSCanonInlineParser private constructor(
     e : KSExpression,
     c : Context)
     : KSResult<KSTableHeadColumnName<KSParse>, KSParseError> {
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.name_type) -> {
+    when (CommandMatchers.name_cases.match(e)) {
+      CommandMatchers.name_type -> {
         e as KSExpressionList
         Assertive.require(e.elements.size >= 2)
         val contents = e.elements.subList(2, e.elements.size)
@@ -1192,7 +1238,7 @@ class KSCanonInlineParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.name)      -> {
+      CommandMatchers.name -> {
         e as KSExpressionList
         Assertive.require(e.elements.size >= 1)
         val contents = e.elements.subList(1, e.elements.size)
@@ -29,7 +29,7 @@ import com.io7m.kstructural.core.KSResult;
 import com.io7m.kstructural.core.KSResults;
 import com.io7m.kstructural.parser.KSExpression;
 import com.io7m.kstructural.parser.KSExpressionParserType;
-import com.io7m.kstructural.parser.KSExpressionParsers;
+import com.io7m.kstructural.parser.KSExpressionPrefetcher;
 import com.io7m.kstructural.parser.KSIncluder;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -93,11 +93,11 @@ public final class KSCanonParserDriver implements KSParserDriverType
     if (file.startsWith(base)) {
       final KSCanonInlineParserType inlines =
         KSCanonInlineParser.Companion.create(
-          KSIncluder.Companion.create(base));
+          KSIncluder.Companion.create(base, context.getIncludeCache()));
       final KSCanonBlockParserType bp =
         KSCanonBlockParser.Companion.create(inlines, this.parsers);
       final KSExpressionParserType s_expressions =
-        KSExpressionParsers.INSTANCE.create(file);
+        KSExpressionPrefetcher.INSTANCE.create(context, file);
 
       final Optional<KSExpression> e_opt = s_expressions.parse();
       if (e_opt.isPresent()) {
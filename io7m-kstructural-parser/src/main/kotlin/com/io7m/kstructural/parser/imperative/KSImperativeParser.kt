@@ -236,6 +236,59 @@ class KSImperativeParser private constructor(
       KSExpressionMatch.allOfList(listOf(document_name, title, type, id))
     val document_with_type =
       KSExpressionMatch.allOfList(listOf(document_name, title, type))
+
+    val para_cases =
+      KSExpressionMatch.compile(listOf(
+        para_with_id_type,
+        para_with_type_id,
+        para_with_id,
+        para_with_type,
+        para_any))
+
+    val footnote_cases =
+      KSExpressionMatch.compile(listOf(
+        footnote_type,
+        footnote))
+
+    val part_cases =
+      KSExpressionMatch.compile(listOf(
+        part_with_id_type,
+        part_with_type_id,
+        part_with_id,
+        part_with_type,
+        part_none))
+
+    val document_cases =
+      KSExpressionMatch.compile(listOf(
+        document_with_id_type,
+        document_with_type_id,
+        document_with_id,
+        document_with_type,
+        document_none))
+
+    val section_cases =
+      KSExpressionMatch.compile(listOf(
+        section_with_id_type,
+        section_with_type_id,
+        section_with_id,
+        section_with_type,
+        section_none))
+
+    val subsection_cases =
+      KSExpressionMatch.compile(listOf(
+        subsection_with_id_type,
+        subsection_with_type_id,
+        subsection_with_id,
+        subsection_with_type,
+        subsection_none))
+
+    val formal_item_cases =
+      KSExpressionMatch.compile(listOf(
+        formal_item_with_id_type,
+        formal_item_with_type_id,
+        formal_item_with_id,
+        formal_item_with_type,
+        formal_item_none))
   }
 
   private data class Context(
@@ -295,8 +348,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_id_type) -> {
+    when (CommandMatchers.para_cases.match(e)) {
+      CommandMatchers.para_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_id = parseAttributeID(
           e.elements[1] as KSExpressionList, c)
@@ -312,7 +365,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_type_id) -> {
+      CommandMatchers.para_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_type = parseAttributeType(
           e.elements[1] as KSExpressionList, c)
@@ -328,7 +381,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_id)      -> {
+      CommandMatchers.para_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_id = parseAttributeID(
           e.elements[1] as KSExpressionList, c)
@@ -340,7 +393,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_with_type)    -> {
+      CommandMatchers.para_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_type = parseAttributeType(
           e.elements[1] as KSExpressionList, c)
@@ -351,7 +404,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.para_any)          -> {
+      CommandMatchers.para_any -> {
         Assertive.require(e.elements.size >= 1)
         return KSResult.succeed(
           KSImperativeParagraph(
@@ -374,8 +427,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.footnote_type) -> {
+    when (CommandMatchers.footnote_cases.match(e)) {
+      CommandMatchers.footnote_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_id = parseAttributeID(
           e.elements[1] as KSExpressionList, c)
@@ -391,7 +444,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.footnote)      -> {
+      CommandMatchers.footnote -> {
         Assertive.require(e.elements.size >= 2)
         val act_id = parseAttributeID(
           e.elements[1] as KSExpressionList, c)
@@ -453,8 +506,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_id_type) -> {
+    when (CommandMatchers.part_cases.match(e)) {
+      CommandMatchers.part_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -478,7 +531,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_type_id) -> {
+      CommandMatchers.part_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -502,7 +555,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_id)      -> {
+      CommandMatchers.part_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -522,7 +575,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_with_type)    -> {
+      CommandMatchers.part_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -542,7 +595,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.part_none)         -> {
+      CommandMatchers.part_none -> {
         Assertive.require(e.elements.size >= 1)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -574,8 +627,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_id_type) -> {
+    when (CommandMatchers.document_cases.match(e)) {
+      CommandMatchers.document_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -599,7 +652,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_type_id) -> {
+      CommandMatchers.document_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -623,7 +676,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_id)      -> {
+      CommandMatchers.document_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -643,7 +696,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_with_type)    -> {
+      CommandMatchers.document_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -663,7 +716,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.document_none)         -> {
+      CommandMatchers.document_none -> {
         Assertive.require(e.elements.size >= 1)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -695,8 +748,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_id_type) -> {
+    when (CommandMatchers.section_cases.match(e)) {
+      CommandMatchers.section_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -720,7 +773,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_type_id) -> {
+      CommandMatchers.section_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -744,7 +797,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_id)      -> {
+      CommandMatchers.section_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -764,7 +817,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_with_type)    -> {
+      CommandMatchers.section_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -784,7 +837,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.section_none)         -> {
+      CommandMatchers.section_none -> {
         Assertive.require(e.elements.size >= 1)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -816,8 +869,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_id_type) -> {
+    when (CommandMatchers.subsection_cases.match(e)) {
+      CommandMatchers.subsection_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -841,7 +894,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_type_id) -> {
+      CommandMatchers.subsection_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -865,7 +918,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_id)      -> {
+      CommandMatchers.subsection_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -885,7 +938,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_with_type)    -> {
+      CommandMatchers.subsection_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -905,7 +958,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.subsection_none)         -> {
+      CommandMatchers.subsection_none -> {
         Assertive.require(e.elements.size >= 1)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -937,8 +990,8 @@ class KSImperativeParser private constructor(
     Assertive.require(e.elements.size > 0)
     Assertive.require(e.elements[0] is KSExpressionSymbol)
 
-    when {
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_id_type) -> {
+    when (CommandMatchers.formal_item_cases.match(e)) {
+      CommandMatchers.formal_item_with_id_type -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -962,7 +1015,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_type_id) -> {
+      CommandMatchers.formal_item_with_type_id -> {
         Assertive.require(e.elements.size >= 3)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -986,7 +1039,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_id)      -> {
+      CommandMatchers.formal_item_with_id -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1006,7 +1059,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_with_type)    -> {
+      CommandMatchers.formal_item_with_type -> {
         Assertive.require(e.elements.size >= 2)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -1026,7 +1079,7 @@ class KSImperativeParser private constructor(
         }
       }
 
-      KSExpressionMatch.matches(e, CommandMatchers.formal_item_none)         -> {
+      CommandMatchers.formal_item_none -> {
         Assertive.require(e.elements.size >= 1)
         val act_title = parseAttributeTitle(
           e.elements[1] as KSExpressionList, c)
@@ -30,7 +30,7 @@ import com.io7m.kstructural.core.KSResult;
 import com.io7m.kstructural.core.KSResults;
 import com.io7m.kstructural.parser.KSExpression;
 import com.io7m.kstructural.parser.KSExpressionParserType;
-import com.io7m.kstructural.parser.KSExpressionParsers;
+import com.io7m.kstructural.parser.KSExpressionPrefetcher;
 import com.io7m.kstructural.parser.KSIncluder;
 import com.io7m.kstructural.parser.canon.KSCanonInlineParser;
 import com.io7m.kstructural.parser.canon.KSCanonInlineParserType;
@@ -128,10 +128,10 @@ public final class KSImperativeParserDriver implements KSParserDriverType
   {
     final KSCanonInlineParserType inlines =
       KSCanonInlineParser.Companion.create(
-        KSIncluder.Companion.create(base));
+        KSIncluder.Companion.create(base, context.getIncludeCache()));
 
     final KSExpressionParserType s_expressions =
-      KSExpressionParsers.INSTANCE.create(file);
+      KSExpressionPrefetcher.INSTANCE.create(context, file);
     final KSImperativeParserType ibp =
       KSImperativeParser.Companion.create(inlines, this.parsers);
     final KSImperativeBuilderType ibb =
@@ -20,6 +20,8 @@ import com.io7m.jorchard.core.JOTreeNodeType
 import com.io7m.jptbox.core.JPTextBoxDrawing
 import com.io7m.jptbox.core.JPTextImage
 import com.io7m.jptbox.core.JPTextImageType
+import com.io7m.jptbox.core.JPTextImages
+import java.io.Writer
 import java.util.LinkedList
 
 object KSPlainRasterizer {
@@ -29,6 +31,129 @@ object KSPlainRasterizer {
     val x : Int,
     val y : Int)
 
+  private class Span(
+    val x : Int,
+    val line : String)
+
+  /**
+   * Write `layout` to `output`. The result is identical to that of
+   * `JPTextImages.show(rasterize(layout))`, but layouts that contain no
+   * borders and no overlapping lines are written row by row, without
+   * allocating a text image.
+   */
+
+  fun write(
+    layout : JOTreeNodeType<KSPlainLayoutBox>,
+    output : Writer) {
+
+    val rows = spans(layout)
+    if (rows == null) {
+      output.write(JPTextImages.show(rasterize(layout)))
+      return
+    }
+
+    val row = StringBuilder(layout.value().box.width())
+    for (spans in rows) {
+      row.setLength(0)
+      var cell = 0
+      if (spans != null) {
+        for (span in spans) {
+          while (cell < span.x) {
+            row.append(' ')
+            ++cell
+          }
+
+          /*
+           * The rasterizer fills one cell per character, and so this
+           * must do the same. A surrogate pair therefore covers two cells
+           * but contributes three characters to the row, and so columns
+           * are tracked separately from the length of the row.
+           */
+
+          val line = span.line
+          for (x in 0 .. line.length - 1) {
+            row.appendCodePoint(line.codePointAt(x))
+          }
+          cell += line.length
+        }
+      }
+      output.write(KSInlineRenderer.trimTrailing(row.toString()))
+      output.write("\n")
+    }
+  }
+
+  /**
+   * @return The lines of `layout` positioned within each row, sorted by
+   * column, or `null` if the layout has a border, overlapping lines, or
+   * lines that fall outside of the layout
+   */
+
+  private fun spans(
+    layout : JOTreeNodeType<KSPlainLayoutBox>) : Array<MutableList<Span>?>? {
+
+    val width = layout.value().box.width()
+    val height = layout.value().box.height()
+    if (width <= 0 || height <= 0) {
+      return null
+    }
+
+    val rows = arrayOfNulls<MutableList<Span>>(height)
+    val stack = LinkedList<Node>()
+    stack.push(Node(layout, 0, 0))
+
+    while (!stack.isEmpty()) {
+      val next = stack.pop()
+      val node_layout = next.node.value()
+      if (node_layout.border != KSPlainBorder.None) {
+        return null
+      }
+
+      val lines = node_layout.lines
+      for (y in 0 .. lines.size - 1) {
+        val line = lines[y]
+        if (line.isEmpty()) {
+          continue
+        }
+
+        val image_y = Math.addExact(next.y, y)
+        if (next.x < 0 || Math.addExact(next.x, line.length) > width) {
+          return null
+        }
+        if (image_y < 0 || image_y >= height) {
+          return null
+        }
+
+        var row = rows[image_y]
+        if (row == null) {
+          row = mutableListOf()
+          rows[image_y] = row
+        }
+        row.add(Span(next.x, line))
+      }
+
+      val next_children = next.node.children()
+      for (child in next_children) {
+        val x = Math.addExact(child.value().box.minimumX(), next.x)
+        val y = Math.addExact(child.value().box.minimumY(), next.y)
+        stack.push(Node(child, x, y))
+      }
+    }
+
+    for (row in rows) {
+      if (row != null && row.size > 1) {
+        row.sortBy { span -> span.x }
+        for (i in 1 .. row.size - 1) {
+          val prev = row[i - 1]
+          if (prev.x + prev.line.length > row[i].x) {
+            return null
+          }
+        }
+      }
+    }
+
+    return rows
+  }
+
   fun rasterize(
     layout : JOTreeNodeType<KSPlainLayoutBox>) : JPTextImageType {
 
@@ -16,7 +16,6 @@
 
 package com.io7m.kstructural.plain
 
-import com.io7m.jptbox.core.JPTextImages
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithParts
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithSections
@@ -79,8 +78,7 @@ object KSPlainWriter : KSPlainWriterType {
     document.data.context.footnotesAll.forEach { entry ->
       val layout = KSPlainLayout.layoutFootnote(
         settings.page_width, entry.value)
-      val image = KSPlainRasterizer.rasterize(layout)
-      output.write(JPTextImages.show(image))
+      KSPlainRasterizer.write(layout, output)
       output.write("\n")
     }
   }
@@ -238,8 +236,7 @@ object KSPlainWriter : KSPlainWriterType {
     formal : KSBlockFormalItem<KSEvaluation>) {
 
     val layout = KSPlainLayout.layoutFormal(settings.page_width, formal)
-    val image = KSPlainRasterizer.rasterize(layout)
-    output.write(JPTextImages.show(image))
+    KSPlainRasterizer.write(layout, output)
     output.write("\n")
   }
 
@@ -249,8 +246,7 @@ object KSPlainWriter : KSPlainWriterType {
     paragraph : KSBlockParagraph<KSEvaluation>) {
 
     val layout = KSPlainLayout.layoutParagraph(settings.page_width, paragraph)
-    val image = KSPlainRasterizer.rasterize(layout)
-    output.write(JPTextImages.show(image))
+    KSPlainRasterizer.write(layout, output)
     output.write("\n")
   }
 
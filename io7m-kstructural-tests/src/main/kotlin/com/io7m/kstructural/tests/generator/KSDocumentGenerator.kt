@@ -0,0 +1,621 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.generator
+
+import com.io7m.kstructural.frontend.KSInputFormat
+import java.io.Writer
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Random
+
+/**
+ * A generator of large synthetic documents.
+ *
+ * All decisions are taken from a random number generator seeded with the
+ * configured seed, in an order that does not depend on the output format.
+ * Generating the same settings in different formats therefore produces
+ * documents with identical structure and content.
+ */
+
+class KSDocumentGenerator private constructor(
+  private val settings : KSDocumentGeneratorSettings)
+: KSDocumentGeneratorType {
+
+  companion object {
+
+    private val NAMESPACE = "http://schemas.io7m.com/structural/3.0.0"
+    private val NAMESPACE_XINCLUDE = "http://www.w3.org/2001/XInclude"
+
+    private val WORDS = arrayOf(
+      "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf",
+      "hotel", "india", "juliet", "kilo", "lima", "mike", "november",
+      "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform",
+      "victor", "whiskey", "xray", "yankee", "zulu", "structure", "document",
+      "section", "paragraph", "element", "content", "serial", "evaluation")
+
+    private val WORDS_PER_LINE = 12
+    private val TABLE_COLUMNS = 3
+    private val TABLE_ROWS = 4
+
+    fun create(settings : KSDocumentGeneratorSettings) : KSDocumentGeneratorType =
+      KSDocumentGenerator(settings)
+
+    private fun suffix(format : KSInputFormat) : String =
+      when (format) {
+        KSInputFormat.KS_INPUT_CANONICAL -> "sd"
+        KSInputFormat.KS_INPUT_IMPERATIVE -> "sdi"
+        KSInputFormat.KS_INPUT_XML -> "xml"
+      }
+
+    private fun newEmitter(
+      format : KSInputFormat,
+      writer : Writer) : EmitterType =
+      when (format) {
+        KSInputFormat.KS_INPUT_CANONICAL -> CanonicalEmitter(writer)
+        KSInputFormat.KS_INPUT_IMPERATIVE -> ImperativeEmitter(writer)
+        KSInputFormat.KS_INPUT_XML -> XMLEmitter(writer)
+      }
+  }
+
+  private sealed class Inline {
+    class Word(val text : String) : Inline()
+    class Term(val text : String) : Inline()
+    class Link(val target : String, val text : String) : Inline()
+    class FootnoteReference(val target : String) : Inline()
+    class Include(val file : String) : Inline()
+    class Table(val names : List<String>, val rows : List<List<String>>) : Inline()
+  }
+
+  private interface EmitterType {
+    fun documentStart(title : String, id : String)
+    fun documentEnd()
+    fun partStart(title : String, id : String)
+    fun partEnd()
+    fun sectionStart(title : String, id : String)
+    fun sectionEnd()
+    fun subsectionStart(title : String)
+    fun subsectionEnd()
+    fun paragraph(content : List<Inline>)
+    fun footnote(id : String, content : List<Inline>)
+    fun import(file : String)
+  }
+
+  private class CanonicalEmitter(private val w : Writer) : EmitterType {
+
+    private var depth = 0
+
+    private fun indent() {
+      for (i in 0 .. depth - 1) {
+        w.write("  ")
+      }
+    }
+
+    private fun open(name : String, title : String, id : String?) {
+      indent()
+      w.write("[")
+      w.write(name)
+      w.write(" [title ")
+      w.write(title)
+      w.write("]")
+      if (id != null) {
+        w.write(" [id ")
+        w.write(id)
+        w.write("]")
+      }
+      w.write("\n")
+      ++depth
+    }
+
+    private fun close() {
+      --depth
+      indent()
+      w.write("]\n")
+    }
+
+    private fun inlines(content : List<Inline>) {
+      var count = 0
+      for (i in content) {
+        if (count % WORDS_PER_LINE == 0) {
+          w.write("\n")
+          indent()
+        } else {
+          w.write(" ")
+        }
+        ++count
+        when (i) {
+          is Inline.Word -> w.write(i.text)
+          is Inline.Term -> {
+            w.write("[term [type emphasis] ")
+            w.write(i.text)
+            w.write("]")
+          }
+          is Inline.Link -> {
+            w.write("[link [target ")
+            w.write(i.target)
+            w.write("] ")
+            w.write(i.text)
+            w.write("]")
+          }
+          is Inline.FootnoteReference -> {
+            w.write("[footnote-ref ")
+            w.write(i.target)
+            w.write("]")
+          }
+          is Inline.Include -> {
+            w.write("[verbatim [include \"")
+            w.write(i.file)
+            w.write("\"]]")
+          }
+          is Inline.Table -> {
+            w.write("[table [summary Summary] [head")
+            for (n in i.names) {
+              w.write(" [name ")
+              w.write(n)
+              w.write("]")
+            }
+            w.write("] [body")
+            for (r in i.rows) {
+              w.write(" [row")
+              for (c in r) {
+                w.write(" [cell ")
+                w.write(c)
+                w.write("]")
+              }
+              w.write("]")
+            }
+            w.write("]]")
+          }
+        }
+      }
+    }
+
+    override fun documentStart(title : String, id : String) =
+      open("document", title, id)
+
+    override fun documentEnd() = close()
+
+    override fun partStart(title : String, id : String) =
+      open("part", title, id)
+
+    override fun partEnd() = close()
+
+    override fun sectionStart(title : String, id : String) =
+      open("section", title, id)
+
+    override fun sectionEnd() = close()
+
+    override fun subsectionStart(title : String) =
+      open("subsection", title, null)
+
+    override fun subsectionEnd() = close()
+
+    override fun paragraph(content : List<Inline>) {
+      indent()
+      w.write("[paragraph")
+      ++depth
+      inlines(content)
+      --depth
+      w.write("]\n")
+    }
+
+    override fun footnote(id : String, content : List<Inline>) {
+      indent()
+      w.write("[footnote [id ")
+      w.write(id)
+      w.write("]")
+      ++depth
+      inlines(content)
+      --depth
+      w.write("]\n")
+    }
+
+    override fun import(file : String) {
+      indent()
+      w.write("[import \"")
+      w.write(file)
+      w.write("\"]\n")
+    }
+  }
+
+  private class ImperativeEmitter(private val w : Writer) : EmitterType {
+
+    private fun command(name : String, title : String, id : String?) {
+      w.write("[")
+      w.write(name)
+      w.write(" [title ")
+      w.write(title)
+      w.write("]")
+      if (id != null) {
+        w.write(" [id ")
+        w.write(id)
+        w.write("]")
+      }
+      w.write("]\n\n")
+    }
+
+    private fun inlines(content : List<Inline>) {
+      var count = 0
+      for (i in content) {
+        if (count > 0) {
+          w.write(if (count % WORDS_PER_LINE == 0) "\n" else " ")
+        }
+        ++count
+        when (i) {
+          is Inline.Word -> w.write(i.text)
+          is Inline.Term -> {
+            w.write("[term [type emphasis] ")
+            w.write(i.text)
+            w.write("]")
+          }
+          is Inline.Link -> {
+            w.write("[link [target ")
+            w.write(i.target)
+            w.write("] ")
+            w.write(i.text)
+            w.write("]")
+          }
+          is Inline.FootnoteReference -> {
+            w.write("[footnote-ref ")
+            w.write(i.target)
+            w.write("]")
+          }
+          is Inline.Include -> {
+            w.write("[verbatim [include \"")
+            w.write(i.file)
+            w.write("\"]]")
+          }
+          is Inline.Table -> {
+            w.write("[table [summary Summary] [head")
+            for (n in i.names) {
+              w.write(" [name ")
+              w.write(n)
+              w.write("]")
+            }
+            w.write("] [body")
+            for (r in i.rows) {
+              w.write(" [row")
+              for (c in r) {
+                w.write(" [cell ")
+                w.write(c)
+                w.write("]")
+              }
+              w.write("]")
+            }
+            w.write("]]")
+          }
+        }
+      }
+      w.write("\n\n")
+    }
+
+    override fun documentStart(title : String, id : String) =
+      command("document", title, id)
+
+    override fun documentEnd() = Unit
+
+    override fun partStart(title : String, id : String) =
+      command("part", title, id)
+
+    override fun partEnd() = Unit
+
+    override fun sectionStart(title : String, id : String) =
+      command("section", title, id)
+
+    override fun sectionEnd() = Unit
+
+    override fun subsectionStart(title : String) =
+      command("subsection", title, null)
+
+    override fun subsectionEnd() = Unit
+
+    override fun paragraph(content : List<Inline>) {
+      w.write("[paragraph]\n")
+      inlines(content)
+    }
+
+    override fun footnote(id : String, content : List<Inline>) {
+      w.write("[footnote [id ")
+      w.write(id)
+      w.write("]]\n")
+      inlines(content)
+    }
+
+    override fun import(file : String) {
+      w.write("[import \"")
+      w.write(file)
+      w.write("\"]\n\n")
+    }
+  }
+
+  private class XMLEmitter(private val w : Writer) : EmitterType {
+
+    private var first = true
+
+    private fun open(name : String, title : String, id : String?) {
+      w.write("<s:")
+      w.write(name)
+      if (first) {
+        w.write(" xmlns:s=\"")
+        w.write(NAMESPACE)
+        w.write("\" xmlns:xi=\"")
+        w.write(NAMESPACE_XINCLUDE)
+        w.write("\"")
+        first = false
+      }
+      w.write(" s:title=\"")
+      w.write(title)
+      w.write("\"")
+      if (id != null) {
+        w.write(" xml:id=\"")
+        w.write(id)
+        w.write("\"")
+      }
+      w.write(">\n")
+    }
+
+    private fun close(name : String) {
+      w.write("</s:")
+      w.write(name)
+      w.write(">\n")
+    }
+
+    private fun inlines(content : List<Inline>) {
+      var count = 0
+      for (i in content) {
+        if (count > 0) {
+          w.write(if (count % WORDS_PER_LINE == 0) "\n" else " ")
+        }
+        ++count
+        when (i) {
+          is Inline.Word -> w.write(i.text)
+          is Inline.Term -> {
+            w.write("<s:term s:type=\"emphasis\">")
+            w.write(i.text)
+            w.write("</s:term>")
+          }
+          is Inline.Link -> {
+            w.write("<s:link s:target=\"")
+            w.write(i.target)
+            w.write("\">")
+            w.write(i.text)
+            w.write("</s:link>")
+          }
+          is Inline.FootnoteReference -> {
+            w.write("<s:footnote-ref s:target=\"")
+            w.write(i.target)
+            w.write("\"/>")
+          }
+          is Inline.Include -> {
+            w.write("<s:verbatim><xi:include href=\"")
+            w.write(i.file)
+            w.write("\" parse=\"text\"/></s:verbatim>")
+          }
+          is Inline.Table -> {
+            w.write("<s:table s:summary=\"Summary\"><s:head>")
+            for (n in i.names) {
+              w.write("<s:name>")
+              w.write(n)
+              w.write("</s:name>")
+            }
+            w.write("</s:head><s:body>")
+            for (r in i.rows) {
+              w.write("<s:row>")
+              for (c in r) {
+                w.write("<s:cell>")
+                w.write(c)
+                w.write("</s:cell>")
+              }
+              w.write("</s:row>")
+            }
+            w.write("</s:body></s:table>")
+          }
+        }
+      }
+    }
+
+    override fun documentStart(title : String, id : String) {
+      w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+      open("document", title, id)
+    }
+
+    override fun documentEnd() = close("document")
+
+    override fun partStart(title : String, id : String) =
+      open("part", title, id)
+
+    override fun partEnd() = close("part")
+
+    override fun sectionStart(title : String, id : String) {
+      if (first) {
+        w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+      }
+      open("section", title, id)
+    }
+
+    override fun sectionEnd() = close("section")
+
+    override fun subsectionStart(title : String) =
+      open("subsection", title, null)
+
+    override fun subsectionEnd() = close("subsection")
+
+    override fun paragraph(content : List<Inline>) {
+      w.write("<s:paragraph>")
+      inlines(content)
+      w.write("</s:paragraph>\n")
+    }
+
+    override fun footnote(id : String, content : List<Inline>) {
+      w.write("<s:footnote xml:id=\"")
+      w.write(id)
+      w.write("\">")
+      inlines(content)
+      w.write("</s:footnote>\n")
+    }
+
+    override fun import(file : String) {
+      w.write("<xi:include href=\"")
+      w.write(file)
+      w.write("\" parse=\"xml\"/>\n")
+    }
+  }
+
+  private class Generation(
+    val settings : KSDocumentGeneratorSettings,
+    val directory : Path,
+    val format : KSInputFormat) {
+
+    val random = Random(settings.seed)
+    var footnotes = 0
+
+    private fun word() : String =
+      WORDS[random.nextInt(WORDS.size)]
+
+    private fun sectionID(part : Int, section : Int) : String =
+      if (part == 0) "s${section}" else "p${part}.s${section}"
+
+    private fun sectionLink() : String {
+      val p = if (settings.parts == 0) 0 else random.nextInt(settings.parts) + 1
+      return sectionID(p, random.nextInt(settings.sections) + 1)
+    }
+
+    private fun includeFile(index : Int) : String =
+      "include-${index}.txt"
+
+    fun includes() {
+      if (settings.include_density > 0.0) {
+        for (i in 1 .. settings.include_files) {
+          val file = directory.resolve(includeFile(i))
+          Files.newBufferedWriter(file, StandardCharsets.UTF_8).use { w ->
+            for (line in 0 .. 7) {
+              for (k in 0 .. WORDS_PER_LINE - 1) {
+                if (k > 0) w.write(" ")
+                w.write(word())
+              }
+              w.write("\n")
+            }
+          }
+        }
+      }
+    }
+
+    private fun inlines(words : Int) : MutableList<Inline> {
+      val content = mutableListOf<Inline>()
+      for (i in 0 .. words - 1) {
+        val r = random.nextInt(32)
+        content.add(when (r) {
+          0 -> Inline.Term(word())
+          1 -> Inline.Link(sectionLink(), word())
+          else -> Inline.Word(word())
+        })
+      }
+      return content
+    }
+
+    private fun paragraph(e : EmitterType) {
+      val content = inlines(settings.paragraph_words)
+
+      if (random.nextDouble() < settings.table_density) {
+        val names = (1 .. TABLE_COLUMNS).map { i -> "Column${i}" }
+        val rows = (1 .. TABLE_ROWS).map {
+          (1 .. TABLE_COLUMNS).map { i -> word() }
+        }
+        content.add(Inline.Table(names, rows))
+      }
+
+      if (random.nextDouble() < settings.include_density) {
+        content.add(Inline.Include(
+          includeFile(random.nextInt(settings.include_files) + 1)))
+      }
+
+      var footnote : String? = null
+      if (random.nextDouble() < settings.footnote_density) {
+        ++footnotes
+        footnote = "fn${footnotes}"
+        content.add(Inline.FootnoteReference(footnote))
+      }
+
+      e.paragraph(content)
+      if (footnote != null) {
+        e.footnote(footnote, inlines(Math.max(1, settings.paragraph_words / 4)))
+      }
+    }
+
+    private fun section(e : EmitterType, part : Int, section : Int) {
+      e.sectionStart("Section ${section}", sectionID(part, section))
+      if (settings.subsections == 0) {
+        for (i in 1 .. settings.paragraphs) {
+          paragraph(e)
+        }
+      } else {
+        for (s in 1 .. settings.subsections) {
+          e.subsectionStart("Subsection ${s}")
+          for (i in 1 .. settings.paragraphs) {
+            paragraph(e)
+          }
+          e.subsectionEnd()
+        }
+      }
+      e.sectionEnd()
+    }
+
+    private fun sections(e : EmitterType, part : Int) {
+      for (s in 1 .. settings.sections) {
+        if (s <= settings.import_fan_out) {
+          val name = "section-${part}-${s}.${suffix(format)}"
+          e.import(name)
+          write(directory.resolve(name)) { ie -> section(ie, part, s) }
+        } else {
+          section(e, part, s)
+        }
+      }
+    }
+
+    fun document(e : EmitterType) {
+      e.documentStart("Document", "d")
+      if (settings.parts == 0) {
+        sections(e, 0)
+      } else {
+        for (p in 1 .. settings.parts) {
+          e.partStart("Part ${p}", "p${p}")
+          sections(e, p)
+          e.partEnd()
+        }
+      }
+      e.documentEnd()
+    }
+
+    fun write(file : Path, f : (EmitterType) -> Unit) {
+      Files.newBufferedWriter(file, StandardCharsets.UTF_8).use { w ->
+        f(newEmitter(format, w))
+      }
+    }
+  }
+
+  override fun generate(
+    directory : Path,
+    format : KSInputFormat) : Path {
+
+    Files.createDirectories(directory)
+    val main = directory.resolve("main." + suffix(format))
+    val g = Generation(settings, directory, format)
+    g.includes()
+    g.write(main) { e -> g.document(e) }
+    return main
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.generator
+
+/**
+ * Settings for the synthetic document generator.
+ *
+ * If `parts` is `0`, the generated document consists of `sections` sections.
+ * Otherwise, the document consists of `parts` parts, each containing
+ * `sections` sections. If `subsections` is `0`, sections contain paragraphs
+ * directly. Densities are probabilities in the range `[0, 1]` evaluated once
+ * per paragraph. The first `import_fan_out` sections of every part (or of the
+ * document) are written to separate files and imported.
+ */
+
+class KSDocumentGeneratorSettings(
+  val seed : Long = 0L,
+  val parts : Int = 0,
+  val sections : Int = 4,
+  val subsections : Int = 2,
+  val paragraphs : Int = 4,
+  val paragraph_words : Int = 48,
+  val table_density : Double = 0.1,
+  val footnote_density : Double = 0.1,
+  val import_fan_out : Int = 0,
+  val include_density : Double = 0.0,
+  val include_files : Int = 4) {
+
+  init {
+    require(parts >= 0) { "Part count must be non-negative" }
+    require(sections >= 1) { "Section count must be positive" }
+    require(subsections >= 0) { "Subsection count must be non-negative" }
+    require(paragraphs >= 1) { "Paragraph count must be positive" }
+    require(paragraph_words >= 1) { "Paragraph word count must be positive" }
+    require(table_density >= 0.0 && table_density <= 1.0) {
+      "Table density must be in the range [0, 1]"
+    }
+    require(footnote_density >= 0.0 && footnote_density <= 1.0) {
+      "Footnote density must be in the range [0, 1]"
+    }
+    require(include_density >= 0.0 && include_density <= 1.0) {
+      "Include density must be in the range [0, 1]"
+    }
+    require(import_fan_out >= 0 && import_fan_out <= sections) {
+      "Import fan-out must be in the range [0, sections]"
+    }
+    require(include_files >= 1) { "Include file count must be positive" }
+  }
+}
@@ -121,6 +121,27 @@ abstract class KSEvaluatorContract {
     val c = e.data.context
     LOG.trace("checking self {} ({})", e.data.serial, e.javaClass.simpleName)
     Assert.assertSame(e, c.elementForSerial(e.data.serial).get())
+    checkSegment(e)
+  }
+
+  private fun checkSegment(e : KSElement<KSEvaluation>) : Unit {
+    val c = e.data.context
+    var k = c.elementForSerial(e.data.parent)
+    while (k.isPresent) {
+      val r = k.get()
+      if (r is KSElement.KSBlock.KSBlockDocument
+        || r is KSElement.KSBlock.KSBlockPart
+        || r is KSElement.KSBlock.KSBlockSection) {
+        break
+      }
+      k = c.elementForSerial(r.data.parent)
+    }
+
+    val s = c.elementSegmentContaining(e)
+    Assert.assertEquals(k.isPresent, s.isPresent)
+    if (k.isPresent) {
+      Assert.assertSame(k.get(), s.get())
+    }
   }
 
   private fun checkParent(
@@ -1260,6 +1281,56 @@ abstract class KSEvaluatorContract {
     Assert.assertTrue(fn5.containsKey(KSID.create(Optional.empty(), "f5", rr.data)))
   }
 
+  @Test fun testDuplicateIDAcrossParts() {
+    val ee = newEvaluatorForString("""
+[document (title dt)
+  [part [title p0]
+    (section [title s0] [id x]
+      [paragraph p])]
+  [part [title p1]
+    (section [title s1]
+      [paragraph [id x] p])]]
+""")
+
+    val r = ee.e.evaluate(ee.s(defaultFile()), defaultFile())
+    r as KSFailure
+    Assert.assertEquals(1, r.errors.size)
+  }
+
+  @Test fun testFootnoteReferencesAcrossParts() {
+    val ee = newEvaluatorForString("""
+[document (title dt)
+  [part [title p0]
+    (section [title s0]
+      [paragraph (footnote-ref f0)]
+      [footnote (id f0) x])]
+  [part [title p1]
+    (section [title s1]
+      [paragraph (footnote-ref f0)]
+      [paragraph (footnote-ref f0)])]]
+""")
+
+    val i = ee.s(defaultFile())
+    val r = ee.e.evaluate(i, defaultFile())
+    r as KSSuccess
+
+    val rr = r.result
+    Assert.assertTrue(rr is KSBlockDocumentWithParts)
+    val c = rr.data.context
+    val f = c.footnotesAll[KSID.create(Optional.empty(), "f0", rr.data)]!!
+    val refs = c.footnoteReferencesForFootnote(f)
+    Assert.assertEquals(3, refs.size)
+
+    var serial = 0L
+    for (index in 0L .. 2L) {
+      val ref = refs[index]!!
+      Assert.assertEquals(index, ref.index)
+      Assert.assertTrue(ref.ref.data.serial.actual > serial)
+      Assert.assertSame(ref, c.footnoteReferenceForInline(ref.ref))
+      serial = ref.ref.data.serial.actual
+    }
+  }
+
   @Test fun testSimpleDocument() {
     val ee = newEvaluatorForFile("/com/io7m/kstructural/tests/simple.sd")
     val i = ee.s(defaultFile())
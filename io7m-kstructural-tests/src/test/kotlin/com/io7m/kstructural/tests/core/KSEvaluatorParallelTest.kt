@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.core
+
+import com.io7m.kstructural.core.KSElement.KSBlock
+import com.io7m.kstructural.core.KSParse
+import com.io7m.kstructural.core.KSResult
+import com.io7m.kstructural.core.KSResult.KSSuccess
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.core.evaluator.KSEvaluationError
+import com.io7m.kstructural.core.evaluator.KSEvaluator
+import com.io7m.kstructural.core.evaluator.KSSerial
+import org.junit.Assert
+import org.junit.Test
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.concurrent.ForkJoinPool
+
+class KSEvaluatorParallelTest : KSEvaluatorTest() {
+
+  companion object {
+    private val POOL = ForkJoinPool(4)
+  }
+
+  /**
+   * Evaluate every document of the evaluator contract in parallel, without
+   * falling back to sequential evaluation. Any document that evaluates
+   * successfully must also evaluate successfully in parallel, so the
+   * serials and counts predicted for its parts or sections must match those
+   * that the sequential evaluator actually assigns.
+   */
+
+  override fun evaluateDocument(
+    document : KSBlock.KSBlockDocument<KSParse>,
+    document_file : Path)
+    : KSResult<KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError> {
+    val rp = KSEvaluator.evaluateParallelWithoutFallback(
+      document, document_file, POOL)
+    val rs = KSEvaluator.evaluate(document, document_file)
+    if (rs is KSSuccess) {
+      Assert.assertTrue(
+        "Parallel evaluation must not fall back to sequential evaluation",
+        rp.isPresent)
+      return rp.get()
+    }
+    return KSEvaluator.evaluateParallel(document, document_file, POOL)
+  }
+
+  @Test fun testIdenticalToSequential() {
+    val ee = newEvaluatorForFile("/com/io7m/kstructural/tests/simple.sd")
+    val file = Paths.get("file.txt")
+    val i = ee.s(file)
+
+    val rp = KSEvaluator.evaluateParallel(i, file, POOL)
+      as KSSuccess<KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError>
+    val rs = KSEvaluator.evaluate(i, file)
+      as KSSuccess<KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError>
+
+    val cp = rp.result.data.context
+    val cs = rs.result.data.context
+
+    var compared = 0
+    for (s in 0L .. 4096L) {
+      val ep = cp.elementForSerial(KSSerial(s))
+      val es = cs.elementForSerial(KSSerial(s))
+      Assert.assertEquals(es.isPresent, ep.isPresent)
+      if (es.isPresent) {
+        val xp = ep.get()
+        val xs = es.get()
+        Assert.assertEquals(xs.javaClass, xp.javaClass)
+        Assert.assertEquals(xs.data.parent, xp.data.parent)
+        Assert.assertEquals(xs.data.index, xp.data.index)
+        Assert.assertEquals(xs.data.number, xp.data.number)
+        Assert.assertEquals(xs.toString(), xp.toString())
+        Assert.assertSame(cp, xp.data.context)
+        ++compared
+      }
+    }
+    Assert.assertTrue(compared > 100)
+
+    Assert.assertEquals(cs.footnotesAll.keys.toList(), cp.footnotesAll.keys.toList())
+    for (f in cs.footnotesAll.values) {
+      val fp = cp.footnotesAll[f.id.get()]!!
+      Assert.assertEquals(f.data.serial, fp.data.serial)
+      val rfs = cs.footnoteReferencesForFootnote(f)
+      val rfp = cp.footnoteReferencesForFootnote(fp)
+      Assert.assertEquals(rfs.keys, rfp.keys)
+      for (k in rfs.keys) {
+        Assert.assertEquals(rfs[k]!!.ref.data.serial, rfp[k]!!.ref.data.serial)
+      }
+    }
+  }
+
+  private fun checkPredictedCosts(text : String) {
+    val ee = newEvaluatorForString(text)
+    val file = Paths.get("file.txt")
+    val i = ee.s(file)
+    Assert.assertTrue(KSEvaluator.evaluate(i, file) is KSSuccess)
+    Assert.assertTrue(
+      KSEvaluator.evaluateParallelWithoutFallback(i, file, POOL).isPresent)
+  }
+
+  private fun content(n : Int) : String = """
+[paragraph [type pt] [id p${n}a] A [term [type tt] term] [link [target p${n}a] link].]
+[paragraph [id p${n}b] [type pt] A [verbatim [type vt] "verbatim"].]
+[paragraph An [image [target x.png] [type it] [size 10 20] image].]
+[paragraph An [image [target x.png] image] [footnote-ref fn${n}].]
+[paragraph [list-ordered [item An item] [item Another [term x]]]]
+[paragraph [list-unordered [item An item] [item Another item]]]
+[paragraph
+  [table
+    [summary A table]
+    [type tt]
+    [head [type ht] [name [type nt] One] [name Two]]
+    [body
+      [row [type rt] [cell [type ct] x] [cell y]]
+      [row [cell [term z]] [cell w]]]]]
+[paragraph [table [summary Another table] [body [row [cell x]]]]]
+[formal-item [title A formal] [id fi${n}] [type ft] [term T]]
+[footnote [id fn${n}] [type fnt] A footnote [footnote-ref fn${n}].]
+"""
+
+  @Test fun testPredictedCostsSections() {
+    checkPredictedCosts("""
+[document [title d] [id d0] [type dt]
+  (section [title s0] [id s0] [type st] ${content(0)})
+  (section [title s1]
+    [subsection [title ss0] [id ss0] [type sst] ${content(1)}]
+    [subsection [title ss1] [paragraph x]])]
+""")
+  }
+
+  @Test fun testPredictedCostsParts() {
+    checkPredictedCosts("""
+[document [title d] [type dt]
+  (part [title p0] [id pp0] [type pt]
+    [section [title s0] [id s0] [type st] ${content(0)}])
+  (part [title p1]
+    [section [title s1]
+      (subsection [title ss0] [id ss0] ${content(1)})]
+    [section [title s2] [paragraph x]])]
+""")
+  }
+}
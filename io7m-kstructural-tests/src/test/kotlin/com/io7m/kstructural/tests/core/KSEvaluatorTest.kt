@@ -52,7 +52,7 @@ import java.nio.file.Path
 import java.nio.file.Paths
 import java.util.Optional
 
-class KSEvaluatorTest : KSEvaluatorContract() {
+open class KSEvaluatorTest : KSEvaluatorContract() {
 
   override fun newFilesystem() : FileSystem {
     return KSTestFilesystems.newUnixFilesystem()
@@ -68,6 +68,12 @@ class KSEvaluatorTest : KSEvaluatorContract() {
     private val LOG = LoggerFactory.getLogger(KSCanonBlockParserTest::class.java)
   }
 
+  protected open fun evaluateDocument(
+    document : KSBlock.KSBlockDocument<KSParse>,
+    document_file : Path)
+    : KSResult<KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError> =
+    KSEvaluator.evaluate(document, document_file)
+
   override fun newEvaluatorForString(text : String) : KSEvaluatorContract.Evaluator {
     val r = UnicodeCharacterReader.newReader(StringReader(text))
     return evaluatorForReader(r)
@@ -147,15 +153,15 @@ class KSEvaluatorTest : KSEvaluatorContract() {
         document_file : Path)
         : KSResult<KSBlock.KSBlockDocument<KSEvaluation>, KSEvaluationError> {
 
-        val r = KSEvaluator.evaluate(document, document_file)
-        return when (r) {
+        val er = evaluateDocument(document, document_file)
+        return when (er) {
           is KSResult.KSSuccess -> {
-            r
+            er
           }
           is KSResult.KSFailure -> {
-            LOG.debug("failed to evaluate: {}", r.partial)
-            r.errors.map { k -> LOG.debug("error: {}", k.message) }
-            r
+            LOG.debug("failed to evaluate: {}", er.partial)
+            er.errors.map { k -> LOG.debug("error: {}", k.message) }
+            er
           }
         }
       }
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.core
+
+import com.io7m.kstructural.core.KSIncludeCache
+import com.io7m.kstructural.core.KSResult
+import com.io7m.kstructural.parser.KSIncluder
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+import java.util.Optional
+
+class KSIncludeCacheTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-include-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private val t0 = FileTime.fromMillis(1000L)
+  private val t1 = FileTime.fromMillis(2000L)
+
+  @Test fun testGetPut()
+  {
+    val c = KSIncludeCache.create()
+    val p = Paths.get("/a")
+    Assert.assertEquals(Optional.empty<String>(), c.get(p, t0, 1L))
+    c.put(p, t0, 1L, "x")
+    Assert.assertEquals(Optional.of("x"), c.get(p, t0, 1L))
+    Assert.assertEquals(Optional.empty<String>(), c.get(p, t1, 1L))
+    Assert.assertEquals(Optional.empty<String>(), c.get(p, t0, 2L))
+  }
+
+  @Test fun testEvictLeastRecentlyUsed()
+  {
+    val c = KSIncludeCache.createWithMaximumCharacters(8L)
+    val a = Paths.get("/a")
+    val b = Paths.get("/b")
+    val d = Paths.get("/d")
+    c.put(a, t0, 4L, "aaaa")
+    c.put(b, t0, 4L, "bbbb")
+    Assert.assertTrue(c.get(a, t0, 4L).isPresent)
+    c.put(d, t0, 4L, "dddd")
+    Assert.assertTrue(c.get(a, t0, 4L).isPresent)
+    Assert.assertFalse(c.get(b, t0, 4L).isPresent)
+    Assert.assertTrue(c.get(d, t0, 4L).isPresent)
+  }
+
+  @Test fun testTooLarge()
+  {
+    val c = KSIncludeCache.createWithMaximumCharacters(2L)
+    val a = Paths.get("/a")
+    c.put(a, t0, 3L, "aaa")
+    Assert.assertFalse(c.get(a, t0, 3L).isPresent)
+  }
+
+  @Test fun testIncluderReuse()
+  {
+    val c = KSIncludeCache.create()
+    val f = directory!!.resolve("x.txt")
+    Files.write(f, "hello".toByteArray(StandardCharsets.UTF_8))
+    Files.setLastModifiedTime(f, t0)
+
+    val i0 = KSIncluder.create(directory!!, c)
+    Assert.assertEquals("hello", (i0.include(f) as KSResult.KSSuccess).result)
+
+    /*
+     * A file with the same size and modification time is assumed to be
+     * unchanged.
+     */
+
+    Files.write(f, "HELLO".toByteArray(StandardCharsets.UTF_8))
+    Files.setLastModifiedTime(f, t0)
+    val i1 = KSIncluder.create(directory!!, c)
+    Assert.assertEquals("hello", (i1.include(f) as KSResult.KSSuccess).result)
+
+    Files.setLastModifiedTime(f, t1)
+    Assert.assertEquals("HELLO", (i1.include(f) as KSResult.KSSuccess).result)
+  }
+}
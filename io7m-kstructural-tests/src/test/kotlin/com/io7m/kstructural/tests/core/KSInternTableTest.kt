@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.core
+
+import com.io7m.kstructural.core.KSInternTable
+import com.io7m.kstructural.parser.KSExpression.KSExpressionList
+import com.io7m.kstructural.parser.KSExpression.KSExpressionSymbol
+import com.io7m.kstructural.parser.KSExpressionParsers
+import org.junit.Assert
+import org.junit.Test
+import java.nio.file.Paths
+import java.util.Optional
+
+class KSInternTableTest {
+
+  @Test fun testShared()
+  {
+    val t = KSInternTable.create()
+    val a = String(charArrayOf('p', 'a', 'r', 'a'))
+    val b = String(charArrayOf('p', 'a', 'r', 'a'))
+    Assert.assertNotSame(a, b)
+    Assert.assertSame(t.intern(a), t.intern(b))
+    Assert.assertSame(a, t.intern(b))
+  }
+
+  @Test fun testTooLong()
+  {
+    val t = KSInternTable.createWithMaximumLength(4)
+    val a = String(charArrayOf('a', 'b', 'c', 'd', 'e'))
+    val b = String(charArrayOf('a', 'b', 'c', 'd', 'e'))
+    Assert.assertSame(a, t.intern(a))
+    Assert.assertSame(b, t.intern(b))
+  }
+
+  @Test fun testReaderShared()
+  {
+    val t = KSInternTable.create()
+    val p = KSExpressionParsers.createWithChars(
+      Paths.get("/x"), "[term x] [term y]", Optional.of(t))
+
+    val e0 = p.parse().get() as KSExpressionList
+    val e1 = p.parse().get() as KSExpressionList
+    val s0 = e0.elements[0] as KSExpressionSymbol
+    val s1 = e1.elements[0] as KSExpressionSymbol
+    Assert.assertEquals("term", s0.value)
+    Assert.assertSame(s0.value, s1.value)
+  }
+}
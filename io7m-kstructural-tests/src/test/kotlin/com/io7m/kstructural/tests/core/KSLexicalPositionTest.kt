@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.core
+
+import com.io7m.jlexing.core.ImmutableLexicalPosition
+import com.io7m.kstructural.core.KSLexicalFileTable
+import com.io7m.kstructural.core.KSLexicalPosition
+import org.junit.Assert
+import org.junit.Test
+import java.nio.file.Paths
+import java.util.Optional
+
+class KSLexicalPositionTest {
+
+  @Test fun testPacking()
+  {
+    val files = KSLexicalFileTable.create()
+    val index = files.index(Paths.get("/x/y.txt"))
+
+    val values = intArrayOf(0, 1, 23, 0xffff, Int.MAX_VALUE)
+    for (line in values) {
+      for (column in values) {
+        val p = KSLexicalPosition.create(files, index, line, column)
+        Assert.assertEquals(line, p.line)
+        Assert.assertEquals(column, p.column)
+        Assert.assertEquals(Optional.of(Paths.get("/x/y.txt")), p.file)
+      }
+    }
+  }
+
+  @Test fun testFileTable()
+  {
+    val files = KSLexicalFileTable.create()
+    val a = files.index(Paths.get("/a"))
+    val b = files.index(Paths.get("/b"))
+    Assert.assertNotEquals(a, b)
+    Assert.assertEquals(a, files.index(Paths.get("/a")))
+    Assert.assertSame(files.file(a), files.file(a))
+    Assert.assertEquals(Optional.of(Paths.get("/b")), files.file(b))
+    Assert.assertEquals(Optional.empty<Any>(), files.file(KSLexicalFileTable.NO_FILE))
+  }
+
+  @Test fun testEquality()
+  {
+    val f0 = KSLexicalFileTable.create()
+    val f1 = KSLexicalFileTable.create()
+    f1.index(Paths.get("/other"))
+
+    val p0 = KSLexicalPosition.create(f0, f0.index(Paths.get("/a")), 2, 3)
+    val p1 = KSLexicalPosition.create(f1, f1.index(Paths.get("/a")), 2, 3)
+    val p2 = KSLexicalPosition.create(f0, KSLexicalFileTable.NO_FILE, 2, 3)
+    val p3 = KSLexicalPosition.create(f0, f0.index(Paths.get("/a")), 3, 2)
+
+    Assert.assertEquals(p0, p1)
+    Assert.assertEquals(p0.hashCode(), p1.hashCode())
+    Assert.assertNotEquals(p0, p2)
+    Assert.assertNotEquals(p0, p3)
+  }
+
+  @Test fun testShowCompatible()
+  {
+    val files = KSLexicalFileTable.create()
+    val file = Paths.get("/a")
+    val p = KSLexicalPosition.create(files, files.index(file), 2, 3)
+    val q = ImmutableLexicalPosition.newPositionWithFile(2, 3, file)
+    Assert.assertEquals(q.toString(), p.toString())
+  }
+
+  @Test fun testCompact()
+  {
+    val files = KSLexicalFileTable.create()
+    val index = files.index(Paths.get("/a"))
+    Assert.assertTrue(KSLexicalPosition.create(
+      files, index, 0xffffff, 0xfffff) is KSLexicalPosition)
+    Assert.assertTrue(KSLexicalPosition.create(
+      files, KSLexicalFileTable.NO_FILE, 0, 0) is KSLexicalPosition)
+    Assert.assertFalse(KSLexicalPosition.create(
+      files, index, 0x1000000, 0) is KSLexicalPosition)
+    Assert.assertFalse(KSLexicalPosition.create(
+      files, index, 0, 0x100000) is KSLexicalPosition)
+  }
+
+  @Test fun testNoFile()
+  {
+    val files = KSLexicalFileTable.create()
+    val values = intArrayOf(0, 1, 0xfffff, Int.MAX_VALUE)
+    for (line in values) {
+      for (column in values) {
+        val p = KSLexicalPosition.create(
+          files, KSLexicalFileTable.NO_FILE, line, column)
+        Assert.assertEquals(line, p.line)
+        Assert.assertEquals(column, p.column)
+        Assert.assertEquals(Optional.empty<Any>(), p.file)
+      }
+    }
+  }
+}
@@ -203,5 +203,32 @@ class KSResultTest {
       })
   }
 
-}
+  @Test fun testListMapEmptyShared() {
+    val r0 = KSResult.listMap({ x : Int -> KSResult.succeed<Int, Any>(x) }, listOf())
+    val r1 = KSResult.listMapIndexed(
+      { x : Int, i : Int -> KSResult.succeed<Int, Any>(x) }, listOf())
+    Assert.assertSame(r0, r1)
+    Assert.assertEquals(listOf<Int>(), (r0 as KSResult.KSSuccess).result)
+  }
+
+  @Test fun testListMapErrorsOrdered() {
+    val r = KSResult.listMap({ x : Int ->
+      if (isEven(x)) {
+        KSResult.succeed<Int, Int>(x)
+      } else {
+        KSResult.failPartial<Int, Int>(x, x)
+      }
+    }, listOf(0, 1, 2, 3, 4, 5))
+
+    r as KSResult.KSFailure
+    Assert.assertEquals(listOf(0, 1, 2, 3, 4, 5), r.partial.get())
+    Assert.assertEquals(listOf(1, 3, 5), r.errors.toList())
+  }
 
+  @Test fun testMapIdentityShared() {
+    val r = KSResult.succeed<Int, Any>(23)
+    Assert.assertSame(r, KSResult.map(r, { x -> x }))
+    Assert.assertSame(
+      KSResult.succeed<Unit, Any>(Unit), KSResult.succeed<Unit, Any>(Unit))
+  }
+}
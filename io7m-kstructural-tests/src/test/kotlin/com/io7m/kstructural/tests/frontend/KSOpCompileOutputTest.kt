@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.frontend
+
+import com.io7m.kstructural.frontend.KSOpCompileLaTeX
+import com.io7m.kstructural.frontend.KSOpCompilePlain
+import com.io7m.kstructural.frontend.KSParseAndEvaluate
+import com.io7m.kstructural.latex.KSLaTeXSettings
+import com.io7m.kstructural.latex.KSLaTeXWriter
+import com.io7m.kstructural.plain.KSPlainSettings
+import com.io7m.kstructural.plain.KSPlainWriter
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class KSOpCompileOutputTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-output-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  /**
+   * A document large enough that its output spans several buffers, with
+   * characters that encode to two, three, and four bytes.
+   */
+
+  private fun document() : Path {
+    val words = StringBuilder()
+    for (i in 0 .. 20000) {
+      words.append("café €")
+      words.append(i)
+      words.append(" 😀 ")
+    }
+
+    val main = this.directory!!.resolve("main.sd")
+    Files.write(main, listOf(
+      "[document [title d]",
+      "  [section [title s1] [paragraph ${words}]]",
+      "  [section [title s2] [paragraph end]]]"), StandardCharsets.UTF_8)
+    return main
+  }
+
+  @Test fun testPlainIdentical() {
+    val main = document()
+    val output = this.directory!!.resolve("out")
+    val settings = KSPlainSettings()
+    KSOpCompilePlain.create(main, output, settings).call()
+
+    val expected = StringWriter()
+    KSPlainWriter.write(
+      settings, KSParseAndEvaluate.parseAndEvaluate(main.parent, main), expected)
+
+    Assert.assertArrayEquals(
+      expected.toString().toByteArray(StandardCharsets.UTF_8),
+      Files.readAllBytes(output.resolve("main.txt")))
+  }
+
+  @Test fun testLaTeXIdentical() {
+    val main = document()
+    val output = this.directory!!.resolve("out")
+    val settings = KSLaTeXSettings(mapOf())
+    KSOpCompileLaTeX.create(main, output, settings).call()
+
+    val expected = StringWriter()
+    KSLaTeXWriter.write(
+      settings, KSParseAndEvaluate.parseAndEvaluate(main.parent, main), expected)
+
+    Assert.assertArrayEquals(
+      expected.toString().toByteArray(StandardCharsets.UTF_8),
+      Files.readAllBytes(output.resolve("main.tex")))
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.frontend
+
+import com.io7m.jfunctional.PartialProcedureType
+import com.io7m.kstructural.frontend.KSOpCompileXHTML
+import com.io7m.kstructural.xom.KSXOMSettings
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.Optional
+
+class KSOpCompileXHTMLTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-xhtml-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private fun document(first : String, second : String) : Path {
+    val main = this.directory!!.resolve("main.sd")
+    Files.write(main, listOf(
+      "[document [title d]",
+      "  [section [title s1] [paragraph ${first}]]",
+      "  [section [title s2] [paragraph ${second}]]]"))
+    return main
+  }
+
+  private fun compile(
+    main : Path,
+    output : Path,
+    threads : Int,
+    incremental : Boolean = true) {
+    val settings = KSXOMSettings(
+      on_body_start = PartialProcedureType { e -> },
+      on_body_end = PartialProcedureType { e -> })
+    KSOpCompileXHTML.create(
+      main,
+      output,
+      settings,
+      KSOpCompileXHTML.XHTMLPagination.XHTML_MULTI_PAGE,
+      true,
+      threads,
+      Optional.empty(),
+      incremental).call()
+  }
+
+  /**
+   * Record the modification times of all files in `output`, and then wait
+   * long enough that any file written afterwards has a different time.
+   */
+
+  private fun times(output : Path) : Map<Path, FileTime> {
+    val times = mutableMapOf<Path, FileTime>()
+    Files.list(output).forEach { file ->
+      times.put(file.fileName, Files.getLastModifiedTime(file))
+    }
+    Thread.sleep(50L)
+    return times
+  }
+
+  private fun checkIncremental(threads : Int) {
+    val output = this.directory!!.resolve("out")
+    val main = document("alpha", "beta")
+
+    compile(main, output, threads)
+    val expected = Files.readAllBytes(output.resolve("s1.xhtml"))
+    val before = times(output)
+
+    compile(main, output, threads)
+    Files.list(output).forEach { file ->
+      Assert.assertEquals(
+        file.toString(),
+        before[file.fileName],
+        Files.getLastModifiedTime(file))
+    }
+
+    document("alpha", "gamma")
+    compile(main, output, threads)
+    Assert.assertEquals(
+      before[output.resolve("s1.xhtml").fileName],
+      Files.getLastModifiedTime(output.resolve("s1.xhtml")))
+    Assert.assertNotEquals(
+      before[output.resolve("s2.xhtml").fileName],
+      Files.getLastModifiedTime(output.resolve("s2.xhtml")))
+    Assert.assertArrayEquals(
+      expected, Files.readAllBytes(output.resolve("s1.xhtml")))
+    Assert.assertTrue(String(Files.readAllBytes(
+      output.resolve("s2.xhtml")), Charsets.UTF_8).contains("gamma"))
+  }
+
+  @Test fun testIncremental() {
+    checkIncremental(1)
+  }
+
+  @Test fun testIncrementalParallel() {
+    checkIncremental(4)
+  }
+
+  @Test fun testIncrementalMissingFile() {
+    val output = this.directory!!.resolve("out")
+    val main = document("alpha", "beta")
+
+    compile(main, output, 1)
+    val expected = Files.readAllBytes(output.resolve("s1.xhtml"))
+    Files.delete(output.resolve("s1.xhtml"))
+
+    compile(main, output, 1)
+    Assert.assertArrayEquals(
+      expected, Files.readAllBytes(output.resolve("s1.xhtml")))
+  }
+
+  @Test fun testIncrementalAfterFull() {
+    val output = this.directory!!.resolve("out")
+    val main = document("alpha", "beta")
+    compile(main, output, 1, true)
+
+    document("alpha", "gamma")
+    compile(main, output, 1, false)
+    Assert.assertTrue(String(Files.readAllBytes(
+      output.resolve("s2.xhtml")), Charsets.UTF_8).contains("gamma"))
+
+    document("alpha", "beta")
+    compile(main, output, 1, true)
+    Assert.assertTrue(String(Files.readAllBytes(
+      output.resolve("s2.xhtml")), Charsets.UTF_8).contains("beta"))
+  }
+
+  @Test fun testIncrementalTamperedFile() {
+    val output = this.directory!!.resolve("out")
+    val main = document("alpha", "beta")
+
+    compile(main, output, 1)
+    val expected = Files.readAllBytes(output.resolve("s1.xhtml"))
+    Files.write(output.resolve("s1.xhtml"), "tampered".toByteArray())
+
+    compile(main, output, 1)
+    Assert.assertArrayEquals(
+      expected, Files.readAllBytes(output.resolve("s1.xhtml")))
+  }
+
+  @Test fun testIncrementalTamperedFileSameSize() {
+    val output = this.directory!!.resolve("out")
+    val main = document("alpha", "beta")
+
+    compile(main, output, 1)
+    val file = output.resolve("s1.xhtml")
+    val expected = Files.readAllBytes(file)
+    times(output)
+    Files.write(file, ByteArray(expected.size, { 'x'.toByte() }))
+
+    compile(main, output, 1)
+    Assert.assertArrayEquals(expected, Files.readAllBytes(file))
+  }
+}
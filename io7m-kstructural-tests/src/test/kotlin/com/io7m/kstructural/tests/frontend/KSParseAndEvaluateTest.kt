@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.frontend
+
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.frontend.KSExporter
+import com.io7m.kstructural.frontend.KSInputFormat
+import com.io7m.kstructural.frontend.KSParseAndEvaluate
+import com.io7m.kstructural.tests.generator.KSDocumentGenerator
+import com.io7m.kstructural.tests.generator.KSDocumentGeneratorSettings
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Optional
+import java.util.concurrent.ForkJoinPool
+
+class KSParseAndEvaluateTest {
+
+  private var directory : Path? = null
+  private var pool : ForkJoinPool? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-parse-")
+    this.pool = ForkJoinPool(4)
+  }
+
+  @After fun tearDown() : Unit {
+    this.pool!!.shutdown()
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private fun export(
+    name : String,
+    doc : KSBlockDocument<KSEvaluation>) : List<String> {
+    val out = this.directory!!.resolve(name)
+    Files.createDirectories(out)
+    KSExporter.newExporter(KSInputFormat.KS_INPUT_CANONICAL, 2, 80)
+      .export(this.directory!!, doc, out, false)
+    return Files.readAllLines(out.resolve("main.sd"))
+  }
+
+  private fun checkParallel(format : KSInputFormat) {
+    val settings = KSDocumentGeneratorSettings(
+      parts = 4,
+      sections = 8,
+      import_fan_out = 8,
+      footnote_density = 0.25,
+      include_density = 0.25)
+    val dir = this.directory!!.resolve("input")
+    val main = KSDocumentGenerator.create(settings).generate(dir, format)
+
+    val sequential = KSParseAndEvaluate.parseAndEvaluate(dir, main)
+    val parallel = KSParseAndEvaluate.parseAndEvaluate(dir, main, this.pool!!)
+    Assert.assertEquals(
+      export("sequential", sequential),
+      export("parallel", parallel))
+  }
+
+  @Test fun testParallelCanonical() {
+    checkParallel(KSInputFormat.KS_INPUT_CANONICAL)
+  }
+
+  @Test fun testParallelImperative() {
+    checkParallel(KSInputFormat.KS_INPUT_IMPERATIVE)
+  }
+
+  private fun checkCache(format : KSInputFormat) {
+    val settings = KSDocumentGeneratorSettings(
+      parts = 2,
+      sections = 4,
+      import_fan_out = 4,
+      footnote_density = 0.25,
+      include_density = 0.25)
+    val dir = this.directory!!.resolve("input")
+    val main = KSDocumentGenerator.create(settings).generate(dir, format)
+    val cache_dir = Optional.of(this.directory!!.resolve("cache"))
+
+    val uncached = KSParseAndEvaluate.parseAndEvaluate(dir, main)
+    val cold = KSParseAndEvaluate.parseAndEvaluate(
+      dir, main, Optional.empty(), KSParseAndEvaluate.openParseCache(cache_dir),
+      KSParseAndEvaluate.newInternTable())
+    Assert.assertTrue(Files.list(cache_dir.get()).count() > 0L)
+    val warm = KSParseAndEvaluate.parseAndEvaluate(
+      dir, main, Optional.of(this.pool!!),
+      KSParseAndEvaluate.openParseCache(cache_dir),
+      KSParseAndEvaluate.newInternTable())
+
+    val expected = export("uncached", uncached)
+    Assert.assertEquals(expected, export("cold", cold))
+    Assert.assertEquals(expected, export("warm", warm))
+  }
+
+  @Test fun testCacheCanonical() {
+    checkCache(KSInputFormat.KS_INPUT_CANONICAL)
+  }
+
+  @Test fun testCacheImperative() {
+    checkCache(KSInputFormat.KS_INPUT_IMPERATIVE)
+  }
+
+  @Test fun testCacheModified() {
+    val dir = this.directory!!.resolve("input")
+    Files.createDirectories(dir)
+    val main = dir.resolve("main.sd")
+    val cache_dir = Optional.of(this.directory!!.resolve("cache"))
+
+    Files.write(main, listOf(
+      "[document [title d] [section [title s] [paragraph first]]]"))
+    val first = KSParseAndEvaluate.parseAndEvaluate(
+      dir, main, Optional.empty(), KSParseAndEvaluate.openParseCache(cache_dir),
+      KSParseAndEvaluate.newInternTable())
+    Assert.assertTrue(export("first", first).any { line -> line.contains("first") })
+
+    Files.write(main, listOf(
+      "[document [title d] [section [title s] [paragraph second]]]"))
+    val second = KSParseAndEvaluate.parseAndEvaluate(
+      dir, main, Optional.empty(), KSParseAndEvaluate.openParseCache(cache_dir),
+      KSParseAndEvaluate.newInternTable())
+    val lines = export("second", second)
+    Assert.assertTrue(lines.any { line -> line.contains("second") })
+    Assert.assertFalse(lines.any { line -> line.contains("first") })
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.generator
+
+import com.io7m.kstructural.frontend.KSExporter
+import com.io7m.kstructural.frontend.KSInputFormat
+import com.io7m.kstructural.frontend.KSParseAndEvaluate
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class KSDocumentGeneratorTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-generator-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  /**
+   * Elements remember whether they were written with square brackets, and
+   * the XML parser does not produce any, so compare exports without regard
+   * to the bracket style.
+   */
+
+  private fun normalize(text : String) : String =
+    text.replace('(', '[').replace(')', ']')
+
+  private fun roundTrip(settings : KSDocumentGeneratorSettings) : Unit {
+    val g = KSDocumentGenerator.create(settings)
+    val exported = KSInputFormat.values().map { f ->
+      val dir = this.directory!!.resolve(f.getName())
+      val out = this.directory!!.resolve(f.getName() + "-out")
+      Files.createDirectories(out)
+
+      val main = g.generate(dir, f)
+      val doc = KSParseAndEvaluate.parseAndEvaluate(dir, main)
+      KSExporter.newExporter(KSInputFormat.KS_INPUT_CANONICAL, 2, 80)
+        .export(dir, doc, out, false)
+      normalize(String(
+        Files.readAllBytes(out.resolve("main.sd")), StandardCharsets.UTF_8))
+    }
+
+    Assert.assertEquals(exported[0], exported[1])
+    Assert.assertEquals(exported[0], exported[2])
+  }
+
+  @Test fun testSections() {
+    roundTrip(KSDocumentGeneratorSettings(
+      sections = 3,
+      subsections = 0,
+      table_density = 0.5,
+      footnote_density = 0.5))
+  }
+
+  @Test fun testSubsections() {
+    roundTrip(KSDocumentGeneratorSettings(
+      sections = 3,
+      subsections = 2,
+      table_density = 0.5,
+      footnote_density = 0.5))
+  }
+
+  @Test fun testPartsImportsIncludes() {
+    roundTrip(KSDocumentGeneratorSettings(
+      seed = 23L,
+      parts = 3,
+      sections = 3,
+      subsections = 2,
+      table_density = 0.25,
+      footnote_density = 0.25,
+      import_fan_out = 2,
+      include_density = 0.25))
+  }
+
+  @Test fun testDeterministic() {
+    val s = KSDocumentGeneratorSettings(
+      seed = 42L,
+      parts = 2,
+      footnote_density = 0.5,
+      include_density = 0.5)
+    val g = KSDocumentGenerator.create(s)
+    val m0 = g.generate(this.directory!!.resolve("a"), KSInputFormat.KS_INPUT_CANONICAL)
+    val m1 = g.generate(this.directory!!.resolve("b"), KSInputFormat.KS_INPUT_CANONICAL)
+    Assert.assertArrayEquals(Files.readAllBytes(m0), Files.readAllBytes(m1))
+  }
+
+  @Test(expected = IllegalArgumentException::class)
+  fun testInvalidFanOut() {
+    KSDocumentGeneratorSettings(sections = 2, import_fan_out = 3)
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.latex
+
+import com.io7m.kstructural.latex.KSLaTeXEscapes
+import org.junit.Assert
+import org.junit.Test
+import java.io.StringWriter
+
+class KSLaTeXEscapesTest {
+
+  @Test fun testCleanUnmodified()
+  {
+    val s = "Clean text \t\n \uD83D\uDE00 \u00e9"
+    Assert.assertSame(s, KSLaTeXEscapes.escapeAll(s))
+    Assert.assertSame(s, KSLaTeXEscapes.escapeForVerbatim(s))
+  }
+
+  @Test fun testEscapeAll()
+  {
+    Assert.assertEquals(
+      "a\\#\\$\\%\\&\\textbackslash{}\\textasciicircum{}\\_\\{\\}"
+        + "\\textless\\textgreater\\textasciitilde{}\uFFFD\uFFFD\uFFFDz",
+      KSLaTeXEscapes.escapeAll("a#$%&\\^_{}<>~\u0000\u001f\u007fz"))
+  }
+
+  @Test fun testEscapeForVerbatim()
+  {
+    Assert.assertEquals(
+      "x\\\u200bend{verbatim} \\begin \\ #\uFFFD",
+      KSLaTeXEscapes.escapeForVerbatim("x\\end{verbatim} \\begin \\ #\u0001"))
+  }
+
+  @Test fun testWriter()
+  {
+    val w = StringWriter()
+    KSLaTeXEscapes.escapeAll("a_b", w)
+    KSLaTeXEscapes.escapeAll("cd", w)
+    KSLaTeXEscapes.escapeForVerbatim("\\end{verbatim}", w)
+    Assert.assertEquals("a\\_bcd\\\u200bend{verbatim}", w.toString())
+  }
+}
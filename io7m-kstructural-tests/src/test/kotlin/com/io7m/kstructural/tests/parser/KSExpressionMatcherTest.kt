@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.parser
+
+import com.io7m.kstructural.parser.KSExpression
+import com.io7m.kstructural.parser.KSExpression.KSExpressionList
+import com.io7m.kstructural.parser.KSExpression.KSExpressionQuoted
+import com.io7m.kstructural.parser.KSExpression.KSExpressionSymbol
+import com.io7m.kstructural.parser.KSExpressionMatch
+import org.junit.Assert
+import org.junit.Test
+import java.util.Optional
+import java.util.Random
+
+class KSExpressionMatcherTest {
+
+  private val symbol = KSExpressionMatch.anySymbol()
+  private val string = KSExpressionMatch.anyString()
+  private val id = KSExpressionMatch.allOfList(
+    listOf(KSExpressionMatch.exactSymbol("id"), symbol))
+  private val type = KSExpressionMatch.allOfList(
+    listOf(KSExpressionMatch.exactSymbol("type"), symbol))
+  private val name = KSExpressionMatch.exactSymbol("p")
+
+  private val cases = listOf(
+    KSExpressionMatch.prefixOfList(listOf(name, id, type)),
+    KSExpressionMatch.prefixOfList(listOf(name, type, id)),
+    KSExpressionMatch.allOfList(listOf(name, id, string)),
+    KSExpressionMatch.prefixOfList(listOf(name, id)),
+    KSExpressionMatch.prefixOfList(listOf(name, type)),
+    KSExpressionMatch.oneOf(listOf(symbol, string)),
+    KSExpressionMatch.prefixOfList(listOf(name)))
+
+  private fun sequential(e : KSExpression) : KSExpressionMatch? {
+    for (i in 0 .. cases.size - 1) {
+      if (KSExpressionMatch.matches(e, cases[i])) {
+        return cases[i]
+      }
+    }
+    return null
+  }
+
+  private fun generate(r : Random, depth : Int) : KSExpression {
+    val words = arrayOf("p", "id", "type", "x")
+    return when (if (depth > 2) r.nextInt(2) else r.nextInt(4)) {
+      0    -> KSExpressionSymbol(Optional.empty(), words[r.nextInt(words.size)])
+      1    -> KSExpressionQuoted(Optional.empty(), words[r.nextInt(words.size)])
+      else -> {
+        val xs = mutableListOf<KSExpression>()
+        if (r.nextBoolean()) {
+          xs.add(KSExpressionSymbol(Optional.empty(), "p"))
+        }
+        val count = r.nextInt(4)
+        for (i in 0 .. count - 1) {
+          xs.add(generate(r, depth + 1))
+        }
+        KSExpressionList(Optional.empty(), r.nextBoolean(), xs)
+      }
+    }
+  }
+
+  @Test fun testSimple()
+  {
+    val m = KSExpressionMatch.compile(cases)
+    val e = KSExpressionList(Optional.empty(), true, listOf(
+      KSExpressionSymbol(Optional.empty(), "p"),
+      KSExpressionList(Optional.empty(), true, listOf(
+        KSExpressionSymbol(Optional.empty(), "type"),
+        KSExpressionSymbol(Optional.empty(), "t"))),
+      KSExpressionList(Optional.empty(), true, listOf(
+        KSExpressionSymbol(Optional.empty(), "id"),
+        KSExpressionSymbol(Optional.empty(), "x")))))
+
+    Assert.assertSame(cases[1], m.match(e))
+    Assert.assertSame(
+      cases[5], m.match(KSExpressionQuoted(Optional.empty(), "x")))
+    Assert.assertNull(m.match(
+      KSExpressionList(Optional.empty(), true, listOf())))
+  }
+
+  @Test fun testEquivalentToSequential()
+  {
+    val m = KSExpressionMatch.compile(cases)
+    val r = Random(0x5eed)
+    for (i in 0 .. 20000) {
+      val e = generate(r, 0)
+      Assert.assertSame(e.toString(), sequential(e), m.match(e))
+    }
+  }
+}
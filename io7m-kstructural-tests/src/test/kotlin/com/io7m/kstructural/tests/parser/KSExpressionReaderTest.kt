@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.parser
+
+import com.io7m.jsx.api.lexer.JSXLexerException
+import com.io7m.jsx.api.parser.JSXParserException
+import com.io7m.kstructural.frontend.KSInputFormat
+import com.io7m.kstructural.parser.KSExpression
+import com.io7m.kstructural.parser.KSExpressionParserType
+import com.io7m.kstructural.parser.KSExpressionParsers
+import com.io7m.kstructural.tests.generator.KSDocumentGenerator
+import com.io7m.kstructural.tests.generator.KSDocumentGeneratorSettings
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.StringReader
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.Random
+
+class KSExpressionReaderTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-reader-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private fun show(sb : StringBuilder, e : KSExpression) {
+    val p = e.position.get()
+    sb.append(p.line).append(":").append(p.column).append(":")
+    sb.append(p.file.get()).append(":")
+    when (e) {
+      is KSExpression.KSExpressionSymbol -> {
+        sb.append("S<").append(e.value).append(">")
+      }
+      is KSExpression.KSExpressionQuoted -> {
+        sb.append("Q<").append(e.value).append(">")
+      }
+      is KSExpression.KSExpressionList   -> {
+        sb.append(if (e.square) "[" else "(")
+        e.elements.forEach { k -> show(sb, k); sb.append(" ") }
+        sb.append(if (e.square) "]" else ")")
+      }
+    }
+  }
+
+  private fun showError(x : Throwable) : String {
+    val sb = StringBuilder()
+    sb.append(x.javaClass.name).append(": ").append(x.message)
+    if (x is JSXParserException) {
+      val p = x.lexicalInformation
+      sb.append(" @").append(p.line).append(":").append(p.column)
+    }
+    val c = x.cause
+    if (c is JSXLexerException) {
+      val p = c.lexicalInformation
+      sb.append(" caused by ").append(c.javaClass.name).append(": ")
+      sb.append(c.message)
+      sb.append(" @").append(p.line).append(":").append(p.column)
+    }
+    return sb.toString()
+  }
+
+  private fun run(p : KSExpressionParserType) : List<String> {
+    val results = mutableListOf<String>()
+    try {
+      while (true) {
+        val e = p.parse()
+        if (!e.isPresent) {
+          break
+        }
+        val sb = StringBuilder()
+        show(sb, e.get())
+        results.add(sb.toString())
+      }
+    } catch (x : Throwable) {
+      results.add(showError(x))
+    }
+    return results
+  }
+
+  private fun checkSame(text : String) {
+    val file = Paths.get("/x/y/z.sd")
+    val expected = run(KSExpressionParsers.createWithReader(file, StringReader(text)))
+    val received = run(KSExpressionParsers.createWithChars(file, text))
+    Assert.assertEquals(text, expected, received)
+  }
+
+  @Test fun testCorpus() {
+    listOf(
+      "",
+      "   ",
+      "a",
+      "a b c",
+      "(a b c)",
+      "[a b c]",
+      "[a (b [c])]",
+      "a(b)c[d]\"e\"f",
+      "\"quoted\"",
+      "\"a\\\"b\\\\c\\rd\\ne\\tf\"",
+      "\"\\u0041\\u00e9\"",
+      "\"\\U0001F600\"",
+      "\"\\U0011FFFF\"",
+      "\"\\uZZZZ\"",
+      "\"\\q\"",
+      "\"unterminated",
+      "\"newline\nin string\" after",
+      "\"crlf\r\nin string\" after",
+      "a\tb\t(c)",
+      "line1\nline2\r\nline3",
+      "a\rb",
+      "(a\r)",
+      "\r",
+      "x\r",
+      "(",
+      ")",
+      "]",
+      "[)",
+      "(]",
+      "[a b",
+      "\u00a0a\u2003b",
+      "\ud83d\ude00 (\ud83d\ude00)",
+      "\udc00",
+      "a\ud83d",
+      "a\ud83db",
+      "[document [title \"x\"] [section [title y] [paragraph z]]]")
+      .forEach { text -> checkSame(text) }
+  }
+
+  @Test fun testFuzz() {
+    val alphabet = "ab ()[]\"\\\r\n\tunU0F9\u00a0\ud83d\ude00"
+    val r = Random(0x4b53L)
+    for (i in 0 .. 19999) {
+      val size = r.nextInt(24)
+      val sb = StringBuilder(size)
+      for (k in 0 .. size - 1) {
+        sb.append(alphabet[r.nextInt(alphabet.length)])
+      }
+      checkSame(sb.toString())
+    }
+  }
+
+  private fun checkFiles(format : KSInputFormat) {
+    val settings = KSDocumentGeneratorSettings(
+      parts = 2,
+      sections = 4,
+      import_fan_out = 4,
+      footnote_density = 0.25,
+      include_density = 0.25)
+    val dir = this.directory!!.resolve(format.toString())
+    KSDocumentGenerator.create(settings).generate(dir, format)
+
+    Files.walk(dir).filter { f -> f.toString().endsWith(".sd") }.forEach { f ->
+      Assert.assertEquals(
+        f.toString(),
+        run(KSExpressionParsers.createJSX(f)),
+        run(KSExpressionParsers.create(f)))
+    }
+  }
+
+  @Test fun testGeneratedCanonical() {
+    checkFiles(KSInputFormat.KS_INPUT_CANONICAL)
+  }
+
+  @Test fun testGeneratedImperative() {
+    checkFiles(KSInputFormat.KS_INPUT_IMPERATIVE)
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.parser
+
+import com.io7m.jlexing.core.ImmutableLexicalPosition
+import com.io7m.kstructural.parser.KSExpression
+import com.io7m.kstructural.parser.KSExpressionParsers
+import com.io7m.kstructural.parser.KSExpressionSerialization
+import org.junit.Assert
+import org.junit.Test
+import java.io.StringReader
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.Optional
+
+class KSExpressionSerializationTest {
+
+  private fun parseAll(
+    file : Path,
+    text : String) : List<KSExpression> {
+    val p = KSExpressionParsers.createWithReader(file, StringReader(text))
+    val xs = mutableListOf<KSExpression>()
+    while (true) {
+      val r = p.parse()
+      if (!r.isPresent) break
+      xs.add(r.get())
+    }
+    return xs
+  }
+
+  private fun checkEqual(
+    x : KSExpression,
+    y : KSExpression) {
+    Assert.assertEquals(x.javaClass, y.javaClass)
+    Assert.assertEquals(x.position.isPresent, y.position.isPresent)
+    if (x.position.isPresent) {
+      val xp = x.position.get()
+      val yp = y.position.get()
+      Assert.assertEquals(xp.line, yp.line)
+      Assert.assertEquals(xp.column, yp.column)
+      Assert.assertEquals(xp.file, yp.file)
+    }
+    when (x) {
+      is KSExpression.KSExpressionSymbol ->
+        Assert.assertEquals(x.value, (y as KSExpression.KSExpressionSymbol).value)
+      is KSExpression.KSExpressionQuoted ->
+        Assert.assertEquals(x.value, (y as KSExpression.KSExpressionQuoted).value)
+      is KSExpression.KSExpressionList -> {
+        val yl = y as KSExpression.KSExpressionList
+        Assert.assertEquals(x.square, yl.square)
+        Assert.assertEquals(x.elements.size, yl.elements.size)
+        for (i in 0 .. x.elements.size - 1) {
+          checkEqual(x.elements[i], yl.elements[i])
+        }
+      }
+    }
+  }
+
+  @Test fun testRoundTrip() {
+    val file = Paths.get("/x/y/z.sd")
+    val xs = parseAll(file, """
+[document [title "A \"quoted\" title"] [id d0]
+  [section [title "Section"]
+    (paragraph a b c [term [type x] "multi
+line"])]]
+[paragraph x] [paragraph x] []
+""")
+
+    val data = KSExpressionSerialization.serialize(file, xs)
+    Assert.assertTrue(data.isPresent)
+    val ys = KSExpressionSerialization.deserialize(file, data.get())
+    Assert.assertTrue(ys.isPresent)
+    Assert.assertEquals(xs.size, ys.get().size)
+    for (i in 0 .. xs.size - 1) {
+      checkEqual(xs[i], ys.get()[i])
+    }
+  }
+
+  @Test fun testRoundTripNoPositions() {
+    val file = Paths.get("/x/y/z.sd")
+    val xs = listOf<KSExpression>(
+      KSExpression.KSExpressionList(Optional.empty(), false, listOf(
+        KSExpression.KSExpressionSymbol(Optional.empty(), "a"),
+        KSExpression.KSExpressionQuoted(Optional.empty(), "b"))))
+
+    val data = KSExpressionSerialization.serialize(file, xs)
+    val ys = KSExpressionSerialization.deserialize(file, data.get())
+    Assert.assertTrue(ys.isPresent)
+    checkEqual(xs[0], ys.get()[0])
+  }
+
+  @Test fun testOtherFileUnencodable() {
+    val file = Paths.get("/x/y/z.sd")
+    val other = Paths.get("/x/y/other.sd")
+    val xs = listOf<KSExpression>(
+      KSExpression.KSExpressionSymbol(
+        Optional.of(ImmutableLexicalPosition.newPositionWithFile(1, 0, other)),
+        "a"))
+
+    Assert.assertFalse(
+      KSExpressionSerialization.serialize(file, xs).isPresent)
+  }
+
+  @Test fun testMalformed() {
+    val file = Paths.get("/x/y/z.sd")
+    val xs = parseAll(file, "[paragraph [term [type x] y] z]")
+    val data = KSExpressionSerialization.serialize(file, xs).get()
+
+    for (i in 0 .. data.size - 1) {
+      val truncated = data.copyOf(i)
+      Assert.assertFalse(
+        KSExpressionSerialization.deserialize(file, truncated).isPresent)
+    }
+
+    val trailing = data.copyOf(data.size + 1)
+    Assert.assertFalse(
+      KSExpressionSerialization.deserialize(file, trailing).isPresent)
+
+    Assert.assertFalse(KSExpressionSerialization.deserialize(
+      file, byteArrayOf(0x7f, 0x7f, 0x7f, 0x7f)).isPresent)
+  }
+}
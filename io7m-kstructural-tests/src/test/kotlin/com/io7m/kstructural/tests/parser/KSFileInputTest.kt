@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.parser
+
+import com.io7m.kstructural.core.KSResult
+import com.io7m.kstructural.parser.KSExpressionParserType
+import com.io7m.kstructural.parser.KSExpressionParsers
+import com.io7m.kstructural.parser.KSFileInput
+import com.io7m.kstructural.parser.KSIncluder
+import com.io7m.kstructural.tests.KSTestFilesystems
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Optional
+
+class KSFileInputTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-input-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private fun text(size : Long) : String {
+    val sb = StringBuilder()
+    var i = 0
+    while (sb.length < size) {
+      sb.append("[term [type t")
+      sb.append(i)
+      sb.append("] \"λ → ")
+      sb.append(i)
+      sb.append("\" word]\n")
+      ++i
+    }
+    return sb.toString()
+  }
+
+  private fun write(
+    file : Path,
+    text : String) : Path {
+    Files.write(file, text.toByteArray(StandardCharsets.UTF_8))
+    return file
+  }
+
+  private fun parseAll(
+    p : () -> KSExpressionParserType)
+    : List<String> {
+    val xs = mutableListOf<String>()
+    p().use { parser ->
+      while (true) {
+        val e = parser.parse()
+        if (!e.isPresent) break
+        xs.add(e.get().toString() + "@" + e.get().position.get())
+      }
+    }
+    return xs
+  }
+
+  @Test fun testSmall()
+  {
+    val t = text(100)
+    val f = write(directory!!.resolve("small.txt"), t)
+    Assert.assertEquals(t, KSFileInput.readUTF8(f).toString())
+  }
+
+  @Test fun testLarge()
+  {
+    val t = text(KSFileInput.MAP_THRESHOLD * 4)
+    val f = write(directory!!.resolve("large.txt"), t)
+    Assert.assertTrue(Files.size(f) >= KSFileInput.MAP_THRESHOLD)
+    Assert.assertEquals(t, KSFileInput.readUTF8(f).toString())
+  }
+
+  @Test fun testLargeUnmappable()
+  {
+    KSTestFilesystems.newUnixFilesystem().use { fs ->
+      val t = text(KSFileInput.MAP_THRESHOLD * 2)
+      val f = write(fs.getPath("/large.txt"), t)
+      Assert.assertEquals(t, KSFileInput.readUTF8(f).toString())
+    }
+  }
+
+  @Test fun testLargeInclude()
+  {
+    val t = text(KSFileInput.MAP_THRESHOLD * 2)
+    val f = write(directory!!.resolve("large.txt"), t)
+    val r = KSIncluder.create(directory!!).include(f)
+    Assert.assertEquals(t, (r as KSResult.KSSuccess).result)
+  }
+
+  @Test fun testLargeParse()
+  {
+    val t = text(KSFileInput.MAP_THRESHOLD * 2)
+    val f = write(directory!!.resolve("large.txt"), t)
+    val mapped = parseAll({ KSExpressionParsers.create(f) })
+    val direct = parseAll({
+      KSExpressionParsers.createWithChars(f, t, Optional.empty())
+    })
+    Assert.assertTrue(mapped.size > 1000)
+    Assert.assertEquals(direct, mapped)
+  }
+}
@@ -31,6 +31,7 @@ import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
 import com.io7m.kstructural.core.KSID
 import com.io7m.kstructural.core.KSParse
 import com.io7m.kstructural.core.KSParseContext
+import com.io7m.kstructural.core.KSParseContextType
 import com.io7m.kstructural.core.KSParseError
 import com.io7m.kstructural.core.KSResult.KSFailure
 import com.io7m.kstructural.core.KSResult.KSSuccess
@@ -44,6 +45,7 @@ import org.junit.Test
 import java.nio.charset.StandardCharsets
 import java.nio.file.FileSystem
 import java.nio.file.Files
+import java.nio.file.Path
 import java.util.Optional
 
 
@@ -53,6 +55,9 @@ abstract class KSCanonBlockParserContract {
 
   protected abstract fun newFilesystem() : FileSystem
 
+  protected open fun newContext(base : Path) : KSParseContextType =
+    KSParseContext.empty(base)
+
   protected var filesystem : FileSystem? = null
 
   @Before fun setupFilesystem() : Unit {
@@ -73,7 +78,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testParaError0() {
     val pp = newParserForString("[paragraph [link]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure<KSBlockParagraph<*>, KSParseError>
     Assert.assertTrue(e.partial.isPresent)
@@ -82,7 +87,7 @@ abstract class KSCanonBlockParserContract {
   
   @Test fun testParaSimple() {
     val pp = newParserForString("[paragraph Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockParagraph<KSParse>, KSParseError>
     Assert.assertEquals(1, e.result.content.size)
@@ -92,7 +97,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testParaID() {
     val pp = newParserForString("[paragraph [id x] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockParagraph<KSParse>, KSParseError>
     Assert.assertEquals("x", e.result.id.get().value)
@@ -103,7 +108,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testParaType() {
     val pp = newParserForString("[paragraph [type x] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockParagraph<KSParse>, KSParseError>
     Assert.assertEquals("x", e.result.type.get().value)
@@ -114,7 +119,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testParaTypeID() {
     val pp = newParserForString("[paragraph [type x] [id y] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockParagraph<KSParse>, KSParseError>
     Assert.assertEquals("x", e.result.type.get().value)
@@ -126,7 +131,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testParaIDType() {
     val pp = newParserForString("[paragraph [id y] [type x] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockParagraph<KSParse>, KSParseError>
     Assert.assertEquals("x", e.result.type.get().value)
@@ -139,7 +144,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testSubsectionErrorEmpty() {
     val pp = newParserForString("[subsection]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockSubsection<*>, KSParseError>
 
     Assert.assertFalse(e.partial.isPresent)
@@ -149,7 +154,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testSubsectionErrorWrongContent() {
     val pp = newParserForString("[subsection [title t] [subsection [title w]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockSubsection<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -159,7 +164,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testSubsectionErrorWrongTitle() {
     val pp = newParserForString("[subsection [title x [term q]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockSubsection<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -168,7 +173,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSubsection() {
     val pp = newParserForString("[subsection [title t]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -178,7 +183,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSubsectionID() {
     val pp = newParserForString("[subsection [title t] [id x]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -188,7 +193,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSubsectionIDType() {
     val pp = newParserForString("[subsection [title t] [id x] [type k]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -199,7 +204,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSubsectionTypeID() {
     val pp = newParserForString("[subsection [title t] [type k] [id x]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -210,7 +215,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSubsectionType() {
     val pp = newParserForString("[subsection [title t] [type k]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -221,7 +226,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSubsectionContent() {
     val pp = newParserForString("[subsection [title t] [paragraph Hello.]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -234,7 +239,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSection() {
     val pp = newParserForString("[section [title t] [paragraph p]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithContent<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -248,7 +253,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSectionID() {
     val pp = newParserForString("[section [title t] [id x] [paragraph p]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithContent<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -262,7 +267,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSectionIDType() {
     val pp = newParserForString("[section [title t] [id x] [type t] [paragraph p]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithContent<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -276,7 +281,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSectionTypeID() {
     val pp = newParserForString("[section [title t] [type t] [id x] [paragraph p]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithContent<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -290,7 +295,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSectionType() {
     val pp = newParserForString("[section [title t] [type t] [paragraph p]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithContent<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -306,7 +311,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [section [title t] [type t] [id x]
   [subsection [title ss0] [paragraph p]]]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithSubsections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -323,7 +328,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [section [title t] [id x] [type t]
   [subsection [title ss0] [paragraph p]]]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithSubsections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -340,7 +345,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [section [title t] [id x]
   [subsection [title ss0] [paragraph p]]]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithSubsections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -357,7 +362,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [section [title t] [type t]
   [subsection [title ss0] [paragraph p]]]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithSubsections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -374,7 +379,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [section [title t]
   [subsection [title ss0] [paragraph p]]]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithSubsections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -392,7 +397,7 @@ abstract class KSCanonBlockParserContract {
 [section [title t]
   (subsection [title ss0] [paragraph p])
   (paragraph q)]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure
     Assert.assertEquals(1, e.errors.size)
@@ -403,7 +408,7 @@ abstract class KSCanonBlockParserContract {
 [section [title t]
   (paragraph q)
   (subsection [title ss0] [paragraph p])]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure
     Assert.assertEquals(1, e.errors.size)
@@ -413,7 +418,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [section [title t]
   (section [title s] [paragraph p])]""")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure
     Assert.assertEquals(2, e.errors.size)
@@ -421,7 +426,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testSectionEmpty() {
     val pp = newParserForString("[section [title t]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure
     Assert.assertEquals(1, e.errors.size)
@@ -430,7 +435,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testPartErrorEmpty() {
     val pp = newParserForString("[part]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockPart<*>, KSParseError>
 
     Assert.assertFalse(e.partial.isPresent)
@@ -440,7 +445,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testPartErrorWrongContent() {
     val pp = newParserForString("[part [title t] [part [title w]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockPart<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -450,7 +455,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testPartErrorWrongTitle() {
     val pp = newParserForString("[part [title x [term q]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockPart<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -459,7 +464,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testPart() {
     val pp = newParserForString("[part [title t] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -473,7 +478,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testPartID() {
     val pp = newParserForString("[part [title t] [id x] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -487,7 +492,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testPartIDType() {
     val pp = newParserForString("[part [title t] [id x] [type k] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -502,7 +507,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testPartTypeID() {
     val pp = newParserForString("[part [title t] [type k] [id x] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -517,7 +522,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testPartType() {
     val pp = newParserForString("[part [title t] [type k] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -533,7 +538,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testPartContent() {
     val pp = newParserForString(
       "[part (title t) (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -547,7 +552,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentErrorEmpty() {
     val pp = newParserForString("[document]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockDocument<*>, KSParseError>
 
     Assert.assertFalse(e.partial.isPresent)
@@ -557,7 +562,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentErrorWrongContent() {
     val pp = newParserForString("[document [title t] [paragraph q]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockDocument<*>, KSParseError>
 
     Assert.assertEquals(2, e.errors.size)
@@ -566,7 +571,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentErrorWrongTitle() {
     val pp = newParserForString("[document [title x [term q]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockDocument<*>, KSParseError>
 
     Assert.assertEquals(2, e.errors.size)
@@ -576,7 +581,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [document [title t] (section [title k] [paragraph p])]
     """)
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -591,7 +596,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentSectionID() {
     val pp = newParserForString(
       "[document [title t] [id x] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -606,7 +611,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentSectionIDType() {
     val pp = newParserForString("" +
       "[document [title t] [id x] [type k] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -622,7 +627,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentSectionTypeID() {
     val pp = newParserForString(
       "[document [title t] [type k] [id x] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -638,7 +643,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentSectionType() {
     val pp = newParserForString(
       "[document [title t] [type k] (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -654,7 +659,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentSectionContent() {
     val pp = newParserForString(
       "[document (title t) (section [title k] [paragraph p])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -668,7 +673,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentEmpty() {
     val pp = newParserForString(
       "[document (title t)]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure<KSBlockDocumentWithSections<KSParse>, KSParseError>
     Assert.assertEquals(1, e.errors.size)
@@ -678,7 +683,7 @@ abstract class KSCanonBlockParserContract {
     val pp = newParserForString("""
 [document [title t] (part [title q] [section (title k) (paragraph p)])]
     """)
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -693,7 +698,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentPartID() {
     val pp = newParserForString(
       "[document [title t] [id x] (part [title q] [section (title k) (paragraph p)])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -708,7 +713,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentPartIDType() {
     val pp = newParserForString("" +
       "[document [title t] [id x] [type k] (part [title q] [section (title k) (paragraph p)])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -724,7 +729,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentPartTypeID() {
     val pp = newParserForString(
       "[document [title t] [type k] [id x] (part [title q] [section (title k) (paragraph p)])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -740,7 +745,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentPartType() {
     val pp = newParserForString(
       "[document [title t] [type k] (part [title q] [section (title k) (paragraph p)])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -756,7 +761,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testDocumentPartContent() {
     val pp = newParserForString(
       "[document (title t) (part [title q] [section (title k) (paragraph p)])]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -774,7 +779,7 @@ abstract class KSCanonBlockParserContract {
   (part [title q] [section (title k) (paragraph p)])
   (section [title s] [paragraph z])]
 """)
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockDocument<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -788,7 +793,7 @@ abstract class KSCanonBlockParserContract {
   (section [title s] [paragraph z])
   (part [title q] [section (title k) (paragraph p)])]
 """)
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockDocument<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -798,7 +803,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testFormalItemErrorEmpty() {
     val pp = newParserForString("[formal-item]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockFormalItem<*>, KSParseError>
 
     Assert.assertFalse(e.partial.isPresent)
@@ -808,7 +813,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testFormalItemErrorWrongContent() {
     val pp = newParserForString("[formal-item [title t] [subsection [title w]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockFormalItem<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -818,7 +823,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testFormalItemErrorWrongTitle() {
     val pp = newParserForString("[formal-item [title x [term q]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure<KSBlockFormalItem<*>, KSParseError>
 
     Assert.assertTrue(e.partial.isPresent)
@@ -827,7 +832,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFormalItem() {
     val pp = newParserForString("[formal-item [title t]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFormalItem<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -837,7 +842,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFormalItemID() {
     val pp = newParserForString("[formal-item [title t] [id x]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFormalItem<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -847,7 +852,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFormalItemIDType() {
     val pp = newParserForString("[formal-item [title t] [id x] [type k]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFormalItem<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -858,7 +863,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFormalItemTypeID() {
     val pp = newParserForString("[formal-item [title t] [type k] [id x]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFormalItem<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -869,7 +874,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFormalItemType() {
     val pp = newParserForString("[formal-item [title t] [type k]]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFormalItem<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -880,7 +885,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFormalItemContent() {
     val pp = newParserForString("[formal-item [title t] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFormalItem<KSParse>, KSParseError>
     Assert.assertEquals("t", e.result.title[0].text)
@@ -893,7 +898,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testFootnoteErrorEmpty() {
     val pp = newParserForString("[footnote]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure
 
     Assert.assertFalse(e.partial.isPresent)
@@ -903,7 +908,7 @@ abstract class KSCanonBlockParserContract {
   @Test fun testFootnoteErrorWrongContent() {
     val pp = newParserForString("[footnote [id x] [subsection [title w]]]")
 
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
     e as KSFailure
 
     Assert.assertTrue(e.partial.isPresent)
@@ -912,7 +917,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFootnote() {
     val pp = newParserForString("[footnote [id x] z]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFootnote<KSParse>, KSParseError>
     Assert.assertEquals("x", e.result.id.get().value)
@@ -922,7 +927,7 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testFootnoteIDType() {
     val pp = newParserForString("[footnote [id x] [type t] z]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockFootnote<KSParse>, KSParseError>
     Assert.assertEquals("x", e.result.id.get().value)
@@ -936,7 +941,7 @@ abstract class KSCanonBlockParserContract {
     Files.write(other_path, "[paragraph p]".toByteArray(StandardCharsets.UTF_8))
 
     val pp = newParserForString("[import \"other.txt\"]")
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockImport<KSParse>, KSParseError>
@@ -957,10 +962,10 @@ abstract class KSCanonBlockParserContract {
     Files.write(other_path, "[paragraph p]\n".toByteArray(StandardCharsets.UTF_8))
 
     val pp = newParserForString("[import \"/other/file.sd\"]")
-    val c = KSParseContext.empty(base)
+    val c = newContext(base)
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
-    e as KSFailure<KSBlockImport<KSParse>, KSParseError>
+    e as KSFailure
   }
 
   @Test fun testImportOutsideRelative() {
@@ -972,10 +977,10 @@ abstract class KSCanonBlockParserContract {
     Files.write(other_path, "[paragraph p]\n".toByteArray(StandardCharsets.UTF_8))
 
     val pp = newParserForString("[import \"../other/file.sd\"]")
-    val c = KSParseContext.empty(base)
+    val c = newContext(base)
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
-    e as KSFailure<KSBlockImport<KSParse>, KSParseError>
+    e as KSFailure
   }
 
   @Test fun testImportNonexistent() {
@@ -983,18 +988,18 @@ abstract class KSCanonBlockParserContract {
     Files.deleteIfExists(other_path)
 
     val pp = newParserForString("[import \"nonexistent.txt\"]")
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
-    e as KSFailure<KSBlockImport<KSParse>, KSParseError>
+    e as KSFailure
   }
 
   @Test fun testImportIncorrect() {
     val pp = newParserForString("[import [x]]")
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
-    e as KSFailure<KSBlockImport<KSParse>, KSParseError>
+    e as KSFailure
   }
 
   @Test fun testImportDedup() {
@@ -1007,7 +1012,7 @@ abstract class KSCanonBlockParserContract {
   [import "other.txt"]
   [import "other.txt"]]
 """)
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSubsection<KSParse>, KSParseError>
@@ -1027,7 +1032,7 @@ abstract class KSCanonBlockParserContract {
 [document [title d]
   [import "other.txt"]]
 """)
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithSections<KSParse>, KSParseError>
@@ -1047,7 +1052,7 @@ abstract class KSCanonBlockParserContract {
 [document [title d]
   [import "other.txt"]]
 """)
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockDocumentWithParts<KSParse>, KSParseError>
@@ -1064,7 +1069,7 @@ abstract class KSCanonBlockParserContract {
 [section [title d]
   [import "other.txt"]]
 """)
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithContent<KSParse>, KSParseError>
@@ -1082,7 +1087,7 @@ abstract class KSCanonBlockParserContract {
 [section [title d]
   [import "other.txt"]]
 """)
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockSectionWithSubsections<KSParse>, KSParseError>
@@ -1099,7 +1104,7 @@ abstract class KSCanonBlockParserContract {
 [part [title p]
   [import "other.txt"]]
 """)
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
@@ -1116,7 +1121,7 @@ abstract class KSCanonBlockParserContract {
     Files.write(third_path, """[import "first.txt"]""".toByteArray(StandardCharsets.UTF_8))
 
     val pp = newParserForString("""[import "first.txt"]]""")
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSFailure
@@ -1134,7 +1139,7 @@ abstract class KSCanonBlockParserContract {
     Files.write(third_path, """[paragraph p]""".toByteArray(StandardCharsets.UTF_8))
 
     val pp = newParserForString("""[import "/a/first.txt"]]""")
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSSuccess<KSBlockPart<KSParse>, KSParseError>
@@ -1143,15 +1148,55 @@ abstract class KSCanonBlockParserContract {
 
   @Test fun testIDInvalid() {
     val pp = newParserForString("[paragraph [id &] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
 
     e as KSFailure
   }
 
   @Test fun testTypeInvalid() {
     val pp = newParserForString("[paragraph [type -] Hello.]")
-    val e = pp.p.parse(KSParseContext.empty(rootDirectory()), pp.s.invoke(), defaultFile())
+    val e = pp.p.parse(newContext(rootDirectory()), pp.s.invoke(), defaultFile())
+
+    e as KSFailure
+  }
+
+  @Test fun testImportCycle() {
+    val a_path = filesystem!!.getPath("/a.txt").toAbsolutePath()
+    Files.write(a_path, """[import "b.txt"]""".toByteArray(StandardCharsets.UTF_8))
+    val b_path = filesystem!!.getPath("/b.txt").toAbsolutePath()
+    Files.write(b_path, """[import "a.txt"]""".toByteArray(StandardCharsets.UTF_8))
+
+    val pp = newParserForString("""[import "a.txt"]""")
+    val c = newContext(rootDirectory())
+    val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
+
+    e as KSFailure
+    Assert.assertEquals(1, e.errors.size)
+    Assert.assertTrue(e.errors.first.message.startsWith("Cyclic import detected."))
+  }
+
+  @Test fun testImportErrorOrder() {
+    for (i in 0 .. 7) {
+      val path = filesystem!!.getPath("/bad${i}.txt").toAbsolutePath()
+      Files.write(path, """[paragraph [link]]""".toByteArray(StandardCharsets.UTF_8))
+    }
+
+    val pp = newParserForString("""
+[subsection [title s]
+  [import "bad0.txt"]
+  [import "bad1.txt"]
+  [import "bad2.txt"]
+  [import "bad3.txt"]
+  [import "bad4.txt"]
+  [import "bad5.txt"]
+  [import "bad6.txt"]
+  [import "bad7.txt"]]
+""")
+    val c = newContext(rootDirectory())
+    val e = pp.p.parse(c, pp.s.invoke(), defaultFile())
 
     e as KSFailure
+    val files = e.errors.map { k -> k.position.get().file.get().fileName.toString() }
+    Assert.assertEquals((0 .. 7).map { i -> "bad${i}.txt" }, files.distinct())
   }
 }
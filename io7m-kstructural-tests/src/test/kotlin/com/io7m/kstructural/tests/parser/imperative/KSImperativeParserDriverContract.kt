@@ -20,6 +20,7 @@ import com.io7m.kstructural.core.KSElement.KSBlock
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockParagraph
 import com.io7m.kstructural.core.KSParse
 import com.io7m.kstructural.core.KSParseContext
+import com.io7m.kstructural.core.KSParseContextType
 import com.io7m.kstructural.core.KSParseError
 import com.io7m.kstructural.core.KSParserDriverType
 import com.io7m.kstructural.core.KSResult.KSFailure
@@ -43,6 +44,9 @@ abstract class KSImperativeParserDriverContract {
 
   protected abstract fun newFilesystem() : FileSystem
 
+  protected open fun newContext(base : Path) : KSParseContextType =
+    KSParseContext.empty(base)
+
   protected var filesystem : FileSystem? = null
 
   @Before fun setupFilesystem() : Unit {
@@ -77,7 +81,7 @@ abstract class KSImperativeParserDriverContract {
     write("""""", defaultFile())
 
     val d = newDriver()
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val r = d.parseBlock(c, defaultFile())
 
     r as KSFailure
@@ -94,7 +98,7 @@ abstract class KSImperativeParserDriverContract {
 """, defaultFile())
 
     val d = newDriver()
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val r = d.parseBlock(c, defaultFile())
 
     r as KSFailure
@@ -111,7 +115,7 @@ abstract class KSImperativeParserDriverContract {
 """, defaultFile())
 
     val d = newDriver()
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val r = d.parseBlock(c, defaultFile())
 
     r as KSFailure
@@ -129,7 +133,7 @@ a b c d e f g h i j k l m n o p q r s t u v w x y z.
 """, defaultFile())
 
     val d = newDriver()
-    val c = KSParseContext.empty(rootDirectory())
+    val c = newContext(rootDirectory())
     val r = d.parseBlock(c, defaultFile())
 
     r as KSFailure
@@ -149,7 +153,7 @@ a b c d e f g h i j k l m n o p q r s t u v w x y z.
 """, defaultFile())
 
     val d = newDriver()
-    val c = KSParseContext.empty(filesystem!!.getPath("/base"))
+    val c = newContext(filesystem!!.getPath("/base"))
     val r = d.parseBlock(c, defaultFile())
 
     r as KSFailure
@@ -169,7 +173,7 @@ a b c d e f g h i j k l m n o p q r s t u v w x y z.
 """, cfile)
 
     val d = newDriver()
-    val c = KSParseContext.empty(filesystem!!.getPath("/base"))
+    val c = newContext(filesystem!!.getPath("/base"))
     val r = d.parseBlock(c, cfile)
 
     r as KSFailure
@@ -187,7 +191,7 @@ a b c d e f g h i j k l m n o p q r s t u v w x y z.
 """, cfile)
 
     val d = newDriver()
-    val c = KSParseContext.empty(filesystem!!.getPath("/base"))
+    val c = newContext(filesystem!!.getPath("/base"))
     val r = d.parseBlock(c, cfile)
 
     r as KSFailure
@@ -203,7 +207,7 @@ A B C
 """, cfile)
 
     val d = newDriver()
-    val c = KSParseContext.empty(filesystem!!.getPath("/base"))
+    val c = newContext(filesystem!!.getPath("/base"))
     val r = d.parseBlock(c, cfile)
 
     r as KSSuccess<KSBlockParagraph<KSParse>, KSParseError>
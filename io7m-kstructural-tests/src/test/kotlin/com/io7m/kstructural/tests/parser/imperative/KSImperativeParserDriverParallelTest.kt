@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.parser.imperative
+
+import com.io7m.kstructural.core.KSParseContext
+import com.io7m.kstructural.core.KSParseContextType
+import com.io7m.kstructural.core.KSParserDriverType
+import com.io7m.kstructural.frontend.KSParsers
+import com.io7m.kstructural.parser.imperative.KSImperativeParserDriver
+import com.io7m.kstructural.tests.KSTestFilesystems
+import java.nio.file.FileSystem
+import java.nio.file.Path
+import java.util.concurrent.ForkJoinPool
+
+class KSImperativeParserDriverParallelTest : KSImperativeParserDriverContract() {
+
+  override fun newContext(base : Path) : KSParseContextType =
+    KSParseContext.emptyWithPool(base, ForkJoinPool.commonPool())
+
+  override fun newFilesystem() : FileSystem {
+    return KSTestFilesystems.newUnixFilesystem()
+  }
+
+  override fun newDriver() : KSParserDriverType {
+    return KSImperativeParserDriver.newDriver(KSParsers.getInstance())
+  }
+
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.tests.plain
+
+import com.io7m.jboxes.core.BoxMutable
+import com.io7m.jboxes.core.Boxes
+import com.io7m.jorchard.core.JOTreeNode
+import com.io7m.jorchard.core.JOTreeNodeType
+import com.io7m.jptbox.core.JPTextImages
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import com.io7m.kstructural.core.KSSubsectionContent
+import com.io7m.kstructural.core.KSSubsectionContent.KSSubsectionFootnote
+import com.io7m.kstructural.core.KSSubsectionContent.KSSubsectionFormalItem
+import com.io7m.kstructural.core.KSSubsectionContent.KSSubsectionParagraph
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.frontend.KSInputFormat
+import com.io7m.kstructural.frontend.KSParseAndEvaluate
+import com.io7m.kstructural.plain.KSPlainBorder
+import com.io7m.kstructural.plain.KSPlainLayout
+import com.io7m.kstructural.plain.KSPlainLayoutBox
+import com.io7m.kstructural.plain.KSPlainRasterizer
+import com.io7m.kstructural.tests.generator.KSDocumentGenerator
+import com.io7m.kstructural.tests.generator.KSDocumentGeneratorSettings
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class KSPlainRasterizerTest {
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-plain-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private fun checkIdentical(layout : JOTreeNodeType<KSPlainLayoutBox>) {
+    val expected = JPTextImages.show(KSPlainRasterizer.rasterize(layout))
+    val received = StringWriter()
+    KSPlainRasterizer.write(layout, received)
+    Assert.assertEquals(expected, received.toString())
+  }
+
+  private fun checkContent(content : KSSubsectionContent<KSEvaluation>) {
+    when (content) {
+      is KSSubsectionParagraph  ->
+        checkIdentical(KSPlainLayout.layoutParagraph(80, content.paragraph))
+      is KSSubsectionFormalItem ->
+        checkIdentical(KSPlainLayout.layoutFormal(80, content.formal))
+      is KSSubsectionFootnote   ->
+        Unit
+    }
+  }
+
+  private fun checkSection(section : KSBlockSection<KSEvaluation>) {
+    when (section) {
+      is KSBlockSection.KSBlockSectionWithContent     ->
+        section.content.forEach { c -> checkContent(c) }
+      is KSBlockSection.KSBlockSectionWithSubsections ->
+        section.content.forEach { ss -> ss.content.forEach { c -> checkContent(c) } }
+    }
+  }
+
+  private fun checkDocument(document : KSBlockDocument<KSEvaluation>) {
+    when (document) {
+      is KSBlockDocument.KSBlockDocumentWithParts    ->
+        document.content.forEach { p -> p.content.forEach { s -> checkSection(s) } }
+      is KSBlockDocument.KSBlockDocumentWithSections ->
+        document.content.forEach { s -> checkSection(s) }
+    }
+
+    document.data.context.footnotesAll.forEach { entry ->
+      checkIdentical(KSPlainLayout.layoutFootnote(80, entry.value))
+    }
+  }
+
+  @Test fun testGeneratedIdentical() {
+    val settings = KSDocumentGeneratorSettings(
+      parts = 2,
+      sections = 3,
+      footnote_density = 0.3,
+      table_density = 0.3)
+    val main = KSDocumentGenerator.create(settings)
+      .generate(this.directory!!, KSInputFormat.KS_INPUT_CANONICAL)
+    checkDocument(KSParseAndEvaluate.parseAndEvaluate(this.directory!!, main))
+  }
+
+  @Test fun testWideCharactersIdentical() {
+    val main = this.directory!!.resolve("main.sd")
+    Files.write(main, listOf(
+      "[document [title d]",
+      "  [section [title s] [paragraph café 😀 ${"x😀y ".repeat(40)}]]]"),
+      StandardCharsets.UTF_8)
+    checkDocument(KSParseAndEvaluate.parseAndEvaluate(this.directory!!, main))
+  }
+
+  private fun node(
+    x : Int,
+    width : Int,
+    vararg lines : String) : JOTreeNodeType<KSPlainLayoutBox> =
+    JOTreeNode.create(KSPlainLayoutBox(
+      BoxMutable.create<Any>().from(Boxes.create<Any>(x, 0, width, 2)),
+      KSPlainBorder.None,
+      lines.toMutableList()))
+
+  @Test fun testWideCharactersBeforeSpanIdentical() {
+    val layout = node(0, 20)
+    layout.childAdd(node(0, 8, "a😀b", "😀😀"))
+    layout.childAdd(node(8, 12, "z", "y"))
+    checkIdentical(layout)
+
+    val received = StringWriter()
+    KSPlainRasterizer.write(layout, received)
+    Assert.assertEquals(
+      "a😀\uDE00b    z\n😀\uDE00😀\uDE00    y\n", received.toString())
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.tests.xom
+
+import com.io7m.kstructural.xom.KSJingValidation
+import org.junit.Assert
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.nio.charset.StandardCharsets
+import java.nio.file.Paths
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class KSJingValidationTest {
+
+  private val valid = """<?xml version="1.0" encoding="UTF-8"?>
+<s:paragraph xmlns:s="http://schemas.io7m.com/structural/3.0.0">Hello.</s:paragraph>
+"""
+
+  private val invalid = """<?xml version="1.0" encoding="UTF-8"?>
+<s:paragraph xmlns:s="http://schemas.io7m.com/structural/3.0.0"><s:x/></s:paragraph>
+"""
+
+  private fun validate(text : String) : Boolean {
+    val base = Paths.get("").toAbsolutePath()
+    val stream = ByteArrayInputStream(text.toByteArray(StandardCharsets.UTF_8))
+    return KSJingValidation.validate(base, base.resolve("file.xml"), stream)
+  }
+
+  @Test fun testWarmUp() {
+    KSJingValidation.warmUp()
+    KSJingValidation.warmUp()
+    Assert.assertTrue(validate(valid))
+    Assert.assertFalse(validate(invalid))
+  }
+
+  @Test fun testConcurrent() {
+    val exec = Executors.newFixedThreadPool(8)
+    try {
+      val tasks = (0 .. 63).map { i ->
+        exec.submit(Callable<Boolean> {
+          validate(if (i % 2 == 0) valid else invalid)
+        })
+      }
+      tasks.forEachIndexed { i, f ->
+        Assert.assertEquals(i % 2 == 0, f.get())
+      }
+    } finally {
+      exec.shutdown()
+      exec.awaitTermination(10L, TimeUnit.SECONDS)
+    }
+  }
+}
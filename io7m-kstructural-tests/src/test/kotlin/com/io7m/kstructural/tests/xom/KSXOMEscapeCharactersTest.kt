@@ -36,4 +36,28 @@ class KSXOMEscapeCharactersTest {
     Assert.assertEquals(0x10FFFF + 1, e.childCount)
   }
 
+  @Test fun testCleanUnmodified()
+  {
+    val s = "Clean text \t\r\n \uD83D\uDE00 \uE000\uFFFD"
+    Assert.assertSame(s, KSXOMEscapeCharacters.filterXML10(s))
+  }
+
+  @Test fun testIllegal()
+  {
+    Assert.assertEquals(
+      "a\uFFFDb\uFFFDc\uFFFDd\uFFFD",
+      KSXOMEscapeCharacters.filterXML10("a\u0000b\uD800c\uDC00d\uFFFE"))
+    Assert.assertEquals(
+      "\uD83D\uDE00\uFFFD\uFFFD",
+      KSXOMEscapeCharacters.filterXML10("\uD83D\uDE00\u0001\uD83D"))
+  }
+
+  @Test fun testAppend()
+  {
+    val sb = StringBuilder("x")
+    KSXOMEscapeCharacters.filterXML10("a\u0000b", sb)
+    KSXOMEscapeCharacters.filterXML10("cd", sb)
+    Assert.assertEquals("xa\uFFFDbcd", sb.toString())
+  }
+
 }
\ No newline at end of file
@@ -133,4 +133,38 @@ abstract class KSXOMParserDriverContract {
 
     r as KSResult.KSSuccess<KSElement.KSBlock.KSBlockSubsection<KSParse>, KSParseError>
   }
-}
\ No newline at end of file
+
+  @Test fun testErrorInvalid() {
+    write("""<?xml version="1.0" encoding="UTF-8"?>
+<s:subsection xmlns:s="http://schemas.io7m.com/structural/3.0.0">
+  <s:paragraph>Hello.</s:paragraph>
+</s:subsection>
+""", baseFile())
+
+    val d = newDriver()
+    val c = KSParseContext.empty(baseDirectory())
+    val r = d.parseBlock(c, baseFile())
+
+    r as KSResult.KSFailure
+    showErrors(r)
+    Assert.assertEquals(1, r.errors.size)
+    Assert.assertEquals("Validation failed", r.errors.first.message)
+  }
+
+  @Test fun testErrorInvalidElement() {
+    write("""<?xml version="1.0" encoding="UTF-8"?>
+<s:subsection s:title="S" xmlns:s="http://schemas.io7m.com/structural/3.0.0">
+  <s:paragraph>Hello <s:unknown/>.</s:paragraph>
+</s:subsection>
+""", baseFile())
+
+    val d = newDriver()
+    val c = KSParseContext.empty(baseDirectory())
+    val r = d.parseBlock(c, baseFile())
+
+    r as KSResult.KSFailure
+    showErrors(r)
+    Assert.assertEquals(1, r.errors.size)
+    Assert.assertEquals("Validation failed", r.errors.first.message)
+  }
+}
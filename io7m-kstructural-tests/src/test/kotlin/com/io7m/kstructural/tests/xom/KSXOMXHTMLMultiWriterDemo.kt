@@ -40,6 +40,8 @@ import com.io7m.kstructural.parser.canon.KSCanonBlockParser
 import com.io7m.kstructural.parser.canon.KSCanonInlineParser
 import com.io7m.kstructural.xom.KSXOMSettings
 import com.io7m.kstructural.xom.KSXOMXHTMLMultiWriter
+import com.io7m.kstructural.xom.KSXOMXHTMLPageConsumerType
+import nu.xom.Document
 import nu.xom.Serializer
 import org.slf4j.LoggerFactory
 import java.io.FileInputStream
@@ -155,19 +157,19 @@ object KSXOMXHTMLMultiWriterDemo {
                 URI.create("custom.css")),
               on_body_end = PartialProcedureType { },
               on_body_start = PartialProcedureType { })
-            val docs = KSXOMXHTMLMultiWriter.write(settings, rr.result)
             Files.createDirectories(out)
-
-            docs.entries.forEach { p ->
-              var out_file = out.resolve(p.key)
-              val os = Files.newOutputStream(out_file)
-              os.use {
-                val s = Serializer(os)
-                s.write(p.value)
-                s.flush()
-                os.flush()
+            val pages = object : KSXOMXHTMLPageConsumerType {
+              override fun accept(name : String, page : Document) {
+                val os = Files.newOutputStream(out.resolve(name))
+                os.use {
+                  val s = Serializer(os)
+                  s.write(page)
+                  s.flush()
+                  os.flush()
+                }
               }
             }
+            KSXOMXHTMLMultiWriter.write(settings, rr.result, pages)
           }
           is KSFailure -> {
             for (a in rr.errors) {
@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.tests.xom
+
+import com.io7m.jfunctional.PartialFunctionType
+import com.io7m.jfunctional.PartialProcedureType
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.frontend.KSInputFormat
+import com.io7m.kstructural.frontend.KSParseAndEvaluate
+import com.io7m.kstructural.tests.generator.KSDocumentGenerator
+import com.io7m.kstructural.tests.generator.KSDocumentGeneratorSettings
+import com.io7m.kstructural.xom.KSXOMSettings
+import com.io7m.kstructural.xom.KSXOMStreamingSerializer
+import com.io7m.kstructural.xom.KSXOMXHTMLMultiWriter
+import com.io7m.kstructural.xom.KSXOMXHTMLPageConsumerType
+import com.io7m.kstructural.xom.KSXOMXHTMLSingleWriter
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingMultiWriter
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingSingleWriter
+import com.io7m.kstructural.xom.KSXOMXHTMLStreamingWriterType
+import com.io7m.kstructural.xom.KSXOMXHTMLWriterType
+import nu.xom.Attribute
+import nu.xom.Comment
+import nu.xom.DocType
+import nu.xom.Document
+import nu.xom.Element
+import nu.xom.ProcessingInstruction
+import nu.xom.Serializer
+import org.apache.commons.io.FileUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.io.OutputStreamWriter
+import java.io.StringWriter
+import java.io.Writer
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+
+class KSXOMXHTMLStreamingWriterTest {
+
+  private val XHTML = "http://www.w3.org/1999/xhtml"
+
+  private var directory : Path? = null
+
+  @Before fun setup() : Unit {
+    this.directory = Files.createTempDirectory("kstructural-xhtml-")
+  }
+
+  @After fun tearDown() : Unit {
+    FileUtils.deleteDirectory(this.directory!!.toFile())
+  }
+
+  private fun serialize(d : Document) : ByteArray {
+    val bao = ByteArrayOutputStream()
+    val s = Serializer(bao, "UTF-8")
+    s.write(d)
+    s.flush()
+    return bao.toByteArray()
+  }
+
+  private fun document(parts : Int) : KSBlockDocument<KSEvaluation> {
+    val settings = KSDocumentGeneratorSettings(
+      parts = parts,
+      sections = 3,
+      footnote_density = 0.3,
+      table_density = 0.3)
+    val dir = this.directory!!.resolve("input-" + parts)
+    val main = KSDocumentGenerator.create(settings)
+      .generate(dir, KSInputFormat.KS_INPUT_CANONICAL)
+    return KSParseAndEvaluate.parseAndEvaluate(dir, main)
+  }
+
+  private fun settings(brand : Boolean) : KSXOMSettings {
+    val start = PartialProcedureType<Element, IOException> { e ->
+      if (brand) {
+        val b = Element("div", XHTML)
+        b.addAttribute(Attribute("class", "brand_start"))
+        b.appendChild("Start & <brand>")
+        e.insertChild(b, 0)
+      }
+    }
+    val end = PartialProcedureType<Element, IOException> { e ->
+      if (brand) {
+        val b = Element("div", XHTML)
+        b.addAttribute(Attribute("class", "brand_end"))
+        e.insertChild(b, 0)
+        e.appendChild(Element("hr", XHTML))
+      }
+    }
+    return KSXOMSettings(on_body_start = start, on_body_end = end)
+  }
+
+  private fun checkIdentical(
+    settings : KSXOMSettings,
+    document : KSBlockDocument<KSEvaluation>,
+    dom : KSXOMXHTMLWriterType,
+    streaming : KSXOMXHTMLStreamingWriterType) {
+
+    val expected = mutableMapOf<String, ByteArray>()
+    dom.write(settings, document, object : KSXOMXHTMLPageConsumerType {
+      override fun accept(name : String, page : Document) {
+        Assert.assertNull(expected.put(name, serialize(page)))
+      }
+    })
+
+    val received = mutableMapOf<String, ByteArrayOutputStream>()
+    streaming.write(settings, document, PartialFunctionType { name ->
+      val bao = ByteArrayOutputStream()
+      Assert.assertNull(received.put(name, bao))
+      OutputStreamWriter(bao, StandardCharsets.UTF_8)
+    })
+
+    Assert.assertEquals(expected.keys.toList(), received.keys.toList())
+    expected.forEach { entry ->
+      Assert.assertEquals(
+        entry.key,
+        String(entry.value, StandardCharsets.UTF_8),
+        String(received[entry.key]!!.toByteArray(), StandardCharsets.UTF_8))
+    }
+  }
+
+  @Test fun testSingleSections() {
+    checkIdentical(settings(false), document(0),
+      KSXOMXHTMLSingleWriter, KSXOMXHTMLStreamingSingleWriter)
+  }
+
+  @Test fun testSingleParts() {
+    checkIdentical(settings(false), document(2),
+      KSXOMXHTMLSingleWriter, KSXOMXHTMLStreamingSingleWriter)
+  }
+
+  @Test fun testMultiSections() {
+    checkIdentical(settings(false), document(0),
+      KSXOMXHTMLMultiWriter, KSXOMXHTMLStreamingMultiWriter)
+  }
+
+  @Test fun testMultiParts() {
+    checkIdentical(settings(false), document(2),
+      KSXOMXHTMLMultiWriter, KSXOMXHTMLStreamingMultiWriter)
+  }
+
+  @Test fun testSingleBranded() {
+    checkIdentical(settings(true), document(2),
+      KSXOMXHTMLSingleWriter, KSXOMXHTMLStreamingSingleWriter)
+  }
+
+  @Test fun testMultiBranded() {
+    checkIdentical(settings(true), document(2),
+      KSXOMXHTMLMultiWriter, KSXOMXHTMLStreamingMultiWriter)
+  }
+
+  private fun collect(
+    f : (PartialFunctionType<String, Writer, IOException>) -> Unit) : Map<String, String> {
+    val received = ConcurrentHashMap<String, ByteArrayOutputStream>()
+    f(PartialFunctionType { name ->
+      val bao = ByteArrayOutputStream()
+      Assert.assertNull(received.put(name, bao))
+      OutputStreamWriter(bao, StandardCharsets.UTF_8)
+    })
+    return received.mapValues { e -> String(e.value.toByteArray(), StandardCharsets.UTF_8) }
+  }
+
+  private fun checkParallel(parts : Int) {
+    val settings = settings(true)
+    val document = document(parts)
+    val pool = ForkJoinPool(4)
+    try {
+      val sequential = collect { pages ->
+        KSXOMXHTMLStreamingMultiWriter.write(settings, document, pages)
+      }
+      for (i in 0 .. 3) {
+        val parallel = collect { pages ->
+          KSXOMXHTMLStreamingMultiWriter.write(settings, document, pages, pool)
+        }
+        Assert.assertEquals(sequential, parallel)
+      }
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  @Test fun testMultiParallelSections() {
+    checkParallel(0)
+  }
+
+  @Test fun testMultiParallelParts() {
+    checkParallel(3)
+  }
+
+  @Test fun testMultiParallelErrorOrder() {
+    val document = document(3)
+    val pool = ForkJoinPool(4)
+    try {
+      KSXOMXHTMLStreamingMultiWriter.write(
+        settings(false), document, PartialFunctionType { name ->
+        if (name == "p1s1.xhtml" || name == "p2s1.xhtml") {
+          throw IOException(name)
+        }
+        StringWriter()
+      }, pool)
+      Assert.fail()
+    } catch (e : IOException) {
+      Assert.assertEquals("p1s1.xhtml", e.message)
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  @Test fun testConsumerMatchesMap() {
+    val settings = settings(true)
+    val document = document(2)
+    val pages = KSXOMXHTMLMultiWriter.write(settings, document)
+
+    val names = mutableListOf<String>()
+    KSXOMXHTMLMultiWriter.write(settings, document, object : KSXOMXHTMLPageConsumerType {
+      override fun accept(name : String, page : Document) {
+        names.add(name)
+        Assert.assertArrayEquals(name, serialize(pages[name]!!), serialize(page))
+      }
+    })
+    Assert.assertEquals(pages.keys.toList(), names)
+  }
+
+  @Test fun testSerializerIdentical() {
+    val root = Element("html", XHTML)
+    val doc = Document(root)
+    doc.docType = DocType("html", "-//Example//EN", "example.dtd")
+
+    val e = Element("p:div", "urn:p")
+    e.addAttribute(Attribute("title", "a\"b<>&'\t\n\r x ]]>"))
+    e.addAttribute(Attribute("q:z", "urn:q", "v"))
+    e.addAttribute(Attribute("xml:lang", "http://www.w3.org/XML/1998/namespace", "en"))
+    e.addNamespaceDeclaration("k", "urn:k")
+    e.appendChild("t<>&\"'\r\n\t]]>é😀")
+    e.appendChild(Element("p:empty", "urn:p"))
+    e.appendChild(Comment(" c "))
+    e.appendChild(ProcessingInstruction("pi", "data"))
+    e.appendChild(ProcessingInstruction("pi", ""))
+    root.appendChild(e)
+
+    val x = Element("x")
+    x.appendChild("")
+    root.appendChild(x)
+    root.appendChild(Element("br", XHTML))
+
+    val bao = ByteArrayOutputStream()
+    val w = OutputStreamWriter(bao, StandardCharsets.UTF_8)
+    val s = KSXOMStreamingSerializer.create(w)
+    s.startDocument(doc.docType)
+    s.startElement(Element("html", XHTML))
+    for (i in 0 .. root.childCount - 1) {
+      s.node(root.getChild(i))
+    }
+    s.endElement()
+    s.endDocument()
+
+    Assert.assertArrayEquals(serialize(doc), bao.toByteArray())
+  }
+
+  @Test fun testSerializerSnippetIdentical() {
+    val root = Element("html", XHTML)
+    val doc = Document(root)
+    doc.docType = DocType("html", "-//Example//EN", "example.dtd")
+    val head = Element("head", XHTML)
+    head.appendChild(Element("title", XHTML))
+    root.appendChild(head)
+    val body = Element("body", XHTML)
+    val p = Element("p:div", "urn:p")
+    p.appendChild("x")
+    body.appendChild(p)
+    root.appendChild(body)
+
+    val scratch = KSXOMStreamingSerializer.create(StringWriter())
+    val start = scratch.capture { c ->
+      c.startDocument(doc.docType)
+      c.startElement(Element("html", XHTML))
+      c.startElement(Element("head", XHTML))
+    }
+    scratch.node(Element("title", XHTML))
+    val middle = scratch.capture { c ->
+      c.endElement()
+      c.startElement(Element("body", XHTML))
+    }
+    val end = scratch.capture { c ->
+      c.endElement()
+      c.endElement()
+    }
+
+    for (i in 0 .. 1) {
+      val bao = ByteArrayOutputStream()
+      val w = OutputStreamWriter(bao, StandardCharsets.UTF_8)
+      val s = KSXOMStreamingSerializer.create(w)
+      s.snippet(start)
+      s.node(Element("title", XHTML))
+      s.snippet(middle)
+      s.node(p)
+      s.snippet(end)
+      s.endDocument()
+      Assert.assertArrayEquals(serialize(doc), bao.toByteArray())
+    }
+  }
+}
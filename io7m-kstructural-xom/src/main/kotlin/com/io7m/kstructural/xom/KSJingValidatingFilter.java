@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.xom;
+
+import com.io7m.jnull.NullCheck;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A SAX filter that passes all content to both the content handler of the
+ * filter and a RELAX-NG validator. Placing the filter between an XML reader
+ * and a consumer such as a XOM {@code Builder} allows a document to be
+ * parsed and validated in a single pass.
+ */
+
+public final class KSJingValidatingFilter extends XMLFilterImpl
+{
+  private final AtomicBoolean error_occurred;
+  private final ContentHandler validator;
+
+  private KSJingValidatingFilter(
+    final XMLReader in_parent,
+    final AtomicBoolean in_error_occurred,
+    final ContentHandler in_validator)
+  {
+    super(NullCheck.notNull(in_parent));
+    this.error_occurred = NullCheck.notNull(in_error_occurred);
+    this.validator = NullCheck.notNull(in_validator);
+  }
+
+  /**
+   * Create a new validating filter. The parent reader is expected to be
+   * namespace-aware and, if required, XInclude-aware.
+   *
+   * @param parent The parent reader
+   *
+   * @return A new filter
+   *
+   * @throws IOException  On I/O errors
+   * @throws SAXException On XML errors
+   */
+
+  public static KSJingValidatingFilter newFilter(
+    final XMLReader parent)
+    throws IOException, SAXException
+  {
+    final AtomicBoolean error = new AtomicBoolean(false);
+    return new KSJingValidatingFilter(
+      parent,
+      error,
+      KSJingValidation.newValidator(error).getContentHandler());
+  }
+
+  /**
+   * @return {@code true} iff no validation errors have occurred
+   */
+
+  public boolean isValid()
+  {
+    return !this.error_occurred.get();
+  }
+
+  /**
+   * Namespace declarations are reported to the validator as prefix
+   * mappings, and so are removed from the element attributes if the
+   * parent reader reports them as attributes.
+   */
+
+  private static Attributes withoutNamespaceDeclarations(
+    final Attributes attributes)
+  {
+    final int count = attributes.getLength();
+    for (int index = 0; index < count; ++index) {
+      if (KSJingValidatingFilter.isNamespaceDeclaration(
+        attributes.getQName(index))) {
+        final AttributesImpl filtered = new AttributesImpl(attributes);
+        for (int k = count - 1; k >= index; --k) {
+          if (KSJingValidatingFilter.isNamespaceDeclaration(
+            filtered.getQName(k))) {
+            filtered.removeAttribute(k);
+          }
+        }
+        return filtered;
+      }
+    }
+    return attributes;
+  }
+
+  private static boolean isNamespaceDeclaration(
+    final String qname)
+  {
+    return "xmlns".equals(qname) || qname.startsWith("xmlns:");
+  }
+
+  @Override
+  public void setDocumentLocator(
+    final Locator locator)
+  {
+    this.validator.setDocumentLocator(locator);
+    super.setDocumentLocator(locator);
+  }
+
+  @Override
+  public void startDocument()
+    throws SAXException
+  {
+    this.validator.startDocument();
+    super.startDocument();
+  }
+
+  @Override
+  public void endDocument()
+    throws SAXException
+  {
+    this.validator.endDocument();
+    super.endDocument();
+  }
+
+  @Override
+  public void startPrefixMapping(
+    final String prefix,
+    final String uri)
+    throws SAXException
+  {
+    this.validator.startPrefixMapping(prefix, uri);
+    super.startPrefixMapping(prefix, uri);
+  }
+
+  @Override
+  public void endPrefixMapping(
+    final String prefix)
+    throws SAXException
+  {
+    this.validator.endPrefixMapping(prefix);
+    super.endPrefixMapping(prefix);
+  }
+
+  @Override
+  public void startElement(
+    final String uri,
+    final String local_name,
+    final String qname,
+    final Attributes attributes)
+    throws SAXException
+  {
+    this.validator.startElement(
+      uri,
+      local_name,
+      qname,
+      KSJingValidatingFilter.withoutNamespaceDeclarations(attributes));
+    super.startElement(uri, local_name, qname, attributes);
+  }
+
+  @Override
+  public void endElement(
+    final String uri,
+    final String local_name,
+    final String qname)
+    throws SAXException
+  {
+    this.validator.endElement(uri, local_name, qname);
+    super.endElement(uri, local_name, qname);
+  }
+
+  @Override
+  public void characters(
+    final char[] ch,
+    final int start,
+    final int length)
+    throws SAXException
+  {
+    this.validator.characters(ch, start, length);
+    super.characters(ch, start, length);
+  }
+
+  @Override
+  public void ignorableWhitespace(
+    final char[] ch,
+    final int start,
+    final int length)
+    throws SAXException
+  {
+    this.validator.ignorableWhitespace(ch, start, length);
+    super.ignorableWhitespace(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(
+    final String target,
+    final String data)
+    throws SAXException
+  {
+    this.validator.processingInstruction(target, data);
+    super.processingInstruction(target, data);
+  }
+
+  @Override
+  public void skippedEntity(
+    final String name)
+    throws SAXException
+  {
+    this.validator.skippedEntity(name);
+    super.skippedEntity(name);
+  }
+}
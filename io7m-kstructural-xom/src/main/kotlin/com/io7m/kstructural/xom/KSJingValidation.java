@@ -49,9 +49,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public final class KSJingValidation
 {
   private static final Logger LOG;
+  private static final Object SCHEMA_LOCK;
+  private static volatile Schema SCHEMA;
 
   static {
     LOG = LoggerFactory.getLogger(KSJingValidation.class);
+    SCHEMA_LOCK = new Object();
   }
 
   private KSJingValidation()
@@ -79,12 +82,126 @@ public final class KSJingValidation
     final InputStream is)
     throws IOException, SAXException
   {
-    /**
-     * Create a new error handler that records the fact that errors occurred.
-     */
-
     final AtomicBoolean error_occurred = new AtomicBoolean(false);
-    final ErrorHandler error_handler = new ErrorHandler()
+    final Validator validator =
+      KSJingValidation.newValidator(error_occurred);
+
+    try {
+      /**
+       * Create a new XInclude-aware parser that delegates content to
+       * the validator created above.
+       */
+
+      final SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setValidating(false);
+      factory.setNamespaceAware(true);
+      factory.setXIncludeAware(true);
+      factory.setFeature("http://apache.org/xml/features/xinclude", true);
+
+      final InputSource file_source = new InputSource(is);
+      file_source.setSystemId(p.toString());
+
+      final SAXParser file_parser = factory.newSAXParser();
+      final XMLReader file_reader = file_parser.getXMLReader();
+      file_reader.setContentHandler(validator.getContentHandler());
+      file_reader.setEntityResolver(
+        new KSRestrictedEntityResolver(base_directory));
+      file_reader.parse(file_source);
+
+      return !error_occurred.get();
+    } catch (final ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Compile the schema, if it has not already been compiled. The schema is
+   * compiled at most once per JVM, and is otherwise compiled on first use.
+   * Applications that expect to validate documents may call this method at
+   * startup to avoid paying the cost later.
+   *
+   * @throws IOException  On I/O errors
+   * @throws SAXException On XML errors
+   */
+
+  public static void warmUp()
+    throws IOException, SAXException
+  {
+    KSJingValidation.getSchema();
+  }
+
+  private static Schema getSchema()
+    throws IOException, SAXException
+  {
+    Schema s = KSJingValidation.SCHEMA;
+    if (s == null) {
+      synchronized (KSJingValidation.SCHEMA_LOCK) {
+        s = KSJingValidation.SCHEMA;
+        if (s == null) {
+          s = KSJingValidation.compileSchema();
+          KSJingValidation.SCHEMA = s;
+        }
+      }
+    }
+    return s;
+  }
+
+  private static Schema compileSchema()
+    throws IOException, SAXException
+  {
+    KSJingValidation.LOG.debug("compiling schema");
+
+    final PropertyMapBuilder prop_builder = new PropertyMapBuilder();
+    prop_builder.put(RngProperty.CHECK_ID_IDREF, null);
+    prop_builder.put(
+      ValidateProperty.ERROR_HANDLER,
+      KSJingValidation.newErrorHandler(new AtomicBoolean(false)));
+    final PropertyMap props = prop_builder.toPropertyMap();
+
+    try (final InputStream stream = KSSchemaResources.getSchemaAsStream()) {
+      final InputSource schema_source = new InputSource(stream);
+      final AutoSchemaReader schema_reader = new AutoSchemaReader();
+      return schema_reader.createSchema(new SAXSource(schema_source), props);
+    } catch (final IncorrectSchemaException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Create a new RELAX-NG validator that also checks ID references. Errors
+   * are logged, and cause {@code error_occurred} to be set to {@code true}.
+   * Validators are cheap to create, but are not thread-safe, and so a new
+   * validator must be created for each document.
+   *
+   * @param error_occurred A flag set when errors occur
+   *
+   * @return A new validator
+   *
+   * @throws IOException  On I/O errors
+   * @throws SAXException On XML errors
+   */
+
+  static Validator newValidator(
+    final AtomicBoolean error_occurred)
+    throws IOException, SAXException
+  {
+    final PropertyMapBuilder prop_builder = new PropertyMapBuilder();
+    prop_builder.put(RngProperty.CHECK_ID_IDREF, null);
+    prop_builder.put(
+      ValidateProperty.ERROR_HANDLER,
+      KSJingValidation.newErrorHandler(error_occurred));
+    return KSJingValidation.getSchema().createValidator(
+      prop_builder.toPropertyMap());
+  }
+
+  /**
+   * Create a new error handler that records the fact that errors occurred.
+   */
+
+  private static ErrorHandler newErrorHandler(
+    final AtomicBoolean error_occurred)
+  {
+    return new ErrorHandler()
     {
       @Override
       public void warning(final SAXParseException e)
@@ -125,51 +242,5 @@ public final class KSJingValidation
         error_occurred.set(true);
       }
     };
-
-    try {
-
-      /**
-       * Create a new RELAX-NG validator that also checks ID references.
-       */
-
-      final PropertyMapBuilder prop_builder = new PropertyMapBuilder();
-      prop_builder.put(RngProperty.CHECK_ID_IDREF, null);
-      prop_builder.put(ValidateProperty.ERROR_HANDLER, error_handler);
-      final PropertyMap props = prop_builder.toPropertyMap();
-
-      final InputSource schema_source =
-        new InputSource(KSSchemaResources.getSchemaAsStream());
-      final AutoSchemaReader schema_reader =
-        new AutoSchemaReader();
-      final Schema schema = schema_reader.createSchema(
-        new SAXSource(schema_source), props);
-      final Validator validator =
-        schema.createValidator(props);
-
-      /**
-       * Create a new XInclude-aware parser that delegates content to
-       * the validator created above.
-       */
-
-      final SAXParserFactory factory = SAXParserFactory.newInstance();
-      factory.setValidating(false);
-      factory.setNamespaceAware(true);
-      factory.setXIncludeAware(true);
-      factory.setFeature("http://apache.org/xml/features/xinclude", true);
-
-      final InputSource file_source = new InputSource(is);
-      file_source.setSystemId(p.toString());
-
-      final SAXParser file_parser = factory.newSAXParser();
-      final XMLReader file_reader = file_parser.getXMLReader();
-      file_reader.setContentHandler(validator.getContentHandler());
-      file_reader.setEntityResolver(
-        new KSRestrictedEntityResolver(base_directory));
-      file_reader.parse(file_source);
-
-      return !error_occurred.get();
-    } catch (final ParserConfigurationException | IncorrectSchemaException e) {
-      throw new IOException(e);
-    }
   }
 }
@@ -57,7 +57,7 @@ import java.util.Optional
 internal object KSXOM {
 
   private val XHTML_URI = URI.create("http://www.w3.org/1999/xhtml")
-  private val XHTML_URI_TEXT = XHTML_URI.toString()
+  val XHTML_URI_TEXT = XHTML_URI.toString()
   private const val ATTRIBUTE_PREFIX = "st300"
 
   sealed class NavigationBarPosition {
@@ -101,6 +101,18 @@ internal object KSXOM {
     number : Optional<KSNumber>,
     title : List<KSInlineText<KSEvaluation>>) : Element {
 
+    val e = Element("head", XHTML_URI_TEXT)
+    e.appendChild(title(pageTitle(document, number, title)))
+    e.appendChild(meta())
+    settings.styles.forEach { s -> e.appendChild(css(s)) }
+    return e
+  }
+
+  fun pageTitle(
+    document : KSBlockDocument<out Any>,
+    number : Optional<KSNumber>,
+    title : List<KSInlineText<KSEvaluation>>) : String {
+
     val sb = StringBuilder()
     sb.append(KSTextUtilities.concatenate(document.title))
     if (number.isPresent) {
@@ -109,22 +121,17 @@ internal object KSXOM {
       sb.append(". ")
       sb.append(KSTextUtilities.concatenate(title))
     }
-
-    val e = Element("head", XHTML_URI_TEXT)
-    e.appendChild(title(sb.toString()))
-    e.appendChild(meta())
-    settings.styles.forEach { s -> e.appendChild(css(s)) }
-    return e
+    return sb.toString()
   }
 
-  private fun meta() : Element {
+  fun meta() : Element {
     val e = Element("meta", XHTML_URI_TEXT);
     e.addAttribute(attr("http-equiv", "Content-Type"))
     e.addAttribute(attr("content", "application/xhtml+xml; charset=UTF-8"))
     return e
   }
 
-  private fun css(u : URI) : Element {
+  fun css(u : URI) : Element {
     val e = Element("link", XHTML_URI_TEXT);
     e.addAttribute(attr("rel", "stylesheet"));
     e.addAttribute(attr("type", "text/css"));
@@ -716,352 +723,6 @@ internal object KSXOM {
     return e
   }
 
-  private fun linkToPartTitleText(
-    s : KSBlockPart<KSEvaluation>) : String {
-    val title = KSTextUtilities.concatenate(s.title)
-    val text = StringBuilder()
-    text.append("Link to part ")
-    text.append(s.data.number.get().toString())
-    text.append(": ")
-    text.append(title)
-    return text.toString()
-  }
-
-  private fun linkToSectionTitleText(
-    s : KSBlockSection<KSEvaluation>) : String {
-    val title = KSTextUtilities.concatenate(s.title)
-    val text = StringBuilder()
-    text.append("Link to section ")
-    text.append(s.data.number.get().toString())
-    text.append(": ")
-    text.append(title)
-    return text.toString()
-  }
-
-  private fun linkToSubsectionTitleText(
-    s : KSBlockSubsection<KSEvaluation>) : String {
-    val title = KSTextUtilities.concatenate(s.title)
-    val text = StringBuilder()
-    text.append("Link to subsection ")
-    text.append(s.data.number.get().toString())
-    text.append(": ")
-    text.append(title)
-    return text.toString()
-  }
-
-  fun contentsForSection(
-    prov : KSXOMLinkProviderType,
-    section : KSBlockSection<KSEvaluation>) : Element {
-
-    val subsections_list_classes = listOf(
-      prefixedName("contents"),
-      prefixedName("section_contents_outer"),
-      prefixedName("section_contents"))
-
-    val subsections_list_classes_text =
-      KSTextUtilities.concatenate(subsections_list_classes)
-
-    val subsections_list = Element("ul", XHTML_URI_TEXT)
-    subsections_list.addAttribute(attr("class", subsections_list_classes_text))
-
-    return when (section) {
-      is KSBlockSection.KSBlockSectionWithContent     -> {
-
-        /**
-         * Do not generate an empty list.
-         */
-
-        return Element("span", XHTML_URI_TEXT)
-      }
-
-      is KSBlockSection.KSBlockSectionWithSubsections -> {
-
-        /**
-         * Do not generate an empty list.
-         */
-
-        if (section.content.isEmpty()) {
-          return Element("span", XHTML_URI_TEXT)
-        }
-
-        val subsection_item_classes = listOf(
-          prefixedName("contents_item"),
-          prefixedName("contents_item1"),
-          prefixedName("contents_item_subsection"))
-
-        val subsection_item_classes_text =
-          KSTextUtilities.concatenate(subsection_item_classes)
-
-        section.content.forEach { subsection ->
-          val subsection_item = Element("li", XHTML_URI_TEXT)
-
-          subsection_item.addAttribute(
-            attr("class", subsection_item_classes_text))
-          val subsection_link = Element("a", XHTML_URI_TEXT)
-          val subsection_number = subsection.data.number.get()
-          subsection_link.addAttribute(
-            attr("href", prov.numberLink(subsection_number)))
-          subsection_link.addAttribute(
-            attr("title", linkToSubsectionTitleText(subsection)))
-
-          appendEscapedText(
-            subsection_link, numberedTitle(subsection_number, subsection.title))
-          subsection_item.appendChild(subsection_link)
-          subsections_list.appendChild(subsection_item)
-        }
-
-        subsections_list
-      }
-    }
-  }
-
-  fun contentsForPart(
-    prov : KSXOMLinkProviderType,
-    part : KSBlockPart<KSEvaluation>) : Element {
-
-    /**
-     * Do not generate an empty list.
-     */
-
-    if (part.content.isEmpty()) {
-      return Element("span", XHTML_URI_TEXT)
-    }
-
-    val sections_list_classes = listOf(
-      prefixedName("contents"),
-      prefixedName("part_contents_outer"),
-      prefixedName("part_contents"))
-
-    val sections_list = Element("ul", XHTML_URI_TEXT)
-    sections_list.addAttribute(
-      attr("class", KSTextUtilities.concatenate(sections_list_classes)))
-
-    val sections_item_classes = listOf(
-      prefixedName("contents_item"),
-      prefixedName("contents_item1"),
-      prefixedName("contents_item_section"))
-
-    val sections_item_classes_text =
-      KSTextUtilities.concatenate(sections_item_classes)
-
-    part.content.forEach { section ->
-      val section_item = Element("li", XHTML_URI_TEXT)
-      section_item.addAttribute(attr("class", sections_item_classes_text))
-
-      val section_link = Element("a", XHTML_URI_TEXT)
-      val section_number = section.data.number.get()
-      section_link.addAttribute(
-        attr("href", prov.numberLink(section_number)))
-      section_link.addAttribute(
-        attr("title", linkToSectionTitleText(section)))
-
-      appendEscapedText(
-        section_link, numberedTitle(section_number, section.title))
-      section_item.appendChild(section_link)
-      sections_list.appendChild(section_item)
-
-      when (section) {
-
-        is KSBlockSection.KSBlockSectionWithContent     -> {
-
-        }
-
-        is KSBlockSection.KSBlockSectionWithSubsections -> {
-
-          if (section.content.isNotEmpty()) {
-            val subsection_list_classes = listOf(
-              prefixedName("contents"),
-              prefixedName("section_contents"))
-
-            val subsection_list_classes_text =
-              KSTextUtilities.concatenate(subsection_list_classes)
-
-            val subsection_item_classes = listOf(
-              prefixedName("contents_item"),
-              prefixedName("contents_item2"),
-              prefixedName("contents_item_subsection"))
-
-            val subsection_item_classes_text =
-              KSTextUtilities.concatenate(subsection_item_classes)
-
-            val subsections_list = Element("ul", XHTML_URI_TEXT)
-
-            subsections_list.addAttribute(
-              attr("class", subsection_list_classes_text))
-
-            section.content.forEach { subsection ->
-              val subsection_item = Element("li", XHTML_URI_TEXT)
-
-              subsection_item.addAttribute(
-                attr("class", subsection_item_classes_text))
-              val subsection_link = Element("a", XHTML_URI_TEXT)
-              val subsection_number = subsection.data.number.get()
-              subsection_link.addAttribute(
-                attr("href", prov.numberLink(subsection_number)))
-              subsection_link.addAttribute(
-                attr("title", linkToSubsectionTitleText(subsection)))
-              appendEscapedText(
-                subsection_link,
-                numberedTitle(subsection_number, subsection.title))
-
-              subsection_item.appendChild(subsection_link)
-              subsections_list.appendChild(subsection_item)
-            }
-
-            section_item.appendChild(subsections_list)
-          }
-        }
-      }
-    }
-
-    return sections_list
-  }
-
-  private fun <T> numberedTitle(
-    n : KSNumber,
-    t : List<KSInlineText<T>>) : String {
-
-    val sb = StringBuilder()
-    val title = KSTextUtilities.concatenate(t)
-    sb.append(n.toString())
-    sb.append(". ")
-    sb.append(title)
-    return sb.toString()
-  }
-
-  fun contentsForDocument(
-    prov : KSXOMLinkProviderType,
-    document : KSBlockDocument<KSEvaluation>) : Element {
-
-    val document_list_classes = listOf(
-      prefixedName("contents"),
-      prefixedName("document_contents"))
-
-    val document_list_classes_text =
-      KSTextUtilities.concatenate(document_list_classes)
-
-    val document_list = Element("ul", XHTML_URI_TEXT)
-    document_list.addAttribute(
-      attr("class", document_list_classes_text))
-
-    return when (document) {
-      is KSBlock.KSBlockDocument.KSBlockDocumentWithParts    -> {
-
-        /**
-         * Do not generate an empty list.
-         */
-
-        if (document.content.isEmpty()) {
-          return Element("span", XHTML_URI_TEXT)
-        }
-
-        val part_item_classes = listOf(
-          prefixedName("contents_item"),
-          prefixedName("contents_item1"),
-          prefixedName("contents_item_part"))
-
-        val part_item_classes_text =
-          KSTextUtilities.concatenate(part_item_classes)
-
-        val section_list_classes = listOf(
-          prefixedName("contents"),
-          prefixedName("part_contents"))
-
-        val section_list_classes_text =
-          KSTextUtilities.concatenate(section_list_classes)
-
-        val section_item_classes = listOf(
-          prefixedName("contents_item"),
-          prefixedName("contents_item2"),
-          prefixedName("contents_item_section"))
-
-        val section_item_classes_text =
-          KSTextUtilities.concatenate(section_item_classes)
-
-        document.content.forEach { part ->
-
-          val part_item = Element("li", XHTML_URI_TEXT)
-          part_item.addAttribute(attr("class", part_item_classes_text))
-          val part_item_link = Element("a", XHTML_URI_TEXT)
-          val part_number = part.data.number.get()
-          part_item_link.addAttribute(
-            attr("href", prov.numberLink(part_number)))
-          part_item_link.addAttribute(
-            attr("title", linkToPartTitleText(part)))
-
-          appendEscapedText(
-            part_item_link, numberedTitle(part_number, part.title))
-          part_item.appendChild(part_item_link)
-          document_list.appendChild(part_item)
-
-          if (part.content.isNotEmpty()) {
-            val sections_list = Element("ul", XHTML_URI_TEXT)
-
-            sections_list.addAttribute(
-              attr("class", section_list_classes_text))
-
-            part.content.forEach { section ->
-              val section_item = Element("li", XHTML_URI_TEXT)
-              section_item.addAttribute(
-                attr("class", section_item_classes_text))
-              val section_item_link = Element("a", XHTML_URI_TEXT)
-              val section_number = section.data.number.get()
-              section_item_link.addAttribute(
-                attr("href", prov.numberLink(section_number)))
-              section_item_link.addAttribute(
-                attr("title", linkToSectionTitleText(section)))
-
-              appendEscapedText(
-                section_item_link, numberedTitle(section_number, section.title))
-              section_item.appendChild(section_item_link)
-              sections_list.appendChild(section_item)
-            }
-
-            part_item.appendChild(sections_list)
-          }
-        }
-
-        document_list
-      }
-
-      is KSBlock.KSBlockDocument.KSBlockDocumentWithSections -> {
-
-        /**
-         * Do not generate an empty list.
-         */
-
-        if (document.content.isEmpty()) {
-          return Element("span", XHTML_URI_TEXT)
-        }
-
-        val section_item_classes = listOf(
-          prefixedName("contents_item"),
-          prefixedName("contents_item1"),
-          prefixedName("contents_item_section"))
-
-        val section_item_classes_text =
-          KSTextUtilities.concatenate(section_item_classes)
-
-        document.content.forEach { s ->
-          val section_item = Element("li", XHTML_URI_TEXT)
-
-          section_item.addAttribute(attr("class", section_item_classes_text))
-          val section_link = Element("a", XHTML_URI_TEXT)
-          val section_number = s.data.number.get()
-          section_link.addAttribute(
-            attr("href", prov.numberLink(section_number)))
-
-          appendEscapedText(
-            section_link, numberedTitle(section_number, s.title))
-          section_item.appendChild(section_link)
-          document_list.appendChild(section_item)
-        }
-
-        document_list
-      }
-    }
-  }
-
   fun formalItemContainer(
     prov : KSXOMLinkProviderType,
     f : KSBlockFormalItem<KSEvaluation>) : Pair<Element, Element> {
@@ -1153,7 +814,7 @@ internal object KSXOM {
     return e
   }
 
-  private fun attr(
+  fun attr(
     name : String,
     text : String)
     : Attribute
@@ -1161,7 +822,7 @@ internal object KSXOM {
     return Attribute(name, null, KSXOMEscapeCharacters.filterXML10(text))
   }
 
-  private fun appendEscapedText(e : Element, text : String) {
+  fun appendEscapedText(e : Element, text : String) {
     e.appendChild(KSXOMEscapeCharacters.filterXML10(text))
   }
 }
@@ -30,6 +30,7 @@ import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
 import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
 import com.io7m.kstructural.core.KSID
+import com.io7m.kstructural.core.KSInternTable
 import com.io7m.kstructural.core.KSParse
 import com.io7m.kstructural.core.KSParseContextType
 import com.io7m.kstructural.core.KSParseError
@@ -95,7 +96,8 @@ class KSXOMBlockParser private constructor(
     return if (ta != null) {
       if (KSType.isValidType(ta.value)) {
         KSResult.succeed(Optional.of(
-          KSType.create(no_lex, ta.value, KSParse(context))))
+          KSType.create(no_lex,
+            KSInternTable.intern(context.internTable, ta.value), KSParse(context))))
       } else {
         KSResult.fail(KSParseError(no_lex, "Not a valid identifier"))
       }
@@ -113,7 +115,8 @@ class KSXOMBlockParser private constructor(
       val v = ta.value
       if (KSID.isValidID(v)) {
         KSResult.succeed<Optional<KSID<KSParse>>, KSParseError>(
-          Optional.of(KSID.create(no_lex, ta.value, KSParse(context))))
+          Optional.of(KSID.create(no_lex,
+            KSInternTable.intern(context.internTable, v), KSParse(context))))
       } else {
         KSResult.fail(KSParseError(no_lex, "Not a valid identifier"))
       }
@@ -130,7 +133,8 @@ class KSXOMBlockParser private constructor(
     val v = ta.value
     return if (KSID.isValidID(v)) {
       KSResult.succeed<KSID<KSParse>, KSParseError>(
-        KSID.create(no_lex, ta.value, KSParse(context)))
+        KSID.create(no_lex,
+          KSInternTable.intern(context.internTable, v), KSParse(context)))
     } else {
       KSResult.fail(KSParseError(no_lex, "Not a valid identifier"))
     }
@@ -269,7 +273,9 @@ class KSXOMBlockParser private constructor(
     context : KSParseContextType,
     element : Element) : List<KSInlineText<KSParse>> {
     val tt = element.getAttribute("title", KSSchemaNamespaces.NAMESPACE_URI_TEXT)
-    return listOf(KSInlineText(no_lex, SQUARE, KSParse(context), false, tt.value))
+    return listOf(KSInlineText(
+      no_lex, SQUARE, KSParse(context), false,
+        KSInternTable.intern(context.internTable, tt.value)))
   }
 
   private fun toSubsectionContent(
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.xom
+
+import com.io7m.kstructural.core.KSElement.KSBlock
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
+import com.io7m.kstructural.core.KSTextUtilities
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import nu.xom.Element
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * The tables of contents of a document.
+ *
+ * The link, link title, and numbered title of each part, section, and
+ * subsection are computed at most once per build, and are shared between
+ * the document and part tables of contents that list them. Instances may
+ * be used from multiple threads.
+ */
+
+internal class KSXOMContents private constructor(
+  private val prov : KSXOMLinkProviderType) {
+
+  private class Entry(
+    val href : String,
+    val title : String,
+    val text : String)
+
+  private val entries : ConcurrentHashMap<Long, Entry> = ConcurrentHashMap()
+
+  companion object {
+
+    private val CLASSES_DOCUMENT_CONTENTS =
+      classes("contents", "document_contents")
+    private val CLASSES_PART_CONTENTS =
+      classes("contents", "part_contents")
+    private val CLASSES_PART_CONTENTS_OUTER =
+      classes("contents", "part_contents_outer", "part_contents")
+    private val CLASSES_SECTION_CONTENTS =
+      classes("contents", "section_contents")
+    private val CLASSES_SECTION_CONTENTS_OUTER =
+      classes("contents", "section_contents_outer", "section_contents")
+    private val CLASSES_ITEM1_PART =
+      classes("contents_item", "contents_item1", "contents_item_part")
+    private val CLASSES_ITEM1_SECTION =
+      classes("contents_item", "contents_item1", "contents_item_section")
+    private val CLASSES_ITEM1_SUBSECTION =
+      classes("contents_item", "contents_item1", "contents_item_subsection")
+    private val CLASSES_ITEM2_SECTION =
+      classes("contents_item", "contents_item2", "contents_item_section")
+    private val CLASSES_ITEM2_SUBSECTION =
+      classes("contents_item", "contents_item2", "contents_item_subsection")
+
+    private fun classes(vararg names : String) : String =
+      KSTextUtilities.concatenate(names.map { n -> KSXOM.prefixedName(n) })
+
+    fun create(prov : KSXOMLinkProviderType) : KSXOMContents =
+      KSXOMContents(prov)
+  }
+
+  private fun entry(
+    b : KSBlock<KSEvaluation>,
+    b_title : List<KSInlineText<KSEvaluation>>,
+    kind : String) : Entry =
+    entries.computeIfAbsent(b.data.serial.actual) {
+      val number = b.data.number.get()
+      val title = KSTextUtilities.concatenate(b_title)
+
+      val link_title = StringBuilder()
+      link_title.append("Link to ")
+      link_title.append(kind)
+      link_title.append(" ")
+      link_title.append(number.toString())
+      link_title.append(": ")
+      link_title.append(title)
+
+      val text = StringBuilder()
+      text.append(number.toString())
+      text.append(". ")
+      text.append(title)
+
+      Entry(prov.numberLink(number), link_title.toString(), text.toString())
+    }
+
+  private fun list(classes : String) : Element {
+    val e = Element("ul", KSXOM.XHTML_URI_TEXT)
+    e.addAttribute(KSXOM.attr("class", classes))
+    return e
+  }
+
+  private fun item(
+    classes : String,
+    entry : Entry,
+    with_title : Boolean) : Element {
+    val e = Element("li", KSXOM.XHTML_URI_TEXT)
+    e.addAttribute(KSXOM.attr("class", classes))
+    val a = Element("a", KSXOM.XHTML_URI_TEXT)
+    a.addAttribute(KSXOM.attr("href", entry.href))
+    if (with_title) {
+      a.addAttribute(KSXOM.attr("title", entry.title))
+    }
+    KSXOM.appendEscapedText(a, entry.text)
+    e.appendChild(a)
+    return e
+  }
+
+  private fun empty() : Element =
+    Element("span", KSXOM.XHTML_URI_TEXT)
+
+  private fun subsectionsList(
+    list_classes : String,
+    item_classes : String,
+    subsections : List<KSBlockSubsection<KSEvaluation>>) : Element {
+    val e = list(list_classes)
+    subsections.forEach { ss ->
+      e.appendChild(item(item_classes, entry(ss, ss.title, "subsection"), true))
+    }
+    return e
+  }
+
+  /**
+   * @return The table of contents for section `section`
+   */
+
+  fun forSection(section : KSBlockSection<KSEvaluation>) : Element =
+    when (section) {
+      is KSBlockSection.KSBlockSectionWithContent     ->
+        empty()
+      is KSBlockSection.KSBlockSectionWithSubsections ->
+        if (section.content.isEmpty()) {
+          empty()
+        } else {
+          subsectionsList(
+            CLASSES_SECTION_CONTENTS_OUTER,
+            CLASSES_ITEM1_SUBSECTION,
+            section.content)
+        }
+    }
+
+  /**
+   * @return The table of contents for part `part`
+   */
+
+  fun forPart(part : KSBlockPart<KSEvaluation>) : Element =
+    if (part.content.isEmpty()) {
+      empty()
+    } else {
+      val e = list(CLASSES_PART_CONTENTS_OUTER)
+      part.content.forEach { section ->
+        val section_entry = entry(section, section.title, "section")
+        val section_item = item(CLASSES_ITEM1_SECTION, section_entry, true)
+        when (section) {
+          is KSBlockSection.KSBlockSectionWithContent     -> Unit
+          is KSBlockSection.KSBlockSectionWithSubsections ->
+            if (section.content.isNotEmpty()) {
+              section_item.appendChild(subsectionsList(
+                CLASSES_SECTION_CONTENTS,
+                CLASSES_ITEM2_SUBSECTION,
+                section.content))
+            }
+        }
+        e.appendChild(section_item)
+      }
+      e
+    }
+
+  /**
+   * @return The table of contents for document `document`
+   */
+
+  fun forDocument(document : KSBlockDocument<KSEvaluation>) : Element =
+    when (document) {
+      is KSBlockDocument.KSBlockDocumentWithParts    ->
+        if (document.content.isEmpty()) {
+          empty()
+        } else {
+          val e = list(CLASSES_DOCUMENT_CONTENTS)
+          document.content.forEach { part ->
+            val part_entry = entry(part, part.title, "part")
+            val part_item = item(CLASSES_ITEM1_PART, part_entry, true)
+            if (part.content.isNotEmpty()) {
+              val sections_list = list(CLASSES_PART_CONTENTS)
+              part.content.forEach { section ->
+                val section_entry = entry(section, section.title, "section")
+                sections_list.appendChild(
+                  item(CLASSES_ITEM2_SECTION, section_entry, true))
+              }
+              part_item.appendChild(sections_list)
+            }
+            e.appendChild(part_item)
+          }
+          e
+        }
+
+      is KSBlockDocument.KSBlockDocumentWithSections ->
+        if (document.content.isEmpty()) {
+          empty()
+        } else {
+          val e = list(CLASSES_DOCUMENT_CONTENTS)
+          document.content.forEach { section ->
+            val section_entry = entry(section, section.title, "section")
+            e.appendChild(item(CLASSES_ITEM1_SECTION, section_entry, false))
+          }
+          e
+        }
+    }
+}
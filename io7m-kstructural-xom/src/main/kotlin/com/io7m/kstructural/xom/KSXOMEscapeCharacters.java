@@ -60,12 +60,91 @@ public final class KSXOMEscapeCharacters
    * @param s A piece of text
    *
    * @return {@code s} with illegal characters converted to {@code U+FFFD}
+   * ({@code s} itself, if it contains no illegal characters)
    */
 
   public static String filterXML10(final String s)
   {
+    final int first = KSXOMEscapeCharacters.firstDisallowedXML10(s);
+    if (first < 0) {
+      return s;
+    }
+
     final StringBuilder b = new StringBuilder(s.length());
-    for (int i = 0; i < s.length(); i = s.offsetByCodePoints(i, 1)) {
+    b.append(s, 0, first);
+    KSXOMEscapeCharacters.filterXML10From(s, first, b);
+    return b.toString();
+  }
+
+  /**
+   * Append {@code s} to {@code out}, with illegal characters converted to
+   * {@code U+FFFD}.
+   *
+   * @param s   A piece of text
+   * @param out The output buffer
+   */
+
+  public static void filterXML10(
+    final String s,
+    final StringBuilder out)
+  {
+    final int first = KSXOMEscapeCharacters.firstDisallowedXML10(s);
+    if (first < 0) {
+      out.append(s);
+    } else {
+      out.append(s, 0, first);
+      KSXOMEscapeCharacters.filterXML10From(s, first, out);
+    }
+  }
+
+  /**
+   * Find the first character in {@code s} that is not allowed in XML 1.0
+   * documents. The check is performed a {@code char} at a time; almost all
+   * text consists solely of characters in the basic multilingual plane,
+   * and only surrogate characters require the surrounding text to be
+   * examined.
+   *
+   * @param s A piece of text
+   *
+   * @return The index of the first illegal character, or {@code -1} if
+   * there are none
+   */
+
+  private static int firstDisallowedXML10(final String s)
+  {
+    final int length = s.length();
+    int index = 0;
+    while (index < length) {
+      final char c = s.charAt(index);
+      if (c >= 0x0020 && c <= 0xD7FF) {
+        ++index;
+        continue;
+      }
+      if (c == 0x0009 || c == 0x000A || c == 0x000D) {
+        ++index;
+        continue;
+      }
+      if (c >= 0xE000 && c <= 0xFFFD) {
+        ++index;
+        continue;
+      }
+      if (Character.isHighSurrogate(c)
+        && index + 1 < length
+        && Character.isLowSurrogate(s.charAt(index + 1))) {
+        index += 2;
+        continue;
+      }
+      return index;
+    }
+    return -1;
+  }
+
+  private static void filterXML10From(
+    final String s,
+    final int from,
+    final StringBuilder b)
+  {
+    for (int i = from; i < s.length(); i = s.offsetByCodePoints(i, 1)) {
       final int cp = s.codePointAt(i);
       if (!KSXOMEscapeCharacters.isAllowedXML1_0(cp)) {
         b.appendCodePoint(0xFFFD);
@@ -73,6 +152,5 @@ public final class KSXOMEscapeCharacters
         b.appendCodePoint(cp);
       }
     }
-    return b.toString();
   }
 }
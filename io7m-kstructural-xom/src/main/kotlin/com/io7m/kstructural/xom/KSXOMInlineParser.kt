@@ -37,6 +37,7 @@ import com.io7m.kstructural.core.KSElement.KSInline.KSTableHead
 import com.io7m.kstructural.core.KSElement.KSInline.KSTableHeadColumnName
 import com.io7m.kstructural.core.KSElement.KSInline.KSTableSummary
 import com.io7m.kstructural.core.KSID
+import com.io7m.kstructural.core.KSInternTable
 import com.io7m.kstructural.core.KSLink
 import com.io7m.kstructural.core.KSLinkContent
 import com.io7m.kstructural.core.KSParse
@@ -162,7 +163,8 @@ class KSXOMInlineParser private constructor() : KSXOMInlineParserType {
       no_lex,
       false,
       kp,
-      listOf(KSInlineText(no_lex, SQUARE, kp, false, tt.value)))
+      listOf(KSInlineText(no_lex, SQUARE, kp, false,
+        KSInternTable.intern(context.internTable, tt.value))))
   }
 
   private fun parseElementTableBody(
@@ -316,7 +318,8 @@ class KSXOMInlineParser private constructor() : KSXOMInlineParserType {
     : KSResult<KSID<KSParse>, KSParseError> {
     return if (KSID.isValidID(text)) {
       KSResult.succeed<KSID<KSParse>, KSParseError>(
-        KSID.create(no_lex, text, KSParse(context)))
+        KSID.create(no_lex,
+          KSInternTable.intern(context.internTable, text), KSParse(context)))
     } else {
       val sb = StringBuilder()
       sb.append("Invalid identifier.")
@@ -481,7 +484,8 @@ class KSXOMInlineParser private constructor() : KSXOMInlineParserType {
     : KSResult<KSInlineText<KSParse>, KSParseError> {
     if (e is Text) {
       return succeed(
-        KSInlineText(no_lex, SQUARE, KSParse(context), false, e.value))
+        KSInlineText(no_lex, SQUARE, KSParse(context), false,
+          KSInternTable.intern(context.internTable, e.value)))
     }
 
     val sb = StringBuilder()
@@ -572,7 +576,8 @@ class KSXOMInlineParser private constructor() : KSXOMInlineParserType {
     return if (ta != null) {
       if (KSType.isValidType(ta.value)) {
         KSResult.succeed(Optional.of(
-          KSType.create(no_lex, ta.value, KSParse(context))))
+          KSType.create(no_lex,
+            KSInternTable.intern(context.internTable, ta.value), KSParse(context))))
       } else {
         val sb = StringBuilder()
         sb.append("Invalid type name.")
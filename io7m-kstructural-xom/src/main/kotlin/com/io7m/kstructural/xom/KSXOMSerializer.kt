@@ -145,7 +145,7 @@ class KSXOMSerializer<T> private constructor(
     val sb = StringBuilder()
     val max = e.content.size - 1
     for (i in 0 .. max) {
-      sb.append(KSXOMEscapeCharacters.filterXML10(e.content[i].text))
+      KSXOMEscapeCharacters.filterXML10(e.content[i].text, sb)
       if (i < max) {
         sb.append(" ")
       }
@@ -362,7 +362,7 @@ class KSXOMSerializer<T> private constructor(
     val sb = StringBuilder()
     val max = title.size - 1
     for (i in 0 .. max) {
-      sb.append(KSXOMEscapeCharacters.filterXML10(title[i].text))
+      KSXOMEscapeCharacters.filterXML10(title[i].text, sb)
       if (i < max) {
         sb.append(" ")
       }
@@ -0,0 +1,346 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.xom
+
+import nu.xom.Comment
+import nu.xom.DocType
+import nu.xom.Element
+import nu.xom.Node
+import nu.xom.ProcessingInstruction
+import nu.xom.Text
+import org.valid4j.Assertive
+import java.io.IOException
+import java.io.StringWriter
+import java.io.Writer
+import java.util.ArrayDeque
+import java.util.HashMap
+
+/**
+ * A serializer that writes XOM nodes to a writer as they are produced,
+ * without requiring a complete document tree. The output is byte-for-byte
+ * identical to that of `nu.xom.Serializer(os, "UTF-8")` with default settings.
+ */
+
+class KSXOMStreamingSerializer private constructor(
+  private val out : Writer) {
+
+  internal class Open(
+    val name : String,
+    val scope : Map<String, String>)
+
+  /**
+   * A fragment of output captured by [capture]. A snippet may be written
+   * to any serializer that has the same elements open as the serializer
+   * from which it was captured, and may be shared between threads.
+   */
+
+  class Snippet internal constructor(
+    internal val text : String,
+    internal val scope : Map<String, String>,
+    internal val closes : Int,
+    internal val opens : List<Open>,
+    internal val start_pending : Boolean)
+
+  private val open : ArrayDeque<Open> = ArrayDeque()
+  private var start_pending : Boolean = false
+  private var depth_lowest : Int = 0
+
+  companion object {
+
+    private val XML_PREFIX = "xml"
+
+    fun create(out : Writer) : KSXOMStreamingSerializer =
+      KSXOMStreamingSerializer(out)
+  }
+
+  @Throws(IOException::class)
+  fun startDocument(doctype : DocType?) : Unit {
+    Assertive.require(open.isEmpty())
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n")
+    if (doctype != null) {
+      out.write("<!DOCTYPE ")
+      out.write(doctype.rootElementName)
+      val public_id = doctype.publicID
+      val system_id = doctype.systemID
+      if (public_id != null) {
+        out.write(" PUBLIC \"")
+        out.write(public_id)
+        out.write("\"")
+        if (system_id != null) {
+          out.write(" \"")
+          out.write(system_id)
+          out.write("\"")
+        }
+      } else if (system_id != null) {
+        out.write(" SYSTEM \"")
+        out.write(system_id)
+        out.write("\"")
+      }
+      out.write(">\r\n")
+    }
+  }
+
+  @Throws(IOException::class)
+  fun endDocument() : Unit {
+    Assertive.require(open.isEmpty())
+    out.write("\r\n")
+    out.flush()
+  }
+
+  /**
+   * Write the start tag of `e`, followed by any children that `e` currently
+   * has. The element remains open until a matching call to [endElement].
+   */
+
+  @Throws(IOException::class)
+  fun startElement(e : Element) : Unit {
+    writeStartTag(e)
+    for (i in 0 .. e.childCount - 1) {
+      node(e.getChild(i))
+    }
+  }
+
+  @Throws(IOException::class)
+  fun endElement() : Unit {
+    val o = open.pop()
+    depth_lowest = Math.min(depth_lowest, open.size)
+    if (start_pending) {
+      out.write("/>")
+      start_pending = false
+    } else {
+      out.write("</")
+      out.write(o.name)
+      out.write(">")
+    }
+  }
+
+  /**
+   * Evaluate `f` against this serializer, and return everything that `f`
+   * wrote as a snippet that can later be written with [snippet] instead of
+   * repeating the same calls.
+   */
+
+  @Throws(IOException::class)
+  fun capture(f : (KSXOMStreamingSerializer) -> Unit) : Snippet {
+    finishStartTag()
+
+    val scope = currentScope()
+    val text = StringWriter()
+    val c = KSXOMStreamingSerializer(text)
+    c.open.addAll(this.open)
+    c.depth_lowest = this.open.size
+    f(c)
+
+    val opens = mutableListOf<Open>()
+    val iter = c.open.descendingIterator()
+    for (i in 0 .. c.open.size - 1) {
+      val o = iter.next()
+      if (i >= c.depth_lowest) {
+        opens.add(o)
+      }
+    }
+
+    val r = Snippet(
+      text = text.toString(),
+      scope = scope,
+      closes = this.open.size - c.depth_lowest,
+      opens = opens,
+      start_pending = c.start_pending)
+    snippet(r)
+    return r
+  }
+
+  /**
+   * Write a snippet previously returned by [capture].
+   */
+
+  @Throws(IOException::class)
+  fun snippet(r : Snippet) : Unit {
+    finishStartTag()
+    Assertive.require(open.size >= r.closes)
+    Assertive.require(currentScope() == r.scope)
+
+    out.write(r.text)
+    for (i in 1 .. r.closes) {
+      open.pop()
+    }
+    depth_lowest = Math.min(depth_lowest, open.size)
+    r.opens.forEach { o -> open.push(o) }
+    start_pending = r.start_pending
+  }
+
+  /**
+   * Write `n` and all of its descendants.
+   */
+
+  @Throws(IOException::class)
+  fun node(n : Node) : Unit {
+    when (n) {
+      is Element               -> {
+        startElement(n)
+        endElement()
+      }
+      is Text                  -> {
+        val v = n.value
+        if (v.isNotEmpty()) {
+          finishStartTag()
+          writeEscapedText(v)
+        }
+      }
+      is Comment               -> {
+        finishStartTag()
+        out.write("<!--")
+        out.write(n.value)
+        out.write("-->")
+      }
+      is ProcessingInstruction -> {
+        finishStartTag()
+        out.write("<?")
+        out.write(n.target)
+        val v = n.value
+        if (v.isNotEmpty()) {
+          out.write(" ")
+          out.write(v)
+        }
+        out.write("?>")
+      }
+      else                     ->
+        throw UnsupportedOperationException(
+          "Cannot serialize nodes of type " + n.javaClass.name)
+    }
+  }
+
+  private fun finishStartTag() {
+    if (start_pending) {
+      out.write(">")
+      start_pending = false
+    }
+  }
+
+  private fun currentScope() : Map<String, String> =
+    open.peek()?.scope ?: emptyMap<String, String>()
+
+  private fun inScope(prefix : String) : String? {
+    val p = open.peek()
+    val uri = p?.scope?.get(prefix)
+    return uri ?: if (prefix.isEmpty()) "" else null
+  }
+
+  private fun writeStartTag(e : Element) {
+    finishStartTag()
+
+    val declarations = linkedMapOf<String, String>()
+    val root = open.isEmpty()
+    val declare = { prefix : String, uri : String ->
+      if (prefix != XML_PREFIX && !declarations.containsKey(prefix)) {
+        if (!(root && uri.isEmpty()) && uri != inScope(prefix)) {
+          declarations.put(prefix, uri)
+        }
+      }
+    }
+
+    declare(e.namespacePrefix, e.namespaceURI)
+    for (i in 0 .. e.attributeCount - 1) {
+      val a = e.getAttribute(i)
+      if (a.namespacePrefix.isNotEmpty()) {
+        declare(a.namespacePrefix, a.namespaceURI)
+      }
+    }
+    for (i in 0 .. e.namespaceDeclarationCount - 1) {
+      val prefix = e.getNamespacePrefix(i)
+      declare(prefix, e.getNamespaceURI(prefix))
+    }
+
+    val name = e.qualifiedName
+    out.write("<")
+    out.write(name)
+
+    for (i in 0 .. e.attributeCount - 1) {
+      val a = e.getAttribute(i)
+      out.write(" ")
+      out.write(a.qualifiedName)
+      out.write("=\"")
+      writeEscapedAttribute(a.value)
+      out.write("\"")
+    }
+
+    val parent_scope = currentScope()
+    val scope = if (declarations.isEmpty()) {
+      parent_scope
+    } else {
+      val m = HashMap(parent_scope)
+      declarations.forEach { entry ->
+        out.write(" xmlns")
+        if (entry.key.isNotEmpty()) {
+          out.write(":")
+          out.write(entry.key)
+        }
+        out.write("=\"")
+        writeEscapedAttribute(entry.value)
+        out.write("\"")
+        m.put(entry.key, entry.value)
+      }
+      m
+    }
+
+    open.push(Open(name, scope))
+    start_pending = true
+  }
+
+  private fun writeEscapedText(s : String) {
+    var start = 0
+    val max = s.length
+    for (i in 0 .. max - 1) {
+      val r = when (s[i]) {
+        '&'  -> "&amp;"
+        '<'  -> "&lt;"
+        '>'  -> "&gt;"
+        '\r' -> "&#x0D;"
+        else -> null
+      }
+      if (r != null) {
+        out.write(s, start, i - start)
+        out.write(r)
+        start = i + 1
+      }
+    }
+    out.write(s, start, max - start)
+  }
+
+  private fun writeEscapedAttribute(s : String) {
+    var start = 0
+    val max = s.length
+    for (i in 0 .. max - 1) {
+      val r = when (s[i]) {
+        '&'  -> "&amp;"
+        '<'  -> "&lt;"
+        '>'  -> "&gt;"
+        '"'  -> "&quot;"
+        '\t' -> "&#x09;"
+        '\n' -> "&#x0A;"
+        '\r' -> "&#x0D;"
+        else -> null
+      }
+      if (r != null) {
+        out.write(s, start, i - start)
+        out.write(r)
+        start = i + 1
+      }
+    }
+    out.write(s, start, max - start)
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.xom
+
+import com.io7m.junreachable.UnreachableCodeException
+import com.io7m.kstructural.core.KSElement
+import com.io7m.kstructural.core.KSElement.KSBlock
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFootnote
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFormalItem
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockParagraph
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
+import com.io7m.kstructural.core.KSID
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.core.evaluator.KSFootnoteReference
+import com.io7m.kstructural.core.evaluator.KSNumber
+import org.valid4j.Assertive
+import java.util.Optional
+
+internal class KSXOMXHTMLMultiLinkProvider private constructor(
+  private val document : KSBlockDocument<KSEvaluation>) : KSXOMLinkProviderType {
+
+  companion object {
+    fun create(
+      document : KSBlockDocument<KSEvaluation>) : KSXOMLinkProviderType =
+      KSXOMXHTMLMultiLinkProvider(document)
+  }
+
+  override fun footnoteReferenceAnchor(
+    r : KSFootnoteReference<KSEvaluation>) : String {
+    return KSXOM.prefixedName("fr_" + r.data.serial)
+  }
+
+  override fun footnoteReferenceLink(
+    r : KSFootnoteReference<KSEvaluation>) : String {
+
+    val s_opt = containingSegment(r.ref)
+    Assertive.require(s_opt.isPresent)
+    val s = s_opt.get()
+    Assertive.require(s.data.number.isPresent)
+
+    val n = s.data.number.get()
+    return fileForNumber(n) + "#" + footnoteReferenceAnchor(r)
+  }
+
+  override fun footnoteAnchor(
+    f : KSBlockFootnote<KSEvaluation>, r : Long) : String {
+    return KSXOM.prefixedName("f_" + f.data.serial + "_" + r)
+  }
+
+  override fun footnoteLink(
+    f : KSBlockFootnote<KSEvaluation>, r : Long) : String {
+
+    val s_opt = containingSegment(f)
+    Assertive.require(s_opt.isPresent)
+    val s = s_opt.get()
+    Assertive.require(s.data.number.isPresent)
+
+    val n = s.data.number.get()
+    return fileForNumber(n) + "#" + footnoteAnchor(f, r)
+  }
+
+  private fun containingSegment(
+    b : KSElement<KSEvaluation>) : Optional<KSBlock<KSEvaluation>> =
+    b.data.context.elementSegmentContaining(b)
+
+  private fun fileForNumber(number : KSNumber) : String =
+    when (number) {
+      is KSNumber.KSNumberPart                         -> {
+        val sb = StringBuilder()
+        sb.append("p")
+        sb.append(number.part)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberPartSection                  -> {
+        val sb = StringBuilder()
+        sb.append("p")
+        sb.append(number.part)
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberPartSectionContent           -> {
+        val sb = StringBuilder()
+        sb.append("p")
+        sb.append(number.part)
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberPartSectionSubsection        -> {
+        val sb = StringBuilder()
+        sb.append("p")
+        sb.append(number.part)
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberPartSectionSubsectionContent -> {
+        val sb = StringBuilder()
+        sb.append("p")
+        sb.append(number.part)
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberSection                      -> {
+        val sb = StringBuilder()
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberSectionContent               -> {
+        val sb = StringBuilder()
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberSectionSubsection            -> {
+        val sb = StringBuilder()
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+      is KSNumber.KSNumberSectionSubsectionContent     -> {
+        val sb = StringBuilder()
+        sb.append("s")
+        sb.append(number.section)
+        sb.append(".xhtml")
+        sb.toString()
+      }
+    }
+
+  override fun numberAnchorID(number : KSNumber) : String =
+    KSXOM.prefixedName(number.toAnchor())
+
+  override fun numberAnchor(number : KSNumber) : String =
+    "#" + numberAnchorID(number)
+
+  override fun numberLink(number : KSNumber) : String =
+    fileForNumber(number) + numberAnchor(number)
+
+  override fun documentAnchor() : String {
+    return "index-m.xhtml"
+  }
+
+  override fun idLink(id : KSID<KSEvaluation>) : String {
+    val e = document.data.context.elementForID(id)
+    val a = e.id.get()
+    return when (e) {
+      is KSBlockDocument                 -> "index-m.xhtml#" + a
+      is KSBlockSection                  -> fileForNumber(e.data.number.get()) + "#" + a
+      is KSBlockSubsection               -> fileForNumber(e.data.number.get()) + "#" + a
+      is KSBlockParagraph                -> fileForNumber(e.data.number.get()) + "#" + a
+      is KSBlockPart                     -> fileForNumber(e.data.number.get()) + "#" + a
+      is KSBlockFormalItem               -> fileForNumber(e.data.number.get()) + "#" + a
+      is KSBlockFootnote                 -> throw UnsupportedOperationException("Cannot resolve a footnote directly!")
+      is KSElement.KSBlock.KSBlockImport -> throw UnreachableCodeException()
+    }
+  }
+}
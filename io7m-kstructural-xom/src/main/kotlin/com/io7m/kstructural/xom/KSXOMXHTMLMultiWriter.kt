@@ -16,29 +16,22 @@
 
 package com.io7m.kstructural.xom
 
-import com.io7m.kstructural.core.KSElement
-import com.io7m.kstructural.core.KSElement.KSBlock
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithParts
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithSections
-import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFootnote
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFormalItem
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockParagraph
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
-import com.io7m.kstructural.core.KSID
 import com.io7m.kstructural.core.KSSubsectionContent
 import com.io7m.kstructural.core.evaluator.KSEvaluation
-import com.io7m.kstructural.core.evaluator.KSFootnoteReference
 import com.io7m.kstructural.core.evaluator.KSNumber
 import nu.xom.Document
 import nu.xom.Element
 import nu.xom.Node
 import nu.xom.Text
 import org.slf4j.LoggerFactory
-import org.valid4j.Assertive
-import java.util.Optional
 
 object KSXOMXHTMLMultiWriter : KSXOMXHTMLWriterType {
 
@@ -46,236 +39,53 @@ object KSXOMXHTMLMultiWriter : KSXOMXHTMLWriterType {
 
   override fun write(
     settings : KSXOMSettings,
-    document : KSBlockDocument<KSEvaluation>) : Map<String, Document> {
-
-    val prov = object : KSXOMLinkProviderType {
-
-      override fun footnoteReferenceAnchor(
-        r : KSFootnoteReference<KSEvaluation>) : String {
-        return KSXOM.prefixedName("fr_" + r.data.serial)
-      }
-
-      override fun footnoteReferenceLink(
-        r : KSFootnoteReference<KSEvaluation>) : String {
-
-        val s_opt = containingSegment(r.ref)
-        Assertive.require(s_opt.isPresent)
-        val s = s_opt.get()
-        Assertive.require(s.data.number.isPresent)
-
-        val n = s.data.number.get()
-        return fileForNumber(n) + "#" + footnoteReferenceAnchor(r)
-      }
-
-      override fun footnoteAnchor(
-        f : KSBlockFootnote<KSEvaluation>, r : Long) : String {
-        return KSXOM.prefixedName("f_" + f.data.serial + "_" + r)
-      }
-
-      override fun footnoteLink(
-        f : KSBlockFootnote<KSEvaluation>, r : Long) : String {
-
-        val s_opt = containingSegment(f)
-        Assertive.require(s_opt.isPresent)
-        val s = s_opt.get()
-        Assertive.require(s.data.number.isPresent)
-
-        val n = s.data.number.get()
-        return fileForNumber(n) + "#" + footnoteAnchor(f, r)
-      }
-
-      private fun containingSegment(
-        b : KSElement<KSEvaluation>) : Optional<KSBlock<KSEvaluation>> {
-        val c = b.data.context
-        val e = c.elementForSerial(b.data.parent)
-        return if (e.isPresent) {
-          val r = e.get()
-          when (r) {
-            is KSElement.KSBlock                        ->
-              when (r as KSBlock) {
-                is KSBlockDocument,
-                is KSBlockSection,
-                is KSBlockPart                     -> Optional.of(r)
-                is KSBlockSubsection,
-                is KSBlockParagraph,
-                is KSBlockFormalItem,
-                is KSBlockFootnote                 -> containingSegment(r)
-                is KSElement.KSBlock.KSBlockImport -> TODO()
-              }
-            is KSElement.KSInline                       -> containingSegment(r)
-            is KSElement.KSInline.KSListItem            -> containingSegment(r)
-            is KSElement.KSInline.KSTableHeadColumnName -> containingSegment(r)
-            is KSElement.KSInline.KSTableHead           -> containingSegment(r)
-            is KSElement.KSInline.KSTableBodyCell       -> containingSegment(r)
-            is KSElement.KSInline.KSTableBodyRow        -> containingSegment(r)
-            is KSElement.KSInline.KSTableBody           -> containingSegment(r)
-            is KSElement.KSInline.KSTableSummary        -> containingSegment(r)
-          }
-        } else {
-          Optional.empty<KSBlock<KSEvaluation>>()
-        }
-      }
-
-      private fun fileForNumber(number : KSNumber) : String =
-        when (number) {
-          is KSNumber.KSNumberPart                         -> {
-            val sb = StringBuilder()
-            sb.append("p")
-            sb.append(number.part)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberPartSection                  -> {
-            val sb = StringBuilder()
-            sb.append("p")
-            sb.append(number.part)
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberPartSectionContent           -> {
-            val sb = StringBuilder()
-            sb.append("p")
-            sb.append(number.part)
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberPartSectionSubsection        -> {
-            val sb = StringBuilder()
-            sb.append("p")
-            sb.append(number.part)
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberPartSectionSubsectionContent -> {
-            val sb = StringBuilder()
-            sb.append("p")
-            sb.append(number.part)
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberSection                      -> {
-            val sb = StringBuilder()
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberSectionContent               -> {
-            val sb = StringBuilder()
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberSectionSubsection            -> {
-            val sb = StringBuilder()
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-          is KSNumber.KSNumberSectionSubsectionContent     -> {
-            val sb = StringBuilder()
-            sb.append("s")
-            sb.append(number.section)
-            sb.append(".xhtml")
-            sb.toString()
-          }
-        }
-
-      override fun numberAnchorID(number : KSNumber) : String =
-        KSXOM.prefixedName(number.toAnchor())
-
-      override fun numberAnchor(number : KSNumber) : String =
-        "#" + numberAnchorID(number)
-
-      override fun numberLink(number : KSNumber) : String =
-        fileForNumber(number) + numberAnchor(number)
-
-      override fun documentAnchor() : String {
-        return "index-m.xhtml"
-      }
-
-      override fun idLink(id : KSID<KSEvaluation>) : String {
-        val e = document.data.context.elementForID(id)
-        val a = e.id.get()
-        return when (e) {
-          is KSBlockDocument                 -> "index-m.xhtml#" + a
-          is KSBlockSection                  -> fileForNumber(e.data.number.get()) + "#" + a
-          is KSBlockSubsection               -> fileForNumber(e.data.number.get()) + "#" + a
-          is KSBlockParagraph                -> fileForNumber(e.data.number.get()) + "#" + a
-          is KSBlockPart                     -> fileForNumber(e.data.number.get()) + "#" + a
-          is KSBlockFormalItem               -> fileForNumber(e.data.number.get()) + "#" + a
-          is KSBlockFootnote                 -> throw UnsupportedOperationException("Cannot resolve a footnote directly!")
-          is KSElement.KSBlock.KSBlockImport -> TODO()
-        }
-      }
-    }
-
-    val m : MutableMap<String, Document> = mutableMapOf()
-    m.put("index-m.xhtml", writeDocumentIndexPage(settings, prov, document))
+    document : KSBlockDocument<KSEvaluation>,
+    pages : KSXOMXHTMLPageConsumerType) : Unit {
 
+    val prov = KSXOMXHTMLMultiLinkProvider.create(document)
+    val toc = KSXOMContents.create(prov)
     LOG.debug("create {}", "index-m.xhtml")
+    pages.accept("index-m.xhtml", writeDocumentIndexPage(settings, prov, toc, document))
 
-    return when (document) {
+    when (document) {
       is KSBlockDocumentWithParts    ->
-        writeDocumentsWithParts(settings, prov, document, m)
+        document.content.forEach { p ->
+          writeDocumentPart(settings, prov, toc, document, p, pages)
+        }
       is KSBlockDocumentWithSections ->
-        writeDocumentsWithSections(settings, prov, document, m)
+        document.content.forEach { s ->
+          writeDocumentSection(settings, prov, toc, document, s, pages)
+        }
     }
   }
 
-  private fun writeDocumentsWithSections(
-    settings : KSXOMSettings,
-    prov : KSXOMLinkProviderType,
-    d : KSBlockDocumentWithSections<KSEvaluation>,
-    m : MutableMap<String, Document>) : Map<String, Document> {
-    d.content.forEach { s -> writeDocumentSection(settings, prov, d, s, m) }
-    return m
-  }
-
-  private fun writeDocumentsWithParts(
-    settings : KSXOMSettings,
-    prov : KSXOMLinkProviderType,
-    d : KSBlockDocumentWithParts<KSEvaluation>,
-    m : MutableMap<String, Document>) : Map<String, Document> {
-    d.content.forEach { p -> writeDocumentPart(settings, prov, d, p, m) }
-    return m
-  }
-
   private fun writeDocumentSection(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocument<KSEvaluation>,
     s : KSBlockSection<KSEvaluation>,
-    m : MutableMap<String, Document>) : Unit {
+    pages : KSXOMXHTMLPageConsumerType) : Unit {
 
     val (document, body) = KSXOM.newPage(settings, d, s.data.number, s.title)
     settings.on_body_start.call(body)
     body.appendChild(KSXOM.navigationBar(prov, s, KSXOM.NavigationBarPosition.Top))
-    body.appendChild(writeSection(settings, prov, d, s))
+    body.appendChild(writeSection(settings, prov, toc, d, s))
     body.appendChild(KSXOM.navigationBar(prov, s, KSXOM.NavigationBarPosition.Bottom))
     settings.on_body_end.call(body)
 
     val file = s.data.number.get().toAnchor() + ".xhtml"
     LOG.debug("create {}", file)
-    m.put(file, document)
+    pages.accept(file, document)
   }
 
   private fun writeDocumentPart(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocumentWithParts<KSEvaluation>,
     p : KSBlockPart<KSEvaluation>,
-    m : MutableMap<String, Document>) : Unit {
+    pages : KSXOMXHTMLPageConsumerType) : Unit {
 
     val (document, body) = KSXOM.newPage(settings, d, p.data.number, p.title)
     settings.on_body_start.call(body)
@@ -283,28 +93,29 @@ object KSXOMXHTMLMultiWriter : KSXOMXHTMLWriterType {
 
     val part_container = KSXOM.partContainer(prov, p)
     if (settings.render_toc_parts) {
-      part_container.appendChild(KSXOM.contentsForPart(prov, p))
+      part_container.appendChild(toc.forPart(p))
     }
     body.appendChild(part_container)
     body.appendChild(KSXOM.navigationBar(prov, p, KSXOM.NavigationBarPosition.Bottom))
+    settings.on_body_end.call(body)
 
     val file = p.data.number.get().toAnchor() + ".xhtml"
     LOG.debug("create {}", file)
-    m.put(file, document)
-    p.content.forEach { s -> writeDocumentSection(settings, prov, d, s, m) }
-    settings.on_body_end.call(body)
+    pages.accept(file, document)
+    p.content.forEach { s -> writeDocumentSection(settings, prov, toc, d, s, pages) }
   }
 
   private fun writeDocumentIndexPage(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocument<KSEvaluation>) : Document {
     val (document, body) = KSXOM.newPage(settings, d, d.data.number, d.title)
     settings.on_body_start.call(body)
     body.appendChild(KSXOM.navigationBar(prov, d, KSXOM.NavigationBarPosition.Top))
     body.appendChild(KSXOM.documentIndexTitle(d))
     if (settings.render_toc_document) {
-      body.appendChild(KSXOM.contentsForDocument(prov, d))
+      body.appendChild(toc.forDocument(d))
     }
     body.appendChild(KSXOM.navigationBar(prov, d, KSXOM.NavigationBarPosition.Bottom))
     settings.on_body_end.call(body)
@@ -314,12 +125,13 @@ object KSXOMXHTMLMultiWriter : KSXOMXHTMLWriterType {
   private fun writeSection(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocument<KSEvaluation>,
     s : KSBlockSection<KSEvaluation>) : Element {
 
     val e = KSXOM.sectionContainer(prov, s)
     if (settings.render_toc_sections) {
-      e.appendChild(KSXOM.contentsForSection(prov, s))
+      e.appendChild(toc.forSection(s))
     }
 
     when (s) {
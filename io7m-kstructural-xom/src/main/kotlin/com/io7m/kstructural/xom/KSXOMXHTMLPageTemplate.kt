@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.kstructural.xom
+
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSInline.KSInlineText
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.core.evaluator.KSNumber
+import nu.xom.Element
+import org.valid4j.Assertive
+import java.io.IOException
+import java.io.StringWriter
+import java.io.Writer
+import java.util.Optional
+
+/**
+ * The parts of an XHTML page that are identical on every page of a build:
+ * the document type, the head elements other than the title, and the
+ * decorations added by [KSXOMSettings.on_body_start] and
+ * [KSXOMSettings.on_body_end]. These are serialized once when the template
+ * is created, and each page then writes only its title and its content.
+ *
+ * The body decoration procedures are therefore evaluated once per build
+ * rather than once per page. Templates may be shared between threads.
+ */
+
+internal class KSXOMXHTMLPageTemplate private constructor(
+  private val document : KSBlockDocument<KSEvaluation>,
+  private val head_start : KSXOMStreamingSerializer.Snippet,
+  private val head_end : KSXOMStreamingSerializer.Snippet,
+  private val body_end : KSXOMStreamingSerializer.Snippet) {
+
+  companion object {
+
+    @Throws(IOException::class)
+    fun create(
+      settings : KSXOMSettings,
+      document : KSBlockDocument<KSEvaluation>) : KSXOMXHTMLPageTemplate {
+
+      val decorations = KSXOM.bodyContainer()
+      settings.on_body_start.call(decorations)
+      val marker = KSXOM.bodyContainer()
+      decorations.appendChild(marker)
+      settings.on_body_end.call(decorations)
+      val marker_index = decorations.indexOf(marker)
+      Assertive.require(marker_index >= 0)
+
+      val s = KSXOMStreamingSerializer.create(StringWriter())
+      val page = KSXOM.document()
+
+      val head_start = s.capture { c ->
+        c.startDocument(page.docType)
+        c.startElement(page.rootElement)
+        c.startElement(Element("head", KSXOM.XHTML_URI_TEXT))
+      }
+
+      s.node(KSXOM.title(""))
+
+      val head_end = s.capture { c ->
+        c.node(KSXOM.meta())
+        settings.styles.forEach { u -> c.node(KSXOM.css(u)) }
+        c.endElement()
+        c.startElement(KSXOM.body())
+        c.startElement(KSXOM.bodyContainer())
+        for (i in 0 .. marker_index - 1) {
+          c.node(decorations.getChild(i))
+        }
+      }
+
+      val body_end = s.capture { c ->
+        for (i in marker_index + 1 .. decorations.childCount - 1) {
+          c.node(decorations.getChild(i))
+        }
+        c.endElement()
+        c.endElement()
+        c.endElement()
+      }
+
+      return KSXOMXHTMLPageTemplate(document, head_start, head_end, body_end)
+    }
+  }
+
+  /**
+   * Write a page with the given number and title to `out`, using `content`
+   * to write the body of the page.
+   */
+
+  @Throws(IOException::class)
+  fun writePage(
+    out : Writer,
+    number : Optional<KSNumber>,
+    title : List<KSInlineText<KSEvaluation>>,
+    content : (KSXOMStreamingSerializer) -> Unit) : Unit {
+
+    val s = KSXOMStreamingSerializer.create(out)
+    s.snippet(head_start)
+    s.node(KSXOM.title(KSXOM.pageTitle(document, number, title)))
+    s.snippet(head_end)
+    content(s)
+    s.snippet(body_end)
+    s.endDocument()
+  }
+}
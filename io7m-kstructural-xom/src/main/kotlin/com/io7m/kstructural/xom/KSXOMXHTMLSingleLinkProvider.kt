@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.kstructural.xom
+
+import com.io7m.kstructural.core.KSElement.KSBlock
+import com.io7m.kstructural.core.KSID
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.core.evaluator.KSFootnoteReference
+import com.io7m.kstructural.core.evaluator.KSNumber
+
+internal object KSXOMXHTMLSingleLinkProvider : KSXOMLinkProviderType {
+
+  override fun numberLink(number : KSNumber) : String {
+    return numberAnchor(number)
+  }
+
+  override fun idLink(id : KSID<KSEvaluation>) : String {
+    return "#" + id.value
+  }
+
+  override fun footnoteAnchor(
+    f : KSBlock.KSBlockFootnote<KSEvaluation>, r : Long) : String {
+    return KSXOM.prefixedName("f_" + f.data.serial + "_" + r)
+  }
+
+  override fun footnoteReferenceAnchor(
+    r : KSFootnoteReference<KSEvaluation>) : String {
+    return KSXOM.prefixedName("fr_" + r.data.serial)
+  }
+
+  override fun footnoteLink(
+    f : KSBlock.KSBlockFootnote<KSEvaluation>, r : Long) : String {
+    return "#" + footnoteAnchor(f, r)
+  }
+
+  override fun footnoteReferenceLink(
+    r : KSFootnoteReference<KSEvaluation>) : String {
+    return "#" + footnoteReferenceAnchor(r)
+  }
+
+  override fun documentAnchor() : String {
+    return "index.xhtml"
+  }
+
+  override fun numberAnchorID(number : KSNumber) : String {
+    return KSXOM.prefixedName(number.toAnchor())
+  }
+
+  override fun numberAnchor(number : KSNumber) : String {
+    return "#" + numberAnchorID(number)
+  }
+}
@@ -24,11 +24,8 @@ import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockParagraph
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
 import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
-import com.io7m.kstructural.core.KSID
 import com.io7m.kstructural.core.KSSubsectionContent
 import com.io7m.kstructural.core.evaluator.KSEvaluation
-import com.io7m.kstructural.core.evaluator.KSFootnoteReference
-import com.io7m.kstructural.core.evaluator.KSNumber
 import nu.xom.Document
 import nu.xom.Element
 import nu.xom.Node
@@ -38,71 +35,30 @@ object KSXOMXHTMLSingleWriter : KSXOMXHTMLWriterType {
 
   override fun write(
     settings : KSXOMSettings,
-    document : KSBlockDocument<KSEvaluation>) : Map<String, Document> {
+    document : KSBlockDocument<KSEvaluation>,
+    pages : KSXOMXHTMLPageConsumerType) : Unit {
 
-    val prov = object : KSXOMLinkProviderType {
-
-      override fun numberLink(number : KSNumber) : String {
-        return numberAnchor(number)
-      }
-
-      override fun idLink(id : KSID<KSEvaluation>) : String {
-        return "#" + id.value
-      }
-
-      override fun footnoteAnchor(
-        f : KSBlock.KSBlockFootnote<KSEvaluation>, r : Long) : String {
-        return KSXOM.prefixedName("f_" + f.data.serial + "_" + r)
-      }
-
-      override fun footnoteReferenceAnchor(
-        r : KSFootnoteReference<KSEvaluation>) : String {
-        return KSXOM.prefixedName("fr_" + r.data.serial)
-      }
-
-      override fun footnoteLink(
-        f : KSBlock.KSBlockFootnote<KSEvaluation>, r : Long) : String {
-        return "#" + footnoteAnchor(f, r)
-      }
-
-      override fun footnoteReferenceLink(
-        r : KSFootnoteReference<KSEvaluation>) : String {
-        return "#" + footnoteReferenceAnchor(r)
-      }
-
-      override fun documentAnchor() : String {
-        return "index.xhtml"
-      }
-
-      override fun numberAnchorID(number : KSNumber) : String {
-        return KSXOM.prefixedName(number.toAnchor())
-      }
-
-      override fun numberAnchor(number : KSNumber) : String {
-        return "#" + numberAnchorID(number)
-      }
-    }
-
-    return when (document) {
+    val prov = KSXOMXHTMLSingleLinkProvider
+    val toc = KSXOMContents.create(prov)
+    pages.accept("index.xhtml", when (document) {
       is KSBlockDocumentWithParts    ->
-        mapOf(Pair("index.xhtml",
-          writeDocumentWithParts(settings, prov, document)))
+        writeDocumentWithParts(settings, prov, toc, document)
       is KSBlockDocumentWithSections ->
-        mapOf(Pair("index.xhtml",
-          writeDocumentWithSections(settings, prov, document)))
-    }
+        writeDocumentWithSections(settings, prov, toc, document)
+    })
   }
 
   private fun writeDocumentWithParts(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocumentWithParts<KSEvaluation>) : Document {
 
     val (document, body) = KSXOM.newPage(settings, d, d.data.number, d.title)
     settings.on_body_start.call(body)
     body.appendChild(KSXOM.documentIndexTitle(d))
-    body.appendChild(KSXOM.contentsForDocument(prov, d))
-    d.content.forEach { p -> body.appendChild(writePart(settings, prov, d, p)) }
+    body.appendChild(toc.forDocument(d))
+    d.content.forEach { p -> body.appendChild(writePart(settings, prov, toc, d, p)) }
     body.appendChild(KSXOM.footnotes(prov, d.data.context.footnotesAll))
     settings.on_body_end.call(body)
     return document
@@ -111,14 +67,15 @@ object KSXOMXHTMLSingleWriter : KSXOMXHTMLWriterType {
   private fun writeDocumentWithSections(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocumentWithSections<KSEvaluation>) : Document {
 
     val (document, body) = KSXOM.newPage(settings, d, d.data.number, d.title)
     settings.on_body_start.call(body)
     body.appendChild(KSXOM.documentIndexTitle(d))
-    body.appendChild(KSXOM.contentsForDocument(prov, d))
+    body.appendChild(toc.forDocument(d))
 
-    d.content.forEach { sc -> body.appendChild(writeSection(settings, prov, d, sc)) }
+    d.content.forEach { sc -> body.appendChild(writeSection(settings, prov, toc, d, sc)) }
     body.appendChild(KSXOM.footnotes(prov, d.data.context.footnotesAll))
     settings.on_body_end.call(body)
     return document
@@ -127,12 +84,13 @@ object KSXOMXHTMLSingleWriter : KSXOMXHTMLWriterType {
   private fun writeSection(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocument<KSEvaluation>,
     s : KSBlockSection<KSEvaluation>) : Element {
 
     val e = KSXOM.sectionContainer(prov, s)
     if (settings.render_toc_sections) {
-      e.appendChild(KSXOM.contentsForSection(prov, s))
+      e.appendChild(toc.forSection(s))
     }
 
     when (s) {
@@ -201,15 +159,16 @@ object KSXOMXHTMLSingleWriter : KSXOMXHTMLWriterType {
   private fun writePart(
     settings : KSXOMSettings,
     prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
     d : KSBlockDocumentWithParts<KSEvaluation>,
     p : KSBlockPart<KSEvaluation>) : Element {
 
     val e = KSXOM.partContainer(prov, p)
     if (settings.render_toc_parts) {
-      e.appendChild(KSXOM.contentsForPart(prov, p))
+      e.appendChild(toc.forPart(p))
     }
 
-    p.content.forEach { s -> e.appendChild(writeSection(settings, prov, d, s)) }
+    p.content.forEach { s -> e.appendChild(writeSection(settings, prov, toc, d, s)) }
     return e
   }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.xom
+
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockFormalItem
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockParagraph
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSubsection
+import com.io7m.kstructural.core.KSSubsectionContent
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import com.io7m.kstructural.core.evaluator.KSNumber
+import nu.xom.Element
+import java.io.IOException
+
+/**
+ * Functions shared by the streaming XHTML writers. Containers (pages, parts,
+ * sections, subsections) are written as open tags, and only the XOM nodes
+ * for individual paragraphs, formal items, tables of contents, footnotes,
+ * and navigation bars are constructed, serialized, and then discarded.
+ */
+
+internal object KSXOMXHTMLStreaming {
+
+  @Throws(IOException::class)
+  fun writePart(
+    s : KSXOMStreamingSerializer,
+    settings : KSXOMSettings,
+    prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
+    p : KSBlockPart<KSEvaluation>,
+    section_footnotes : Boolean) : Unit {
+
+    s.startElement(KSXOM.partContainer(prov, p))
+    if (settings.render_toc_parts) {
+      s.node(toc.forPart(p))
+    }
+    p.content.forEach { sc -> writeSection(s, settings, prov, toc, sc, section_footnotes) }
+    s.endElement()
+  }
+
+  @Throws(IOException::class)
+  fun writeSection(
+    s : KSXOMStreamingSerializer,
+    settings : KSXOMSettings,
+    prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
+    sc : KSBlockSection<KSEvaluation>,
+    section_footnotes : Boolean) : Unit {
+
+    s.startElement(KSXOM.sectionContainer(prov, sc))
+    if (settings.render_toc_sections) {
+      s.node(toc.forSection(sc))
+    }
+
+    when (sc) {
+      is KSBlockSection.KSBlockSectionWithContent     ->
+        sc.content.forEach { c -> writeSubsectionContent(s, prov, c) }
+      is KSBlockSection.KSBlockSectionWithSubsections ->
+        sc.content.forEach { ss -> writeSubsection(s, prov, ss) }
+    }
+
+    if (section_footnotes) {
+      val n = sc.data.number.get() as KSNumber.HasSectionType
+      val footnotes = sc.data.context.footnotesForSection(n)
+      if (footnotes.isNotEmpty()) {
+        s.node(KSXOM.footnotes(prov, footnotes))
+      }
+    }
+
+    s.endElement()
+  }
+
+  @Throws(IOException::class)
+  private fun writeSubsection(
+    s : KSXOMStreamingSerializer,
+    prov : KSXOMLinkProviderType,
+    ss : KSBlockSubsection<KSEvaluation>) : Unit {
+
+    s.startElement(KSXOM.subsectionContainer(prov, ss))
+    ss.content.forEach { c -> writeSubsectionContent(s, prov, c) }
+    s.endElement()
+  }
+
+  @Throws(IOException::class)
+  private fun writeSubsectionContent(
+    s : KSXOMStreamingSerializer,
+    prov : KSXOMLinkProviderType,
+    c : KSSubsectionContent<KSEvaluation>) : Unit {
+
+    when (c) {
+      is KSSubsectionContent.KSSubsectionParagraph  ->
+        s.node(paragraph(prov, c.paragraph))
+      is KSSubsectionContent.KSSubsectionFormalItem ->
+        s.node(formalItem(prov, c.formal))
+      is KSSubsectionContent.KSSubsectionFootnote   ->
+        Unit
+    }
+  }
+
+  private fun formalItem(
+    prov : KSXOMLinkProviderType,
+    f : KSBlockFormalItem<KSEvaluation>) : Element {
+
+    val (container, content) = KSXOM.formalItemContainer(prov, f)
+    KSXOMSpacing.appendWithSpace(content, f.content, { i -> KSXOM.inline(prov, i) })
+    return container
+  }
+
+  private fun paragraph(
+    prov : KSXOMLinkProviderType,
+    p : KSBlockParagraph<KSEvaluation>) : Element {
+
+    val (container, content) = KSXOM.paragraphContainer(prov, p)
+    KSXOMSpacing.appendWithSpace(content, p.content, { i -> KSXOM.inline(prov, i) })
+    return container
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.xom
+
+import com.io7m.jfunctional.PartialFunctionType
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithParts
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithSections
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockPart
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockSection
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.io.Writer
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+
+object KSXOMXHTMLStreamingMultiWriter : KSXOMXHTMLStreamingWriterType {
+
+  private val LOG = LoggerFactory.getLogger(KSXOMXHTMLStreamingMultiWriter::class.java)
+
+  @Throws(IOException::class)
+  override fun write(
+    settings : KSXOMSettings,
+    document : KSBlockDocument<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : Unit {
+    pageTasks(settings, document, pages).forEach { t -> t() }
+  }
+
+  /**
+   * Write all pages of `document`, generating and serializing pages
+   * concurrently on `executor`. Each page is written exactly as it would be
+   * by the sequential [write], but `pages` may be called from several
+   * threads at once and in any order, and must therefore be thread-safe.
+   * The settings callbacks are evaluated once, before any page is written.
+   * If writing any page fails, the writer waits
+   * for all other pages to complete and then raises the error of the
+   * earliest failing page in document order.
+   */
+
+  @Throws(IOException::class)
+  fun write(
+    settings : KSXOMSettings,
+    document : KSBlockDocument<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>,
+    executor : ExecutorService) : Unit {
+
+    /*
+     * Failures are captured by the tasks themselves, as some executors wrap
+     * checked exceptions raised by tasks.
+     */
+
+    val futures = pageTasks(settings, document, pages).map { t ->
+      executor.submit(Callable<Throwable?> {
+        try {
+          t()
+          null
+        } catch (e : Throwable) {
+          e
+        }
+      })
+    }
+
+    val errors = futures.map { f -> f.get() }
+    errors.forEach { e ->
+      if (e != null) {
+        throw e
+      }
+    }
+  }
+
+  private fun pageTasks(
+    settings : KSXOMSettings,
+    document : KSBlockDocument<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : List<() -> Unit> {
+
+    val prov = KSXOMXHTMLMultiLinkProvider.create(document)
+    val toc = KSXOMContents.create(prov)
+    val page = KSXOMXHTMLPageTemplate.create(settings, document)
+    val tasks = mutableListOf<() -> Unit>()
+    tasks.add({ writeDocumentIndexPage(settings, prov, toc, page, document, pages) })
+
+    when (document) {
+      is KSBlockDocumentWithParts    ->
+        document.content.forEach { p ->
+          tasks.add({ writeDocumentPart(settings, prov, toc, page, p, pages) })
+          p.content.forEach { s ->
+            tasks.add({ writeDocumentSection(settings, prov, toc, page, s, pages) })
+          }
+        }
+      is KSBlockDocumentWithSections ->
+        document.content.forEach { s ->
+          tasks.add({ writeDocumentSection(settings, prov, toc, page, s, pages) })
+        }
+    }
+
+    return tasks
+  }
+
+  private fun writeDocumentIndexPage(
+    settings : KSXOMSettings,
+    prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
+    page : KSXOMXHTMLPageTemplate,
+    d : KSBlockDocument<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : Unit {
+
+    val file = "index-m.xhtml"
+    LOG.debug("create {}", file)
+    pages.call(file).use { out ->
+      page.writePage(out, d.data.number, d.title) { s ->
+        s.node(KSXOM.navigationBar(prov, d, KSXOM.NavigationBarPosition.Top))
+        s.node(KSXOM.documentIndexTitle(d))
+        if (settings.render_toc_document) {
+          s.node(toc.forDocument(d))
+        }
+        s.node(KSXOM.navigationBar(prov, d, KSXOM.NavigationBarPosition.Bottom))
+      }
+    }
+  }
+
+  private fun writeDocumentPart(
+    settings : KSXOMSettings,
+    prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
+    page : KSXOMXHTMLPageTemplate,
+    p : KSBlockPart<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : Unit {
+
+    val file = p.data.number.get().toAnchor() + ".xhtml"
+    LOG.debug("create {}", file)
+    pages.call(file).use { out ->
+      page.writePage(out, p.data.number, p.title) { s ->
+        s.node(KSXOM.navigationBar(prov, p, KSXOM.NavigationBarPosition.Top))
+        s.startElement(KSXOM.partContainer(prov, p))
+        if (settings.render_toc_parts) {
+          s.node(toc.forPart(p))
+        }
+        s.endElement()
+        s.node(KSXOM.navigationBar(prov, p, KSXOM.NavigationBarPosition.Bottom))
+      }
+    }
+  }
+
+  private fun writeDocumentSection(
+    settings : KSXOMSettings,
+    prov : KSXOMLinkProviderType,
+    toc : KSXOMContents,
+    page : KSXOMXHTMLPageTemplate,
+    sc : KSBlockSection<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : Unit {
+
+    val file = sc.data.number.get().toAnchor() + ".xhtml"
+    LOG.debug("create {}", file)
+    pages.call(file).use { out ->
+      page.writePage(out, sc.data.number, sc.title) { s ->
+        s.node(KSXOM.navigationBar(prov, sc, KSXOM.NavigationBarPosition.Top))
+        KSXOMXHTMLStreaming.writeSection(s, settings, prov, toc, sc, true)
+        s.node(KSXOM.navigationBar(prov, sc, KSXOM.NavigationBarPosition.Bottom))
+      }
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.xom
+
+import com.io7m.jfunctional.PartialFunctionType
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithParts
+import com.io7m.kstructural.core.KSElement.KSBlock.KSBlockDocument.KSBlockDocumentWithSections
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import java.io.IOException
+import java.io.Writer
+
+object KSXOMXHTMLStreamingSingleWriter : KSXOMXHTMLStreamingWriterType {
+
+  @Throws(IOException::class)
+  override fun write(
+    settings : KSXOMSettings,
+    document : KSBlockDocument<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : Unit {
+
+    val prov = KSXOMXHTMLSingleLinkProvider
+    val toc = KSXOMContents.create(prov)
+    val page = KSXOMXHTMLPageTemplate.create(settings, document)
+    pages.call("index.xhtml").use { out ->
+      page.writePage(out, document.data.number, document.title) { s ->
+        s.node(KSXOM.documentIndexTitle(document))
+        s.node(toc.forDocument(document))
+
+        when (document) {
+          is KSBlockDocumentWithParts    ->
+            document.content.forEach { p ->
+              KSXOMXHTMLStreaming.writePart(s, settings, prov, toc, p, false)
+            }
+          is KSBlockDocumentWithSections ->
+            document.content.forEach { sc ->
+              KSXOMXHTMLStreaming.writeSection(s, settings, prov, toc, sc, false)
+            }
+        }
+
+        s.node(KSXOM.footnotes(prov, document.data.context.footnotesAll))
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.kstructural.xom
+
+import com.io7m.jfunctional.PartialFunctionType
+import com.io7m.kstructural.core.KSElement.KSBlock
+import com.io7m.kstructural.core.evaluator.KSEvaluation
+import java.io.IOException
+import java.io.Writer
+
+/**
+ * A writer that serializes XHTML pages directly to character streams as
+ * the document is traversed, instead of constructing a complete XOM document
+ * for each page. The produced bytes are identical to those produced by
+ * serializing the documents returned by the corresponding
+ * [KSXOMXHTMLWriterType] with `nu.xom.Serializer(os, "UTF-8")`.
+ *
+ * The `on_body_start` and `on_body_end` callbacks of the settings are
+ * evaluated against an initially empty body element before any content is
+ * written. Nodes that `on_body_end` places before the existing children of
+ * that element are written before the page content, and all other nodes are
+ * written after it.
+ */
+
+interface KSXOMXHTMLStreamingWriterType {
+
+  /**
+   * Write all pages of `document`. The function `pages` is called with the
+   * name of each page in turn, and the returned writer is closed when the
+   * page has been written.
+   */
+
+  @Throws(IOException::class)
+  fun write(
+    settings : KSXOMSettings,
+    document : KSBlock.KSBlockDocument<KSEvaluation>,
+    pages : PartialFunctionType<String, Writer, IOException>) : Unit
+
+}
@@ -19,11 +19,32 @@ package com.io7m.kstructural.xom
 import com.io7m.kstructural.core.KSElement.KSBlock
 import com.io7m.kstructural.core.evaluator.KSEvaluation
 import nu.xom.Document
+import java.io.IOException
 
 interface KSXOMXHTMLWriterType {
 
   fun write(
     settings : KSXOMSettings,
-    document : KSBlock.KSBlockDocument<KSEvaluation>) : Map<String, Document>
+    document : KSBlock.KSBlockDocument<KSEvaluation>) : Map<String, Document> {
+
+    val m : MutableMap<String, Document> = mutableMapOf()
+    write(settings, document, object : KSXOMXHTMLPageConsumerType {
+      override fun accept(name : String, page : Document) {
+        m.put(name, page)
+      }
+    })
+    return m
+  }
+
+  /**
+   * Write all pages of `document`, passing each page to `pages` as soon as
+   * it has been constructed.
+   */
+
+  @Throws(IOException::class)
+  fun write(
+    settings : KSXOMSettings,
+    document : KSBlock.KSBlockDocument<KSEvaluation>,
+    pages : KSXOMXHTMLPageConsumerType) : Unit
 
 }
@@ -16,7 +16,6 @@
 
 package com.io7m.kstructural.xom;
 
-import com.io7m.jfunctional.Unit;
 import com.io7m.jlexing.core.ImmutableLexicalPosition;
 import com.io7m.jlexing.core.ImmutableLexicalPositionType;
 import com.io7m.jnull.NullCheck;
@@ -83,38 +82,22 @@ public final class KSXOMXMLParserDriver implements KSParserDriverType
     this.parsers = NullCheck.notNull(in_parsers);
   }
 
-  private static KSResult<Unit, KSParseError> validateDocument(
+  private static KSResult<Document, KSParseError> parseDocument(
     final Path base_directory,
     final Path file)
+    throws IOException
   {
     try (final InputStream is =
            Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)) {
-      if (!KSJingValidation.validate(base_directory, file, is)) {
+      final KSJingValidatingFilter filter =
+        KSXOMXMLParserDriver.newValidatingReader(base_directory);
+      final Builder b = new Builder(filter);
+      final Document e = b.build(is, file.toString());
+      if (!filter.isValid()) {
         final KSParseError pe =
           new KSParseError(Optional.empty(), "Validation failed");
         return KSResults.fail(pe);
       }
-      return new KSResult.KSSuccess<>(Unit.unit());
-    } catch (final SAXException e) {
-      final KSParseError pe =
-        new KSParseError(Optional.empty(), e.getMessage());
-      return KSResults.fail(pe);
-    } catch (final IOException e) {
-      final KSParseError pe =
-        new KSParseError(Optional.empty(), e.getMessage());
-      return KSResults.fail(pe);
-    }
-  }
-
-  private static KSResult<Document, KSParseError> parseDocument(
-    final Path base_directory,
-    final Path file)
-    throws IOException
-  {
-    try (final InputStream is =
-           Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)) {
-      final Builder b = KSXOMXMLParserDriver.newBuilder(base_directory);
-      final Document e = b.build(is, file.toString());
       return new KSResult.KSSuccess<>(e);
     } catch (final ValidityException e) {
       final FileSystem fs = file.getFileSystem();
@@ -176,9 +159,14 @@ public final class KSXOMXMLParserDriver implements KSParserDriverType
     }
   }
 
+  /**
+   * Create a new XInclude-aware reader that validates the document as it is
+   * parsed, so that each file is only read once.
+   */
+
   @NotNull
-  private static Builder newBuilder(final Path base)
-    throws ParserConfigurationException, SAXException
+  private static KSJingValidatingFilter newValidatingReader(final Path base)
+    throws ParserConfigurationException, SAXException, IOException
   {
     final SAXParserFactory factory = SAXParserFactory.newInstance();
     factory.setValidating(false);
@@ -188,8 +176,10 @@ public final class KSXOMXMLParserDriver implements KSParserDriverType
 
     final SAXParser file_parser = factory.newSAXParser();
     final XMLReader file_reader = file_parser.getXMLReader();
-    file_reader.setEntityResolver(new KSRestrictedEntityResolver(base));
-    return new Builder(file_reader);
+    final KSJingValidatingFilter filter =
+      KSJingValidatingFilter.newFilter(file_reader);
+    filter.setEntityResolver(new KSRestrictedEntityResolver(base));
+    return filter;
   }
 
   private static KSResult<KSElement.KSBlock<KSParse>, KSParseError> failOutsideBase(
@@ -230,14 +220,12 @@ public final class KSXOMXMLParserDriver implements KSParserDriverType
       KSXOMXMLParserDriver.parseDocument(context.getBaseDirectory(), file);
 
     return d.flatMap(
-      document ->
-        KSXOMXMLParserDriver.validateDocument(
-          context.getBaseDirectory(), file).flatMap(x -> {
-          final KSXOMInlineParserType ip =
-            KSXOMInlineParser.Companion.create();
-          final KSXOMBlockParserType bp =
-            KSXOMBlockParser.Companion.create(ip);
-          return bp.parse(context, document.getRootElement());
-        }));
+      document -> {
+        final KSXOMInlineParserType ip =
+          KSXOMInlineParser.Companion.create();
+        final KSXOMBlockParserType bp =
+          KSXOMBlockParser.Companion.create(ip);
+        return bp.parse(context, document.getRootElement());
+      });
   }
 }